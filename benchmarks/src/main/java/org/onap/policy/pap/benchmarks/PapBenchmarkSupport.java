@@ -0,0 +1,318 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import lombok.Getter;
+import org.onap.policy.common.endpoints.event.comm.TopicEndpointManager;
+import org.onap.policy.common.endpoints.listeners.RequestIdDispatcher;
+import org.onap.policy.common.endpoints.utils.ParameterUtils;
+import org.onap.policy.common.parameters.ParameterService;
+import org.onap.policy.common.utils.coder.Coder;
+import org.onap.policy.common.utils.coder.StandardCoder;
+import org.onap.policy.common.utils.resources.ResourceUtils;
+import org.onap.policy.common.utils.services.Registry;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.pdp.concepts.Pdp;
+import org.onap.policy.models.pdp.concepts.PdpGroup;
+import org.onap.policy.models.pdp.concepts.PdpStatus;
+import org.onap.policy.models.pdp.concepts.PdpSubGroup;
+import org.onap.policy.models.pdp.enums.PdpHealthStatus;
+import org.onap.policy.models.pdp.enums.PdpState;
+import org.onap.policy.models.provider.PolicyModelsProvider;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyType;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyTypeIdentifier;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaServiceTemplate;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaTopologyTemplate;
+import org.onap.policy.pap.main.PapConstants;
+import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.onap.policy.pap.main.comm.DeploymentTracker;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
+import org.onap.policy.pap.main.comm.PdpGroupLockManager;
+import org.onap.policy.pap.main.comm.PdpHealthWriter;
+import org.onap.policy.pap.main.comm.PdpModifyRequestMap;
+import org.onap.policy.pap.main.comm.PdpTracker;
+import org.onap.policy.pap.main.comm.Publisher;
+import org.onap.policy.pap.main.comm.RolloutScheduler;
+import org.onap.policy.pap.main.comm.TimerManager;
+import org.onap.policy.pap.main.comm.ToscaPolicyCache;
+import org.onap.policy.pap.main.parameters.PapParameterGroup;
+import org.onap.policy.pap.main.parameters.PdpModifyRequestMapParams;
+import org.onap.policy.pap.main.parameters.PdpParameters;
+import org.onap.policy.pap.main.rest.PdpQuerySnapshots;
+
+/**
+ * Builds the PAP components used by the benchmarks, backed by an in-memory H2 DB and a
+ * "noop" topic, and places them into the Registry, just as PapActivator would. Only the
+ * timer threads are started; their wait times are such that no timer should fire during
+ * a benchmark. The PDP tracker's sweeper is not started.
+ */
+@Getter
+public class PapBenchmarkSupport implements AutoCloseable {
+    public static final String GROUP_NAME = "benchGroup";
+    public static final String PDP_TYPE = "benchType";
+    public static final String PDP_PREFIX = "pdp-";
+    public static final String POLICY_PREFIX = "onap.benchmark.policy.";
+    public static final ToscaPolicyTypeIdentifier POLICY_TYPE =
+                    new ToscaPolicyTypeIdentifier("onap.policies.Benchmark", "1.0.0");
+
+    private static final String PARAM_FILE = "benchmarks/PapParameters.json";
+    private static final String TOSCA_VERSION = "tosca_simple_yaml_1_0_0";
+    private static final int NPROPERTIES = 10;
+    private static final Coder coder = new StandardCoder();
+
+    private final PapParameterGroup params;
+    private final Object modifyLock = new Object();
+    private final PolicyModelsProviderFactoryWrapper daoFactory;
+    private final PdpGroupCache groupCache;
+    private final ToscaPolicyCache policyCache;
+    private final DeploymentTracker deploymentTracker;
+    private final PdpQuerySnapshots querySnapshots;
+    private final PdpHealthWriter healthWriter;
+    private final Publisher publisher;
+    private final TimerManager updateTimers;
+    private final TimerManager stateChangeTimers;
+    private final PdpModifyRequestMap requestMap;
+    private final PdpTracker tracker;
+    private final ScheduledExecutorService rolloutExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final RolloutScheduler rolloutScheduler;
+
+    /**
+     * Constructs the object. Creates a group containing the given number of PDPs and
+     * registers all of the components.
+     *
+     * @param npdps number of PDPs to place in the group
+     * @throws Exception if an error occurs
+     */
+    public PapBenchmarkSupport(int npdps) throws Exception {
+        params = coder.decode(ResourceUtils.getResourceAsString(PARAM_FILE), PapParameterGroup.class);
+        PdpParameters pdpParams = params.getPdpParameters();
+
+        Registry.newRegistry();
+        ParameterService.register(params, true);
+
+        TopicEndpointManager.getManager().addTopicSinks(
+                        ParameterUtils.getTopicProperties(params.getTopicParameterGroup()));
+
+        daoFactory = new PolicyModelsProviderFactoryWrapper(params.getDatabaseProviderParameters());
+        createGroup(npdps);
+
+        groupCache = new PdpGroupCache(daoFactory);
+        policyCache = new ToscaPolicyCache(pdpParams.getPolicyCacheSize(), pdpParams.getPolicyCacheTtlMs());
+        deploymentTracker = new DeploymentTracker(pdpParams.getMaxTrackedDeployments());
+        querySnapshots = new PdpQuerySnapshots(pdpParams.getMaxQuerySnapshots(), pdpParams.getMaxQuerySnapshotBytes());
+
+        healthWriter = PdpHealthWriter.builder().daoFactory(daoFactory).groupCache(groupCache).modifyLock(modifyLock)
+                        .flushMs(pdpParams.getHealthFlushMs()).maxPending(pdpParams.getMaxPendingHealthWrites())
+                        .build();
+
+        publisher = new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP);
+        updateTimers = new TimerManager("update", pdpParams.getUpdateParameters().getMaxWaitMs());
+        stateChangeTimers = new TimerManager("state-change", pdpParams.getStateChangeParameters().getMaxWaitMs());
+
+        requestMap = new PdpModifyRequestMap(new PdpModifyRequestMapParams().setDaoFactory(daoFactory)
+                        .setGroupCache(groupCache).setDeploymentTracker(deploymentTracker)
+                        .setModifyLock(modifyLock).setParams(pdpParams)
+                        .setPublisher(publisher)
+                        .setResponseDispatcher(new RequestIdDispatcher<>(PdpStatus.class, "response", "responseTo"))
+                        .setStateChangeTimers(stateChangeTimers).setUpdateTimers(updateTimers));
+
+        tracker = PdpTracker.builder().daoFactory(daoFactory).maxWaitMs(pdpParams.getHeartBeatMs())
+                        .sweepMs(pdpParams.getHeartBeatMs()).modifyLock(modifyLock).requestMap(requestMap).build();
+
+        rolloutScheduler = RolloutScheduler.builder().params(pdpParams.getRolloutParameters()).requestMap(requestMap)
+                        .deploymentTracker(deploymentTracker).modifyLock(modifyLock).executor(rolloutExecutor).build();
+        deploymentTracker.setListener(rolloutScheduler);
+
+        startThread(updateTimers);
+        startThread(stateChangeTimers);
+
+        Registry.register(PapConstants.REG_PAP_DAO_FACTORY, daoFactory);
+        Registry.register(PapConstants.REG_PDP_GROUP_CACHE, groupCache);
+        Registry.register(PapConstants.REG_PDP_HEALTH_WRITER, healthWriter);
+        Registry.register(PapConstants.REG_PDP_MODIFY_LOCK, modifyLock);
+        Registry.register(PapConstants.REG_PDP_MODIFY_MAP, requestMap);
+        Registry.register(PapConstants.REG_PDP_TRACKER, tracker);
+        Registry.register(PapConstants.REG_POLICY_CACHE, policyCache);
+        Registry.register(PapConstants.REG_PDP_GROUP_LOCKS, new PdpGroupLockManager());
+        Registry.register(PapConstants.REG_DEPLOYMENT_TRACKER, deploymentTracker);
+        Registry.register(PapConstants.REG_ROLLOUT_SCHEDULER, rolloutScheduler);
+        Registry.register(PapConstants.REG_PDP_QUERY_SNAPSHOTS, querySnapshots);
+    }
+
+    @Override
+    public void close() throws Exception {
+        updateTimers.stop();
+        stateChangeTimers.stop();
+        healthWriter.stop();
+        publisher.stop();
+        rolloutExecutor.shutdownNow();
+        daoFactory.close();
+
+        TopicEndpointManager.getManager().shutdown();
+        ParameterService.deregister(params.getName());
+        Registry.newRegistry();
+    }
+
+    /**
+     * Starts a background thread.
+     *
+     * @param runner function to run in the background
+     */
+    public static void startThread(Runnable runner) {
+        Thread thread = new Thread(runner);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Makes a heart beat for one of the PDPs in the group. The heart beat matches what
+     * is in the DB, thus it does not trigger any updates.
+     *
+     * @param index index of the PDP within the group
+     * @return a new heart beat message
+     */
+    public static PdpStatus makeHeartbeat(int index) {
+        PdpStatus status = new PdpStatus();
+        status.setName(PDP_PREFIX + index);
+        status.setPdpGroup(GROUP_NAME);
+        status.setPdpSubgroup(PDP_TYPE);
+        status.setPdpType(PDP_TYPE);
+        status.setState(PdpState.ACTIVE);
+        status.setHealthy(PdpHealthStatus.HEALTHY);
+        status.setSupportedPolicyTypes(Collections.singletonList(POLICY_TYPE));
+        status.setPolicies(Collections.emptyList());
+
+        return status;
+    }
+
+    /**
+     * Makes policies of the benchmark policy type. Each policy has a handful of
+     * properties, so that comparing two of them is not trivially cheap.
+     *
+     * @param first index of the first policy
+     * @param npolicies number of policies to make
+     * @return a list of new policies
+     */
+    public static List<ToscaPolicy> makePolicies(int first, int npolicies) {
+        List<ToscaPolicy> policies = new ArrayList<>(npolicies);
+
+        for (int index = first; index < first + npolicies; ++index) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            for (int prop = 0; prop < NPROPERTIES; ++prop) {
+                properties.put("property-" + prop, "value-" + index + "-" + prop);
+            }
+
+            ToscaPolicy policy = new ToscaPolicy();
+            policy.setName(POLICY_PREFIX + index);
+            policy.setVersion("1.0.0");
+            policy.setType(POLICY_TYPE.getName());
+            policy.setTypeVersion(POLICY_TYPE.getVersion());
+            policy.setMetadata(Collections.singletonMap("policy-id", policy.getName()));
+            policy.setProperties(properties);
+
+            policies.add(policy);
+        }
+
+        return policies;
+    }
+
+    /**
+     * Creates the benchmark policy type and the given policies in the DB. Policies that
+     * already exist are replaced.
+     *
+     * @param policies policies to be created
+     * @throws PfModelException if an error occurs
+     */
+    public void createPolicies(List<ToscaPolicy> policies) throws PfModelException {
+        ToscaPolicyType type = new ToscaPolicyType();
+        type.setName(POLICY_TYPE.getName());
+        type.setVersion(POLICY_TYPE.getVersion());
+        type.setDerivedFrom("tosca.policies.Root");
+        type.setDescription("benchmark policy type");
+
+        ToscaServiceTemplate typeTemplate = new ToscaServiceTemplate();
+        typeTemplate.setToscaDefinitionsVersion(TOSCA_VERSION);
+        typeTemplate.setPolicyTypes(Collections.singletonList(Collections.singletonMap(type.getName(), type)));
+
+        Map<String, ToscaPolicy> name2policy = new LinkedHashMap<>();
+        policies.forEach(policy -> name2policy.put(policy.getName(), policy));
+
+        ToscaTopologyTemplate topology = new ToscaTopologyTemplate();
+        topology.setPolicies(Collections.singletonList(name2policy));
+
+        ToscaServiceTemplate policyTemplate = new ToscaServiceTemplate();
+        policyTemplate.setToscaDefinitionsVersion(TOSCA_VERSION);
+        policyTemplate.setToscaTopologyTemplate(topology);
+
+        try (PolicyModelsProvider dao = daoFactory.create()) {
+            dao.createPolicyTypes(typeTemplate);
+            dao.createPolicies(policyTemplate);
+        }
+    }
+
+    /**
+     * Creates the group in the DB, replacing any previous version of it.
+     *
+     * @param npdps number of PDPs to place in the group
+     * @throws Exception if an error occurs
+     */
+    private void createGroup(int npdps) throws Exception {
+        List<Pdp> pdps = new ArrayList<>(npdps);
+        for (int index = 0; index < npdps; ++index) {
+            Pdp pdp = new Pdp();
+            pdp.setInstanceId(PDP_PREFIX + index);
+            pdp.setPdpState(PdpState.ACTIVE);
+            pdp.setHealthy(PdpHealthStatus.HEALTHY);
+            pdp.setMessage("");
+            pdps.add(pdp);
+        }
+
+        PdpSubGroup subgroup = new PdpSubGroup();
+        subgroup.setPdpType(PDP_TYPE);
+        subgroup.setCurrentInstanceCount(npdps);
+        subgroup.setDesiredInstanceCount(npdps);
+        subgroup.setSupportedPolicyTypes(Collections.singletonList(POLICY_TYPE));
+        subgroup.setPolicies(new ArrayList<>());
+        subgroup.setPdpInstances(pdps);
+
+        PdpGroup group = new PdpGroup();
+        group.setName(GROUP_NAME);
+        group.setDescription("benchmark group");
+        group.setPdpGroupState(PdpState.ACTIVE);
+        group.setPdpSubgroups(Collections.singletonList(subgroup));
+
+        try (PolicyModelsProvider dao = daoFactory.create()) {
+            if (!dao.getPdpGroups(GROUP_NAME).isEmpty()) {
+                dao.deletePdpGroup(GROUP_NAME);
+            }
+
+            dao.createPdpGroups(Collections.singletonList(group));
+        }
+    }
+}
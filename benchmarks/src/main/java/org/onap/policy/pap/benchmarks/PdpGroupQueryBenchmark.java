@@ -0,0 +1,150 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.benchmarks;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.EntityTag;
+import org.onap.policy.common.utils.coder.Coder;
+import org.onap.policy.common.utils.coder.StandardCoder;
+import org.onap.policy.models.pdp.concepts.PdpGroups;
+import org.onap.policy.models.provider.PolicyModelsProvider;
+import org.onap.policy.pap.main.rest.PdpGroupQueryProvider;
+import org.onap.policy.pap.main.rest.PdpQueryFilter;
+import org.onap.policy.pap.main.rest.PdpQuerySnapshots.Snapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the number of "GET pdps" requests per second that can be served, comparing
+ * the uncached path, which reads every group from the DB and encodes it, with the
+ * snapshot path, which reuses the serialized response, and with the If-None-Match path,
+ * which only compares entity tags. Responses larger than "maxQuerySnapshotBytes" are
+ * not kept, thus, for those, the snapshot path streams a freshly built response. Runs at the provider level, without the HTTP server,
+ * so that only the cost of producing the response is measured:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar PdpGroupQueryBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PdpGroupQueryBenchmark {
+    private static final Coder coder = new StandardCoder();
+
+    /**
+     * Number of PDPs in the group.
+     */
+    @Param({"1000", "5000"})
+    public int npdps;
+
+    private PapBenchmarkSupport support;
+    private PdpGroupQueryProvider provider;
+    private PdpQueryFilter filter;
+    private EntityTag tag;
+
+    /**
+     * Creates the PAP components and builds the initial snapshot.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        support = new PapBenchmarkSupport(npdps);
+        provider = new PdpGroupQueryProvider();
+        filter = new PdpQueryFilter(null, null, null, 0, 0);
+
+        // the snapshot is only recorded once it has been written
+        Snapshot snapshot = provider.fetchPdpGroupDetails(filter).getRight();
+        snapshot.write(new ByteCounter());
+        tag = snapshot.getTag();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        support.close();
+    }
+
+    /**
+     * Reads the groups from the DB and encodes them, as the endpoint did before it was
+     * served from snapshots.
+     */
+    @Benchmark
+    public long uncached() throws Exception {
+        PdpGroups groups = new PdpGroups();
+        try (PolicyModelsProvider dao = support.getDaoFactory().create()) {
+            groups.setGroups(dao.getPdpGroups(null));
+        }
+
+        return coder.encode(groups).length();
+    }
+
+    /**
+     * Writes the response from the current snapshot.
+     */
+    @Benchmark
+    public long snapshot() throws Exception {
+        ByteCounter output = new ByteCounter();
+        provider.fetchPdpGroupDetails(filter).getRight().write(output);
+        return output.count;
+    }
+
+    /**
+     * Compares the entity tag, as is done for a request containing If-None-Match.
+     */
+    @Benchmark
+    public boolean notModified() throws Exception {
+        Snapshot snapshot = provider.fetchPdpGroupDetails(filter).getRight();
+        return tag.equals(snapshot.getTag());
+    }
+
+    /**
+     * Output stream that discards its output, counting the bytes written to it.
+     */
+    private static class ByteCounter extends OutputStream {
+        private long count = 0;
+
+        @Override
+        public void write(int value) {
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+import org.onap.policy.pap.main.comm.PdpModifyRequestMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of {@link PdpModifyRequestMap#addRequest(PdpUpdate)} for a fleet of
+ * PDPs that already have an outstanding UPDATE, which is the case while a deployment is
+ * in progress. The publisher thread is not started, thus the queued messages are simply
+ * replaced, and this measures the map and the request bookkeeping rather than the topic.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PdpModifyRequestMapBenchmark {
+
+    /**
+     * Number of PDPs in the group.
+     */
+    @Param({"1000"})
+    public int npdps;
+
+    /**
+     * Number of policies in each UPDATE.
+     */
+    @Param({"10", "100"})
+    public int npolicies;
+
+    private PapBenchmarkSupport support;
+    private PdpModifyRequestMap map;
+
+    /**
+     * UPDATE messages, indexed by PDP. The second set has one more policy than the
+     * first.
+     */
+    private PdpUpdate[] updates1;
+    private PdpUpdate[] updates2;
+
+    private int next = 0;
+
+    /**
+     * Creates the PAP components and the messages, and adds an UPDATE for each PDP to the
+     * map.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        support = new PapBenchmarkSupport(npdps);
+        map = support.getRequestMap();
+
+        List<ToscaPolicy> policies1 = PapBenchmarkSupport.makePolicies(0, npolicies);
+        List<ToscaPolicy> policies2 = PapBenchmarkSupport.makePolicies(0, npolicies + 1);
+
+        updates1 = new PdpUpdate[npdps];
+        updates2 = new PdpUpdate[npdps];
+
+        for (int index = 0; index < npdps; ++index) {
+            updates1[index] = makeUpdate(index, policies1);
+            updates2[index] = makeUpdate(index, policies2);
+            map.addRequest(updates1[index]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        support.close();
+    }
+
+    /**
+     * Adds an UPDATE whose content matches the outstanding request, thus it is discarded.
+     */
+    @Benchmark
+    public void sameContent() {
+        map.addRequest(updates1[nextIndex()]);
+    }
+
+    /**
+     * Adds an UPDATE whose content differs from the outstanding request, thus it replaces
+     * it. Alternates between the two sets of policies on each pass through the PDPs.
+     */
+    @Benchmark
+    public void newContent() {
+        PdpUpdate[] updates = (next < npdps ? updates2 : updates1);
+        map.addRequest(updates[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        int index = next % npdps;
+        next = (next + 1) % (2 * npdps);
+        return index;
+    }
+
+    private PdpUpdate makeUpdate(int index, List<ToscaPolicy> policies) {
+        PdpUpdate update = new PdpUpdate();
+        update.setName(PapBenchmarkSupport.PDP_PREFIX + index);
+        update.setPdpGroup(PapBenchmarkSupport.GROUP_NAME);
+        update.setPdpSubgroup(PapBenchmarkSupport.PDP_TYPE);
+        update.setPolicies(policies);
+
+        return update;
+    }
+}
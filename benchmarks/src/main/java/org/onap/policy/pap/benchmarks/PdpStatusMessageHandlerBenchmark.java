@@ -0,0 +1,105 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.onap.policy.models.pdp.concepts.PdpStatus;
+import org.onap.policy.pap.main.comm.PdpStatusMessageHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of processing a single heart beat, comparing a handler that is
+ * constructed for each message, as the listener used to do, with one that is shared
+ * across messages. The heart beats match the DB, thus this measures the steady state
+ * path. Run with the GC profiler to see the allocation per heart beat:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar PdpStatusMessageHandlerBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PdpStatusMessageHandlerBenchmark {
+
+    /**
+     * Number of PDPs in the group.
+     */
+    @Param({"100"})
+    public int npdps;
+
+    private PapBenchmarkSupport support;
+    private PdpStatusMessageHandler handler;
+    private PdpStatus[] heartbeats;
+    private int next = 0;
+
+    /**
+     * Creates the PAP components and the heart beats.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        support = new PapBenchmarkSupport(npdps);
+        handler = new PdpStatusMessageHandler();
+
+        heartbeats = new PdpStatus[npdps];
+        for (int index = 0; index < npdps; ++index) {
+            heartbeats[index] = PapBenchmarkSupport.makeHeartbeat(index);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        support.close();
+    }
+
+    @Benchmark
+    public void handlerPerMessage() {
+        new PdpStatusMessageHandler().handlePdpStatus(nextHeartbeat());
+    }
+
+    @Benchmark
+    public void sharedHandler() {
+        handler.handlePdpStatus(nextHeartbeat());
+    }
+
+    private PdpStatus nextHeartbeat() {
+        PdpStatus status = heartbeats[next];
+        next = (next + 1) % heartbeats.length;
+        return status;
+    }
+}
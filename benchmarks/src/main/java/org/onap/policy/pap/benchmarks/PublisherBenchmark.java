@@ -0,0 +1,156 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.onap.policy.common.endpoints.event.comm.TopicEndpointManager;
+import org.onap.policy.common.endpoints.event.comm.TopicSink;
+import org.onap.policy.common.utils.coder.StandardCoder;
+import org.onap.policy.common.utils.services.Registry;
+import org.onap.policy.models.pdp.concepts.PdpMessage;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.pap.main.PapConstants;
+import org.onap.policy.pap.main.comm.Publisher;
+import org.onap.policy.pap.main.comm.QueueToken;
+import org.onap.policy.pap.main.metrics.PapMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the rate at which the {@link Publisher} encodes and sends UPDATE messages.
+ * The topic is a "noop" topic, which acts as a stub sink that merely records the most
+ * recent messages, thus this measures the publisher itself. Each invocation enqueues a
+ * burst of messages and waits for the publisher to send all of them, so the score is in
+ * messages per unit of time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublisherBenchmark {
+    private static final int BURST_SIZE = 1000;
+    private static final long POLL_NS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    /**
+     * Maximum number of messages the publisher removes from its queue at a time.
+     */
+    @Param({"1", "100"})
+    public int batchSize;
+
+    /**
+     * Number of threads used to encode the messages.
+     */
+    @Param({"1", "4"})
+    public int nthreads;
+
+    /**
+     * Number of policies in each UPDATE.
+     */
+    @Param({"10"})
+    public int npolicies;
+
+    private PapBenchmarkSupport support;
+    private Publisher publisher;
+    private LongAdder sentCount;
+    private LongAdder failedCount;
+    private PdpMessage[] messages;
+
+    /**
+     * Creates the PAP components, the publisher and the messages, and starts the
+     * publisher.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        support = new PapBenchmarkSupport(1);
+
+        // register the metrics so the publisher's counters can be seen here
+        PapMetrics metrics = new PapMetrics();
+        Registry.register(PapConstants.REG_PAP_METRICS, metrics);
+
+        TopicEndpointManager.getManager().getTopicSinks(PapConstants.TOPIC_POLICY_PDP_PAP).forEach(TopicSink::start);
+
+        publisher = new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP, new StandardCoder(), batchSize, nthreads);
+        sentCount = metrics.counter("pap_publisher_sent_total", "");
+        failedCount = metrics.counter("pap_publisher_failed_total", "");
+
+        messages = new PdpMessage[BURST_SIZE];
+        for (int index = 0; index < BURST_SIZE; ++index) {
+            PdpUpdate update = new PdpUpdate();
+            update.setName(PapBenchmarkSupport.PDP_PREFIX + index);
+            update.setPdpGroup(PapBenchmarkSupport.GROUP_NAME);
+            update.setPdpSubgroup(PapBenchmarkSupport.PDP_TYPE);
+            update.setPolicies(PapBenchmarkSupport.makePolicies(0, npolicies));
+            messages[index] = update;
+        }
+
+        PapBenchmarkSupport.startThread(publisher);
+    }
+
+    /**
+     * Stops the publisher and verifies that every message was sent.
+     *
+     * @throws Exception if an error occurs
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        publisher.stop();
+        support.close();
+
+        if (failedCount.sum() > 0) {
+            throw new IllegalStateException(failedCount.sum() + " messages were not sent");
+        }
+    }
+
+    /**
+     * Enqueues a burst of messages and waits for them to be sent.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public void publish() {
+        long target = sentCount.sum() + failedCount.sum() + BURST_SIZE;
+
+        for (PdpMessage message : messages) {
+            publisher.enqueue(new QueueToken<>(message));
+        }
+
+        while (sentCount.sum() + failedCount.sum() < target) {
+            LockSupport.parkNanos(POLL_NS);
+        }
+    }
+}
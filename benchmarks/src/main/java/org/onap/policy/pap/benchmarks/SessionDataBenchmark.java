@@ -0,0 +1,119 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.onap.policy.models.pap.concepts.PdpDeployPolicies;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifierOptVersion;
+import org.onap.policy.pap.main.rest.depundep.PdpGroupDeleteProvider;
+import org.onap.policy.pap.main.rest.depundep.PdpGroupDeployProvider;
+import org.onap.policy.pap.main.rest.depundep.SessionData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the processing of a simple deployment request, from the {@link SessionData}
+ * reading the policies and groups, through the DB and cache updates, to the UPDATE
+ * requests being added to the request map, for a group with many PDPs. The policies are
+ * undeployed after each invocation, outside of the measurement; each invocation takes
+ * milliseconds, thus the cost of the invocation-level fixture does not skew the result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionDataBenchmark {
+
+    /**
+     * Number of PDPs in the group.
+     */
+    @Param({"100", "1000"})
+    public int npdps;
+
+    /**
+     * Number of policies in each deployment request.
+     */
+    @Param({"1", "10"})
+    public int npolicies;
+
+    private PapBenchmarkSupport support;
+    private PdpGroupDeployProvider deployer;
+    private PdpGroupDeleteProvider undeployer;
+    private PdpDeployPolicies request;
+
+    /**
+     * Creates the PAP components, the policies and the deployment request.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        support = new PapBenchmarkSupport(npdps);
+
+        List<ToscaPolicy> policies = PapBenchmarkSupport.makePolicies(0, npolicies);
+        support.createPolicies(policies);
+
+        deployer = new PdpGroupDeployProvider();
+        undeployer = new PdpGroupDeleteProvider();
+
+        request = new PdpDeployPolicies();
+        request.setPolicies(policies.stream().map(ToscaPolicy::getIdentifier)
+                        .map(ToscaPolicyIdentifierOptVersion::new).collect(Collectors.toList()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        support.close();
+    }
+
+    /**
+     * Undeploys the policies that were deployed by the invocation.
+     *
+     * @throws Exception if an error occurs
+     */
+    @TearDown(Level.Invocation)
+    public void undeploy() throws Exception {
+        for (ToscaPolicyIdentifierOptVersion ident : request.getPolicies()) {
+            undeployer.undeploy(ident);
+        }
+    }
+
+    @Benchmark
+    public String deploy() throws Exception {
+        return deployer.deployPolicies(request);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.onap.policy.pap.main.rest.PapStatisticsManager;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Stat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures increment throughput of the {@link PapStatisticsManager} under contention,
+ * comparing it with a single shared {@link AtomicLong}, which is how the counters used to
+ * be kept. Run {@link #main(String[])} to sweep the thread count from 1 to 64; otherwise
+ * the benchmarks run with JMH's default of a single thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatisticsManagerBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final String GROUP = "benchmark-group";
+    private static final String PDP_TYPE = "benchmark-type";
+
+    private final AtomicLong atomic = new AtomicLong();
+    private final PapStatisticsManager mgr = new PapStatisticsManager();
+
+    /**
+     * Runs each benchmark once for each thread count.
+     *
+     * @param args not used
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        for (int nthreads : THREADS) {
+            new Runner(new OptionsBuilder().include(StatisticsManagerBenchmark.class.getSimpleName())
+                            .threads(nthreads).build()).run();
+        }
+    }
+
+    /**
+     * Increments a single shared counter.
+     */
+    @Benchmark
+    public long atomicBaseline() {
+        return atomic.incrementAndGet();
+    }
+
+    /**
+     * Increments one of the manager's totals.
+     */
+    @Benchmark
+    public void striped() {
+        mgr.update(Stat.TOTAL_POLICY_DOWNLOAD, null, null);
+    }
+
+    /**
+     * Increments one of the manager's totals, along with its group and PDP type
+     * breakdowns.
+     */
+    @Benchmark
+    public void stripedWithBreakdown() {
+        mgr.update(Stat.TOTAL_POLICY_DOWNLOAD, GROUP, PDP_TYPE);
+    }
+}
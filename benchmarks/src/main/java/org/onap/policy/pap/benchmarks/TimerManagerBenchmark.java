@@ -0,0 +1,128 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.onap.policy.pap.main.comm.TimerManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures register and cancel throughput of the {@link TimerManager} while it holds a
+ * large number of live timers, as the heart beat timer manager does when tracking a large
+ * fleet of PDPs. The timers never expire during the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimerManagerBenchmark {
+    private static final long WAIT_MS = TimeUnit.HOURS.toMillis(1);
+    private static final Consumer<String> ACTION = name -> { };
+
+    /**
+     * Number of live timers.
+     */
+    @Param({"100000"})
+    public int ntimers;
+
+    private TimerManager timers;
+    private String[] names;
+
+    /**
+     * Per-thread position within {@link TimerManagerBenchmark#names}.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private static final AtomicInteger threadCount = new AtomicInteger();
+
+        private final String extraName = "extra-" + threadCount.incrementAndGet();
+        private int next = 0;
+
+        private String nextName(String[] names) {
+            String name = names[next];
+            next = (next + 1) % names.length;
+            return name;
+        }
+    }
+
+    /**
+     * Starts the manager and registers the live timers.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        timers = new TimerManager("benchmark", WAIT_MS);
+        PapBenchmarkSupport.startThread(timers);
+
+        names = new String[ntimers];
+        for (int index = 0; index < ntimers; ++index) {
+            names[index] = PapBenchmarkSupport.PDP_PREFIX + index;
+            timers.register(names[index], ACTION);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timers.stop();
+    }
+
+    /**
+     * Replaces an existing timer, which is what happens on each heart beat.
+     */
+    @Benchmark
+    public TimerManager.Timer reRegister(Cursor cursor) {
+        return timers.register(cursor.nextName(names), ACTION);
+    }
+
+    /**
+     * Same as {@link #reRegister(Cursor)}, but from several threads at once.
+     */
+    @Benchmark
+    @Threads(4)
+    public TimerManager.Timer reRegisterContended(Cursor cursor) {
+        return timers.register(cursor.nextName(names), ACTION);
+    }
+
+    /**
+     * Registers a new timer and then cancels it, as is done for each request sent to a
+     * PDP.
+     */
+    @Benchmark
+    public boolean registerAndCancel(Cursor cursor) {
+        return timers.register(cursor.extraName, ACTION).cancel();
+    }
+}
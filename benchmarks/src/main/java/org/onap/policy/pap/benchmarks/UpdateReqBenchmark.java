@@ -0,0 +1,128 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.onap.policy.common.endpoints.listeners.RequestIdDispatcher;
+import org.onap.policy.models.pdp.concepts.PdpStatus;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+import org.onap.policy.pap.main.comm.msgdata.UpdateReq;
+import org.onap.policy.pap.main.parameters.RequestParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of comparing UPDATE requests and of checking a PDP's response to an
+ * UPDATE, as the number of policies grows. The policies being compared are equal but
+ * distinct objects, as they would be if they had been read from the DB by different
+ * requests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpdateReqBenchmark {
+    private static final String PDP_NAME = PapBenchmarkSupport.PDP_PREFIX + 0;
+
+    /**
+     * Number of policies in each UPDATE.
+     */
+    @Param({"10", "100", "1000"})
+    public int npolicies;
+
+    private PapBenchmarkSupport support;
+    private UpdateReq request;
+    private UpdateReq sameRequest;
+    private UpdateReq differentRequest;
+    private PdpStatus response;
+
+    /**
+     * Creates the requests and the response.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        support = new PapBenchmarkSupport(1);
+
+        RequestParams params = new RequestParams().setMaxRetryCount(1).setModifyLock(support.getModifyLock())
+                        .setPublisher(support.getPublisher()).setTimers(support.getUpdateTimers())
+                        .setResponseDispatcher(new RequestIdDispatcher<>(PdpStatus.class, "response", "responseTo"));
+
+        request = makeRequest(params, PapBenchmarkSupport.makePolicies(0, npolicies));
+        sameRequest = makeRequest(params, PapBenchmarkSupport.makePolicies(0, npolicies));
+
+        // differs only in the last policy
+        List<ToscaPolicy> different = PapBenchmarkSupport.makePolicies(0, npolicies);
+        different.set(npolicies - 1, PapBenchmarkSupport.makePolicies(npolicies, 1).get(0));
+        differentRequest = makeRequest(params, different);
+
+        response = PapBenchmarkSupport.makeHeartbeat(0);
+        response.setPolicies(PapBenchmarkSupport.makePolicies(0, npolicies).stream().map(ToscaPolicy::getIdentifier)
+                        .collect(Collectors.toList()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        support.close();
+    }
+
+    @Benchmark
+    public boolean isSameContent() {
+        return request.isSameContent(sameRequest);
+    }
+
+    @Benchmark
+    public boolean isDifferentContent() {
+        return request.isSameContent(differentRequest);
+    }
+
+    @Benchmark
+    public String checkResponse() {
+        return request.checkResponse(response);
+    }
+
+    private UpdateReq makeRequest(RequestParams params, List<ToscaPolicy> policies) {
+        PdpUpdate update = new PdpUpdate();
+        update.setName(PDP_NAME);
+        update.setPdpGroup(PapBenchmarkSupport.GROUP_NAME);
+        update.setPdpSubgroup(PapBenchmarkSupport.PDP_TYPE);
+        update.setPolicies(policies);
+
+        return new UpdateReq(params, PDP_NAME + " " + PdpUpdate.class.getSimpleName(), update);
+    }
+}
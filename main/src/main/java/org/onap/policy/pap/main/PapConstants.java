@@ -29,9 +29,18 @@ public class PapConstants {
     public static final String REG_PAP_ACTIVATOR = "object:activator/pap";
     public static final String REG_STATISTICS_MANAGER = "object:manager/statistics";
     public static final String REG_PDP_MODIFY_LOCK = "lock:pdp";
+    public static final String REG_PDP_GROUP_LOCKS = "lock:pdp/groups";
     public static final String REG_PDP_MODIFY_MAP = "object:pdp/modify/map";
     public static final String REG_PDP_TRACKER = "object:pdp/tracker";
+    public static final String REG_PDP_GROUP_CACHE = "object:pdp/group/cache";
+    public static final String REG_PDP_HEALTH_WRITER = "object:pdp/health/writer";
     public static final String REG_PAP_DAO_FACTORY = "object:pap/dao/factory";
+    public static final String REG_POLICY_CACHE = "object:policy/cache";
+    public static final String REG_DEPLOYMENT_TRACKER = "object:deployment/tracker";
+    public static final String REG_ROLLOUT_SCHEDULER = "object:deployment/rollout/scheduler";
+    public static final String REG_PDP_MESSAGE_COMPRESSOR = "object:pdp/message/compressor";
+    public static final String REG_PDP_QUERY_SNAPSHOTS = "object:pdp/query/snapshots";
+    public static final String REG_PAP_METRICS = "object:pap/metrics";
 
     // topic names
     public static final String TOPIC_POLICY_PDP_PAP = "POLICY-PDP-PAP";
@@ -20,44 +20,451 @@
 
 package org.onap.policy.pap.main;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.core.Response.Status;
 import org.onap.policy.models.base.PfModelException;
 import org.onap.policy.models.provider.PolicyModelsProvider;
 import org.onap.policy.models.provider.PolicyModelsProviderFactory;
 import org.onap.policy.models.provider.PolicyModelsProviderParameters;
+import org.onap.policy.pap.main.metrics.LatencyHistogram;
+import org.onap.policy.pap.main.metrics.PapMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Wraps a {@link PolicyModelsProviderFactoryWrapper}.
+ * Wraps a {@link PolicyModelsProviderFactory}, maintaining a bounded pool of providers.
+ * Building a provider is expensive, as each one has its own entity manager factory, thus
+ * providers are reused rather than being rebuilt for each request. The provider returned
+ * by {@link #create()} is a handle to a pooled provider; closing the handle returns the
+ * provider to the pool.
+ *
+ * <p>Some components borrow a provider and then take the PDP modification lock, while
+ * others take the lock and then borrow a provider. If the latter had to wait for the
+ * pool, the lock holder could wait on threads that are themselves waiting for the lock,
+ * stalling all of PAP. Thus a thread that holds the modification lock is never made to
+ * wait; it is given a provider from a separate reserve instead. As only one thread can
+ * hold the lock at a time, the reserve only grows as large as the number of providers
+ * that the lock holder uses at once.
+ *
+ * <p>A provider whose call throws an exception, other than one reporting a client error,
+ * is assumed to be broken (e.g., its DB connection may have died), thus it is closed
+ * when it is returned, rather than being reused.
  */
 public class PolicyModelsProviderFactoryWrapper implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PolicyModelsProviderFactoryWrapper.class);
+
+    /**
+     * Default maximum number of providers that may be in use at one time.
+     */
+    public static final int DEFAULT_POOL_SIZE = 8;
+
+    /**
+     * Default maximum time, in milliseconds, to wait for a provider to become available.
+     */
+    public static final long DEFAULT_MAX_WAIT_MS = 30000L;
+
     private final PolicyModelsProviderParameters params;
     private final PolicyModelsProviderFactory factory;
 
+    private final int poolSize;
+    private final long maxWaitMs;
+
     /**
-     * Constructs the object.
+     * One permit for each provider that may be in use at one time.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Providers that are not currently in use. Used as a stack so that the most recently
+     * used provider is reused first.
+     */
+    private final BlockingDeque<PolicyModelsProvider> idle = new LinkedBlockingDeque<>();
+
+    /**
+     * Providers, reserved for threads holding the modification lock, that are not
+     * currently in use.
+     */
+    private final BlockingDeque<PolicyModelsProvider> reserve = new LinkedBlockingDeque<>();
+
+    /**
+     * PDP modification lock, or {@code null} if there is no reserve.
+     */
+    private final Object modifyLock;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    // pool metrics
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createCount = new AtomicLong();
+    private final AtomicLong discardCount = new AtomicLong();
+    private final AtomicLong totalWaitNs = new AtomicLong();
+    private final AtomicLong maxWaitNs = new AtomicLong();
+
+    /**
+     * Used to get the latency histogram for each DAO method.
+     */
+    private final PapMetrics metrics = PapMetrics.lookup();
+
+    /**
+     * Latency of the calls to each DAO method.
+     */
+    private final ConcurrentMap<Method, LatencyHistogram> method2latency = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructs the object, using the default pool size and wait time.
      *
      * @param params DAO configuration parameters
      */
     public PolicyModelsProviderFactoryWrapper(PolicyModelsProviderParameters params) {
+        this(params, DEFAULT_POOL_SIZE, DEFAULT_MAX_WAIT_MS);
+    }
+
+    /**
+     * Constructs the object.
+     *
+     * @param params DAO configuration parameters
+     * @param poolSize maximum number of providers that may be in use at one time
+     * @param maxWaitMs maximum time, in milliseconds, to wait for a provider to become
+     *        available
+     */
+    public PolicyModelsProviderFactoryWrapper(PolicyModelsProviderParameters params, int poolSize, long maxWaitMs) {
+        this(params, poolSize, maxWaitMs, null);
+    }
+
+    /**
+     * Constructs the object.
+     *
+     * @param params DAO configuration parameters
+     * @param poolSize maximum number of providers that may be in use at one time, not
+     *        counting those in use by the holder of the modification lock
+     * @param maxWaitMs maximum time, in milliseconds, to wait for a provider to become
+     *        available
+     * @param modifyLock PDP modification lock, or {@code null}, if threads holding a lock
+     *        should wait for the pool like any other
+     */
+    public PolicyModelsProviderFactoryWrapper(PolicyModelsProviderParameters params, int poolSize, long maxWaitMs,
+                    Object modifyLock) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("pool size must be >= 1");
+        }
+
+        if (maxWaitMs < 0) {
+            throw new IllegalArgumentException("max wait time must be >= 0");
+        }
+
         this.params = params;
         this.factory = new PolicyModelsProviderFactory();
+        this.poolSize = poolSize;
+        this.maxWaitMs = maxWaitMs;
+        this.permits = new Semaphore(poolSize, true);
+        this.modifyLock = modifyLock;
     }
 
+    /**
+     * Pre-populates the pool so that the first requests need not wait for providers to
+     * be built.
+     *
+     * @param count number of providers to build; limited to the pool size
+     * @throws PfModelException if a provider cannot be built
+     */
+    public void warmUp(int count) throws PfModelException {
+        int nbuild = Math.min(count, poolSize) - idle.size();
+
+        for (int nprov = 0; nprov < nbuild && !closed.get(); ++nprov) {
+            idle.offerLast(makeProvider());
+        }
+
+        logger.info("DAO pool warmed up with {} providers", idle.size());
+    }
+
+    /**
+     * Closes all of the idle providers. Providers that are in use are closed as they are
+     * returned.
+     */
     @Override
     public void close() throws Exception {
-        /*
-         * PolicyModelsProviderFactory should, in theory, implement AutoCloseable so it
-         * can close the entity manager factory and release all data. Since it doesn't
-         * this method does nothing for now.
-         */
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        PolicyModelsProvider provider;
+        while ((provider = idle.pollFirst()) != null) {
+            closeProvider(provider);
+        }
+
+        while ((provider = reserve.pollFirst()) != null) {
+            closeProvider(provider);
+        }
+    }
+
+    /**
+     * Borrows a provider from the pool, building a new one if none is idle. The caller
+     * must close the provider, which returns it to the pool. A thread that holds the
+     * modification lock is given a provider from the reserve, without waiting.
+     *
+     * @return a pooled provider
+     * @throws PfModelException if no provider becomes available in time or if a
+     *         provider cannot be built
+     */
+    public PolicyModelsProvider create() throws PfModelException {
+        if (closed.get()) {
+            throw new PfModelException(Status.SERVICE_UNAVAILABLE, "DAO pool is closed");
+        }
+
+        if (modifyLock != null && Thread.holdsLock(modifyLock)) {
+            return borrow(reserve, true);
+        }
+
+        long tstart = System.nanoTime();
+
+        try {
+            if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new PfModelException(Status.SERVICE_UNAVAILABLE,
+                                "no DAO provider became available within " + maxWaitMs + "ms");
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PfModelException(Status.SERVICE_UNAVAILABLE, "interrupted while waiting for a DAO provider", e);
+        }
+
+        recordWait(System.nanoTime() - tstart);
+
+        try {
+            return borrow(idle, false);
+
+        } catch (PfModelException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Borrows a provider, building a new one if none is idle.
+     *
+     * @param providers providers from which to borrow
+     * @param reserved {@code true} if the provider is from the reserve
+     * @return a handle to the provider
+     * @throws PfModelException if a provider cannot be built
+     */
+    private PolicyModelsProvider borrow(BlockingDeque<PolicyModelsProvider> providers, boolean reserved)
+                    throws PfModelException {
+
+        PolicyModelsProvider provider = providers.pollFirst();
+        if (provider == null) {
+            provider = makeProvider();
+        }
+
+        activeCount.incrementAndGet();
+        borrowCount.incrementAndGet();
+
+        return (PolicyModelsProvider) Proxy.newProxyInstance(PolicyModelsProvider.class.getClassLoader(),
+                        new Class<?>[] {PolicyModelsProvider.class}, new PooledHandler(provider, reserved));
+    }
+
+    /**
+     * Returns a provider to the pool, or closes it if it is broken.
+     *
+     * @param provider provider to be returned
+     * @param reserved {@code true} if the provider is from the reserve
+     * @param broken {@code true} if the provider is broken
+     */
+    private void release(PolicyModelsProvider provider, boolean reserved, boolean broken) {
+        activeCount.decrementAndGet();
+
+        if (broken) {
+            logger.warn("discarding DAO provider after a failed call");
+            discardCount.incrementAndGet();
+            closeProvider(provider);
+
+        } else if (closed.get()) {
+            closeProvider(provider);
+
+        } else {
+            (reserved ? reserve : idle).offerFirst(provider);
+        }
+
+        if (!reserved) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Determines if an exception thrown by a provider indicates that the provider may be
+     * broken. Exceptions reporting client errors (e.g., an invalid request or an object
+     * that does not exist) do not.
+     *
+     * @param exception exception thrown by the provider
+     * @return {@code true} if the provider may be broken, {@code false} otherwise
+     */
+    private static boolean isBroken(Throwable exception) {
+        if (!(exception instanceof PfModelException)) {
+            return true;
+        }
+
+        Status status = ((PfModelException) exception).getErrorResponse().getResponseCode();
+        return (status == null || status.getFamily() != Status.Family.CLIENT_ERROR);
+    }
+
+    private void recordWait(long waitNs) {
+        totalWaitNs.addAndGet(waitNs);
+
+        long prev;
+        while (waitNs > (prev = maxWaitNs.get())) {
+            if (maxWaitNs.compareAndSet(prev, waitNs)) {
+                break;
+            }
+        }
+    }
+
+    private void closeProvider(PolicyModelsProvider provider) {
+        try {
+            provider.close();
+
+        } catch (Exception e) {
+            logger.warn("failed to close DAO provider", e);
+        }
     }
 
     /**
-     * Creates a provider based on models-pap.
+     * Gets the number of providers that are currently in use.
+     *
+     * @return the number of providers that are currently in use
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Gets the number of providers that are currently idle, including those in the
+     * reserve.
+     *
+     * @return the number of providers that are currently idle
+     */
+    public int getIdleCount() {
+        return idle.size() + reserve.size();
+    }
+
+    /**
+     * Gets the number of times a provider has been borrowed from the pool.
+     *
+     * @return the number of times a provider has been borrowed from the pool
+     */
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     * Gets the number of providers that have been built.
+     *
+     * @return the number of providers that have been built
+     */
+    public long getCreateCount() {
+        return createCount.get();
+    }
+
+    /**
+     * Gets the number of providers that were discarded, rather than being returned to the
+     * pool, because a call failed.
+     *
+     * @return the number of providers that were discarded
+     */
+    public long getDiscardCount() {
+        return discardCount.get();
+    }
+
+    /**
+     * Gets the total time, in milliseconds, that requesters have waited for providers.
+     *
+     * @return the total wait time, in milliseconds
+     */
+    public long getTotalWaitMs() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNs.get());
+    }
+
+    /**
+     * Gets the longest time, in milliseconds, that a requester has waited for a
+     * provider.
+     *
+     * @return the longest wait time, in milliseconds
+     */
+    public long getMaxWaitMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNs.get());
+    }
+
+    // these may be overridden by junit tests
+
+    /**
+     * Builds a new provider.
      *
      * @return a new provider
      * @throws PfModelException if an error occurs
      */
-    public PolicyModelsProvider create() throws PfModelException {
-        return factory.createPolicyModelsProvider(params);
+    protected PolicyModelsProvider makeProvider() throws PfModelException {
+        PolicyModelsProvider provider = factory.createPolicyModelsProvider(params);
+        createCount.incrementAndGet();
+        return provider;
+    }
+
+    /**
+     * Handle to a pooled provider. Delegates everything to the provider, except for
+     * {@link PolicyModelsProvider#close()}, which returns the provider to the pool.
+     */
+    private class PooledHandler implements InvocationHandler {
+        private final PolicyModelsProvider provider;
+        private final boolean reserved;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private volatile boolean broken = false;
+
+        public PooledHandler(PolicyModelsProvider provider, boolean reserved) {
+            this.provider = provider;
+            this.reserved = reserved;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                // only return it once, even if closed multiple times
+                if (released.compareAndSet(false, true)) {
+                    release(provider, reserved, broken);
+                }
+                return null;
+            }
+
+            if (released.get()) {
+                throw new IllegalStateException("DAO provider has already been closed");
+            }
+
+            long tstart = System.nanoTime();
+
+            try {
+                return method.invoke(provider, args);
+
+            } catch (InvocationTargetException e) {
+                if (isBroken(e.getCause())) {
+                    broken = true;
+                }
+
+                throw e.getCause();
+
+            } finally {
+                method2latency.computeIfAbsent(method, key -> metrics.histogram("pap_dao_call_seconds",
+                                "Latency of calls to the DAO", "method", key.getName())).recordSince(tstart);
+            }
+        }
     }
 }
@@ -0,0 +1,102 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import org.onap.policy.common.endpoints.event.comm.Topic.CommInfrastructure;
+import org.onap.policy.common.endpoints.event.comm.TopicListener;
+import org.onap.policy.common.utils.coder.CoderException;
+import org.onap.policy.pap.main.comm.PdpMessageCompressor.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Topic listener that decompresses messages, if they were compressed, before passing them
+ * on to another listener. Messages that cannot be decompressed are discarded. So are
+ * compressed messages whose envelope names a type of message that the other listener does
+ * not handle (e.g., the UPDATE messages that PAP itself published to the topic); those are
+ * discarded without being decompressed.
+ */
+public class DecompressingTopicListener implements TopicListener {
+    private static final Logger logger = LoggerFactory.getLogger(DecompressingTopicListener.class);
+
+    private final PdpMessageCompressor compressor;
+    private final TopicListener listener;
+
+    /**
+     * Types of compressed messages to be passed to the listener, or {@code null} to pass
+     * all of them.
+     */
+    private final Set<String> messageNames;
+
+    /**
+     * Constructs the object. All messages are passed to the listener.
+     *
+     * @param compressor used to decompress the messages
+     * @param listener listener to which the decompressed messages are passed
+     */
+    public DecompressingTopicListener(PdpMessageCompressor compressor, TopicListener listener) {
+        this(compressor, listener, null);
+    }
+
+    /**
+     * Constructs the object.
+     *
+     * @param compressor used to decompress the messages
+     * @param listener listener to which the decompressed messages are passed
+     * @param messageNames types of compressed messages to be passed to the listener, or
+     *        {@code null} to pass all of them
+     */
+    public DecompressingTopicListener(PdpMessageCompressor compressor, TopicListener listener,
+                    Collection<String> messageNames) {
+        this.compressor = compressor;
+        this.listener = listener;
+        this.messageNames = (messageNames == null ? null : new HashSet<>(messageNames));
+    }
+
+    @Override
+    public void onTopicEvent(CommInfrastructure infra, String topic, String event) {
+        Envelope envelope = PdpMessageCompressor.parseEnvelope(event);
+        if (envelope == null) {
+            listener.onTopicEvent(infra, topic, event);
+            return;
+        }
+
+        if (messageNames != null && envelope.getMessageName() != null
+                        && !messageNames.contains(envelope.getMessageName())) {
+            logger.debug("ignoring compressed {} message on topic {}", envelope.getMessageName(), topic);
+            return;
+        }
+
+        String message;
+        try {
+            message = compressor.decompress(envelope);
+
+        } catch (CoderException e) {
+            logger.warn("discarding undecodable message on topic {}", topic, e);
+            return;
+        }
+
+        listener.onTopicEvent(infra, topic, message);
+    }
+}
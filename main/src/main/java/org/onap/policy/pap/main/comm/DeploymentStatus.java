@@ -0,0 +1,82 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Status of a deployment, as seen by the PAP. A deployment is complete once every PDP
+ * that was sent a message has either applied it or failed.
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class DeploymentStatus {
+
+    /**
+     * Overall state of a deployment.
+     */
+    public enum State {
+        IN_PROGRESS, SUCCESS, FAILURE
+    }
+
+    /**
+     * Outcome of a single message sent to a PDP.
+     */
+    public enum Outcome {
+        PENDING, SUCCESS, FAILURE, RETRY_EXHAUSTED, HALTED
+    }
+
+    private String trackingId;
+    private State state;
+    private List<PdpResult> pdps;
+
+    /**
+     * Result of a single message sent to a PDP.
+     */
+    @Getter
+    @Setter
+    @ToString
+    @NoArgsConstructor
+    public static class PdpResult {
+        private String pdpName;
+        private String messageType;
+        private Outcome outcome;
+        private String reason;
+
+        /**
+         * Constructs the object.
+         *
+         * @param source object to be copied
+         */
+        public PdpResult(PdpResult source) {
+            this.pdpName = source.pdpName;
+            this.messageType = source.messageType;
+            this.outcome = source.outcome;
+            this.reason = source.reason;
+        }
+    }
+}
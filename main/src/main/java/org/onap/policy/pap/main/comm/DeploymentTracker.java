@@ -0,0 +1,481 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.onap.policy.models.pdp.concepts.PdpMessage;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.pap.main.comm.DeploymentStatus.Outcome;
+import org.onap.policy.pap.main.comm.DeploymentStatus.PdpResult;
+import org.onap.policy.pap.main.comm.DeploymentStatus.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the outcome of the messages sent to the PDPs on behalf of a deployment. Each
+ * deployment is assigned a tracking ID, which can subsequently be used to retrieve its
+ * status. Only the most recent deployments are retained.
+ *
+ * <p>A PDP has at most one outstanding request of each message type, into which newer
+ * messages are merged. Consequently, when a request completes, it completes every
+ * deployment that is waiting on that PDP and message type.
+ *
+ * <p>An optional {@link Listener} is told as each message completes, which allows
+ * follow-on work (e.g., releasing the next wave of a rollout) to be driven by the PDPs'
+ * responses.
+ */
+public class DeploymentTracker {
+    private static final Logger logger = LoggerFactory.getLogger(DeploymentTracker.class);
+
+    /**
+     * Maps a tracking ID to its deployment, oldest first.
+     */
+    private final Map<String, Deployment> id2deployment;
+
+    /**
+     * Maps a PDP name to the deployments that are waiting on it.
+     */
+    private final Map<String, Set<Deployment>> pdp2deployments = new HashMap<>();
+
+    /**
+     * Told as each message completes, or {@code null}.
+     */
+    private Listener listener;
+
+
+    /**
+     * Constructs the object.
+     *
+     * @param maxDeployments maximum number of deployments to retain
+     */
+    public DeploymentTracker(int maxDeployments) {
+        if (maxDeployments < 1) {
+            throw new IllegalArgumentException("invalid maximum deployments: " + maxDeployments);
+        }
+
+        this.id2deployment = new LinkedHashMap<String, Deployment>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<String, Deployment> eldest) {
+                if (size() <= maxDeployments) {
+                    return false;
+                }
+
+                Deployment deployment = eldest.getValue();
+                unindex(deployment);
+
+                if (deployment.pending > 0 && listener != null) {
+                    listener.evicted(deployment.trackingId);
+                }
+
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Sets the listener to be told as each message completes.
+     *
+     * @param listener the listener, or {@code null} to remove the current listener
+     */
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts tracking a deployment.
+     *
+     * @param messages messages being sent to the PDPs on behalf of the deployment
+     * @return the deployment's tracking ID
+     */
+    public synchronized String add(Collection<? extends PdpMessage> messages) {
+        Deployment deployment = new Deployment(UUID.randomUUID().toString());
+
+        for (PdpMessage message : messages) {
+            deployment.add(message);
+            pdp2deployments.computeIfAbsent(message.getName(), key -> new HashSet<>()).add(deployment);
+        }
+
+        logger.info("tracking deployment {} for {} messages", deployment.trackingId, deployment.pending);
+        id2deployment.put(deployment.trackingId, deployment);
+
+        return deployment.trackingId;
+    }
+
+    /**
+     * Indicates that a PDP has successfully applied a message.
+     *
+     * @param message the message that was applied
+     */
+    public synchronized void success(PdpMessage message) {
+        String pdpName = message.getName();
+        Set<Deployment> deployments = pdp2deployments.get(pdpName);
+        if (deployments == null) {
+            return;
+        }
+
+        String type = getType(message);
+
+        Iterator<Deployment> iter = deployments.iterator();
+        while (iter.hasNext()) {
+            Deployment deployment = iter.next();
+            notifyCompleted(deployment, deployment.complete(pdpName, type, Outcome.SUCCESS, null));
+
+            if (!deployment.isWaitingOn(pdpName)) {
+                iter.remove();
+            }
+        }
+
+        if (deployments.isEmpty()) {
+            pdp2deployments.remove(pdpName);
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Indicates that a PDP has failed to apply a message. Every outstanding message for
+     * the PDP is considered to have failed.
+     *
+     * @param pdpName name of the PDP
+     * @param reason reason for the failure
+     */
+    public void failure(String pdpName, String reason) {
+        fail(pdpName, Outcome.FAILURE, reason);
+    }
+
+    /**
+     * Indicates that a PDP did not respond before its retry count was exhausted. Every
+     * outstanding message for the PDP is considered to have failed.
+     *
+     * @param pdpName name of the PDP
+     */
+    public void retryCountExhausted(String pdpName) {
+        fail(pdpName, Outcome.RETRY_EXHAUSTED, "retry count exhausted");
+    }
+
+    /**
+     * Fails every outstanding message for a PDP.
+     *
+     * @param pdpName name of the PDP
+     * @param outcome outcome to be assigned to the messages
+     * @param reason reason for the failure
+     */
+    private synchronized void fail(String pdpName, Outcome outcome, String reason) {
+        Set<Deployment> deployments = pdp2deployments.remove(pdpName);
+        if (deployments == null) {
+            return;
+        }
+
+        deployments.forEach(
+            deployment -> notifyCompleted(deployment, deployment.complete(pdpName, null, outcome, reason)));
+
+        notifyAll();
+    }
+
+    /**
+     * Indicates that a deployment was halted before its UPDATE messages were sent to some
+     * of its PDPs. Those messages are considered to have failed. Other deployments that
+     * are waiting on the same PDPs are not affected.
+     *
+     * @param trackingId the deployment's tracking ID
+     * @param pdpNames names of the PDPs that were not sent their UPDATE messages
+     * @param reason reason for halting the deployment
+     */
+    public synchronized void halted(String trackingId, Collection<String> pdpNames, String reason) {
+        Deployment deployment = id2deployment.get(trackingId);
+        if (deployment == null) {
+            return;
+        }
+
+        String type = PdpUpdate.class.getSimpleName();
+
+        for (String pdpName : pdpNames) {
+            notifyCompleted(deployment, deployment.complete(pdpName, type, Outcome.HALTED, reason));
+
+            if (!deployment.isWaitingOn(pdpName)) {
+                unindex(pdpName, deployment);
+            }
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Gets the status of a deployment.
+     *
+     * @param trackingId the deployment's tracking ID
+     * @return the deployment's status, or {@code null} if the deployment is unknown
+     */
+    public synchronized DeploymentStatus getStatus(String trackingId) {
+        Deployment deployment = id2deployment.get(trackingId);
+        return (deployment == null ? null : deployment.makeStatus());
+    }
+
+    /**
+     * Waits for a deployment to complete, and then gets its status.
+     *
+     * @param trackingId the deployment's tracking ID
+     * @param waitMs maximum time, in milliseconds, to wait
+     * @return the deployment's status, which may still be in progress if the time
+     *         expired, or {@code null} if the deployment is unknown
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public synchronized DeploymentStatus awaitStatus(String trackingId, long waitMs) throws InterruptedException {
+        Deployment deployment = id2deployment.get(trackingId);
+        if (deployment == null) {
+            return null;
+        }
+
+        long endMs = System.currentTimeMillis() + waitMs;
+
+        for (long remainingMs = waitMs; deployment.pending > 0 && remainingMs > 0;
+                        remainingMs = endMs - System.currentTimeMillis()) {
+            wait(remainingMs);
+        }
+
+        return deployment.makeStatus();
+    }
+
+    /**
+     * Gets the number of deployments currently retained.
+     *
+     * @return the number of deployments retained
+     */
+    public synchronized int size() {
+        return id2deployment.size();
+    }
+
+    /**
+     * Gets the type of a message. Subclasses of {@link PdpUpdate} (e.g., deltas) are
+     * considered to be of the same type as the messages from which they were derived.
+     *
+     * @param message the message of interest
+     * @return the message's type
+     */
+    private static String getType(PdpMessage message) {
+        return (message instanceof PdpUpdate ? PdpUpdate.class : message.getClass()).getSimpleName();
+    }
+
+    /**
+     * Tells the listener, if any, about messages that have completed.
+     *
+     * @param deployment deployment to which the messages belong
+     * @param completed results of the messages that have completed
+     */
+    private void notifyCompleted(Deployment deployment, List<PdpResult> completed) {
+        if (listener == null) {
+            return;
+        }
+
+        for (PdpResult result : completed) {
+            try {
+                listener.completed(deployment.trackingId, new PdpResult(result));
+
+            } catch (RuntimeException e) {
+                logger.warn("listener failed for deployment {}", deployment.trackingId, e);
+            }
+        }
+    }
+
+    /**
+     * Removes a deployment from the PDP index.
+     *
+     * @param deployment deployment to be removed
+     */
+    private void unindex(Deployment deployment) {
+        for (String pdpName : deployment.getPdpNames()) {
+            unindex(pdpName, deployment);
+        }
+    }
+
+    /**
+     * Removes a deployment from a single PDP's entry in the PDP index.
+     *
+     * @param pdpName name of the PDP
+     * @param deployment deployment to be removed
+     */
+    private void unindex(String pdpName, Deployment deployment) {
+        Set<Deployment> deployments = pdp2deployments.get(pdpName);
+        if (deployments != null) {
+            deployments.remove(deployment);
+
+            if (deployments.isEmpty()) {
+                pdp2deployments.remove(pdpName);
+            }
+        }
+    }
+
+    /**
+     * Listens for the completion of the messages being tracked. The methods are invoked
+     * while the tracker is locked, thus they should not block.
+     */
+    public interface Listener {
+
+        /**
+         * Indicates that a message has completed.
+         *
+         * @param trackingId tracking ID of the deployment to which the message belongs
+         * @param result result of the message
+         */
+        void completed(String trackingId, PdpResult result);
+
+        /**
+         * Indicates that a deployment was evicted before all of its messages completed.
+         * No further completions will be reported for it.
+         *
+         * @param trackingId the deployment's tracking ID
+         */
+        void evicted(String trackingId);
+    }
+
+    /**
+     * A single deployment. Uses identity for equality.
+     */
+    private static class Deployment {
+        private final String trackingId;
+
+        /**
+         * Maps a PDP name and message type to the result of that message.
+         */
+        private final Map<String, PdpResult> results = new LinkedHashMap<>();
+
+        /**
+         * Number of results that are still pending.
+         */
+        private int pending = 0;
+
+        public Deployment(String trackingId) {
+            this.trackingId = trackingId;
+        }
+
+        /**
+         * Adds a message that the deployment must wait on.
+         *
+         * @param message message being sent to a PDP
+         */
+        public void add(PdpMessage message) {
+            String type = getType(message);
+
+            PdpResult result = new PdpResult();
+            result.setPdpName(message.getName());
+            result.setMessageType(type);
+            result.setOutcome(Outcome.PENDING);
+
+            if (results.put(makeKey(message.getName(), type), result) == null) {
+                ++pending;
+            }
+        }
+
+        /**
+         * Completes outstanding messages for a PDP.
+         *
+         * @param pdpName name of the PDP
+         * @param type type of message to be completed, or {@code null} to complete all
+         *        messages for the PDP
+         * @param outcome outcome of the message
+         * @param reason reason for a failure, or {@code null}
+         * @return the results that were completed
+         */
+        public List<PdpResult> complete(String pdpName, String type, Outcome outcome, String reason) {
+            List<PdpResult> completed = new ArrayList<>();
+
+            for (PdpResult result : results.values()) {
+                if (result.getOutcome() == Outcome.PENDING && pdpName.equals(result.getPdpName())
+                                && (type == null || type.equals(result.getMessageType()))) {
+
+                    result.setOutcome(outcome);
+                    result.setReason(reason);
+                    --pending;
+                    completed.add(result);
+                }
+            }
+
+            if (pending == 0) {
+                logger.info("deployment {} completed", trackingId);
+            }
+
+            return completed;
+        }
+
+        /**
+         * Determines if the deployment is still waiting on a PDP.
+         *
+         * @param pdpName name of the PDP
+         * @return {@code true} if the deployment is still waiting on the PDP
+         */
+        public boolean isWaitingOn(String pdpName) {
+            return results.values().stream().anyMatch(
+                result -> result.getOutcome() == Outcome.PENDING && pdpName.equals(result.getPdpName()));
+        }
+
+        /**
+         * Gets the names of the PDPs associated with the deployment.
+         *
+         * @return the names of the PDPs
+         */
+        public Set<String> getPdpNames() {
+            return results.values().stream().map(PdpResult::getPdpName).collect(Collectors.toSet());
+        }
+
+        /**
+         * Makes a status object, reflecting the current status of the deployment.
+         *
+         * @return a new status object
+         */
+        public DeploymentStatus makeStatus() {
+            List<PdpResult> pdps = new ArrayList<>(results.size());
+            results.values().forEach(result -> pdps.add(new PdpResult(result)));
+
+            DeploymentStatus status = new DeploymentStatus();
+            status.setTrackingId(trackingId);
+            status.setPdps(pdps);
+
+            if (pending > 0) {
+                status.setState(State.IN_PROGRESS);
+
+            } else if (pdps.stream().allMatch(result -> result.getOutcome() == Outcome.SUCCESS)) {
+                status.setState(State.SUCCESS);
+
+            } else {
+                status.setState(State.FAILURE);
+            }
+
+            return status;
+        }
+
+        private static String makeKey(String pdpName, String type) {
+            return pdpName + " " + type;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes tasks on a fixed set of worker threads, partitioned by key. Tasks having the
+ * same key are always executed by the same worker, thus they are executed in the order in
+ * which they were submitted. Tasks having different keys may be executed concurrently.
+ *
+ * <p>Each worker has a bounded queue. Once a worker's queue is full, new tasks for that
+ * worker are dropped, and counted, rather than allowing the backlog to grow without
+ * bound. Tasks that must not be dropped are submitted via
+ * {@link #executeOrWait(String, Runnable)} instead, which blocks the caller until the
+ * worker has room for them.
+ */
+public class PartitionedExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedExecutor.class);
+
+    /**
+     * Default maximum number of tasks that may be queued for each worker.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    /**
+     * Maximum time, in milliseconds, that {@link #stop()} waits for each worker to
+     * finish the tasks that are still queued.
+     */
+    private static final long STOP_WAIT_MS = 30000;
+
+    /**
+     * Name of this executor, used to name the threads and for logging purposes.
+     */
+    private final String name;
+
+    /**
+     * Number of worker threads.
+     */
+    private final int nworkers;
+
+    /**
+     * Maximum number of tasks that may be queued for each worker.
+     */
+    private final int queueSize;
+
+    /**
+     * Number of tasks that were dropped because a worker's queue was full.
+     */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * The workers, each of which has a single thread, or {@code null} if the executor is
+     * not running.
+     */
+    private volatile ThreadPoolExecutor[] workers = null;
+
+
+    /**
+     * Constructs the object, using the {@link #DEFAULT_QUEUE_SIZE default} queue size.
+     *
+     * @param name name of this executor, used to name the threads and for logging
+     *        purposes
+     * @param nworkers number of worker threads
+     */
+    public PartitionedExecutor(String name, int nworkers) {
+        this(name, nworkers, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Constructs the object.
+     *
+     * @param name name of this executor, used to name the threads and for logging
+     *        purposes
+     * @param nworkers number of worker threads
+     * @param queueSize maximum number of tasks that may be queued for each worker
+     */
+    public PartitionedExecutor(String name, int nworkers, int queueSize) {
+        if (nworkers < 1) {
+            throw new IllegalArgumentException("nworkers must be >= 1");
+        }
+
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("queueSize must be >= 1");
+        }
+
+        this.name = name;
+        this.nworkers = nworkers;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Gets the number of tasks that were dropped because a worker's queue was full.
+     *
+     * @return the number of dropped tasks
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Starts the worker threads.
+     *
+     * @throws IllegalStateException if the executor is already running
+     */
+    public synchronized void start() {
+        if (workers != null) {
+            throw new IllegalStateException("executor " + name + " is already running");
+        }
+
+        logger.info("executor {} starting {} workers", name, nworkers);
+
+        ThreadPoolExecutor[] newWorkers = new ThreadPoolExecutor[nworkers];
+        for (int index = 0; index < nworkers; ++index) {
+            String threadName = name + "-" + index;
+
+            newWorkers[index] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(queueSize), runner -> {
+                                Thread thread = new Thread(runner, threadName);
+                                thread.setDaemon(true);
+                                return thread;
+                            }, this::reject);
+
+            // executeOrWait() adds tasks directly to the queue, thus the thread must exist
+            newWorkers[index].prestartCoreThread();
+        }
+
+        workers = newWorkers;
+    }
+
+    /**
+     * Stops the worker threads. Tasks that are still queued are executed before the
+     * threads exit; this waits for them to complete.
+     */
+    public synchronized void stop() {
+        ThreadPoolExecutor[] oldWorkers = workers;
+        if (oldWorkers == null) {
+            return;
+        }
+
+        logger.info("executor {} stopping", name);
+
+        workers = null;
+
+        for (ThreadPoolExecutor worker : oldWorkers) {
+            worker.shutdown();
+        }
+
+        try {
+            for (ThreadPoolExecutor worker : oldWorkers) {
+                if (!worker.awaitTermination(STOP_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    logger.warn("executor {} worker did not finish its tasks - discarding them", name);
+                    worker.shutdownNow();
+                }
+            }
+
+        } catch (InterruptedException e) {
+            logger.warn("executor {} interrupted while stopping", name);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a task for execution by the worker associated with the given key. The task
+     * is discarded if the executor is not running or if the worker's queue is full.
+     *
+     * @param key key identifying the partition; may be {@code null}
+     * @param task task to be executed
+     */
+    public void execute(String key, Runnable task) {
+        ThreadPoolExecutor[] current = workers;
+        if (current == null) {
+            logger.warn("executor {} is not running - discarded task for {}", name, key);
+            return;
+        }
+
+        current[getPartition(key, current.length)].execute(task);
+    }
+
+    /**
+     * Queues a task for execution by the worker associated with the given key, waiting
+     * for room if the worker's queue is full, so that the task is never dropped. The
+     * task is still discarded if the executor is not running.
+     *
+     * @param key key identifying the partition; may be {@code null}
+     * @param task task to be executed
+     */
+    public void executeOrWait(String key, Runnable task) {
+        ThreadPoolExecutor[] current = workers;
+        if (current == null) {
+            logger.warn("executor {} is not running - discarded task for {}", name, key);
+            return;
+        }
+
+        ThreadPoolExecutor worker = current[getPartition(key, current.length)];
+
+        try {
+            worker.getQueue().put(task);
+
+        } catch (InterruptedException e) {
+            droppedCount.incrementAndGet();
+            logger.warn("executor {} interrupted while queuing task for {} - discarded task", name, key);
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // the worker may have exited before the task was added
+        if (worker.isShutdown() && worker.remove(task)) {
+            logger.warn("executor {} is stopping - discarded task for {}", name, key);
+        }
+    }
+
+    /**
+     * Handles a task that a worker could not accept, by dropping it.
+     *
+     * @param task task that was rejected
+     * @param worker worker that rejected the task
+     */
+    private void reject(Runnable task, ThreadPoolExecutor worker) {
+        if (worker.isShutdown()) {
+            logger.warn("executor {} is stopping - discarded task", name);
+
+        } else {
+            droppedCount.incrementAndGet();
+            logger.warn("executor {} queue is full - discarded task", name);
+        }
+    }
+
+    /**
+     * Gets the partition associated with a key.
+     *
+     * @param key key of interest; may be {@code null}
+     * @param npartitions number of partitions
+     * @return the partition associated with the key
+     */
+    protected static int getPartition(String key, int npartitions) {
+        return (key == null ? 0 : Math.floorMod(key.hashCode(), npartitions));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
+
+/**
+ * UPDATE message that is versioned against a per-subgroup generation number. When
+ * {@link #baseGeneration} is non-zero, the message is a "delta": only
+ * {@link #policiesToBeDeployed} and {@link #policiesToBeUndeployed} are sent to the
+ * PDP, which is expected to apply them to the policies it received for the base
+ * generation. Otherwise, it is a full update, and the policies are sent as usual.
+ *
+ * <p>In either case, the complete set of policies is retained in the message, so that
+ * the PDP's response can be validated against it; {@link PdpMessageCoder} omits it when
+ * encoding a delta.
+ */
+@Getter
+@Setter
+@ToString(callSuper = true)
+public class PdpDeltaUpdate extends PdpUpdate {
+
+    /**
+     * Generation that the PDP will be at, once it applies this message.
+     */
+    private long generation;
+
+    /**
+     * Generation against which the delta was computed, or zero, if this is a full
+     * update.
+     */
+    private long baseGeneration;
+
+    private List<ToscaPolicy> policiesToBeDeployed;
+    private List<ToscaPolicyIdentifier> policiesToBeUndeployed;
+
+
+    /**
+     * Constructs the object.
+     */
+    public PdpDeltaUpdate() {
+        super();
+    }
+
+    /**
+     * Constructs a full update from a plain UPDATE message.
+     *
+     * @param source message whose "header" fields and policies are to be copied
+     * @param generation generation that the PDP will be at, once it applies the message
+     */
+    public PdpDeltaUpdate(PdpUpdate source, long generation) {
+        setName(source.getName());
+        setDescription(source.getDescription());
+        setPdpGroup(source.getPdpGroup());
+        setPdpSubgroup(source.getPdpSubgroup());
+        setPdpHeartbeatIntervalMs(source.getPdpHeartbeatIntervalMs());
+        setPolicies(source.getPolicies());
+
+        this.generation = generation;
+    }
+
+    /**
+     * Determines if this is a delta, as opposed to a full update.
+     *
+     * @return {@code true} if this is a delta, {@code false} otherwise
+     */
+    public boolean isDelta() {
+        return (baseGeneration != 0);
+    }
+
+    /**
+     * Makes a full update equivalent to this message, to be sent when the PDP cannot
+     * apply the delta. The new message has its own request ID.
+     *
+     * @return a new full update
+     */
+    public PdpDeltaUpdate makeFullUpdate() {
+        return new PdpDeltaUpdate(this, generation);
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.pdp.concepts.Pdp;
+import org.onap.policy.models.pdp.concepts.PdpGroup;
+import org.onap.policy.models.pdp.concepts.PdpSubGroup;
+import org.onap.policy.models.pdp.enums.PdpState;
+import org.onap.policy.models.provider.PolicyModelsProvider;
+import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.onap.policy.pap.main.PolicyPapRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory copy of the PDP groups, indexed by group name, subgroup (i.e., PDP type), and
+ * PDP instance ID. The groups are loaded from the DB when the cache is constructed.
+ * Thereafter, every component that writes a group, subgroup, or PDP to the DB must also
+ * write it to the cache, thus the cache always reflects the content of the DB and may be
+ * used in lieu of it when looking up a PDP.
+ *
+ * <p>Objects returned by the "get" methods belong to the cache and must not be modified.
+ * Instead, modify a copy and then pass it to the appropriate "put" method, once it has
+ * been written to the DB.
+ *
+ * <p>The cache never modifies those objects in place, either. Cached groups and subgroups
+ * hold unmodifiable lists. Replacing a subgroup or PDP builds new copies of the affected
+ * subgroup and group, sharing the parts that did not change, and swaps a new entry into
+ * the cache, so that readers may use the objects without locking. A reader that obtained
+ * an object before a replacement continues to see the old content.
+ */
+public class PdpGroupCache {
+    private static final Logger logger = LoggerFactory.getLogger(PdpGroupCache.class);
+
+    /**
+     * Maps a group name to its entry.
+     */
+    private final Map<String, GroupEntry> name2group = new ConcurrentHashMap<>();
+
+    /**
+     * Maps a group name to the stamp assigned the last time the group's configuration was
+     * modified. Entries are retained, even after their group is removed, so that a stamp
+     * is never reused for the same group.
+     */
+    private final Map<String, Long> name2stamp = new ConcurrentHashMap<>();
+
+    /**
+     * Source of modification stamps. Also serves as the cache's version, thus it is
+     * advanced by every modification, even those that do not change a group's stamp.
+     */
+    private final AtomicLong lastStamp = new AtomicLong();
+
+
+    /**
+     * Constructs the object. Loads the groups from the DB.
+     *
+     * @param daoFactory DAO factory
+     */
+    public PdpGroupCache(@NonNull PolicyModelsProviderFactoryWrapper daoFactory) {
+        loadGroups(daoFactory);
+    }
+
+    /**
+     * Loads the groups from the DB.
+     *
+     * @param daoFactory DAO factory
+     */
+    private void loadGroups(PolicyModelsProviderFactoryWrapper daoFactory) {
+        try (PolicyModelsProvider dao = daoFactory.create()) {
+            putGroups(dao.getPdpGroups(null));
+
+        } catch (PfModelException e) {
+            throw new PolicyPapRuntimeException("cannot load PDP groups from the DB", e);
+        }
+    }
+
+    /**
+     * Gets a group.
+     *
+     * @param groupName name of the group of interest
+     * @return the group, or {@code null} if it is not in the cache
+     */
+    public PdpGroup getGroup(String groupName) {
+        GroupEntry entry = getEntry(groupName);
+        return (entry == null ? null : entry.group);
+    }
+
+    /**
+     * Gets a group, provided it is active.
+     *
+     * @param groupName name of the group of interest
+     * @return the group, or {@code null} if it is not in the cache or is not active
+     */
+    public PdpGroup getActiveGroup(String groupName) {
+        PdpGroup group = getGroup(groupName);
+        return (group == null || group.getPdpGroupState() != PdpState.ACTIVE ? null : group);
+    }
+
+    /**
+     * Gets the names of the groups in the cache.
+     *
+     * @return the group names, sorted
+     */
+    public List<String> getGroupNames() {
+        List<String> names = new ArrayList<>(name2group.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Gets a copy of a group.
+     *
+     * @param groupName name of the group of interest
+     * @return a copy of the group, or {@code null} if it is not in the cache
+     */
+    public synchronized PdpGroup copyGroup(String groupName) {
+        PdpGroup group = getGroup(groupName);
+        return (group == null ? null : new PdpGroup(group));
+    }
+
+    /**
+     * Gets a copy of all of the groups in the cache.
+     *
+     * @return a copy of the groups in the cache
+     */
+    public synchronized List<PdpGroup> getGroups() {
+        List<PdpGroup> groups = new ArrayList<>(name2group.size());
+        name2group.values().forEach(entry -> groups.add(new PdpGroup(entry.group)));
+        return groups;
+    }
+
+    /**
+     * Gets a subgroup.
+     *
+     * @param groupName name of the group containing the subgroup
+     * @param pdpType PDP type of the subgroup
+     * @return the subgroup, or {@code null} if it is not in the cache
+     */
+    public PdpSubGroup getSubGroup(String groupName, String pdpType) {
+        SubGroupEntry entry = getEntry(groupName, pdpType);
+        return (entry == null ? null : entry.subgroup);
+    }
+
+    /**
+     * Gets a PDP.
+     *
+     * @param groupName name of the group containing the PDP
+     * @param pdpType PDP type of the subgroup containing the PDP
+     * @param instanceId PDP instance ID
+     * @return the PDP, or {@code null} if it is not in the cache
+     */
+    public Pdp getPdp(String groupName, String pdpType, String instanceId) {
+        SubGroupEntry entry = getEntry(groupName, pdpType);
+        return (entry == null || instanceId == null ? null : entry.id2pdp.get(instanceId));
+    }
+
+    /**
+     * Adds or replaces groups.
+     *
+     * @param groups groups to be added
+     */
+    public void putGroups(Collection<PdpGroup> groups) {
+        groups.forEach(this::putGroup);
+    }
+
+    /**
+     * Adds or replaces a group. A copy of the group is placed into the cache.
+     *
+     * @param group group to be added
+     */
+    public synchronized void putGroup(PdpGroup group) {
+        logger.debug("cache group {}", group.getName());
+        name2group.put(group.getName(), GroupEntry.copyOf(group));
+        touch(group.getName());
+    }
+
+    /**
+     * Replaces a subgroup within a group. A copy of the subgroup is placed into the
+     * cache. Does nothing if the group is not in the cache.
+     *
+     * @param groupName name of the group containing the subgroup
+     * @param subgroup the new subgroup
+     */
+    public synchronized void putSubGroup(String groupName, PdpSubGroup subgroup) {
+        GroupEntry entry = getEntry(groupName);
+        if (entry == null) {
+            logger.warn("cannot cache subgroup {} for unknown group {}", subgroup.getPdpType(), groupName);
+            return;
+        }
+
+        logger.debug("cache group {} subgroup {}", groupName, subgroup.getPdpType());
+        SubGroupEntry old = entry.type2sub.get(subgroup.getPdpType());
+        name2group.put(groupName, entry.withSubGroup(SubGroupEntry.copyOf(subgroup)));
+
+        if (old == null || isConfigChanged(old.subgroup, subgroup)) {
+            touch(groupName);
+        } else {
+            lastStamp.incrementAndGet();
+        }
+    }
+
+    /**
+     * Determines if a subgroup's configuration differs from that of the cached subgroup.
+     * The configuration includes the PDPs that belong to the subgroup, as groups are
+     * written to the DB as a whole, but not the PDPs' health or state.
+     *
+     * @param old the cached subgroup
+     * @param subgroup the new subgroup
+     * @return {@code true} if the configuration has changed, {@code false} otherwise
+     */
+    private static boolean isConfigChanged(PdpSubGroup old, PdpSubGroup subgroup) {
+        return !Objects.equals(old.getPolicies(), subgroup.getPolicies())
+                        || !Objects.equals(old.getSupportedPolicyTypes(), subgroup.getSupportedPolicyTypes())
+                        || old.getDesiredInstanceCount() != subgroup.getDesiredInstanceCount()
+                        || !Objects.equals(old.getProperties(), subgroup.getProperties())
+                        || !getPdpIds(old).equals(getPdpIds(subgroup));
+    }
+
+    /**
+     * Gets the instance IDs of the PDPs within a subgroup.
+     *
+     * @param subgroup subgroup of interest
+     * @return the PDP instance IDs
+     */
+    private static Set<String> getPdpIds(PdpSubGroup subgroup) {
+        return subgroup.getPdpInstances().stream().map(Pdp::getInstanceId).collect(Collectors.toSet());
+    }
+
+    /**
+     * Replaces a PDP within a subgroup. A copy of the PDP is placed into the cache. Does
+     * nothing if the subgroup is not in the cache.
+     *
+     * @param groupName name of the group containing the PDP
+     * @param pdpType PDP type of the subgroup containing the PDP
+     * @param pdp the new PDP
+     */
+    public synchronized void putPdp(String groupName, String pdpType, Pdp pdp) {
+        SubGroupEntry entry = getEntry(groupName, pdpType);
+        if (entry == null) {
+            logger.warn("cannot cache PDP {} for unknown group {} subgroup {}", pdp.getInstanceId(), groupName,
+                            pdpType);
+            return;
+        }
+
+        SubGroupEntry updated = entry.withPdp(new Pdp(pdp));
+        if (updated != null) {
+            name2group.put(groupName, getEntry(groupName).withSubGroup(updated));
+        }
+
+        // PDP health and state are not configuration, thus the group's stamp is unchanged
+        lastStamp.incrementAndGet();
+    }
+
+    /**
+     * Removes a group from the cache.
+     *
+     * @param groupName name of the group to be removed
+     */
+    public synchronized void removeGroup(String groupName) {
+        logger.debug("uncache group {}", groupName);
+        name2group.remove(groupName);
+        touch(groupName);
+    }
+
+    /**
+     * Gets a group's modification stamp. The stamp changes whenever the group is added,
+     * replaced, or removed, or its configuration is modified. It can thus be used to
+     * determine if a group's configuration has changed since some earlier point in time.
+     * Changes to the health or state of the group's PDPs do not change the stamp.
+     *
+     * @param groupName name of the group of interest
+     * @return the group's modification stamp, or {@code 0} if the group has never been
+     *         placed into the cache
+     */
+    public long getStamp(String groupName) {
+        return name2stamp.getOrDefault(groupName, 0L);
+    }
+
+    /**
+     * Gets a copy of the modification stamps of all of the groups.
+     *
+     * @return a map from group name to modification stamp
+     */
+    public Map<String, Long> getStamps() {
+        return new HashMap<>(name2stamp);
+    }
+
+    /**
+     * Gets the cache's version, which changes whenever any group is added, replaced,
+     * modified, or removed.
+     *
+     * @return the cache's version
+     */
+    public long getVersion() {
+        return lastStamp.get();
+    }
+
+    /**
+     * Assigns a new modification stamp to a group.
+     *
+     * @param groupName name of the group that was modified
+     */
+    private void touch(String groupName) {
+        name2stamp.put(groupName, lastStamp.incrementAndGet());
+    }
+
+    /**
+     * Gets a group entry.
+     *
+     * @param groupName group name
+     * @return the group entry, or {@code null} if it is not in the cache
+     */
+    private GroupEntry getEntry(String groupName) {
+        return (groupName == null ? null : name2group.get(groupName));
+    }
+
+    /**
+     * Gets a subgroup entry.
+     *
+     * @param groupName group name
+     * @param pdpType subgroup PDP type
+     * @return the subgroup entry, or {@code null} if it is not in the cache
+     */
+    private SubGroupEntry getEntry(String groupName, String pdpType) {
+        GroupEntry entry = getEntry(groupName);
+        return (entry == null || pdpType == null ? null : entry.type2sub.get(pdpType));
+    }
+
+    /**
+     * Makes a shallow copy of a group, with the given subgroups.
+     *
+     * @param group group to be copied
+     * @param subgroups subgroups of the new group
+     * @return a new group
+     */
+    private static PdpGroup copyGroup(PdpGroup group, List<PdpSubGroup> subgroups) {
+        PdpGroup copy = new PdpGroup();
+        copy.setName(group.getName());
+        copy.setDescription(group.getDescription());
+        copy.setPdpGroupState(group.getPdpGroupState());
+        copy.setProperties(group.getProperties());
+        copy.setPdpSubgroups(unmodifiable(subgroups));
+        return copy;
+    }
+
+    /**
+     * Makes a shallow copy of a subgroup, with the given PDPs.
+     *
+     * @param subgroup subgroup to be copied
+     * @param pdps PDPs of the new subgroup
+     * @return a new subgroup
+     */
+    private static PdpSubGroup copySubGroup(PdpSubGroup subgroup, List<Pdp> pdps) {
+        PdpSubGroup copy = new PdpSubGroup();
+        copy.setPdpType(subgroup.getPdpType());
+        copy.setSupportedPolicyTypes(unmodifiable(subgroup.getSupportedPolicyTypes()));
+        copy.setPolicies(unmodifiable(subgroup.getPolicies()));
+        copy.setCurrentInstanceCount(subgroup.getCurrentInstanceCount());
+        copy.setDesiredInstanceCount(subgroup.getDesiredInstanceCount());
+        copy.setProperties(subgroup.getProperties());
+        copy.setPdpInstances(unmodifiable(pdps));
+        return copy;
+    }
+
+    /**
+     * Makes an unmodifiable view of a list.
+     *
+     * @param list list of interest, may be {@code null}
+     * @return an unmodifiable view of the list, or {@code null} if the list is
+     *         {@code null}
+     */
+    private static <T> List<T> unmodifiable(List<T> list) {
+        return (list == null ? null : Collections.unmodifiableList(list));
+    }
+
+    /**
+     * Group, with its subgroups indexed by PDP type. Entries are never modified; a
+     * replacement entry is built instead.
+     */
+    private static class GroupEntry {
+        private final PdpGroup group;
+        private final Map<String, SubGroupEntry> type2sub;
+
+        private GroupEntry(PdpGroup group, Map<String, SubGroupEntry> type2sub) {
+            this.group = group;
+            this.type2sub = type2sub;
+        }
+
+        /**
+         * Makes an entry containing a copy of a group, so that the cached group and its
+         * subgroups cannot be modified by the caller.
+         *
+         * @param group group to be copied
+         * @return a new group entry
+         */
+        private static GroupEntry copyOf(PdpGroup group) {
+            PdpGroup copy = new PdpGroup(group);
+
+            List<PdpSubGroup> subgroups = new ArrayList<>(copy.getPdpSubgroups().size());
+            Map<String, SubGroupEntry> type2sub = new HashMap<>();
+
+            for (PdpSubGroup subgrp : copy.getPdpSubgroups()) {
+                SubGroupEntry subentry = new SubGroupEntry(copySubGroup(subgrp, subgrp.getPdpInstances()));
+                subgroups.add(subentry.subgroup);
+                type2sub.put(subgrp.getPdpType(), subentry);
+            }
+
+            return new GroupEntry(copyGroup(copy, subgroups), type2sub);
+        }
+
+        /**
+         * Makes a new entry, in which a subgroup has been replaced or added.
+         *
+         * @param subentry entry for the new subgroup
+         * @return a new group entry
+         */
+        private GroupEntry withSubGroup(SubGroupEntry subentry) {
+            PdpSubGroup subgroup = subentry.subgroup;
+            List<PdpSubGroup> subgroups = new ArrayList<>(group.getPdpSubgroups());
+
+            boolean replaced = false;
+            for (int index = 0; index < subgroups.size(); ++index) {
+                if (subgroups.get(index).getPdpType().equals(subgroup.getPdpType())) {
+                    subgroups.set(index, subgroup);
+                    replaced = true;
+                    break;
+                }
+            }
+
+            if (!replaced) {
+                subgroups.add(subgroup);
+            }
+
+            Map<String, SubGroupEntry> map = new HashMap<>(type2sub);
+            map.put(subgroup.getPdpType(), subentry);
+
+            return new GroupEntry(copyGroup(group, subgroups), map);
+        }
+    }
+
+    /**
+     * Subgroup, with its PDPs indexed by instance ID. Entries are never modified; a
+     * replacement entry is built instead.
+     */
+    private static class SubGroupEntry {
+        private final PdpSubGroup subgroup;
+        private final Map<String, Pdp> id2pdp;
+
+        private SubGroupEntry(PdpSubGroup subgroup) {
+            this.subgroup = subgroup;
+            this.id2pdp = new HashMap<>();
+            subgroup.getPdpInstances().forEach(pdp -> id2pdp.put(pdp.getInstanceId(), pdp));
+        }
+
+        /**
+         * Makes an entry containing a copy of a subgroup, so that the cached subgroup and
+         * its PDPs cannot be modified by the caller.
+         *
+         * @param subgroup subgroup to be copied
+         * @return a new subgroup entry
+         */
+        private static SubGroupEntry copyOf(PdpSubGroup subgroup) {
+            PdpSubGroup copy = new PdpSubGroup(subgroup);
+            return new SubGroupEntry(copySubGroup(copy, copy.getPdpInstances()));
+        }
+
+        /**
+         * Makes a new entry, in which a PDP has been replaced.
+         *
+         * @param pdp the new PDP
+         * @return a new subgroup entry, or {@code null} if the PDP is not in the subgroup
+         */
+        private SubGroupEntry withPdp(Pdp pdp) {
+            Pdp old = id2pdp.get(pdp.getInstanceId());
+            if (old == null) {
+                return null;
+            }
+
+            List<Pdp> instances = new ArrayList<>(subgroup.getPdpInstances());
+            for (int index = 0; index < instances.size(); ++index) {
+                if (instances.get(index) == old) {
+                    instances.set(index, pdp);
+                    break;
+                }
+            }
+
+            return new SubGroupEntry(copySubGroup(subgroup, instances));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Getter;
+
+/**
+ * Manages locks on individual PDP groups, allowing requests that touch disjoint sets of
+ * groups to proceed in parallel. Locks are always acquired in group-name order, thus two
+ * requests cannot deadlock, regardless of the groups they lock.
+ *
+ * <p>Group locks must be acquired before the PDP modify lock, never while holding it.
+ */
+public class PdpGroupLockManager {
+
+    /**
+     * Maps a group name to its lock. Locks are never discarded, as the number of groups
+     * is expected to be small.
+     */
+    private final Map<String, ReentrantLock> name2lock = new ConcurrentHashMap<>();
+
+
+    /**
+     * Locks a set of groups, blocking until all of them have been locked.
+     *
+     * @param groupNames names of the groups to be locked
+     * @return the locks that were acquired, which must be closed to release them
+     */
+    public GroupLocks lock(Collection<String> groupNames) {
+        SortedSet<String> names = new TreeSet<>(groupNames);
+        List<ReentrantLock> locks = new ArrayList<>(names.size());
+
+        try {
+            for (String name : names) {
+                ReentrantLock lock = name2lock.computeIfAbsent(name, key -> new ReentrantLock());
+                lock.lock();
+                locks.add(lock);
+            }
+
+        } catch (RuntimeException e) {
+            unlock(locks);
+            throw e;
+        }
+
+        return new GroupLocks(Collections.unmodifiableSortedSet(names), locks);
+    }
+
+    /**
+     * Releases locks, in the reverse order from which they were acquired.
+     *
+     * @param locks locks to be released
+     */
+    private static void unlock(List<ReentrantLock> locks) {
+        for (int index = locks.size() - 1; index >= 0; --index) {
+            locks.get(index).unlock();
+        }
+    }
+
+    /**
+     * Set of group locks held by the current thread.
+     */
+    public static class GroupLocks implements AutoCloseable {
+
+        /**
+         * Names of the groups that are locked.
+         */
+        @Getter
+        private final SortedSet<String> groupNames;
+
+        private final List<ReentrantLock> locks;
+
+        private GroupLocks(SortedSet<String> groupNames, List<ReentrantLock> locks) {
+            this.groupNames = groupNames;
+            this.locks = locks;
+        }
+
+        /**
+         * Determines if all of the given groups are locked.
+         *
+         * @param names names of the groups of interest
+         * @return {@code true} if all of the groups are locked, {@code false} otherwise
+         */
+        public boolean containsAll(Collection<String> names) {
+            return groupNames.containsAll(names);
+        }
+
+        /**
+         * Releases the locks. Does nothing if they have already been released.
+         */
+        @Override
+        public void close() {
+            unlock(locks);
+            locks.clear();
+        }
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Builder;
+import lombok.NonNull;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.pdp.concepts.Pdp;
+import org.onap.policy.models.provider.PolicyModelsProvider;
+import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind stage for PDP health and state changes reported via heart beats. A PDP
+ * whose health and state have not changed is skipped altogether. Otherwise, the change is
+ * applied to the {@link PdpGroupCache} immediately and the PDP is marked "dirty". Dirty
+ * PDPs are written to the DB, in a batch, each time the flush interval elapses. If a PDP
+ * changes several times between flushes, only its latest state is written.
+ *
+ * <p>The queue of dirty PDPs is bounded. If it fills up, then the PDP is placed into a
+ * backlog and the writer thread is asked to flush early; the caller never writes to the
+ * DB itself. As each PDP appears at most once in the queue and backlog combined, the
+ * backlog cannot grow beyond the number of PDPs. PDPs that fail to be written are also
+ * placed into the backlog, to be retried on the next flush, so that the DB eventually
+ * catches up with the cache. Any remaining PDPs are flushed when {@link #stop()} is
+ * invoked, once the writer thread has exited, so that two flushes never run at once.
+ *
+ * <p>Each PDP is written with its own {@link PolicyModelsProvider#updatePdp} call, though
+ * all of the PDPs in a flush share one provider. The DAO has no call that writes several
+ * PDPs at once, and writing whole subgroups instead would overwrite configuration changes
+ * made by deployments that are in progress.
+ */
+public class PdpHealthWriter implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(PdpHealthWriter.class);
+
+    /**
+     * Maximum time, in milliseconds, that {@link #stop()} waits for the writer thread to
+     * exit.
+     */
+    private static final long STOP_WAIT_MS = 30000L;
+
+    /**
+     * DAO factory.
+     */
+    private final PolicyModelsProviderFactoryWrapper daoFactory;
+
+    /**
+     * Group cache, which holds the latest value of each PDP.
+     */
+    private final PdpGroupCache groupCache;
+
+    /**
+     * PDP modification lock, held while the DB is being updated.
+     */
+    private final Object modifyLock;
+
+    /**
+     * Time, in milliseconds, between flushes.
+     */
+    private final long flushMs;
+
+    /**
+     * PDPs that are waiting to be written to the DB.
+     */
+    private final BlockingQueue<PdpKey> queue;
+
+    /**
+     * Maps a PDP instance ID to its entry in {@link #queue}.
+     */
+    private final Map<String, PdpKey> pending = new ConcurrentHashMap<>();
+
+    /**
+     * PDPs that did not fit into {@link #queue} or that failed to be written. Written
+     * before the queue on each flush.
+     */
+    private final Queue<PdpKey> backlog = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Released to ask the writer thread to flush before the interval expires.
+     */
+    private final Semaphore flushRequest = new Semaphore(0);
+
+    /**
+     * This is decremented to indicate that the writer should be stopped.
+     */
+    private final CountDownLatch stopper = new CountDownLatch(1);
+
+    /**
+     * Thread executing {@link #run()}, or {@code null} if it has not been started.
+     */
+    private volatile Thread writerThread;
+
+    /**
+     * Number of PDPs written to the DB.
+     */
+    private final AtomicLong writeCount = new AtomicLong();
+
+    /**
+     * Number of changes that were merged with a change that was already pending.
+     */
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Number of heart beats that did not change the PDP and thus required no write.
+     */
+    private final AtomicLong skippedCount = new AtomicLong();
+
+    /**
+     * Number of PDP writes that failed and were placed into the backlog to be retried.
+     */
+    private final AtomicLong retryCount = new AtomicLong();
+
+
+    /**
+     * Constructs the object.
+     *
+     * @param daoFactory DAO factory
+     * @param groupCache group cache
+     * @param modifyLock object to be locked while the DB is updated
+     * @param flushMs time, in milliseconds, between flushes
+     * @param maxPending maximum number of PDPs that may be waiting to be written
+     */
+    @Builder
+    public PdpHealthWriter(@NonNull PolicyModelsProviderFactoryWrapper daoFactory, @NonNull PdpGroupCache groupCache,
+                    @NonNull Object modifyLock, long flushMs, int maxPending) {
+
+        this.daoFactory = daoFactory;
+        this.groupCache = groupCache;
+        this.modifyLock = modifyLock;
+        this.flushMs = flushMs;
+        this.queue = new ArrayBlockingQueue<>(maxPending);
+    }
+
+    /**
+     * Stops the writer and waits for its thread to exit, then flushes any pending changes
+     * to the DB.
+     */
+    public void stop() {
+        logger.info("PDP health writer stopping");
+
+        stopper.countDown();
+        flushRequest.release();
+
+        Thread thread = writerThread;
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join(STOP_WAIT_MS);
+
+            } catch (InterruptedException e) {
+                logger.warn("interrupted while waiting for the PDP health writer to stop");
+                Thread.currentThread().interrupt();
+            }
+
+            if (thread.isAlive()) {
+                // flushing now would write the same PDPs as the writer thread
+                logger.warn("PDP health writer did not stop - skipping the final flush");
+                return;
+            }
+        }
+
+        flush();
+    }
+
+    /**
+     * Records the new value of a PDP. Does nothing if the health and state are unchanged
+     * from the value currently in the cache.
+     *
+     * @param groupName name of the group containing the PDP
+     * @param pdpType PDP type of the subgroup containing the PDP
+     * @param pdp new value of the PDP
+     */
+    public void write(String groupName, String pdpType, Pdp pdp) {
+        Pdp current = groupCache.getPdp(groupName, pdpType, pdp.getInstanceId());
+        if (current != null && current.getHealthy() == pdp.getHealthy()
+                        && current.getPdpState() == pdp.getPdpState()) {
+            skippedCount.incrementAndGet();
+            return;
+        }
+
+        groupCache.putPdp(groupName, pdpType, pdp);
+
+        PdpKey key = new PdpKey(groupName, pdpType, pdp.getInstanceId());
+        if (pending.putIfAbsent(key.instanceId, key) != null) {
+            // already queued - the flush will pick up the latest value from the cache
+            coalescedCount.incrementAndGet();
+            return;
+        }
+
+        if (!queue.offer(key)) {
+            // leave the DB work to the writer thread
+            logger.warn("PDP health queue is full - requesting a flush");
+            backlog.add(key);
+            flushRequest.release();
+        }
+    }
+
+    /**
+     * Continuously flushes the queue, at the configured interval, until {@link #stop()}
+     * is invoked.
+     */
+    @Override
+    public void run() {
+        logger.info("PDP health writer started");
+        writerThread = Thread.currentThread();
+
+        try {
+            while (stopper.getCount() > 0) {
+                // wakes early if a flush is requested
+                if (flushRequest.tryAcquire(flushMs, TimeUnit.MILLISECONDS)) {
+                    flushRequest.drainPermits();
+                }
+
+                if (stopper.getCount() > 0) {
+                    flush();
+                }
+            }
+
+        } catch (InterruptedException e) {
+            logger.warn("PDP health writer stopping due to interrupt");
+            Thread.currentThread().interrupt();
+        }
+
+        logger.info("PDP health writer stopped");
+    }
+
+    /**
+     * Writes all pending PDPs to the DB.
+     */
+    public void flush() {
+        List<PdpKey> keys = new ArrayList<>(queue.size());
+
+        for (PdpKey key = backlog.poll(); key != null; key = backlog.poll()) {
+            keys.add(key);
+        }
+
+        queue.drainTo(keys);
+
+        if (!keys.isEmpty()) {
+            writePdps(keys);
+        }
+    }
+
+    /**
+     * Writes PDPs to the DB, using the latest values found in the cache. Any that fail are
+     * placed into the backlog, to be retried on the next flush.
+     *
+     * @param keys identifies the PDPs to be written
+     */
+    private void writePdps(List<PdpKey> keys) {
+        // remove them first so that any subsequent change is queued again
+        keys.forEach(key -> pending.remove(key.instanceId, key));
+
+        List<PdpKey> failed = new ArrayList<>();
+
+        // the DAO is obtained before the lock, so the lock is never held while waiting for one
+        try (PolicyModelsProvider dao = daoFactory.create()) {
+            synchronized (modifyLock) {
+                for (PdpKey key : keys) {
+                    if (!writePdp(dao, key)) {
+                        failed.add(key);
+                    }
+                }
+            }
+
+        } catch (PfModelException | RuntimeException e) {
+            logger.warn("failed to write PDP health to the DB", e);
+            failed = keys;
+        }
+
+        failed.forEach(this::retry);
+
+        logger.debug("PDP health writer: writes={} coalesced={} skipped={} retries={}", writeCount,
+                        coalescedCount, skippedCount, retryCount);
+    }
+
+    /**
+     * Places a PDP that failed to be written into the backlog, unless a newer change has
+     * already queued it again.
+     *
+     * @param key identifies the PDP to be retried
+     */
+    private void retry(PdpKey key) {
+        if (pending.putIfAbsent(key.instanceId, key) == null) {
+            retryCount.incrementAndGet();
+            backlog.add(key);
+        }
+    }
+
+    /**
+     * Writes a PDP to the DB.
+     *
+     * @param dao DAO to use to write the PDP
+     * @param key identifies the PDP to be written
+     * @return {@code true} if the PDP was written or no longer needs to be written,
+     *         {@code false} if the write failed
+     */
+    private boolean writePdp(PolicyModelsProvider dao, PdpKey key) {
+        Pdp pdp = groupCache.getPdp(key.groupName, key.pdpType, key.instanceId);
+        if (pdp == null) {
+            logger.debug("PDP {} is no longer in group {} subgroup {}", key.instanceId, key.groupName, key.pdpType);
+            return true;
+        }
+
+        try {
+            dao.updatePdp(key.groupName, key.pdpType, pdp);
+            writeCount.incrementAndGet();
+            return true;
+
+        } catch (PfModelException | RuntimeException e) {
+            logger.warn("failed to write PDP {} to the DB", key.instanceId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Gets the number of PDPs that have been written to the DB.
+     *
+     * @return the number of PDPs that have been written
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * Gets the number of changes that were merged with a pending change.
+     *
+     * @return the number of changes that were merged
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Gets the number of heart beats that did not change the PDP.
+     *
+     * @return the number of heart beats that did not change the PDP
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * Gets the number of PDP writes that failed and were queued to be retried.
+     *
+     * @return the number of PDP writes queued to be retried
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * Identifies a PDP within a group and subgroup.
+     */
+    private static class PdpKey {
+        private final String groupName;
+        private final String pdpType;
+        private final String instanceId;
+
+        public PdpKey(String groupName, String pdpType, String instanceId) {
+            this.groupName = groupName;
+            this.pdpType = pdpType;
+            this.instanceId = instanceId;
+        }
+    }
+}
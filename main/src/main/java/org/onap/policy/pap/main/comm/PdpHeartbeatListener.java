@@ -20,21 +20,187 @@
 
 package org.onap.policy.pap.main.comm;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.onap.policy.common.endpoints.event.comm.Topic.CommInfrastructure;
 import org.onap.policy.common.endpoints.listeners.TypedMessageListener;
 import org.onap.policy.models.pdp.concepts.PdpStatus;
+import org.onap.policy.models.pdp.enums.PdpState;
+import org.onap.policy.pap.main.metrics.LatencyHistogram;
+import org.onap.policy.pap.main.metrics.PapMetrics;
 
 /**
  * Listener for PDP Status messages which either represent registration or heart beat.
  *
+ * <p>The listener may be registered before its handler exists, so that no messages are
+ * lost while the rest of PAP is starting. Until {@link #setHandler(PdpStatusMessageHandler)}
+ * is invoked, only the most recent message from each PDP is retained; those messages are
+ * processed as soon as the handler is set.
+ *
+ * <p>Plain heart beats may be dropped if the executor falls behind, as the PDP will send
+ * another shortly. Registrations and terminations are not repeated, thus they wait for
+ * room in the executor instead.
+ *
  * @author Ram Krishna Verma (ram.krishna.verma@est.tech)
  */
 public class PdpHeartbeatListener implements TypedMessageListener<PdpStatus> {
 
+    /**
+     * Used to process the messages. Messages are partitioned by PDP name so that
+     * messages from different PDPs may be processed concurrently, while messages from
+     * the same PDP are processed in order.
+     */
+    private final PartitionedExecutor executor;
+
+    /**
+     * Handler shared by all of the messages, or {@code null} if the listener is not
+     * active yet.
+     */
+    private volatile PdpStatusMessageHandler handler;
+
+    /**
+     * Tasks for the messages that were received before the handler was set, keyed by
+     * PDP name. Also used as the lock when changing {@link #handler}.
+     */
+    private final Map<String, Runnable> deferred = new LinkedHashMap<>();
+
+    /**
+     * Time from the receipt of a message until it has been processed.
+     */
+    private final LatencyHistogram latency;
+
+    /**
+     * Time spent processing a message, excluding the time it waited for a thread.
+     */
+    private final LatencyHistogram processing;
+
+    /**
+     * Constructs the object. The listener is not active until its handler is set.
+     *
+     * @param executor executor used to process the messages
+     */
+    public PdpHeartbeatListener(PartitionedExecutor executor) {
+        this(executor, null);
+    }
+
+    /**
+     * Constructs the object.
+     *
+     * @param executor executor used to process the messages
+     * @param handler handler to which the messages are passed, or {@code null} if it
+     *        will be set later
+     */
+    public PdpHeartbeatListener(PartitionedExecutor executor, PdpStatusMessageHandler handler) {
+        this.executor = executor;
+        this.handler = handler;
+
+        PapMetrics metrics = PapMetrics.lookup();
+        this.latency = metrics.histogram("pap_heartbeat_latency_seconds",
+                        "Time from the receipt of a PDP status message until it has been processed");
+        this.processing = metrics.histogram("pap_heartbeat_processing_seconds",
+                        "Time spent processing a PDP status message");
+    }
+
+    /**
+     * Sets the handler, activating the listener, and processes any messages that were
+     * deferred while it was inactive.
+     *
+     * @param handler the new handler, or {@code null} to deactivate the listener
+     */
+    public void setHandler(PdpStatusMessageHandler handler) {
+        synchronized (deferred) {
+            this.handler = handler;
+
+            if (handler != null) {
+                // queue them while holding the lock so newer messages can't overtake them
+                deferred.values().forEach(Runnable::run);
+                deferred.clear();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of messages that are waiting for the handler to be set.
+     *
+     * @return the number of deferred messages
+     */
+    public int getDeferredCount() {
+        synchronized (deferred) {
+            return deferred.size();
+        }
+    }
+
     @Override
     public void onTopicEvent(final CommInfrastructure infra, final String topic, final PdpStatus message) {
 
-        final PdpStatusMessageHandler handler = new PdpStatusMessageHandler();
-        handler.handlePdpStatus(message);
+        final long received = System.nanoTime();
+
+        if (handler == null && defer(message, received)) {
+            return;
+        }
+
+        enqueue(message, received);
+    }
+
+    /**
+     * Defers a message if the listener is not active yet.
+     *
+     * @param message message to be deferred
+     * @param received time, in nanoseconds, at which the message was received
+     * @return {@code true} if the message was deferred, {@code false} if the listener is
+     *         now active
+     */
+    private boolean defer(PdpStatus message, long received) {
+        synchronized (deferred) {
+            if (handler != null) {
+                return false;
+            }
+
+            // remove it first, so a newer message goes to the end of the line
+            deferred.remove(message.getName());
+            deferred.put(message.getName(), () -> enqueue(message, received));
+            return true;
+        }
+    }
+
+    /**
+     * Queues a message for processing by the handler.
+     *
+     * @param message message to be processed
+     * @param received time, in nanoseconds, at which the message was received
+     */
+    private void enqueue(PdpStatus message, long received) {
+        Runnable task = () -> {
+            long started = System.nanoTime();
+            try {
+                // discard the message if the listener was deactivated while it was queued
+                PdpStatusMessageHandler current = handler;
+                if (current != null) {
+                    current.handlePdpStatus(message);
+                }
+
+            } finally {
+                processing.recordSince(started);
+                latency.recordSince(received);
+            }
+        };
+
+        if (isHeartbeat(message)) {
+            executor.execute(message.getName(), task);
+        } else {
+            executor.executeOrWait(message.getName(), task);
+        }
+    }
+
+    /**
+     * Determines if a message is a plain heart beat, as opposed to a registration or a
+     * termination.
+     *
+     * @param message message of interest
+     * @return {@code true} if the message is a plain heart beat, {@code false} otherwise
+     */
+    private static boolean isHeartbeat(PdpStatus message) {
+        return (message.getPdpGroup() != null || message.getPdpSubgroup() != null)
+                        && message.getState() != PdpState.TERMINATED;
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import org.onap.policy.common.utils.coder.CoderException;
+import org.onap.policy.common.utils.coder.StandardCoder;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+
+/**
+ * Coder used to encode messages sent to the PDPs. If an UPDATE message references a
+ * {@link SharedPolicyList}, then only the message's "header" fields are encoded; the
+ * list's cached JSON is spliced in for the policies. A {@link PdpDeltaUpdate} delta is
+ * encoded without its complete set of policies. Everything else is encoded by the
+ * {@link StandardCoder}. Large UPDATE messages destined for PDP types that support it
+ * are then compressed, via a {@link PdpMessageCompressor}.
+ */
+public class PdpMessageCoder extends StandardCoder {
+    private static final String POLICIES_FIELD = "policies";
+    private static final String DEPLOY_FIELD = "policiesToBeDeployed";
+
+    /**
+     * Used to encode an UPDATE message without its policies. Derived from the
+     * {@link StandardCoder}'s own Gson, so that the header is encoded with the same type
+     * adapters and settings as every other message.
+     */
+    private static final Gson headerGson = getGSON().newBuilder().setExclusionStrategies(new ExclusionStrategy() {
+        @Override
+        public boolean shouldSkipField(FieldAttributes field) {
+            if (field.getDeclaringClass() == PdpUpdate.class) {
+                return POLICIES_FIELD.equals(field.getName());
+            }
+
+            return (field.getDeclaringClass() == PdpDeltaUpdate.class && DEPLOY_FIELD.equals(field.getName()));
+        }
+
+        @Override
+        public boolean shouldSkipClass(Class<?> clazz) {
+            return false;
+        }
+    }).create();
+
+    /**
+     * Used to compress UPDATE messages, or {@code null} if messages are never
+     * compressed.
+     */
+    private final PdpMessageCompressor compressor;
+
+
+    /**
+     * Constructs the object, without compression.
+     */
+    public PdpMessageCoder() {
+        this(null);
+    }
+
+    /**
+     * Constructs the object.
+     *
+     * @param compressor used to compress UPDATE messages, or {@code null} if messages
+     *        should never be compressed
+     */
+    public PdpMessageCoder(PdpMessageCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    @Override
+    public String encode(Object object) throws CoderException {
+        String json = encodeMessage(object);
+
+        if (compressor != null && object instanceof PdpUpdate && json.length() >= PdpMessageCompressor.MIN_LENGTH
+                        && compressor.isEnabled(((PdpUpdate) object).getPdpSubgroup())) {
+            return compressor.compress(String.valueOf(((PdpUpdate) object).getMessageName()), json);
+        }
+
+        return json;
+    }
+
+    /**
+     * Encodes a message, without compressing it.
+     *
+     * @param object message to be encoded
+     * @return the encoded message
+     * @throws CoderException if the message cannot be encoded
+     */
+    private String encodeMessage(Object object) throws CoderException {
+        if (object instanceof PdpDeltaUpdate && ((PdpDeltaUpdate) object).isDelta()) {
+            PdpDeltaUpdate delta = (PdpDeltaUpdate) object;
+            return encodeUpdate(delta, DEPLOY_FIELD, super.encode(delta.getPoliciesToBeDeployed()));
+        }
+
+        if (object instanceof PdpUpdate) {
+            PdpUpdate update = (PdpUpdate) object;
+
+            if (update.getPolicies() instanceof SharedPolicyList) {
+                return encodeUpdate(update, POLICIES_FIELD, ((SharedPolicyList) update.getPolicies()).toJson(this));
+            }
+        }
+
+        return super.encode(object);
+    }
+
+    /**
+     * Encodes an UPDATE message, splicing in JSON that has already been encoded for one
+     * of its policy lists.
+     *
+     * @param update message to be encoded
+     * @param fieldName name of the field whose JSON is to be spliced in
+     * @param policyJson the field's JSON
+     * @return the encoded message
+     * @throws CoderException if the message cannot be encoded
+     */
+    private String encodeUpdate(PdpUpdate update, String fieldName, String policyJson) throws CoderException {
+        String header;
+        try {
+            header = headerGson.toJson(update);
+
+        } catch (RuntimeException e) {
+            throw new CoderException(e);
+        }
+
+        // splice the policies in, just before the closing brace
+        StringBuilder bldr = new StringBuilder(header.length() + policyJson.length() + fieldName.length() + 4);
+        bldr.append(header, 0, header.length() - 1);
+
+        if (header.length() > 2) {
+            bldr.append(',');
+        }
+
+        bldr.append('"').append(fieldName).append("\":").append(policyJson).append('}');
+
+        return bldr.toString();
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.Getter;
+import org.onap.policy.common.utils.coder.CoderException;
+
+/**
+ * Compresses messages sent to, and decompresses messages received from, the PDPs. A
+ * compressed message is a JSON object of the form:
+ *
+ * <pre>
+ * {"compression":"gzip","messageName":"&lt;type&gt;","payload":"&lt;base64-encoded, gzipped JSON message&gt;"}
+ * </pre>
+ *
+ * <p>"messageName" is optional; when present, it is the type of the compressed message,
+ * allowing a receiver to discard messages it does not handle without decompressing them.
+ * When received, the envelope is parsed as JSON, thus its fields may appear in any order,
+ * with any white space, but no other fields may appear.
+ *
+ * <p>Compression is enabled per PDP type, as only some PDPs may be able to decompress
+ * messages. Decompression, on the other hand, is always enabled, thus any PDP may
+ * compress its responses. As a guard against "zip bombs", decompression fails once a
+ * message's decompressed size exceeds a maximum. Also tracks the compression ratio and
+ * the CPU time spent compressing and decompressing messages.
+ */
+public class PdpMessageCompressor {
+
+    /**
+     * Messages shorter than this are not worth compressing.
+     */
+    public static final int MIN_LENGTH = 1024;
+
+    /**
+     * Default maximum size, in bytes, of a decompressed message.
+     */
+    public static final int DEFAULT_MAX_DECOMPRESSED_BYTES = 4 * 1024 * 1024;
+
+    private static final String GZIP = "gzip";
+    private static final String COMPRESSION_FIELD = "compression";
+    private static final String MESSAGE_NAME_FIELD = "messageName";
+    private static final String PAYLOAD_FIELD = "payload";
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Types of PDPs to which compressed messages may be sent.
+     */
+    private final Set<String> pdpTypes;
+
+    /**
+     * Maximum size, in bytes, of a decompressed message.
+     */
+    private final int maxDecompressedBytes;
+
+    private final AtomicLong compressedCount = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressNs = new AtomicLong();
+    private final AtomicLong decompressedCount = new AtomicLong();
+    private final AtomicLong decompressNs = new AtomicLong();
+
+
+    /**
+     * Constructs the object.
+     *
+     * @param pdpTypes types of PDPs to which compressed messages may be sent
+     */
+    public PdpMessageCompressor(Collection<String> pdpTypes) {
+        this(pdpTypes, DEFAULT_MAX_DECOMPRESSED_BYTES);
+    }
+
+    /**
+     * Constructs the object.
+     *
+     * @param pdpTypes types of PDPs to which compressed messages may be sent
+     * @param maxDecompressedBytes maximum size, in bytes, of a decompressed message
+     */
+    public PdpMessageCompressor(Collection<String> pdpTypes, int maxDecompressedBytes) {
+        if (maxDecompressedBytes < 1) {
+            throw new IllegalArgumentException("max decompressed bytes must be >= 1");
+        }
+
+        this.pdpTypes = new HashSet<>(pdpTypes);
+        this.maxDecompressedBytes = maxDecompressedBytes;
+    }
+
+    /**
+     * Determines if messages sent to a given type of PDP should be compressed.
+     *
+     * @param pdpType type of PDP of interest
+     * @return {@code true} if messages sent to the PDP type should be compressed,
+     *         {@code false} otherwise
+     */
+    public boolean isEnabled(String pdpType) {
+        return (pdpType != null && pdpTypes.contains(pdpType));
+    }
+
+    /**
+     * Compresses a message.
+     *
+     * @param json JSON message to be compressed
+     * @return the compressed message
+     * @throws CoderException if the message cannot be compressed
+     */
+    public String compress(String json) throws CoderException {
+        return compress(null, json);
+    }
+
+    /**
+     * Compresses a message.
+     *
+     * @param messageName type of message being compressed, to be placed in the
+     *        envelope, or {@code null}
+     * @param json JSON message to be compressed
+     * @return the compressed message
+     * @throws CoderException if the message cannot be compressed
+     */
+    public String compress(String messageName, String json) throws CoderException {
+        long tbegin = cpuTime();
+
+        byte[] original = json.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(original.length / 4 + 1);
+
+        try (OutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(original);
+
+        } catch (IOException e) {
+            throw new CoderException("cannot compress message", e);
+        }
+
+        // neither the message name nor base64 text need to be escaped
+        StringBuilder result = new StringBuilder();
+        result.append("{\"").append(COMPRESSION_FIELD).append("\":\"").append(GZIP).append('"');
+        if (messageName != null) {
+            result.append(",\"").append(MESSAGE_NAME_FIELD).append("\":\"").append(messageName).append('"');
+        }
+        result.append(",\"").append(PAYLOAD_FIELD).append("\":\"")
+                        .append(Base64.getEncoder().encodeToString(output.toByteArray())).append("\"}");
+
+        compressNs.addAndGet(cpuTime() - tbegin);
+        compressedCount.incrementAndGet();
+        uncompressedBytes.addAndGet(original.length);
+        compressedBytes.addAndGet(result.length());
+
+        return result.toString();
+    }
+
+    /**
+     * Decompresses a message, if it was compressed.
+     *
+     * @param message message to be decompressed
+     * @return the decompressed message, or the original message, if it was not
+     *         compressed
+     * @throws CoderException if the message cannot be decompressed
+     */
+    public String decompress(String message) throws CoderException {
+        Envelope envelope = parseEnvelope(message);
+        return (envelope == null ? message : decompress(envelope));
+    }
+
+    /**
+     * Decompresses the message contained within an envelope.
+     *
+     * @param envelope envelope containing the compressed message
+     * @return the decompressed message
+     * @throws CoderException if the message cannot be decompressed or its decompressed
+     *         size exceeds the maximum
+     */
+    public String decompress(Envelope envelope) throws CoderException {
+        long tbegin = cpuTime();
+
+        String payload = envelope.getPayload();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(payload)))) {
+            byte[] buffer = new byte[4096];
+            int len;
+            while ((len = gzip.read(buffer)) > 0) {
+                if (len > maxDecompressedBytes - output.size()) {
+                    throw new CoderException("decompressed message exceeds " + maxDecompressedBytes + " bytes");
+                }
+
+                output.write(buffer, 0, len);
+            }
+
+        } catch (IOException | IllegalArgumentException e) {
+            throw new CoderException("cannot decompress message", e);
+        }
+
+        decompressNs.addAndGet(cpuTime() - tbegin);
+        decompressedCount.incrementAndGet();
+
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Determines if a message is compressed.
+     *
+     * @param message message to be examined
+     * @return {@code true} if the message is compressed, {@code false} otherwise
+     */
+    public static boolean isCompressed(String message) {
+        return (parseEnvelope(message) != null);
+    }
+
+    /**
+     * Parses the envelope of a compressed message. Reading stops at the first field that
+     * cannot belong to an envelope, thus uncompressed messages are rejected cheaply.
+     *
+     * @param message message to be parsed
+     * @return the message's envelope, or {@code null} if the message is not compressed
+     */
+    public static Envelope parseEnvelope(String message) {
+        try (JsonReader reader = new JsonReader(new StringReader(message))) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+
+            Envelope envelope = new Envelope();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() != JsonToken.STRING || !envelope.set(name, reader.nextString())) {
+                    return null;
+                }
+            }
+            reader.endObject();
+
+            return (reader.peek() == JsonToken.END_DOCUMENT && GZIP.equals(envelope.compression)
+                            && envelope.payload != null ? envelope : null);
+
+        } catch (IOException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the CPU time consumed, thus far, by the current thread. Falls back to the wall
+     * clock if the JVM does not support measuring CPU time.
+     *
+     * @return the CPU time, in nanoseconds
+     */
+    private static long cpuTime() {
+        return (threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime()
+                        : System.nanoTime());
+    }
+
+    public long getCompressedCount() {
+        return compressedCount.get();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * Gets the ratio of the size of the original messages to the size of the compressed
+     * messages.
+     *
+     * @return the compression ratio, or 0 if no messages have been compressed
+     */
+    public double getCompressionRatio() {
+        long compressed = compressedBytes.get();
+        return (compressed == 0 ? 0 : (double) uncompressedBytes.get() / compressed);
+    }
+
+    public long getCompressCpuMs() {
+        return compressNs.get() / 1000000;
+    }
+
+    public long getDecompressedCount() {
+        return decompressedCount.get();
+    }
+
+    public long getDecompressCpuMs() {
+        return decompressNs.get() / 1000000;
+    }
+
+    /**
+     * Envelope of a compressed message.
+     */
+    @Getter
+    public static class Envelope {
+        private String compression;
+        private String messageName;
+        private String payload;
+
+        /**
+         * Sets a field of the envelope.
+         *
+         * @param name field name
+         * @param value field value
+         * @return {@code true} if the field belongs to an envelope, {@code false}
+         *         otherwise
+         */
+        private boolean set(String name, String value) {
+            switch (name) {
+                case COMPRESSION_FIELD:
+                    compression = value;
+                    return true;
+                case MESSAGE_NAME_FIELD:
+                    messageName = value;
+                    return true;
+                case PAYLOAD_FIELD:
+                    payload = value;
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
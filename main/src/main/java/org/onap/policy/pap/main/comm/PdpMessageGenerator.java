@@ -20,7 +20,7 @@
 
 package org.onap.policy.pap.main.comm;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import org.onap.policy.common.parameters.ParameterService;
 import org.onap.policy.common.utils.services.Registry;
@@ -62,6 +62,16 @@ public class PdpMessageGenerator {
      */
     protected final PolicyModelsProviderFactoryWrapper modelProviderWrapper;
 
+    /**
+     * In-memory copy of the PDP groups, which must be kept in step with the DB.
+     */
+    protected final PdpGroupCache groupCache;
+
+    /**
+     * Policies, shared across all requests.
+     */
+    protected final ToscaPolicyCache policyCache;
+
     /**
      * Heart beat interval, in milliseconds, to pass to PDPs, or {@code null}.
      */
@@ -78,6 +88,8 @@ public class PdpMessageGenerator {
         modelProviderWrapper = Registry.get(PapConstants.REG_PAP_DAO_FACTORY, PolicyModelsProviderFactoryWrapper.class);
         updateLock = Registry.get(PapConstants.REG_PDP_MODIFY_LOCK, Object.class);
         requestMap = Registry.get(PapConstants.REG_PDP_MODIFY_MAP, PdpModifyRequestMap.class);
+        groupCache = Registry.get(PapConstants.REG_PDP_GROUP_CACHE, PdpGroupCache.class);
+        policyCache = Registry.get(PapConstants.REG_POLICY_CACHE, ToscaPolicyCache.class);
 
         if (includeHeartBeat) {
             PapParameterGroup params = ParameterService.get(PAP_GROUP_PARAMS_NAME);
@@ -105,9 +117,12 @@ public class PdpMessageGenerator {
     private List<ToscaPolicy> getToscaPolicies(final PdpSubGroup subGroup, final PolicyModelsProvider databaseProvider)
                     throws PfModelException {
 
-        final List<ToscaPolicy> policies = new LinkedList<>();
+        final List<ToscaPolicy> policies = new ArrayList<>(subGroup.getPolicies().size());
         for (final ToscaPolicyIdentifier policyIdentifier : subGroup.getPolicies()) {
-            policies.addAll(databaseProvider.getPolicyList(policyIdentifier.getName(), policyIdentifier.getVersion()));
+            ToscaPolicy policy = policyCache.get(databaseProvider, policyIdentifier);
+            if (policy != null) {
+                policies.add(policy);
+            }
         }
 
         LOGGER.debug("Created ToscaPolicy list - {}", policies);
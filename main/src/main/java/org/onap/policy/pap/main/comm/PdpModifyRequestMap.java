@@ -23,9 +23,11 @@ package org.onap.policy.pap.main.comm;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.onap.policy.models.base.PfModelException;
 import org.onap.policy.models.pdp.concepts.Pdp;
 import org.onap.policy.models.pdp.concepts.PdpGroup;
@@ -37,12 +39,15 @@ import org.onap.policy.models.pdp.concepts.PdpUpdate;
 import org.onap.policy.models.pdp.enums.PdpState;
 import org.onap.policy.models.provider.PolicyModelsProvider;
 import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.onap.policy.pap.main.comm.Publisher.Lane;
 import org.onap.policy.pap.main.comm.msgdata.Request;
 import org.onap.policy.pap.main.comm.msgdata.RequestListener;
 import org.onap.policy.pap.main.comm.msgdata.StateChangeReq;
 import org.onap.policy.pap.main.comm.msgdata.UpdateReq;
 import org.onap.policy.pap.main.parameters.PdpModifyRequestMapParams;
 import org.onap.policy.pap.main.parameters.RequestParams;
+import org.onap.policy.pap.main.rest.PapStatisticsManager;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,6 +79,32 @@ public class PdpModifyRequestMap {
      */
     private final PolicyModelsProviderFactoryWrapper daoFactory;
 
+    /**
+     * In-memory copy of the PDP groups, which must be kept in step with the DB.
+     */
+    private final PdpGroupCache groupCache;
+
+    /**
+     * Tracks the outcome of the requests on behalf of each deployment.
+     */
+    private final DeploymentTracker deploymentTracker;
+
+    /**
+     * Types of PDPs to which UPDATE messages may be sent as deltas.
+     */
+    private final Set<String> deltaPdpTypes;
+
+    /**
+     * Used to version UPDATE messages so they can be sent as deltas, or {@code null} if
+     * deltas are disabled for all types of PDPs.
+     */
+    private final SubgroupGenerations generations;
+
+    /**
+     * Used to count the UPDATE messages sent to the PDPs, and their outcomes.
+     */
+    private final PapStatisticsManager stats;
+
 
     /**
      * Constructs the object.
@@ -88,6 +119,11 @@ public class PdpModifyRequestMap {
         this.params = params;
         this.modifyLock = params.getModifyLock();
         this.daoFactory = params.getDaoFactory();
+        this.groupCache = params.getGroupCache();
+        this.deploymentTracker = params.getDeploymentTracker();
+        this.deltaPdpTypes = new HashSet<>(params.getParams().getDeltaPdpTypes());
+        this.generations = (deltaPdpTypes.isEmpty() ? null : new SubgroupGenerations());
+        this.stats = PapStatisticsManager.lookup();
     }
 
     /**
@@ -111,6 +147,9 @@ public class PdpModifyRequestMap {
                 requests.stopPublishing();
             }
         }
+
+        forgetGeneration(pdpName);
+        deploymentTracker.failure(pdpName, "no longer publishing to PDP");
     }
 
     /**
@@ -137,6 +176,17 @@ public class PdpModifyRequestMap {
      * @param update the UPDATE request or {@code null}
      */
     public void addRequest(PdpUpdate update) {
+        addRequest(update, (Lane) null);
+    }
+
+    /**
+     * Adds an UPDATE request to the map.
+     *
+     * @param update the UPDATE request or {@code null}
+     * @param lane lane in which to publish the request, or {@code null} to use the
+     *        default lane for the message
+     */
+    private void addRequest(PdpUpdate update, Lane lane) {
         if (update == null) {
             return;
         }
@@ -151,12 +201,14 @@ public class PdpModifyRequestMap {
             .setTimers(params.getUpdateTimers())
             .setModifyLock(params.getModifyLock())
             .setPublisher(params.getPublisher())
-            .setResponseDispatcher(params.getResponseDispatcher());
+            .setResponseDispatcher(params.getResponseDispatcher())
+            .setLane(lane);
         // @formatter:on
 
         String name = update.getName() + " " + PdpUpdate.class.getSimpleName();
-        UpdateReq request = new UpdateReq(reqparams, name, update);
+        UpdateReq request = new UpdateReq(reqparams, name, makeVersionedUpdate(update));
 
+        updateDownloadStatistics(Stat.TOTAL_POLICY_DOWNLOAD, update);
         addSingleton(request);
     }
 
@@ -166,6 +218,17 @@ public class PdpModifyRequestMap {
      * @param stateChange the STATE-CHANGE request or {@code null}
      */
     public void addRequest(PdpStateChange stateChange) {
+        addRequest(stateChange, (Lane) null);
+    }
+
+    /**
+     * Adds a STATE-CHANGE request to the map.
+     *
+     * @param stateChange the STATE-CHANGE request or {@code null}
+     * @param lane lane in which to publish the request, or {@code null} to use the
+     *        default lane for the message
+     */
+    private void addRequest(PdpStateChange stateChange, Lane lane) {
         if (stateChange == null) {
             return;
         }
@@ -180,7 +243,8 @@ public class PdpModifyRequestMap {
             .setTimers(params.getStateChangeTimers())
             .setModifyLock(params.getModifyLock())
             .setPublisher(params.getPublisher())
-            .setResponseDispatcher(params.getResponseDispatcher());
+            .setResponseDispatcher(params.getResponseDispatcher())
+            .setLane(lane);
         // @formatter:on
 
         String name = stateChange.getName() + " " + PdpStateChange.class.getSimpleName();
@@ -189,6 +253,53 @@ public class PdpModifyRequestMap {
         addSingleton(request);
     }
 
+    /**
+     * Makes the UPDATE message that is actually sent to a PDP. If the PDP's type supports
+     * deltas, then the message is versioned, so that it may be sent as a delta.
+     * Otherwise, the plain message is sent, as a full update. The type of a PDP being
+     * removed from its subgroup is unknown, thus it is always sent a full update.
+     *
+     * @param update the plain UPDATE message
+     * @return the UPDATE message to be sent
+     */
+    private PdpUpdate makeVersionedUpdate(PdpUpdate update) {
+        if (generations == null) {
+            return update;
+        }
+
+        if (update.getPdpSubgroup() == null || !deltaPdpTypes.contains(update.getPdpSubgroup())) {
+            generations.forget(update.getName());
+            return update;
+        }
+
+        return generations.makeUpdate(update);
+    }
+
+    /**
+     * Forgets the generation that a PDP last acknowledged, so that its next UPDATE is a
+     * full update.
+     *
+     * @param pdpName name of the PDP
+     */
+    private void forgetGeneration(String pdpName) {
+        if (generations != null) {
+            generations.forget(pdpName);
+        }
+    }
+
+    /**
+     * Updates a policy download statistic, if the message is an UPDATE.
+     *
+     * @param stat statistic to update
+     * @param message message that was sent to the PDP
+     */
+    private void updateDownloadStatistics(Stat stat, PdpMessage message) {
+        if (message instanceof PdpUpdate) {
+            PdpUpdate update = (PdpUpdate) message;
+            stats.update(stat, update.getPdpGroup(), update.getPdpSubgroup());
+        }
+    }
+
     /**
      * Determines if a message is a broadcast message.
      *
@@ -242,6 +353,7 @@ public class PdpModifyRequestMap {
 
             } else {
                 dao.updatePdpGroups(updates);
+                groupCache.putGroups(updates);
                 return true;
             }
         }
@@ -317,6 +429,9 @@ public class PdpModifyRequestMap {
         @Override
         public void failure(String pdpName, String reason) {
             if (requests.getPdpName().equals(pdpName)) {
+                updateDownloadStatistics(Stat.POLICY_DOWNLOAD_FAILURE, request.getMessage());
+                forgetGeneration(pdpName);
+                deploymentTracker.failure(pdpName, reason);
                 disablePdp(requests);
             }
         }
@@ -324,6 +439,15 @@ public class PdpModifyRequestMap {
         @Override
         public void success(String pdpName) {
             if (requests.getPdpName().equals(pdpName)) {
+                PdpMessage message = request.getMessage();
+                updateDownloadStatistics(Stat.POLICY_DOWNLOAD_SUCCESS, message);
+
+                if (generations != null && message instanceof PdpUpdate) {
+                    generations.acknowledge((PdpUpdate) message);
+                }
+
+                deploymentTracker.success(message);
+
                 if (pdp2requests.get(requests.getPdpName()) == requests) {
                     startNextRequest(requests, request);
 
@@ -336,6 +460,9 @@ public class PdpModifyRequestMap {
 
         @Override
         public void retryCountExhausted() {
+            updateDownloadStatistics(Stat.POLICY_DOWNLOAD_FAILURE, request.getMessage());
+            forgetGeneration(requests.getPdpName());
+            deploymentTracker.retryCountExhausted(requests.getPdpName());
             disablePdp(requests);
         }
 
@@ -378,7 +505,11 @@ public class PdpModifyRequestMap {
                 logger.info("unable to remove PDP {} from subgroup", requests.getPdpName(), e);
             }
 
-            // send the state change
+            /*
+             * send the state change. Both it and the UPDATE that precedes it go in the
+             * STATE-CHANGE lane, otherwise the UPDATE, and thus the PASSIVE state change
+             * that waits for it, could be held up indefinitely behind bulk deployments
+             */
             PdpStateChange change = new PdpStateChange();
             change.setName(requests.getPdpName());
             change.setState(PdpState.PASSIVE);
@@ -389,11 +520,10 @@ public class PdpModifyRequestMap {
                 update.setName(requests.getPdpName());
                 update.setPolicies(Collections.emptyList());
 
-                addRequest(update, change);
-
-            } else {
-                addRequest(change);
+                addRequest(update, Lane.STATE_CHANGE);
             }
+
+            addRequest(change, Lane.STATE_CHANGE);
         }
     }
 }
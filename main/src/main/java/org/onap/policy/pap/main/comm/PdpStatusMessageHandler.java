@@ -39,12 +39,16 @@ import org.onap.policy.models.pdp.enums.PdpState;
 import org.onap.policy.models.provider.PolicyModelsProvider;
 import org.onap.policy.pap.main.PapConstants;
 import org.onap.policy.pap.main.PolicyPapException;
+import org.onap.policy.pap.main.rest.PapStatisticsManager;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
- * Handler for PDP Status messages which either represent registration or heart beat.
+ * Handler for PDP Status messages which either represent registration or heart beat. A
+ * single instance is shared by all of the threads processing the messages, thus it
+ * resolves its dependencies once, when constructed, and keeps no per-message state.
  *
  * @author Ram Krishna Verma (ram.krishna.verma@est.tech)
  */
@@ -52,10 +56,29 @@ public class PdpStatusMessageHandler extends PdpMessageGenerator {
     private static final Logger LOGGER = LoggerFactory.getLogger(PdpStatusMessageHandler.class);
 
     /**
-     * Constructs the object.
+     * Used to write PDP health changes to the DB.
+     */
+    private final PdpHealthWriter healthWriter;
+
+    /**
+     * Used to track the PDPs' heart beats.
+     */
+    private final PdpTracker pdpTracker;
+
+    /**
+     * Used to count the PDPs that register.
+     */
+    private final PapStatisticsManager stats;
+
+    /**
+     * Constructs the object. This should not be invoked until all of the items that it
+     * uses have been placed into the Registry.
      */
     public PdpStatusMessageHandler() {
         super(true);
+        healthWriter = Registry.get(PapConstants.REG_PDP_HEALTH_WRITER, PdpHealthWriter.class);
+        pdpTracker = Registry.get(PapConstants.REG_PDP_TRACKER, PdpTracker.class);
+        stats = PapStatisticsManager.lookup();
     }
 
     /**
@@ -64,36 +87,38 @@ public class PdpStatusMessageHandler extends PdpMessageGenerator {
      * @param message the PdpStatus message
      */
     public void handlePdpStatus(final PdpStatus message) {
-        synchronized (updateLock) {
-            try (PolicyModelsProvider databaseProvider = modelProviderWrapper.create()) {
-                if (message.getPdpGroup() == null && message.getPdpSubgroup() == null) {
-                    handlePdpRegistration(message, databaseProvider);
-                } else {
-                    handlePdpHeartbeat(message, databaseProvider);
-                }
+        try {
+            if (message.getPdpGroup() == null && message.getPdpSubgroup() == null) {
+                handlePdpRegistration(message);
+            } else {
+                // heart beats are served from the group cache; the DB is only opened when needed
+                handlePdpHeartbeat(message);
+            }
 
-                /*
-                 * Indicate that a heart beat was received from the PDP. This is invoked
-                 * only if handleXxx() does not throw an exception.
-                 */
-                if (message.getName() != null) {
-                    PdpTracker pdpTracker = Registry.get(PapConstants.REG_PDP_TRACKER);
-                    pdpTracker.add(message.getName());
-                }
-            } catch (final PolicyPapException exp) {
-                LOGGER.error("Operation Failed", exp);
-            } catch (final Exception exp) {
-                LOGGER.error("Failed connecting to database provider", exp);
+            /*
+             * Indicate that a heart beat was received from the PDP. This is invoked
+             * only if handleXxx() does not throw an exception.
+             */
+            if (message.getName() != null) {
+                pdpTracker.add(message.getName());
             }
+        } catch (final PolicyPapException exp) {
+            LOGGER.error("Operation Failed", exp);
+        } catch (final Exception exp) {
+            LOGGER.error("Failed connecting to database provider", exp);
         }
     }
 
-    private void handlePdpRegistration(final PdpStatus message, final PolicyModelsProvider databaseProvider)
-            throws PfModelException, PolicyPapException {
-        if (!findAndUpdatePdpGroup(message, databaseProvider)) {
-            final String errorMessage = "Failed to register PDP. No matching PdpGroup/SubGroup Found - ";
-            LOGGER.debug("{}{}", errorMessage, message);
-            throw new PolicyPapException(errorMessage + message);
+    private void handlePdpRegistration(final PdpStatus message) throws PfModelException, PolicyPapException {
+        try (PolicyModelsProvider databaseProvider = modelProviderWrapper.create()) {
+            // registration modifies the group, thus it must hold the lock
+            synchronized (updateLock) {
+                if (!findAndUpdatePdpGroup(message, databaseProvider)) {
+                    final String errorMessage = "Failed to register PDP. No matching PdpGroup/SubGroup Found - ";
+                    LOGGER.debug("{}{}", errorMessage, message);
+                    throw new PolicyPapException(errorMessage + message);
+                }
+            }
         }
     }
 
@@ -170,28 +195,24 @@ public class PdpStatusMessageHandler extends PdpMessageGenerator {
         pdpSubGroup.setCurrentInstanceCount(pdpSubGroup.getCurrentInstanceCount() + 1);
 
         databaseProvider.updatePdpSubGroup(pdpGroup.getName(), pdpSubGroup);
+        groupCache.putSubGroup(pdpGroup.getName(), pdpSubGroup);
+
+        stats.update(Stat.TOTAL_PDP, pdpGroup.getName(), pdpSubGroup.getPdpType());
 
         LOGGER.debug("Updated PdpSubGroup in DB - {} belonging to PdpGroup - {}", pdpSubGroup, pdpGroup);
     }
 
-    private void handlePdpHeartbeat(final PdpStatus message, final PolicyModelsProvider databaseProvider)
-            throws PfModelException, PolicyPapException {
+    private void handlePdpHeartbeat(final PdpStatus message) throws PfModelException, PolicyPapException {
         boolean pdpInstanceFound = false;
-        Optional<PdpSubGroup> pdpSubgroup = null;
-        Optional<Pdp> pdpInstance = null;
 
-        final PdpGroupFilter filter =
-                PdpGroupFilter.builder().name(message.getPdpGroup()).groupState(PdpState.ACTIVE).build();
-        final List<PdpGroup> pdpGroups = databaseProvider.getFilteredPdpGroups(filter);
-        if (!pdpGroups.isEmpty()) {
-            final PdpGroup pdpGroup = pdpGroups.get(0);
-            pdpSubgroup = findPdpSubGroup(message, pdpGroup);
-            if (pdpSubgroup.isPresent()) {
-                pdpInstance = findPdpInstance(message, pdpSubgroup.get());
-                if (pdpInstance.isPresent()) {
-                    processPdpDetails(message, pdpSubgroup.get(), pdpInstance.get(), pdpGroup, databaseProvider);
-                    pdpInstanceFound = true;
-                }
+        // the group cache mirrors the DB, thus there is no need to query the DB
+        final PdpGroup pdpGroup = groupCache.getActiveGroup(message.getPdpGroup());
+        if (pdpGroup != null) {
+            final PdpSubGroup pdpSubgroup = groupCache.getSubGroup(pdpGroup.getName(), message.getPdpType());
+            final Pdp pdpInstance = groupCache.getPdp(pdpGroup.getName(), message.getPdpType(), message.getName());
+            if (pdpSubgroup != null && pdpInstance != null) {
+                processPdpDetails(message, pdpSubgroup, pdpInstance, pdpGroup);
+                pdpInstanceFound = true;
             }
         }
         if (!pdpInstanceFound) {
@@ -224,24 +245,70 @@ public class PdpStatusMessageHandler extends PdpMessageGenerator {
     }
 
     private void processPdpDetails(final PdpStatus message, final PdpSubGroup pdpSubGroup, final Pdp pdpInstance,
-            final PdpGroup pdpGroup, final PolicyModelsProvider databaseProvider) throws PfModelException {
+            final PdpGroup pdpGroup) throws PfModelException {
         if (PdpState.TERMINATED.equals(message.getState())) {
-            processPdpTermination(pdpSubGroup, pdpInstance, pdpGroup, databaseProvider);
+            processPdpTermination(pdpSubGroup, pdpInstance, pdpGroup);
         } else if (validatePdpDetails(message, pdpGroup, pdpSubGroup, pdpInstance)) {
             LOGGER.debug("PdpInstance details are correct. Saving current state in DB - {}", pdpInstance);
-            updatePdpHealthStatus(message, pdpSubGroup, pdpInstance, pdpGroup, databaseProvider);
+            updatePdpHealthStatus(message, pdpSubGroup, pdpInstance, pdpGroup);
         } else {
             LOGGER.debug("PdpInstance details are not correct. Sending PdpUpdate message - {}", pdpInstance);
-            sendPdpMessage(pdpGroup.getName(), pdpSubGroup, pdpInstance.getInstanceId(), pdpInstance.getPdpState(),
-                    databaseProvider);
+            processPdpMismatch(pdpSubGroup, pdpInstance, pdpGroup);
         }
     }
 
-    private void processPdpTermination(final PdpSubGroup pdpSubGroup, final Pdp pdpInstance, final PdpGroup pdpGroup,
-            final PolicyModelsProvider databaseProvider) throws PfModelException {
-        pdpSubGroup.getPdpInstances().remove(pdpInstance);
-        pdpSubGroup.setCurrentInstanceCount(pdpSubGroup.getCurrentInstanceCount() - 1);
-        databaseProvider.updatePdpSubGroup(pdpGroup.getName(), pdpSubGroup);
+    private void processPdpMismatch(final PdpSubGroup pdpSubGroup, final Pdp pdpInstance, final PdpGroup pdpGroup)
+            throws PfModelException {
+        try (PolicyModelsProvider databaseProvider = modelProviderWrapper.create()) {
+            synchronized (updateLock) {
+                /*
+                 * re-fetch the subgroup, as a deployment may have changed it before the lock
+                 * was acquired, in which case its newer messages must not be replaced
+                 */
+                final PdpSubGroup currentSubGroup =
+                        groupCache.getSubGroup(pdpGroup.getName(), pdpSubGroup.getPdpType());
+                final Pdp currentPdp =
+                        groupCache.getPdp(pdpGroup.getName(), pdpSubGroup.getPdpType(), pdpInstance.getInstanceId());
+                if (currentSubGroup == null || currentPdp == null) {
+                    LOGGER.debug("PdpInstance {} no longer exists in PdpSubGroup {}", pdpInstance.getInstanceId(),
+                            pdpSubGroup.getPdpType());
+                    return;
+                }
+
+                sendPdpMessage(pdpGroup.getName(), currentSubGroup, currentPdp.getInstanceId(),
+                        currentPdp.getPdpState(), databaseProvider);
+            }
+        }
+    }
+
+    private void processPdpTermination(final PdpSubGroup pdpSubGroup, final Pdp pdpInstance, final PdpGroup pdpGroup)
+            throws PfModelException {
+        // the DAO is obtained before the lock, so the lock is never held while waiting for one
+        try (PolicyModelsProvider databaseProvider = modelProviderWrapper.create()) {
+            synchronized (updateLock) {
+                // re-fetch the subgroup, as it may have changed before the lock was acquired
+                final PdpSubGroup currentSubGroup =
+                        groupCache.getSubGroup(pdpGroup.getName(), pdpSubGroup.getPdpType());
+                if (currentSubGroup == null) {
+                    LOGGER.debug("PdpSubGroup {} no longer exists in PdpGroup {}", pdpSubGroup.getPdpType(),
+                            pdpGroup.getName());
+                    return;
+                }
+
+                // the subgroup belongs to the group cache, thus a copy is updated instead
+                final PdpSubGroup updatedSubGroup = new PdpSubGroup(currentSubGroup);
+                if (!updatedSubGroup.getPdpInstances()
+                        .removeIf(pdp -> pdp.getInstanceId().equals(pdpInstance.getInstanceId()))) {
+                    LOGGER.debug("PdpInstance {} was already removed from PdpSubGroup {}",
+                            pdpInstance.getInstanceId(), pdpSubGroup.getPdpType());
+                    return;
+                }
+
+                updatedSubGroup.setCurrentInstanceCount(updatedSubGroup.getCurrentInstanceCount() - 1);
+                databaseProvider.updatePdpSubGroup(pdpGroup.getName(), updatedSubGroup);
+                groupCache.putSubGroup(pdpGroup.getName(), updatedSubGroup);
+            }
+        }
 
         LOGGER.debug("Deleted PdpInstance - {} belonging to PdpSubGroup - {} and PdpGroup - {}", pdpInstance,
                 pdpSubGroup, pdpGroup);
@@ -263,11 +330,15 @@ public class PdpStatusMessageHandler extends PdpMessageGenerator {
     }
 
     private void updatePdpHealthStatus(final PdpStatus message, final PdpSubGroup pdpSubgroup, final Pdp pdpInstance,
-            final PdpGroup pdpGroup, final PolicyModelsProvider databaseProvider) throws PfModelException {
-        pdpInstance.setHealthy(message.getHealthy());
-        databaseProvider.updatePdp(pdpGroup.getName(), pdpSubgroup.getPdpType(), pdpInstance);
+            final PdpGroup pdpGroup) {
+        // the PDP belongs to the group cache, thus a copy is updated instead
+        final Pdp updatedPdp = new Pdp(pdpInstance);
+        updatedPdp.setHealthy(message.getHealthy());
+
+        // the writer skips the DB update if nothing changed
+        healthWriter.write(pdpGroup.getName(), pdpSubgroup.getPdpType(), updatedPdp);
 
-        LOGGER.debug("Updated Pdp in DB - {}", pdpInstance);
+        LOGGER.debug("Queued Pdp for DB update - {}", updatedPdp);
     }
 
     private void sendPdpMessage(final String pdpGroupName, final PdpSubGroup subGroup, final String pdpInstanceId,
@@ -20,8 +20,11 @@
 
 package org.onap.policy.pap.main.comm;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.Builder;
 import lombok.NonNull;
 import org.onap.policy.models.base.PfModelException;
@@ -31,27 +34,32 @@ import org.onap.policy.models.pdp.concepts.PdpSubGroup;
 import org.onap.policy.models.provider.PolicyModelsProvider;
 import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
 import org.onap.policy.pap.main.PolicyPapRuntimeException;
-import org.onap.policy.pap.main.comm.TimerManager.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Tracks PDPs. When a PDP is added to the tracker, a timer is started. If the PDP is not
- * re-added to the tracker before the timer expires, then
- * {@link PdpModifyRequestMap#removeFromGroups(String)} is called.
+ * Tracks PDPs. When a PDP is added to the tracker, the time at which it was last seen is
+ * recorded in a liveness table. A background sweeper periodically scans the table. If a
+ * PDP has not been re-added to the tracker within the maximum wait time, then it is
+ * removed from the table and {@link PdpModifyRequestMap#removeFromGroups(String)} is
+ * called.
+ *
+ * <p>Re-adding a PDP that is already in the table is a single atomic write; it does not
+ * lock anything or allocate anything.
  */
-public class PdpTracker {
+public class PdpTracker implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(PdpTracker.class);
 
     /**
-     * PDP expiration timers.
+     * Value placed into a PDP's last-seen time once the sweeper has decided that it has
+     * expired.
      */
-    private final TimerManager timers;
+    private static final long EXPIRED = Long.MIN_VALUE;
 
     /**
-     * Maps a PDP name to its expiration timer.
+     * Maps a PDP name to the time, in nano-seconds, when it was last seen.
      */
-    private final Map<String, TimerManager.Timer> pdp2timer = new HashMap<>();
+    private final Map<String, AtomicLong> pdp2seen = new ConcurrentHashMap<>();
 
     /**
      * PDP modification lock.
@@ -63,22 +71,48 @@ public class PdpTracker {
      */
     private final PdpModifyRequestMap requestMap;
 
+    /**
+     * Time, in nano-seconds, a PDP may go without being seen before it's removed.
+     */
+    private final long maxWaitNs;
+
+    /**
+     * Time, in milliseconds, between sweeps of the liveness table.
+     */
+    private final long sweepMs;
+
+    /**
+     * This is decremented to indicate that the sweeper should be stopped.
+     */
+    private final CountDownLatch stopper = new CountDownLatch(1);
+
 
     /**
      * Constructs the object. Loads the list of PDPs to be tracked, from the DB.
      *
      * @param requestMap map used to remove a PDP from its group/subgroup
      * @param modifyLock object to be locked while data structures are updated
-     * @param timers timers used to detect missed heart beats
+     * @param maxWaitMs time, in milliseconds, a PDP may go without being seen before it's
+     *        removed
+     * @param sweepMs time, in milliseconds, between checks for PDPs that have expired
      * @param daoFactory DAO factory
      */
     @Builder
-    public PdpTracker(@NonNull PdpModifyRequestMap requestMap, @NonNull Object modifyLock, @NonNull TimerManager timers,
-                    @NonNull PolicyModelsProviderFactoryWrapper daoFactory) {
+    public PdpTracker(@NonNull PdpModifyRequestMap requestMap, @NonNull Object modifyLock, long maxWaitMs,
+                    long sweepMs, @NonNull PolicyModelsProviderFactoryWrapper daoFactory) {
+
+        if (maxWaitMs < 1) {
+            throw new IllegalArgumentException("maxWaitMs must be >= 1");
+        }
+
+        if (sweepMs < 1) {
+            throw new IllegalArgumentException("sweepMs must be >= 1");
+        }
 
         this.requestMap = requestMap;
         this.modifyLock = modifyLock;
-        this.timers = timers;
+        this.maxWaitNs = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.sweepMs = sweepMs;
 
         loadPdps(daoFactory);
     }
@@ -115,33 +149,80 @@ public class PdpTracker {
     }
 
     /**
-     * Adds a PDP to the tracker and starts its timer. If a timer is already running, the
-     * old timer is cancelled.
+     * Stops the sweeper.
+     */
+    public void stop() {
+        logger.info("PDP tracker stopping");
+
+        stopper.countDown();
+    }
+
+    /**
+     * Adds a PDP to the tracker, or records that it has been seen again, if it's already
+     * being tracked.
      *
      * @param pdpName name of the PDP
      */
     public void add(String pdpName) {
-        synchronized (modifyLock) {
-            Timer timer = pdp2timer.remove(pdpName);
-            if (timer != null) {
-                timer.cancel();
+        long tcur = currentTimeNanos();
+
+        AtomicLong seen = pdp2seen.get(pdpName);
+        if (seen != null && seen.getAndSet(tcur) != EXPIRED) {
+            return;
+        }
+
+        // new PDP, or the sweeper just expired it - start tracking it (again)
+        pdp2seen.put(pdpName, new AtomicLong(tcur));
+    }
+
+    /**
+     * Continuously sweeps the liveness table, at the configured interval, until
+     * {@link #stop()} is invoked.
+     */
+    @Override
+    public void run() {
+        logger.info("PDP tracker started");
+
+        try {
+            while (!stopper.await(sweepMs, TimeUnit.MILLISECONDS)) {
+                sweep();
             }
 
-            timer = timers.register(pdpName, this::handleTimeout);
-            pdp2timer.put(pdpName, timer);
+        } catch (InterruptedException e) {
+            logger.warn("PDP tracker stopping due to interrupt");
+            Thread.currentThread().interrupt();
+        }
+
+        logger.info("PDP tracker stopped");
+    }
+
+    /**
+     * Removes PDPs that have not been seen within the maximum wait time.
+     */
+    protected void sweep() {
+        long tcur = currentTimeNanos();
+
+        for (Map.Entry<String, AtomicLong> ent : pdp2seen.entrySet()) {
+            AtomicLong seen = ent.getValue();
+            long tseen = seen.get();
+
+            // the CAS fails if the PDP was seen again since it was read
+            if (tseen != EXPIRED && tcur - tseen >= maxWaitNs && seen.compareAndSet(tseen, EXPIRED)) {
+                pdp2seen.remove(ent.getKey(), seen);
+                handleTimeout(ent.getKey());
+            }
         }
     }
 
     /**
-     * Handles a timeout. Removes the PDP from {@link #pdp2timer}.
+     * Handles a timeout, removing the PDP from its group/subgroup.
      *
-     * @param pdpName name of the PDP whose timer has expired
+     * @param pdpName name of the PDP that has not been seen
      */
     private void handleTimeout(String pdpName) {
-        synchronized (modifyLock) {
-            // remove timer - no need to cancel it, as TimerManager does that
-            pdp2timer.remove(pdpName);
+        logger.info("PDP {} has missed its heart beats", pdpName);
 
+        synchronized (modifyLock) {
             try {
                 requestMap.removeFromGroups(pdpName);
 
@@ -150,4 +231,15 @@ public class PdpTracker {
             }
         }
     }
+
+    // these may be overridden by junit tests
+
+    /**
+     * Gets the current time, in nano-seconds.
+     *
+     * @return the current time, in nano-seconds
+     */
+    protected long currentTimeNanos() {
+        return System.nanoTime();
+    }
 }
@@ -20,13 +20,28 @@
 
 package org.onap.policy.pap.main.comm;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import org.onap.policy.common.endpoints.event.comm.client.TopicSinkClient;
-import org.onap.policy.common.endpoints.event.comm.client.TopicSinkClientException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.onap.policy.common.endpoints.event.comm.TopicEndpointManager;
+import org.onap.policy.common.endpoints.event.comm.TopicSink;
+import org.onap.policy.common.utils.coder.Coder;
+import org.onap.policy.common.utils.coder.CoderException;
 import org.onap.policy.common.utils.coder.StandardCoder;
 import org.onap.policy.models.pdp.concepts.PdpMessage;
+import org.onap.policy.models.pdp.concepts.PdpStateChange;
 import org.onap.policy.pap.main.PolicyPapException;
+import org.onap.policy.pap.main.metrics.LatencyHistogram;
+import org.onap.policy.pap.main.metrics.PapMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,21 +52,124 @@ import org.slf4j.LoggerFactory;
  * {@link null}, clients are free to atomically update the reference to new values, thus
  * maintaining their place in the queue.
  *
+ * <p>References are queued in separate {@link Lane lanes}, so that a large fan-out of
+ * UPDATE messages does not hold up STATE-CHANGE messages or retries. The lanes are
+ * visited round-robin, taking up to a lane's weight in references from it before moving
+ * on to the next lane. As a result, a reference waits, at most, for the batch that is
+ * currently being published plus the references ahead of it in its own lane, scaled by
+ * the ratio of the total weight to its lane's weight; no amount of bulk traffic can delay
+ * it further.
+ *
+ * <p>Ordering is only guaranteed within a lane: the references in a lane are published
+ * in the order in which they were queued (FIFO). Across lanes, messages are interleaved
+ * by the weighted round-robin described above, thus a message may be published ahead of
+ * one that was queued earlier in a different lane.
+ *
+ * <p>The publisher removes up to "batchSize" references from the lanes at a time. The
+ * messages in a batch are encoded, via the {@link Coder}, on a pool of worker threads, if
+ * more than one thread was requested. Regardless, they are handed to the topic sink in
+ * the order in which they were removed from the lanes.
+ *
  * <p>This class has not been tested for multiple threads invoking {@link #run()}
  * simultaneously.
  */
 public class Publisher implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(Publisher.class);
 
+    /**
+     * Lanes in which references are queued, in the order in which they are visited.
+     */
+    public enum Lane {
+        /**
+         * STATE-CHANGE messages, including those that disable a PDP.
+         */
+        STATE_CHANGE(4),
+
+        /**
+         * Messages being re-published because the PDP did not respond in time.
+         */
+        RETRY(2),
+
+        /**
+         * Everything else, notably the UPDATE messages of a deployment.
+         */
+        BULK(1);
+
+        /**
+         * Maximum number of references to take from the lane each time it is visited.
+         */
+        private final int weight;
+
+        Lane(int weight) {
+            this.weight = weight;
+        }
+
+        /**
+         * Determines the lane in which a message should be queued. STATE-CHANGE messages
+         * always go in their own lane, even when being retried, as they take precedence
+         * over retries of other messages.
+         *
+         * @param message message to be queued, or {@code null}
+         * @param retry {@code true} if the message is being re-published due to a timeout
+         * @return the lane in which to queue the message
+         */
+        public static Lane of(PdpMessage message, boolean retry) {
+            if (message instanceof PdpStateChange) {
+                return STATE_CHANGE;
+            }
+
+            return (retry ? RETRY : BULK);
+        }
+    }
+
+    /**
+     * Used to generate unique names for the worker threads.
+     */
+    private static final AtomicInteger workerCount = new AtomicInteger();
+
+    /**
+     * Name of the topic to which messages are published.
+     */
+    private final String topic;
+
     /**
      * Used to send to the topic.
      */
-    private final TopicSinkClient client;
+    private final TopicSink sink;
+
+    /**
+     * Used to encode the messages.
+     */
+    private final Coder coder;
+
+    /**
+     * Maximum number of references to remove from the queue at a time.
+     */
+    private final int batchSize;
+
+    /**
+     * Used to encode messages in parallel, or {@code null} if messages are encoded by the
+     * publisher thread.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * Queued references, by lane. The references may contain {@code null}. Access is
+     * synchronized on the map itself, which is also used to wait for references to arrive.
+     */
+    private final Map<Lane, Queue<Queued>> lanes = new EnumMap<>(Lane.class);
+
+    /**
+     * Total number of references in all of the lanes.
+     */
+    private int pending = 0;
 
     /**
-     * Request queue. The references may contain {@code null}.
+     * Lane currently being visited and the number of references that may still be taken
+     * from it before moving on to the next lane.
      */
-    private final BlockingQueue<QueueToken<PdpMessage>> queue = new LinkedBlockingQueue<>();
+    private Lane current = Lane.BULK;
+    private int credits = 0;
 
     /**
      * Set to {@code true} to cause the publisher to stop running.
@@ -59,17 +177,88 @@ public class Publisher implements Runnable {
     private volatile boolean stopNow = false;
 
     /**
-     * Constructs the object.
+     * Time taken to hand each message to the topic sink.
+     */
+    private final LatencyHistogram sendLatency;
+
+    /**
+     * Time each reference spent waiting in its lane, by lane.
+     */
+    private final Map<Lane, LatencyHistogram> waitLatency = new EnumMap<>(Lane.class);
+
+    /**
+     * Number of messages that were sent, and number that could not be encoded or sent.
+     */
+    private final LongAdder sentCount;
+    private final LongAdder failedCount;
+
+    /**
+     * Constructs the object. Messages are published one at a time and are encoded via
+     * the {@link StandardCoder}.
      *
      * @param topic name of the topic to which to publish
      * @throws PolicyPapException if the topic sink does not exist
      */
     public Publisher(String topic) throws PolicyPapException {
-        try {
-            this.client = new TopicSinkClient(topic);
-        } catch (TopicSinkClientException e) {
-            throw new PolicyPapException(e);
+        this(topic, new StandardCoder(), 1, 1);
+    }
+
+    /**
+     * Constructs the object.
+     *
+     * @param topic name of the topic to which to publish
+     * @param coder used to encode the messages
+     * @param batchSize maximum number of messages to remove from the queue at a time
+     * @param nthreads number of threads to use to encode the messages
+     * @throws PolicyPapException if the topic sink does not exist
+     */
+    public Publisher(String topic, Coder coder, int batchSize, int nthreads) throws PolicyPapException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be >= 1");
         }
+
+        if (nthreads < 1) {
+            throw new IllegalArgumentException("nthreads must be >= 1");
+        }
+
+        List<TopicSink> sinks = TopicEndpointManager.getManager().getTopicSinks(topic);
+        if (sinks.isEmpty()) {
+            throw new PolicyPapException("no sinks for topic: " + topic);
+        }
+
+        if (sinks.size() > 1) {
+            // same as TopicSinkClient, which this replaced
+            logger.warn("too many sinks for topic {} - using the first", topic);
+        }
+
+        this.topic = topic;
+        this.sink = sinks.get(0);
+        this.coder = coder;
+        this.batchSize = batchSize;
+        this.workers = (nthreads == 1 ? null : Executors.newFixedThreadPool(nthreads, runner -> {
+            Thread thread = new Thread(runner, "publisher-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+
+        PapMetrics metrics = PapMetrics.lookup();
+        metrics.gauge("pap_publisher_queue_depth", "Number of messages waiting to be published", this::getDepth);
+
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new ArrayDeque<>());
+
+            String laneName = lane.name().toLowerCase();
+            metrics.gauge("pap_publisher_lane_depth", "Number of messages waiting to be published, by lane", "lane",
+                            laneName, () -> getDepth(lane));
+            waitLatency.put(lane, metrics.histogram("pap_publisher_lane_wait_seconds",
+                            "Time a message waits in its lane before being published", "lane", laneName));
+        }
+
+        this.sendLatency = metrics.histogram("pap_publisher_send_seconds",
+                        "Time taken to hand a message to the topic sink");
+        this.sentCount = metrics.counter("pap_publisher_sent_total", "Number of messages published");
+        this.failedCount = metrics.counter("pap_publisher_failed_total",
+                        "Number of messages that could not be encoded or published");
     }
 
     /**
@@ -78,18 +267,61 @@ public class Publisher implements Runnable {
     public void stop() {
         stopNow = true;
 
-        // add an empty reference so the thread doesn't block on the queue
-        queue.add(new QueueToken<>(null));
+        // wake the thread so it doesn't block waiting for a reference
+        wakeAll();
+
+        if (workers != null) {
+            workers.shutdown();
+        }
     }
 
     /**
-     * Adds an item to the queue. The referenced objects are assumed to be POJOs and will
-     * be converted to JSON via the {@link StandardCoder} prior to publishing.
+     * Adds an item to the queue, in the lane appropriate to the referenced message, as
+     * determined by {@link Lane#of(PdpMessage, boolean)}. The referenced objects are
+     * assumed to be POJOs and will be converted to JSON via the {@link Coder} prior to
+     * publishing.
      *
      * @param ref reference to the message to be published
      */
     public void enqueue(QueueToken<PdpMessage> ref) {
-        queue.add(ref);
+        enqueue(Lane.of(ref.get(), false), ref);
+    }
+
+    /**
+     * Adds an item to the given lane of the queue.
+     *
+     * @param lane lane in which to queue the reference
+     * @param ref reference to the message to be published
+     */
+    public void enqueue(Lane lane, QueueToken<PdpMessage> ref) {
+        synchronized (lanes) {
+            lanes.get(lane).add(new Queued(lane, ref));
+            ++pending;
+            lanes.notifyAll();
+        }
+    }
+
+    /**
+     * Gets the number of references waiting in all lanes.
+     *
+     * @return the number of references waiting to be published
+     */
+    public int getDepth() {
+        synchronized (lanes) {
+            return pending;
+        }
+    }
+
+    /**
+     * Gets the number of references waiting in a lane.
+     *
+     * @param lane lane of interest
+     * @return the number of references waiting in the lane
+     */
+    public int getDepth(Lane lane) {
+        synchronized (lanes) {
+            return lanes.get(lane).size();
+        }
     }
 
     /**
@@ -97,38 +329,179 @@ public class Publisher implements Runnable {
      */
     @Override
     public void run() {
+        List<QueueToken<PdpMessage>> tokens = new ArrayList<>(batchSize);
+
         for (;;) {
-            QueueToken<PdpMessage> token = getNext();
+            getNext(tokens);
 
             if (stopNow) {
                 // unblock any other publisher threads
-                queue.offer(new QueueToken<>(null));
+                wakeAll();
                 break;
             }
 
+            publish(tokens);
+            tokens.clear();
+        }
+    }
+
+    /**
+     * Gets the next batch of items from the queue, waiting for at least one to arrive. If
+     * the thread is interrupted, then it sets {@link #stopNow}.
+     *
+     * @param tokens list to which the items are to be added
+     */
+    private void getNext(List<QueueToken<PdpMessage>> tokens) {
+        synchronized (lanes) {
+            try {
+                while (pending == 0 && !stopNow) {
+                    lanes.wait();
+                }
+
+            } catch (InterruptedException e) {
+                logger.warn("Publisher stopping due to interrupt");
+                stopNow = true;
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            long now = System.nanoTime();
+            while (pending > 0 && tokens.size() < batchSize && !stopNow) {
+                Queued queued = takeNext();
+                waitLatency.get(queued.lane).record(now - queued.enqueuedNs);
+                tokens.add(queued.token);
+            }
+        }
+    }
+
+    /**
+     * Takes the next reference from the lanes, giving each lane up to its weight in
+     * references before moving on to the next one. Assumes that the caller holds the lock
+     * and that at least one reference is pending.
+     *
+     * @return the next reference
+     */
+    private Queued takeNext() {
+        for (;;) {
+            if (credits > 0) {
+                Queued queued = lanes.get(current).poll();
+                if (queued != null) {
+                    --credits;
+                    --pending;
+                    return queued;
+                }
+            }
+
+            // lane is exhausted or empty - move on to the next one
+            current = Lane.values()[(current.ordinal() + 1) % Lane.values().length];
+            credits = current.weight;
+        }
+    }
+
+    /**
+     * Wakes any threads waiting for references to arrive.
+     */
+    private void wakeAll() {
+        synchronized (lanes) {
+            lanes.notifyAll();
+        }
+    }
+
+    /**
+     * Publishes a batch of items. Claims all of the items first, so that they can no
+     * longer be replaced, then encodes them and sends them, in order.
+     *
+     * @param tokens items to be published
+     */
+    private void publish(List<QueueToken<PdpMessage>> tokens) {
+        List<PdpMessage> messages = new ArrayList<>(tokens.size());
+        for (QueueToken<PdpMessage> token : tokens) {
             PdpMessage data = token.replaceItem(null);
             if (data != null) {
-                client.send(data);
+                messages.add(data);
             }
         }
+
+        if (workers == null || messages.size() == 1) {
+            messages.forEach(data -> send(encode(data)));
+            return;
+        }
+
+        List<CompletableFuture<String>> futures = new ArrayList<>(messages.size());
+        for (PdpMessage data : messages) {
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> encode(data), workers));
+
+            } catch (RejectedExecutionException e) {
+                // workers have been shut down - just encode it here
+                futures.add(CompletableFuture.completedFuture(encode(data)));
+            }
+        }
+
+        futures.forEach(future -> send(future.join()));
+    }
+
+    /**
+     * Encodes a message.
+     *
+     * @param data message to be encoded
+     * @return the encoded message, or {@code null} if it could not be encoded
+     */
+    private String encode(PdpMessage data) {
+        try {
+            return coder.encode(data);
+
+        } catch (CoderException | RuntimeException e) {
+            logger.warn("{}: cannot encode message {}", topic, data.getRequestId(), e);
+            failedCount.increment();
+            return null;
+        }
     }
 
     /**
-     * Gets the next item from the queue. If the thread is interrupted, then it sets
-     * {@link #stopNow}.
+     * Sends an encoded message to the topic.
      *
-     * @return the next item, or a reference containing {@code null} if this is
-     *         interrupted
+     * @param json message to be sent, or {@code null} if there is nothing to send
      */
-    private QueueToken<PdpMessage> getNext() {
+    private void send(String json) {
+        if (json == null) {
+            return;
+        }
+
+        long tstart = System.nanoTime();
+
         try {
-            return queue.take();
+            if (sink.send(json)) {
+                sentCount.increment();
+            } else {
+                logger.warn("{}: failed to send message", topic);
+                failedCount.increment();
+            }
+
+        } catch (RuntimeException e) {
+            logger.warn("{}: cannot send message", topic, e);
+            failedCount.increment();
+
+        } finally {
+            sendLatency.recordSince(tstart);
+        }
+    }
+
+    /**
+     * A reference within a lane.
+     */
+    private static class Queued {
+        private final Lane lane;
+        private final QueueToken<PdpMessage> token;
+
+        /**
+         * Time, from {@link System#nanoTime()}, when the reference was queued.
+         */
+        private final long enqueuedNs = System.nanoTime();
 
-        } catch (InterruptedException e) {
-            logger.warn("Publisher stopping due to interrupt");
-            stopNow = true;
-            Thread.currentThread().interrupt();
-            return new QueueToken<>(null);
+        public Queued(Lane lane, QueueToken<PdpMessage> token) {
+            this.lane = lane;
+            this.token = token;
         }
     }
 }
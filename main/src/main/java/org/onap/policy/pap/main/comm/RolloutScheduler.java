@@ -0,0 +1,354 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.Builder;
+import lombok.NonNull;
+import org.apache.commons.lang3.tuple.Pair;
+import org.onap.policy.models.pdp.concepts.PdpStateChange;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.pap.main.comm.DeploymentStatus.Outcome;
+import org.onap.policy.pap.main.comm.DeploymentStatus.PdpResult;
+import org.onap.policy.pap.main.parameters.PdpRolloutParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Releases a deployment's UPDATE requests to the {@link PdpModifyRequestMap} in waves,
+ * rather than all at once. The first wave is released immediately. Each subsequent wave
+ * is released once every PDP in the previous wave has responded, and the pause between
+ * waves has elapsed. If, at that point, too many of the PDPs released so far have failed,
+ * then the rollout is halted and the remaining PDPs are marked as such in the
+ * {@link DeploymentTracker}.
+ *
+ * <p>Requests that include a STATE-CHANGE are always released immediately, as are all
+ * requests when rollouts are disabled. A newer UPDATE for a PDP supersedes one that has
+ * not yet been released by an older rollout.
+ *
+ * <p>Requests are only released while holding the PDP modification lock, so that an
+ * older UPDATE can never be published after a newer one.
+ */
+public class RolloutScheduler implements DeploymentTracker.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(RolloutScheduler.class);
+
+    private static final String UPDATE_TYPE = PdpUpdate.class.getSimpleName();
+
+    /**
+     * Rollout parameters.
+     */
+    private final PdpRolloutParameters params;
+
+    /**
+     * Map to which requests are released.
+     */
+    private final PdpModifyRequestMap requestMap;
+
+    /**
+     * Tracker in which halted PDPs are marked.
+     */
+    private final DeploymentTracker deploymentTracker;
+
+    /**
+     * PDP modification lock.
+     */
+    private final Object modifyLock;
+
+    /**
+     * Used to release the next wave once the pause has elapsed.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Maps a tracking ID to its rollout, for rollouts that still have PDPs to be
+     * released.
+     */
+    private final Map<String, Rollout> id2rollout = new HashMap<>();
+
+
+    /**
+     * Constructs the object.
+     *
+     * @param params rollout parameters
+     * @param requestMap map to which requests are released
+     * @param deploymentTracker tracker in which halted PDPs are marked
+     * @param modifyLock PDP modification lock
+     * @param executor executor used to release subsequent waves
+     */
+    @Builder
+    public RolloutScheduler(@NonNull PdpRolloutParameters params, @NonNull PdpModifyRequestMap requestMap,
+                    @NonNull DeploymentTracker deploymentTracker, @NonNull Object modifyLock,
+                    @NonNull ScheduledExecutorService executor) {
+
+        this.params = params;
+        this.requestMap = requestMap;
+        this.deploymentTracker = deploymentTracker;
+        this.modifyLock = modifyLock;
+        this.executor = executor;
+    }
+
+    /**
+     * Releases a deployment's requests, or the first wave thereof. Must be invoked after
+     * the deployment has been added to the tracker. Requests for a given PDP must be
+     * released in the order in which they were generated, thus the caller must hold
+     * either the locks of the groups containing the PDPs or the PDP modification lock.
+     *
+     * @param trackingId the deployment's tracking ID
+     * @param requests requests to be released
+     */
+    public void release(String trackingId, Collection<Pair<PdpUpdate, PdpStateChange>> requests) {
+        List<Pair<PdpUpdate, PdpStateChange>> now = new ArrayList<>(requests.size());
+
+        synchronized (this) {
+            supersede(requests);
+
+            Rollout rollout = new Rollout(trackingId);
+
+            for (Pair<PdpUpdate, PdpStateChange> pair : requests) {
+                if (params.isEnabled() && pair.getLeft() != null && pair.getRight() == null) {
+                    rollout.unreleased.put(pair.getLeft().getName(), pair.getLeft());
+                } else {
+                    now.add(pair);
+                }
+            }
+
+            rollout.waveSize = computeWaveSize(rollout.unreleased.size());
+
+            if (rollout.unreleased.size() <= rollout.waveSize) {
+                // fits in a single wave - no need to track it
+                rollout.unreleased.values().forEach(update -> now.add(Pair.of(update, null)));
+
+            } else {
+                logger.info("rolling out deployment {} to {} PDPs in waves of {}", trackingId,
+                                rollout.unreleased.size(), rollout.waveSize);
+                id2rollout.put(trackingId, rollout);
+                rollout.nextWave().forEach(update -> now.add(Pair.of(update, null)));
+            }
+        }
+
+        now.forEach(pair -> requestMap.addRequest(pair.getLeft(), pair.getRight()));
+    }
+
+    /**
+     * Gets the number of rollouts that still have PDPs to be released.
+     *
+     * @return the number of rollouts in progress
+     */
+    public synchronized int size() {
+        return id2rollout.size();
+    }
+
+    @Override
+    public synchronized void completed(String trackingId, PdpResult result) {
+        Rollout rollout = id2rollout.get(trackingId);
+        if (rollout == null || !UPDATE_TYPE.equals(result.getMessageType())
+                        || !rollout.waiting.remove(result.getPdpName())) {
+            return;
+        }
+
+        if (result.getOutcome() != Outcome.SUCCESS) {
+            ++rollout.failed;
+        }
+
+        if (rollout.waiting.isEmpty()) {
+            executor.schedule(() -> advance(rollout), params.getWavePauseMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void evicted(String trackingId) {
+        Rollout rollout = id2rollout.get(trackingId);
+        if (rollout == null) {
+            return;
+        }
+
+        // no more responses will be reported, thus release the rest without gating
+        logger.warn("deployment {} is no longer tracked - releasing its remaining PDPs", trackingId);
+        rollout.untracked = true;
+        rollout.waveSize = Integer.MAX_VALUE;
+
+        if (!rollout.waiting.isEmpty()) {
+            rollout.waiting.clear();
+            executor.execute(() -> advance(rollout));
+        }
+    }
+
+    /**
+     * Releases the next wave of a rollout, or halts the rollout if too many of its PDPs
+     * have failed.
+     *
+     * @param rollout rollout of interest
+     */
+    private void advance(Rollout rollout) {
+        synchronized (modifyLock) {
+            List<PdpUpdate> wave;
+            List<String> halted;
+
+            synchronized (this) {
+                if (id2rollout.get(rollout.trackingId) != rollout) {
+                    // already finished or halted
+                    return;
+                }
+
+                if (!rollout.untracked && rollout.isFailureThresholdExceeded()) {
+                    logger.warn("halting rollout of deployment {} after {} of {} PDPs failed", rollout.trackingId,
+                                    rollout.failed, rollout.released);
+                    id2rollout.remove(rollout.trackingId);
+                    wave = Collections.emptyList();
+                    halted = new ArrayList<>(rollout.unreleased.keySet());
+
+                } else {
+                    wave = rollout.nextWave();
+                    halted = Collections.emptyList();
+                }
+            }
+
+            wave.forEach(update -> requestMap.addRequest(update, null));
+
+            if (!halted.isEmpty()) {
+                deploymentTracker.halted(rollout.trackingId, halted, "rollout halted after " + rollout.failed + " of "
+                                + rollout.released + " PDPs failed");
+            }
+        }
+    }
+
+    /**
+     * Removes PDPs from older rollouts, if newer UPDATE requests are being released for
+     * them.
+     *
+     * @param requests newer requests
+     */
+    private void supersede(Collection<Pair<PdpUpdate, PdpStateChange>> requests) {
+        if (id2rollout.isEmpty()) {
+            return;
+        }
+
+        Set<String> pdpNames = new HashSet<>();
+        for (Pair<PdpUpdate, PdpStateChange> pair : requests) {
+            if (pair.getLeft() != null) {
+                pdpNames.add(pair.getLeft().getName());
+            }
+        }
+
+        Iterator<Rollout> iter = id2rollout.values().iterator();
+        while (iter.hasNext()) {
+            Rollout rollout = iter.next();
+            rollout.unreleased.keySet().removeAll(pdpNames);
+
+            if (rollout.unreleased.isEmpty()) {
+                logger.info("rollout of deployment {} superseded", rollout.trackingId);
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Computes the size of each wave.
+     *
+     * @param total total number of PDPs to be rolled out
+     * @return the number of PDPs to be released in each wave
+     */
+    private int computeWaveSize(int total) {
+        long percent = Math.min(100, params.getWavePercent());
+        int fromPercent = (int) ((total * percent + 99) / 100);
+
+        return Math.max(1, Math.max(params.getWaveSize(), fromPercent));
+    }
+
+    /**
+     * A rollout of a single deployment.
+     */
+    private class Rollout {
+        private final String trackingId;
+
+        /**
+         * UPDATE requests that have not been released yet, keyed by PDP name, in the
+         * order in which they are to be released.
+         */
+        private final Map<String, PdpUpdate> unreleased = new LinkedHashMap<>();
+
+        /**
+         * Names of the PDPs in the current wave that have not responded yet.
+         */
+        private final Set<String> waiting = new HashSet<>();
+
+        private int waveSize;
+        private int released = 0;
+        private int failed = 0;
+
+        /**
+         * {@code true} if the deployment is no longer in the tracker.
+         */
+        private boolean untracked = false;
+
+        public Rollout(String trackingId) {
+            this.trackingId = trackingId;
+        }
+
+        /**
+         * Removes the next wave from the unreleased requests. Removes the rollout once
+         * nothing remains to be released.
+         *
+         * @return the requests to be released
+         */
+        public List<PdpUpdate> nextWave() {
+            List<PdpUpdate> wave = new ArrayList<>(Math.min(waveSize, unreleased.size()));
+
+            Iterator<PdpUpdate> iter = unreleased.values().iterator();
+            while (iter.hasNext() && wave.size() < waveSize) {
+                PdpUpdate update = iter.next();
+                iter.remove();
+
+                wave.add(update);
+                waiting.add(update.getName());
+            }
+
+            released += wave.size();
+
+            if (unreleased.isEmpty()) {
+                id2rollout.remove(trackingId);
+            }
+
+            return wave;
+        }
+
+        /**
+         * Determines if too many of the PDPs released so far have failed.
+         *
+         * @return {@code true} if the rollout should be halted
+         */
+        public boolean isFailureThresholdExceeded() {
+            long maxPercent = Math.min(100, params.getMaxFailurePercent());
+            return (failed * 100L > maxPercent * released);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import org.onap.policy.common.utils.coder.Coder;
+import org.onap.policy.common.utils.coder.CoderException;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+
+/**
+ * Immutable list of policies that is shared by all of the UPDATE messages sent to the
+ * PDPs within a subgroup. The list is encoded the first time it's needed, and the encoded
+ * form is then reused for every other message referencing the list. See
+ * {@link PdpMessageCoder}.
+ */
+public class SharedPolicyList extends AbstractList<ToscaPolicy> implements RandomAccess {
+
+    /**
+     * The policies.
+     */
+    private final List<ToscaPolicy> policies;
+
+    /**
+     * Policies, encoded as JSON, or {@code null} if they have not been encoded yet.
+     */
+    private volatile String json = null;
+
+
+    /**
+     * Constructs the object.
+     *
+     * @param policies policies to be placed into the list
+     */
+    public SharedPolicyList(Collection<ToscaPolicy> policies) {
+        this.policies = new ArrayList<>(policies);
+    }
+
+    @Override
+    public ToscaPolicy get(int index) {
+        return policies.get(index);
+    }
+
+    @Override
+    public int size() {
+        return policies.size();
+    }
+
+    /**
+     * Gets the policies, encoded as JSON, encoding them if they have not been encoded
+     * yet.
+     *
+     * @param coder coder to use to encode the policies
+     * @return the encoded policies
+     * @throws CoderException if the policies cannot be encoded
+     */
+    public String toJson(Coder coder) throws CoderException {
+        String result = json;
+        if (result == null) {
+            // no harm if two threads get here at the same time - they'll produce the same
+            result = coder.encode(policies);
+            json = result;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
+
+/**
+ * Assigns generation numbers to the policy sets of each subgroup, and tracks the
+ * generation that each PDP has acknowledged, so that UPDATE messages can be sent as
+ * deltas against what a PDP already has. A PDP whose generation is unknown is sent a
+ * full update.
+ *
+ * <p>Generations are only held in memory, thus every PDP receives a full update the
+ * first time it is updated after the PAP restarts.
+ */
+public class SubgroupGenerations {
+
+    /**
+     * Maps a subgroup key to its most recent generation.
+     */
+    private final Map<String, Generation> subgroup2generation = new HashMap<>();
+
+    /**
+     * Maps a PDP name to the generation that it last acknowledged.
+     */
+    private final Map<String, Generation> pdp2generation = new HashMap<>();
+
+
+    /**
+     * Makes a versioned UPDATE message from a plain one. The message is a delta if the
+     * PDP's current generation is known and the delta is smaller than the full set of
+     * policies; otherwise it is a full update.
+     *
+     * @param update the plain UPDATE message
+     * @return a new, versioned UPDATE message
+     */
+    public synchronized PdpDeltaUpdate makeUpdate(PdpUpdate update) {
+        if (update.getPdpGroup() == null || update.getPdpSubgroup() == null) {
+            // PDP is being removed from its subgroup - nothing to version against
+            pdp2generation.remove(update.getName());
+            return new PdpDeltaUpdate(update, 0);
+        }
+
+        List<ToscaPolicy> policies = alwaysList(update.getPolicies());
+        Set<ToscaPolicyIdentifier> idents = getIdentifiers(policies);
+
+        String key = makeKey(update.getPdpGroup(), update.getPdpSubgroup());
+
+        Generation current = subgroup2generation.get(key);
+        if (current == null || !current.policies.equals(idents)) {
+            current = new Generation(key, (current == null ? 1 : current.number + 1), idents);
+            subgroup2generation.put(key, current);
+        }
+
+        PdpDeltaUpdate result = new PdpDeltaUpdate(update, current.number);
+
+        Generation acked = pdp2generation.get(update.getName());
+        if (acked == null || !acked.key.equals(key)) {
+            return result;
+        }
+
+        List<ToscaPolicy> deploy = policies.stream().filter(policy -> !acked.policies.contains(policy.getIdentifier()))
+                        .collect(Collectors.toList());
+
+        if (deploy.size() >= policies.size() && !policies.isEmpty()) {
+            // delta is no smaller than a full update
+            return result;
+        }
+
+        List<ToscaPolicyIdentifier> undeploy = new ArrayList<>(acked.policies);
+        undeploy.removeAll(idents);
+
+        result.setBaseGeneration(acked.number);
+        result.setPoliciesToBeDeployed(deploy);
+        result.setPoliciesToBeUndeployed(undeploy);
+
+        return result;
+    }
+
+    /**
+     * Records the generation that a PDP has acknowledged.
+     *
+     * @param update the UPDATE message that the PDP acknowledged
+     */
+    public synchronized void acknowledge(PdpUpdate update) {
+        if (!(update instanceof PdpDeltaUpdate) || update.getPdpGroup() == null
+                        || update.getPdpSubgroup() == null) {
+            pdp2generation.remove(update.getName());
+            return;
+        }
+
+        String key = makeKey(update.getPdpGroup(), update.getPdpSubgroup());
+        long number = ((PdpDeltaUpdate) update).getGeneration();
+        Set<ToscaPolicyIdentifier> idents = getIdentifiers(alwaysList(update.getPolicies()));
+
+        pdp2generation.put(update.getName(), new Generation(key, number, idents));
+    }
+
+    /**
+     * Forgets the generation that a PDP last acknowledged, so that it will be sent a
+     * full update next time.
+     *
+     * @param pdpName name of the PDP
+     */
+    public synchronized void forget(String pdpName) {
+        pdp2generation.remove(pdpName);
+    }
+
+    private static Set<ToscaPolicyIdentifier> getIdentifiers(List<ToscaPolicy> policies) {
+        return policies.stream().map(ToscaPolicy::getIdentifier).collect(Collectors.toSet());
+    }
+
+    private static <T> List<T> alwaysList(List<T> list) {
+        return (list != null ? list : Collections.emptyList());
+    }
+
+    private static String makeKey(String groupName, String pdpType) {
+        return groupName + " " + pdpType;
+    }
+
+    /**
+     * A generation of a subgroup's policies.
+     */
+    @AllArgsConstructor
+    private static class Generation {
+        private final String key;
+        private final long number;
+        private final Set<ToscaPolicyIdentifier> policies;
+    }
+}
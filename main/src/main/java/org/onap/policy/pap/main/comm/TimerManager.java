@@ -20,23 +20,34 @@
 
 package org.onap.policy.pap.main.comm;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import org.onap.policy.pap.main.metrics.LatencyHistogram;
+import org.onap.policy.pap.main.metrics.PapMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Manager of timers. All of the timers for a given manager have the same wait time, which
- * makes it possible to use a linked hash map to track the timers. As a result, timers can
- * be quickly added and removed. In addition, the expiration time of any new timer is
- * always greater than or equal to the timers that are already in the map. Consequently,
- * the map's iterator will go in ascending order from the minimum expiration time to
- * maximum expiration time.
+ * Manager of timers, implemented as a hashed timing wheel. All of the timers for a given
+ * manager have the same wait time. The wheel is divided into slots, each covering one
+ * "tick". The timer thread advances one slot per tick, expiring the timers in that slot.
+ * A timer may thus expire up to one tick late, but never early.
+ *
+ * <p>Registering and cancelling a timer are O(1) and do not block on the timer thread.
+ * They merely update a concurrent map and append the timer to a queue. The timer thread
+ * drains the queues on each tick, linking new timers into their slots and unlinking
+ * cancelled ones. It is the only thread that touches the wheel itself.
+ *
+ * <p>Expired timers are executed via an {@link Executor}, so that a slow action does not
+ * delay the expiration of other timers. By default, they're executed on the timer
+ * thread.
  *
  * <p>This class has not been tested for multiple threads invoking {@link #run()}
  * simultaneously.
@@ -44,6 +55,18 @@ import org.slf4j.LoggerFactory;
 public class TimerManager implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(TimerManager.class);
 
+    /**
+     * Number of slots in the wheel. Must be a power of two.
+     */
+    private static final int WHEEL_SIZE = 512;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * Minimum time, in milliseconds, covered by each tick.
+     */
+    private static final long MIN_TICK_MS = 10;
+
     /**
      * Name of this manager, used for logging purposes.
      */
@@ -55,11 +78,15 @@ public class TimerManager implements Runnable {
     private final long waitTimeMs;
 
     /**
-     * When the map is empty, the timer thread will block waiting for this semaphore. When
-     * a new timer is added to the map, the semaphore will be released, thus allowing the
-     * timer thread to progress.
+     * Time, in milliseconds, covered by each tick. This is chosen such that a timer never
+     * waits more than one rotation of the wheel.
      */
-    private final Semaphore sem = new Semaphore(0);
+    private final long tickMs;
+
+    /**
+     * Used to execute the actions of expired timers.
+     */
+    private final Executor executor;
 
     /**
      * This is decremented to indicate that this manager should be stopped.
@@ -67,24 +94,59 @@ public class TimerManager implements Runnable {
     private final CountDownLatch stopper = new CountDownLatch(1);
 
     /**
-     * Used to lock updates to the map.
+     * Maps a timer name to the timer that is currently active for that name.
      */
-    private final Object lockit = new Object();
+    private final Map<String, Timer> name2timer = new ConcurrentHashMap<>();
 
     /**
-     * Maps a timer name to a timer.
+     * Timers that have been registered, but not yet linked into the wheel.
      */
-    private final Map<String, Timer> name2timer = new LinkedHashMap<>();
+    private final Queue<Timer> added = new ConcurrentLinkedQueue<>();
 
     /**
-     * Constructs the object.
+     * Timers that have been cancelled or replaced, and may need to be unlinked from the
+     * wheel.
+     */
+    private final Queue<Timer> removed = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The wheel. Only accessed by the timer thread.
+     */
+    private final Slot[] wheel = new Slot[WHEEL_SIZE];
+
+    /**
+     * Time from when each timer should have expired until its action actually starts.
+     */
+    private final LatencyHistogram lateness;
+
+    /**
+     * Constructs the object. Timer actions are executed on the timer thread.
      *
      * @param name name of this manager, used for logging purposes
      * @param waitTimeMs time that each new timer should wait
      */
     public TimerManager(String name, long waitTimeMs) {
+        this(name, waitTimeMs, Runnable::run);
+    }
+
+    /**
+     * Constructs the object.
+     *
+     * @param name name of this manager, used for logging purposes
+     * @param waitTimeMs time that each new timer should wait
+     * @param executor used to execute the actions of expired timers
+     */
+    public TimerManager(String name, long waitTimeMs, Executor executor) {
         this.name = name;
         this.waitTimeMs = waitTimeMs;
+        this.tickMs = Math.max(MIN_TICK_MS, (waitTimeMs + WHEEL_SIZE - 1) / WHEEL_SIZE);
+        this.executor = executor;
+        this.lateness = PapMetrics.lookup().histogram("pap_timer_lateness_seconds",
+                        "Time from when a timer should have expired until its action starts", "timer", name);
+
+        for (int index = 0; index < WHEEL_SIZE; ++index) {
+            wheel[index] = new Slot();
+        }
     }
 
     /**
@@ -93,14 +155,13 @@ public class TimerManager implements Runnable {
     public void stop() {
         logger.info("timer manager {} stopping", name);
 
-        // Note: Must decrement the latch BEFORE releasing the semaphore
         stopper.countDown();
-        sem.release();
     }
 
     /**
      * Registers a timer with the given name. When the timer expires, it is automatically
-     * unregistered and then executed.
+     * unregistered and then executed. If a timer is already registered with the given
+     * name, then it is replaced.
      *
      * @param timerName name of the timer to register
      * @param action action to take when the timer expires; the "timerName" is passed as
@@ -108,104 +169,181 @@ public class TimerManager implements Runnable {
      * @return the timer
      */
     public Timer register(String timerName, Consumer<String> action) {
+        Timer timer = new Timer(timerName, action);
 
-        synchronized (lockit) {
-            Timer timer = new Timer(timerName, action);
-
-            // always remove existing entry so that new entry goes at the end of the map
-            name2timer.remove(timerName);
-            name2timer.put(timerName, timer);
+        Timer old = name2timer.put(timerName, timer);
+        if (old != null) {
+            logger.debug("{} timer replaced {}", name, old);
+            removed.add(old);
+        }
 
-            logger.info("{} timer registered {}", name, timer);
+        added.add(timer);
 
-            // release the timer thread in case it's waiting
-            sem.release();
+        logger.debug("{} timer registered {}", name, timer);
 
-            return timer;
-        }
+        return timer;
     }
 
     /**
-     * Continuously processes timers until {@link #stop()} is invoked.
+     * Continuously processes timers, one tick at a time, until {@link #stop()} is
+     * invoked.
      */
     @Override
     public void run() {
-        logger.info("timer manager {} started", name);
+        logger.info("timer manager {} started, tick {}ms", name, tickMs);
 
-        while (stopper.getCount() > 0) {
+        final long startMs = currentTimeMillis();
+        long tick = 0;
 
-            try {
-                sem.acquire();
-                sem.drainPermits();
-
-                processTimers();
+        try {
+            while (stopper.getCount() > 0) {
+                long tleft = startMs + (tick + 1) * tickMs - currentTimeMillis();
+                if (tleft > 0) {
+                    sleep(tleft);
 
-            } catch (InterruptedException e) {
-                logger.warn("timer manager {} stopping due to interrupt", name);
-                stopper.countDown();
-                Thread.currentThread().interrupt();
+                } else {
+                    processTick(startMs, tick++);
+                }
             }
+
+        } catch (InterruptedException e) {
+            logger.warn("timer manager {} stopping due to interrupt", name);
+            stopper.countDown();
+            Thread.currentThread().interrupt();
         }
 
         logger.info("timer manager {} stopped", name);
     }
 
     /**
-     * Process all timers, continuously, as long as a timer remains in the map (and
-     * {@link #stop()} has not been called).
+     * Processes a tick, updating the wheel and then expiring the timers in the tick's
+     * slot.
      *
-     * @throws InterruptedException if the thread is interrupted
+     * @param startMs time, in milliseconds, when the first tick started
+     * @param tick the tick to be processed
      */
-    private void processTimers() throws InterruptedException {
+    private void processTick(long startMs, long tick) {
         Timer timer;
-        while ((timer = getNextTimer()) != null && stopper.getCount() > 0) {
-            processTimer(timer);
+
+        while ((timer = added.poll()) != null) {
+            if (timer.isActive()) {
+                timer.deadlineTick = Math.max(tick, (timer.expireMs - startMs + tickMs - 1) / tickMs - 1);
+                wheel[(int) (timer.deadlineTick & WHEEL_MASK)].add(timer);
+            }
         }
+
+        while ((timer = removed.poll()) != null) {
+            if (timer.slot != null) {
+                timer.slot.remove(timer);
+            }
+        }
+
+        wheel[(int) (tick & WHEEL_MASK)].expire(tick);
     }
 
     /**
-     * Gets the timer that will expire first.
+     * Executes a timer's action.
      *
-     * @return the timer that will expire first, or {@code null} if there are no timers
+     * @param timer timer to be executed
      */
-    private Timer getNextTimer() {
+    private void runTimer(Timer timer) {
+        lateness.record(TimeUnit.MILLISECONDS.toNanos(currentTimeMillis() - timer.expireMs));
 
-        synchronized (lockit) {
-            if (name2timer.isEmpty()) {
-                return null;
-            }
-
-            // use an iterator to get the first timer in the map
-            return name2timer.values().iterator().next();
+        try {
+            timer.runner.accept(timer.name);
+        } catch (RuntimeException e) {
+            logger.warn("{} timer threw an exception {}", name, timer, e);
         }
     }
 
     /**
-     * Process a timer, waiting until it expires, unregistering it, and then executing its
-     * action.
-     *
-     * @param timer timer to process
-     * @throws InterruptedException if the thread is interrupted
+     * A slot within the wheel, containing a doubly-linked list of timers.
      */
-    private void processTimer(Timer timer) throws InterruptedException {
-        timer.await();
+    private class Slot {
+        private Timer head = null;
+        private Timer tail = null;
+
+        /**
+         * Appends a timer to the list.
+         *
+         * @param timer timer to be added
+         */
+        private void add(Timer timer) {
+            timer.slot = this;
+            timer.prev = tail;
+            timer.next = null;
+
+            if (tail == null) {
+                head = timer;
+            } else {
+                tail.next = timer;
+            }
 
-        if (stopper.getCount() == 0) {
-            // stop() was called
-            return;
+            tail = timer;
         }
 
-        if (!timer.cancel("expired")) {
-            // timer was cancelled while we were waiting
-            return;
+        /**
+         * Unlinks a timer from the list.
+         *
+         * @param timer timer to be removed
+         */
+        private void remove(Timer timer) {
+            if (timer.prev == null) {
+                head = timer.next;
+            } else {
+                timer.prev.next = timer.next;
+            }
+
+            if (timer.next == null) {
+                tail = timer.prev;
+            } else {
+                timer.next.prev = timer.prev;
+            }
+
+            timer.slot = null;
+            timer.prev = null;
+            timer.next = null;
         }
 
+        /**
+         * Expires the timers whose deadline has been reached. Timers belonging to a later
+         * rotation of the wheel are left in the list.
+         *
+         * @param tick the current tick
+         */
+        private void expire(long tick) {
+            Timer timer = head;
 
-        // run the timer
-        try {
-            timer.runner.accept(timer.name);
-        } catch (RuntimeException e) {
-            logger.warn("{} timer threw an exception {}", TimerManager.this.name, timer, e);
+            while (timer != null && stopper.getCount() > 0) {
+                Timer next = timer.next;
+
+                if (timer.deadlineTick <= tick) {
+                    remove(timer);
+
+                    // if it can't be removed from the map, then it was cancelled
+                    if (name2timer.remove(timer.name, timer)) {
+                        execute(timer);
+                    }
+                }
+
+                timer = next;
+            }
+        }
+
+        /**
+         * Hands a timer to the executor.
+         *
+         * @param timer timer to be executed
+         */
+        private void execute(Timer timer) {
+            logger.debug("{} timer expired {}", name, timer);
+
+            try {
+                executor.execute(() -> runTimer(timer));
+
+            } catch (RejectedExecutionException e) {
+                logger.warn("{} timer discarded {}", name, timer, e);
+            }
         }
     }
 
@@ -216,17 +354,34 @@ public class TimerManager implements Runnable {
         /**
          * The timer's name.
          */
-        private String name;
+        private final String name;
 
         /**
          * Time, in milliseconds, when the timer will expire.
          */
-        private long expireMs;
+        private final long expireMs;
 
         /**
          * Action to take when the timer expires.
          */
-        private Consumer<String> runner;
+        private final Consumer<String> runner;
+
+        /*
+         * The remaining fields are only accessed by the timer thread.
+         */
+
+        /**
+         * Tick during which the timer expires.
+         */
+        private long deadlineTick;
+
+        /**
+         * Slot containing the timer, or {@code null} if it is not in the wheel.
+         */
+        private Slot slot;
+
+        private Timer prev;
+        private Timer next;
 
 
         private Timer(String name, Consumer<String> runner2) {
@@ -235,60 +390,33 @@ public class TimerManager implements Runnable {
             this.runner = runner2;
         }
 
-        private void await() throws InterruptedException {
-            // wait for it to expire, if necessary
-            long tleft = expireMs - currentTimeMillis();
-            if (tleft > 0) {
-                logger.info("{} timer waiting {}ms {}", TimerManager.this.name, tleft, this);
-                sleep(tleft);
-            }
-        }
-
         /**
-         * Cancels the timer.
+         * Determines if this timer is still the active timer for its name.
          *
-         * @return {@code true} if the timer was cancelled, {@code false} if the timer was
-         *         not running
+         * @return {@code true} if the timer is active, {@code false} if it has been
+         *         cancelled, replaced, or has expired
          */
-        public boolean cancel() {
-            return cancel("cancelled");
+        private boolean isActive() {
+            return (name2timer.get(name) == this);
         }
 
         /**
          * Cancels the timer.
          *
-         * @param cancelMsg message to log if the timer is successfully
-         *        cancelled
          * @return {@code true} if the timer was cancelled, {@code false} if the timer was
          *         not running
          */
-        private boolean cancel(String cancelMsg) {
-
-            synchronized (lockit) {
-                AtomicBoolean wasPresent = new AtomicBoolean(false);
-
-                name2timer.computeIfPresent(name, (key, val) -> {
-
-                    if (val == this) {
-                        wasPresent.set(true);
-                        return null;
-
-                    } else {
-                        // different timer is in the map - leave it
-                        return val;
-                    }
-                });
+        public boolean cancel() {
+            if (!name2timer.remove(name, this)) {
+                logger.debug("{} timer no longer active {}", TimerManager.this.name, this);
+                return false;
+            }
 
-                if (!wasPresent.get()) {
-                    // have a new timer in the map - ignore "this" timer
-                    logger.info("{} timer replaced {}", TimerManager.this.name, this);
-                    return false;
-                }
+            removed.add(this);
 
-                logger.debug("{} timer {} {}", TimerManager.this.name, cancelMsg, this);
+            logger.debug("{} timer cancelled {}", TimerManager.this.name, this);
 
-                return true;
-            }
+            return true;
         }
 
         @Override
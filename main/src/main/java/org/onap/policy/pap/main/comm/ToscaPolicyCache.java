@@ -0,0 +1,221 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.provider.PolicyModelsProvider;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
+
+/**
+ * Process-wide, size-bounded cache of policies, indexed by their fully qualified
+ * identifier. The cache is read-through and entries are evicted in LRU order, to make
+ * room for others. A policy's content is not expected to change for a given name and
+ * version, however, the DB is shared with the policy API, through which a policy may be
+ * deleted and then re-created with the same name and version, without PAP being told.
+ * Consequently, entries also expire once they've been in the cache for a given amount
+ * of time, after which they're reloaded from the DB. A re-created policy may thus be
+ * served stale for, at most, that amount of time.
+ *
+ * <p>Policies returned by the cache are shared and must not be modified.
+ */
+public class ToscaPolicyCache {
+
+    /**
+     * Maps a policy identifier to its policy. Accessed only while synchronized on this
+     * object.
+     */
+    private final Map<ToscaPolicyIdentifier, Entry> ident2policy;
+
+    /**
+     * Time, in milliseconds, for which an entry remains valid once it has been added.
+     */
+    private final long ttlMs;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+
+    /**
+     * Constructs the object.
+     *
+     * @param maxSize maximum number of policies to be held in the cache
+     * @param ttlMs time, in milliseconds, after which a cached policy must be reloaded
+     *        from the DB
+     */
+    public ToscaPolicyCache(int maxSize, long ttlMs) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("max size must be >= 1");
+        }
+
+        if (ttlMs < 1) {
+            throw new IllegalArgumentException("time-to-live must be >= 1");
+        }
+
+        this.ttlMs = ttlMs;
+
+        ident2policy = new LinkedHashMap<ToscaPolicyIdentifier, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ToscaPolicyIdentifier, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets a policy, loading it from the DB if it isn't already in the cache. The DB is
+     * not locked while the policy is loaded, thus concurrent requests for the same policy
+     * may each load it.
+     *
+     * @param dao DAO provider to use if the policy must be loaded
+     * @param ident identifier of the desired policy
+     * @return the policy, or {@code null} if it does not exist
+     * @throws PfModelException if an error occurs
+     */
+    public ToscaPolicy get(PolicyModelsProvider dao, ToscaPolicyIdentifier ident) throws PfModelException {
+        ToscaPolicy policy = getIfPresent(ident);
+        if (policy != null) {
+            return policy;
+        }
+
+        List<ToscaPolicy> lst = dao.getPolicyList(ident.getName(), ident.getVersion());
+        if (lst.isEmpty()) {
+            return null;
+        }
+
+        policy = lst.get(0);
+        put(policy);
+
+        return policy;
+    }
+
+    /**
+     * Gets a policy from the cache, without going to the DB.
+     *
+     * @param ident identifier of the desired policy
+     * @return the policy, or {@code null} if it is not in the cache or its entry has
+     *         expired
+     */
+    public ToscaPolicy getIfPresent(ToscaPolicyIdentifier ident) {
+        ToscaPolicy policy = null;
+        synchronized (this) {
+            Entry entry = ident2policy.get(ident);
+            if (entry != null) {
+                if (entry.expireMs - currentTimeMillis() > 0) {
+                    policy = entry.policy;
+                } else {
+                    ident2policy.remove(ident);
+                }
+            }
+        }
+
+        (policy == null ? missCount : hitCount).incrementAndGet();
+
+        return policy;
+    }
+
+    /**
+     * Adds a policy to the cache, replacing any previous entry for the same identifier.
+     *
+     * @param policy policy to be added
+     */
+    public void put(ToscaPolicy policy) {
+        ToscaPolicyIdentifier ident = policy.getIdentifier();
+        Entry entry = new Entry(policy, currentTimeMillis() + ttlMs);
+
+        synchronized (this) {
+            ident2policy.put(ident, entry);
+        }
+    }
+
+    /**
+     * Discards a policy from the cache. Should be invoked whenever a policy is deleted.
+     *
+     * @param ident identifier of the policy to be discarded
+     */
+    public synchronized void remove(ToscaPolicyIdentifier ident) {
+        ident2policy.remove(ident);
+    }
+
+    /**
+     * Discards all of the policies from the cache.
+     */
+    public synchronized void clear() {
+        ident2policy.clear();
+    }
+
+    /**
+     * Gets the number of policies in the cache.
+     *
+     * @return the number of policies in the cache
+     */
+    public synchronized int size() {
+        return ident2policy.size();
+    }
+
+    /**
+     * Gets the number of lookups that were satisfied by the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of lookups that were not satisfied by the cache.
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    // these may be overridden by junit tests
+
+    /**
+     * Gets the current time, in milli-seconds.
+     *
+     * @return the current time, in milli-seconds
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * A cached policy, along with the time at which it expires.
+     */
+    private static class Entry {
+        private final ToscaPolicy policy;
+        private final long expireMs;
+
+        public Entry(ToscaPolicy policy, long expireMs) {
+            this.policy = policy;
+            this.expireMs = expireMs;
+        }
+    }
+}
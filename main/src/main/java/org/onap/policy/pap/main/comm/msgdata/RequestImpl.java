@@ -28,8 +28,11 @@ import org.onap.policy.common.endpoints.event.comm.Topic.CommInfrastructure;
 import org.onap.policy.common.utils.services.ServiceManager;
 import org.onap.policy.models.pdp.concepts.PdpMessage;
 import org.onap.policy.models.pdp.concepts.PdpStatus;
+import org.onap.policy.pap.main.comm.Publisher.Lane;
 import org.onap.policy.pap.main.comm.QueueToken;
 import org.onap.policy.pap.main.comm.TimerManager;
+import org.onap.policy.pap.main.metrics.LatencyHistogram;
+import org.onap.policy.pap.main.metrics.PapMetrics;
 import org.onap.policy.pap.main.parameters.RequestParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -85,6 +88,22 @@ public abstract class RequestImpl implements Request {
      */
     private QueueToken<PdpMessage> token = null;
 
+    /**
+     * Time, from {@link System#nanoTime()}, when the current message was last enqueued.
+     */
+    private long enqueuedNs;
+
+    /**
+     * {@code true} while the message is being re-published due to a timeout, so that it is
+     * queued in the publisher's retry lane.
+     */
+    private boolean retrying = false;
+
+    /**
+     * Used to record the time taken for the PDP to respond. The message type cannot
+     * change once the request has been created, thus this is resolved only once.
+     */
+    private final LatencyHistogram responseLatency;
 
     /**
      * Constructs the object, and validates the parameters.
@@ -102,6 +121,10 @@ public abstract class RequestImpl implements Request {
         this.params = params;
         this.message = message;
 
+        this.responseLatency = PapMetrics.lookup().histogram("pap_pdp_response_seconds",
+                        "Time from enqueuing a request until the PDP responds", "type",
+                        String.valueOf(message.getMessageName()));
+
         // @formatter:off
         this.svcmgr = new ServiceManager(name)
                         .addAction("listener",
@@ -210,6 +233,8 @@ public abstract class RequestImpl implements Request {
      * if possible. Otherwise, it adds a new token to the queue.
      */
     private void enqueue() {
+        enqueuedNs = System.nanoTime();
+
         if (token != null && token.replaceItem(message) != null) {
             // took the other's place in the queue - continue using the token
             return;
@@ -217,7 +242,8 @@ public abstract class RequestImpl implements Request {
 
         // couldn't take the other's place - add our own token to the queue
         token = new QueueToken<>(message);
-        params.getPublisher().enqueue(token);
+        Lane lane = (params.getLane() != null ? params.getLane() : Lane.of(message, retrying));
+        params.getPublisher().enqueue(lane, token);
     }
 
     /**
@@ -260,8 +286,19 @@ public abstract class RequestImpl implements Request {
 
             svcmgr.stop();
 
+            responseLatency.recordSince(enqueuedNs);
+
             String reason = checkResponse(response);
             if (reason != null) {
+                PdpMessage fallback = makeFallbackMessage(response);
+                if (fallback != null) {
+                    logger.info("{} PDP data mismatch via {} {}: {} - re-publishing", getName(), infra, topic,
+                                    reason);
+                    message = fallback;
+                    startPublishing();
+                    return;
+                }
+
                 logger.info("{} PDP data mismatch via {} {}: {}", getName(), infra, topic, reason);
                 listener.failure(pdpName, reason);
                 return;
@@ -272,6 +309,18 @@ public abstract class RequestImpl implements Request {
         }
     }
 
+    /**
+     * Makes a message to be published in place of the current message, when the PDP's
+     * response does not match it. This implementation always returns {@code null}.
+     *
+     * @param response the response
+     * @return a message to be published instead, or {@code null} if the mismatch should
+     *         be treated as a failure
+     */
+    protected PdpMessage makeFallbackMessage(PdpStatus response) {
+        return null;
+    }
+
     /**
      * Handles a timeout.
      *
@@ -298,7 +347,12 @@ public abstract class RequestImpl implements Request {
 
             // startPublishing() resets the count, so save & restore it here
             int count = retryCount;
-            startPublishing();
+            retrying = true;
+            try {
+                startPublishing();
+            } finally {
+                retrying = false;
+            }
             retryCount = count;
         }
     }
@@ -31,6 +31,7 @@ import org.onap.policy.models.pdp.concepts.PdpStatus;
 import org.onap.policy.models.pdp.concepts.PdpUpdate;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
+import org.onap.policy.pap.main.comm.PdpDeltaUpdate;
 import org.onap.policy.pap.main.parameters.RequestParams;
 
 
@@ -73,18 +74,55 @@ public class UpdateReq extends RequestImpl {
             return "subgroup does not match";
         }
 
-        // see if the policies match
-        Set<ToscaPolicyIdentifier> set1 = new HashSet<>(alwaysList(response.getPolicies()));
-        Set<ToscaPolicyIdentifier> set2 = new HashSet<>(alwaysList(message.getPolicies()).stream()
-                        .map(ToscaPolicy::getIdentifier).collect(Collectors.toSet()));
-
-        if (!set1.equals(set2)) {
-            return "policies do not match";
+        // see if the policies match; for a delta, this validates the resulting set
+        if (!policiesMatch(response)) {
+            return (isDelta() ? "policies do not match - generation mismatch" : "policies do not match");
         }
 
         return null;
     }
 
+    /**
+     * Falls back to a full update if the PDP's policies do not match the result of a
+     * delta, as the PDP must not have been at the delta's base generation.
+     */
+    @Override
+    protected PdpMessage makeFallbackMessage(PdpStatus response) {
+        PdpUpdate message = getMessage();
+        if (!isDelta() || super.checkResponse(response) != null
+                        || !StringUtils.equals(message.getPdpGroup(), response.getPdpGroup())
+                        || !StringUtils.equals(message.getPdpSubgroup(), response.getPdpSubgroup())
+                        || policiesMatch(response)) {
+            return null;
+        }
+
+        return ((PdpDeltaUpdate) message).makeFullUpdate();
+    }
+
+    /**
+     * Determines if the current message is a delta.
+     *
+     * @return {@code true} if the current message is a delta, {@code false} otherwise
+     */
+    private boolean isDelta() {
+        PdpUpdate message = getMessage();
+        return (message instanceof PdpDeltaUpdate && ((PdpDeltaUpdate) message).isDelta());
+    }
+
+    /**
+     * Determines if the policies in a response match those in the current message.
+     *
+     * @param response the response
+     * @return {@code true} if the policies match, {@code false} otherwise
+     */
+    private boolean policiesMatch(PdpStatus response) {
+        Set<ToscaPolicyIdentifier> set1 = new HashSet<>(alwaysList(response.getPolicies()));
+        Set<ToscaPolicyIdentifier> set2 = new HashSet<>(alwaysList(getMessage().getPolicies()).stream()
+                        .map(ToscaPolicy::getIdentifier).collect(Collectors.toSet()));
+
+        return set1.equals(set2);
+    }
+
     @Override
     public boolean isSameContent(Request other) {
         if (!(other instanceof UpdateReq)) {
@@ -0,0 +1,246 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies, in nanoseconds. Values are counted in log-linear buckets, in the
+ * manner of an HDR histogram: each power of two is split into {@link #SUB_BUCKETS} equal
+ * sub-buckets, thus a reported percentile is never more than 1/{@value #SUB_BUCKETS} above
+ * the value that was actually recorded, regardless of its magnitude.
+ *
+ * <p>Recording a value does not allocate, nor does it lock. The total and sum are kept in
+ * striped counters, so that threads recording concurrently do not contend on them.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of sub-buckets into which each power of two is split. Must be a power of two.
+     */
+    public static final int SUB_BUCKETS = 8;
+
+    private static final int SUB_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+    /**
+     * Number of buckets needed to cover every non-negative long.
+     */
+    private static final int NBUCKETS = bucketIndex(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NBUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos latency, in nanoseconds; negative values are recorded as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+
+        long prev;
+        while (value > (prev = max.get())) {
+            if (max.compareAndSet(prev, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Records the time that has elapsed since the given start time.
+     *
+     * @param startNanos start time, as returned by {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the number of values that have been recorded.
+     *
+     * @return the number of values that have been recorded
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Takes a snapshot of the histogram. Values may be recorded while the snapshot is
+     * being taken, thus the snapshot's count is computed from the buckets it actually
+     * copied, so that its percentiles are consistent with its count.
+     *
+     * @return a snapshot of the histogram
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[NBUCKETS];
+        long total = 0;
+
+        for (int index = 0; index < NBUCKETS; ++index) {
+            counts[index] = buckets.get(index);
+            total += counts[index];
+        }
+
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    /**
+     * Gets the index of the bucket into which a value falls.
+     *
+     * @param value non-negative value
+     * @return the index of the bucket
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the largest value that falls into a bucket.
+     *
+     * @param index index of the bucket
+     * @return the largest value that falls into the bucket
+     */
+    private static long bucketMax(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+
+        return ((SUB_BUCKETS + sub) * width) + width - 1;
+    }
+
+    /**
+     * Point-in-time copy of a histogram.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Gets the number of values in the snapshot.
+         *
+         * @return the number of values in the snapshot
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the sum of the values, in nanoseconds.
+         *
+         * @return the sum of the values, in nanoseconds
+         */
+        public long getSumNanos() {
+            return sum;
+        }
+
+        /**
+         * Gets the largest value, in nanoseconds.
+         *
+         * @return the largest value, in nanoseconds
+         */
+        public long getMaxNanos() {
+            return max;
+        }
+
+        /**
+         * Gets the mean value, in nanoseconds.
+         *
+         * @return the mean value, in nanoseconds, or zero if the snapshot is empty
+         */
+        public double getMeanNanos() {
+            return (count == 0 ? 0 : (double) sum / count);
+        }
+
+        /**
+         * Gets the value at a given percentile.
+         *
+         * @param percentile percentile of interest, between 0 and 100
+         * @return the value, in nanoseconds, at or below which the given percentage of the
+         *         values fall, or zero if the snapshot is empty
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * count));
+            long seen = 0;
+
+            for (int index = 0; index < counts.length; ++index) {
+                seen += counts[index];
+                if (seen >= rank) {
+                    return Math.min(bucketMax(index), max);
+                }
+            }
+
+            return max;
+        }
+
+        /**
+         * Converts a value, in nanoseconds, to milliseconds.
+         *
+         * @param nanos value to be converted
+         * @return the value, in milliseconds
+         */
+        public static double toMillis(double nanos) {
+            return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * Converts a value, in nanoseconds, to seconds.
+         *
+         * @param nanos value to be converted
+         * @return the value, in seconds
+         */
+        public static double toSeconds(double nanos) {
+            return nanos / TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+}
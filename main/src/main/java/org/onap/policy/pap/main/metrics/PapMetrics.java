@@ -0,0 +1,304 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import lombok.Getter;
+import lombok.ToString;
+import org.onap.policy.common.utils.services.Registry;
+import org.onap.policy.pap.main.PapConstants;
+import org.onap.policy.pap.main.metrics.LatencyHistogram.Snapshot;
+
+/**
+ * Latency histograms, counters and gauges for the PAP hot paths. Metrics are created on
+ * first use and are identified by a name and, optionally, a single label. Components
+ * should get their metrics once, up front, rather than looking them up on every use.
+ *
+ * <p>The metrics can be rendered in the Prometheus text exposition format, with
+ * histograms rendered as summaries, in seconds.
+ */
+public class PapMetrics {
+
+    /**
+     * Quantiles reported for each histogram.
+     */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final ConcurrentMap<String, Family<LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Family<LongAdder>> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Family<LongSupplier>> gauges = new ConcurrentHashMap<>();
+
+
+    /**
+     * Gets the metrics that are in the Registry. If none have been registered (e.g., in
+     * junit tests), then a new, unregistered object is returned, so that components need
+     * not check whether metrics are being collected.
+     *
+     * @return the PAP metrics
+     */
+    public static PapMetrics lookup() {
+        PapMetrics metrics = Registry.getOrDefault(PapConstants.REG_PAP_METRICS, PapMetrics.class, null);
+        return (metrics != null ? metrics : new PapMetrics());
+    }
+
+    /**
+     * Gets a histogram, creating it if it doesn't exist yet.
+     *
+     * @param name metric name
+     * @param help description of the metric
+     * @return the histogram
+     */
+    public LatencyHistogram histogram(String name, String help) {
+        return histogram(name, help, null, null);
+    }
+
+    /**
+     * Gets a labeled histogram, creating it if it doesn't exist yet.
+     *
+     * @param name metric name
+     * @param help description of the metric
+     * @param label label name
+     * @param value label value
+     * @return the histogram
+     */
+    public LatencyHistogram histogram(String name, String help, String label, String value) {
+        return histograms.computeIfAbsent(name, key -> new Family<>(name, help)).get(label, value,
+                        key -> new LatencyHistogram());
+    }
+
+    /**
+     * Gets a counter, creating it if it doesn't exist yet.
+     *
+     * @param name metric name
+     * @param help description of the metric
+     * @return the counter
+     */
+    public LongAdder counter(String name, String help) {
+        return counters.computeIfAbsent(name, key -> new Family<>(name, help)).get(null, null,
+                        key -> new LongAdder());
+    }
+
+    /**
+     * Sets a gauge, replacing any gauge previously set with the same name.
+     *
+     * @param name metric name
+     * @param help description of the metric
+     * @param supplier supplies the gauge's current value
+     */
+    public void gauge(String name, String help, LongSupplier supplier) {
+        gauge(name, help, null, null, supplier);
+    }
+
+    /**
+     * Sets a labeled gauge, replacing any gauge previously set with the same name and
+     * label value.
+     *
+     * @param name metric name
+     * @param help description of the metric
+     * @param label label name
+     * @param value label value
+     * @param supplier supplies the gauge's current value
+     */
+    public void gauge(String name, String help, String label, String value, LongSupplier supplier) {
+        gauges.computeIfAbsent(name, key -> new Family<>(name, help)).series.put(Family.seriesName(name, label, value),
+                        supplier);
+    }
+
+    /**
+     * Gets a summary of each histogram.
+     *
+     * @return a map of series name to latency summary, sorted by series name
+     */
+    public Map<String, LatencySummary> getLatencies() {
+        Map<String, LatencySummary> result = new TreeMap<>();
+
+        for (Family<LatencyHistogram> family : histograms.values()) {
+            family.series.forEach((series, hist) -> result.put(series, new LatencySummary(hist.snapshot())));
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the current value of each counter and gauge.
+     *
+     * @return a map of series name to value, sorted by series name
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> result = new TreeMap<>();
+
+        for (Family<LongAdder> family : counters.values()) {
+            family.series.forEach((series, counter) -> result.put(series, counter.sum()));
+        }
+
+        for (Family<LongSupplier> family : gauges.values()) {
+            family.series.forEach((series, gauge) -> result.put(series, gauge.getAsLong()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text exposition format.
+     *
+     * @param writer where to write the metrics
+     * @throws IOException if an error occurs while writing
+     */
+    public void writePrometheus(Writer writer) throws IOException {
+        for (Family<LongAdder> family : new TreeMap<>(counters).values()) {
+            family.writeHeader(writer, "counter");
+            for (Map.Entry<String, LongAdder> ent : family.sortedSeries().entrySet()) {
+                writeSample(writer, ent.getKey(), ent.getValue().sum());
+            }
+        }
+
+        for (Family<LongSupplier> family : new TreeMap<>(gauges).values()) {
+            family.writeHeader(writer, "gauge");
+            for (Map.Entry<String, LongSupplier> ent : family.sortedSeries().entrySet()) {
+                writeSample(writer, ent.getKey(), ent.getValue().getAsLong());
+            }
+        }
+
+        for (Family<LatencyHistogram> family : new TreeMap<>(histograms).values()) {
+            family.writeHeader(writer, "summary");
+            for (Map.Entry<String, LatencyHistogram> ent : family.sortedSeries().entrySet()) {
+                writeSummary(writer, family.name, ent.getKey(), ent.getValue().snapshot());
+            }
+        }
+    }
+
+    /**
+     * Writes the samples for one histogram.
+     *
+     * @param writer where to write the samples
+     * @param name metric name
+     * @param series series name, which includes the labels, if any
+     * @param snapshot snapshot of the histogram
+     * @throws IOException if an error occurs while writing
+     */
+    private void writeSummary(Writer writer, String name, String series, Snapshot snapshot) throws IOException {
+        // labels, without the enclosing braces
+        String labels = series.substring(name.length()).replaceAll("^\\{|\\}$", "");
+        String prefix = (labels.isEmpty() ? "{" : "{" + labels + ",");
+
+        for (double quantile : QUANTILES) {
+            writeSample(writer, name + prefix + "quantile=\"" + quantile + "\"}",
+                            Snapshot.toSeconds(snapshot.getValueAtPercentile(quantile * 100)));
+        }
+
+        String suffix = series.substring(name.length());
+        writeSample(writer, name + "_sum" + suffix, Snapshot.toSeconds(snapshot.getSumNanos()));
+        writeSample(writer, name + "_count" + suffix, snapshot.getCount());
+    }
+
+    private void writeSample(Writer writer, String series, Object value) throws IOException {
+        writer.write(series);
+        writer.write(' ');
+        writer.write(String.valueOf(value));
+        writer.write('\n');
+    }
+
+    /**
+     * Summary of a histogram, in milliseconds.
+     */
+    @Getter
+    @ToString
+    public static class LatencySummary {
+        private final long count;
+        private final double meanMs;
+        private final double p50Ms;
+        private final double p90Ms;
+        private final double p99Ms;
+        private final double maxMs;
+
+        /**
+         * Constructs the object.
+         *
+         * @param snapshot histogram snapshot to be summarized
+         */
+        public LatencySummary(Snapshot snapshot) {
+            this.count = snapshot.getCount();
+            this.meanMs = Snapshot.toMillis(snapshot.getMeanNanos());
+            this.p50Ms = Snapshot.toMillis(snapshot.getValueAtPercentile(50));
+            this.p90Ms = Snapshot.toMillis(snapshot.getValueAtPercentile(90));
+            this.p99Ms = Snapshot.toMillis(snapshot.getValueAtPercentile(99));
+            this.maxMs = Snapshot.toMillis(snapshot.getMaxNanos());
+        }
+    }
+
+    /**
+     * Metrics having the same name, distinguished by their label values.
+     *
+     * @param <T> type of metric
+     */
+    private static class Family<T> {
+        private final String name;
+        private final String help;
+
+        /**
+         * Maps a series name (i.e., the metric name plus its labels) to the metric.
+         */
+        private final ConcurrentMap<String, T> series = new ConcurrentHashMap<>();
+
+        public Family(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public T get(String label, String value, Function<String, T> maker) {
+            return series.computeIfAbsent(seriesName(name, label, value), maker);
+        }
+
+        public Map<String, T> sortedSeries() {
+            return new TreeMap<>(series);
+        }
+
+        public void writeHeader(Writer writer, String type) throws IOException {
+            writer.write("# HELP " + name + " " + help.replace("\\", "\\\\").replace("\n", "\\n") + "\n");
+            writer.write("# TYPE " + name + " " + type + "\n");
+        }
+
+        /**
+         * Makes a series name, in the form, name{label="value"}.
+         *
+         * @param name metric name
+         * @param label label name, or {@code null} if the metric has no label
+         * @param value label value
+         * @return the series name
+         */
+        public static String seriesName(String name, String label, String value) {
+            if (label == null) {
+                return name;
+            }
+
+            String escaped = String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            return name + "{" + label + "=\"" + escaped + "\"}";
+        }
+    }
+}
@@ -24,6 +24,8 @@ import lombok.Getter;
 import org.onap.policy.common.endpoints.listeners.RequestIdDispatcher;
 import org.onap.policy.models.pdp.concepts.PdpStatus;
 import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.onap.policy.pap.main.comm.DeploymentTracker;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
 import org.onap.policy.pap.main.comm.Publisher;
 import org.onap.policy.pap.main.comm.TimerManager;
 
@@ -40,6 +42,8 @@ public class PdpModifyRequestMapParams {
     private TimerManager updateTimers;
     private TimerManager stateChangeTimers;
     private PolicyModelsProviderFactoryWrapper daoFactory;
+    private PdpGroupCache groupCache;
+    private DeploymentTracker deploymentTracker;
 
     public PdpModifyRequestMapParams setParams(PdpParameters params) {
         this.params = params;
@@ -61,6 +65,16 @@ public class PdpModifyRequestMapParams {
         return this;
     }
 
+    public PdpModifyRequestMapParams setGroupCache(PdpGroupCache groupCache) {
+        this.groupCache = groupCache;
+        return this;
+    }
+
+    public PdpModifyRequestMapParams setDeploymentTracker(DeploymentTracker deploymentTracker) {
+        this.deploymentTracker = deploymentTracker;
+        return this;
+    }
+
     public PdpModifyRequestMapParams setPublisher(Publisher publisher) {
         this.publisher = publisher;
         return this;
@@ -103,5 +117,13 @@ public class PdpModifyRequestMapParams {
         if (stateChangeTimers == null) {
             throw new IllegalArgumentException("missing stateChangeTimers");
         }
+
+        if (groupCache == null) {
+            throw new IllegalArgumentException("missing groupCache");
+        }
+
+        if (deploymentTracker == null) {
+            throw new IllegalArgumentException("missing deploymentTracker");
+        }
     }
 }
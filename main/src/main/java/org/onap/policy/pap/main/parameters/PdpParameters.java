@@ -20,6 +20,8 @@
 
 package org.onap.policy.pap.main.parameters;
 
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Getter;
 import org.onap.policy.common.parameters.ParameterGroupImpl;
 import org.onap.policy.common.parameters.annotations.Min;
@@ -37,9 +39,72 @@ public class PdpParameters extends ParameterGroupImpl {
     @Min(1)
     private long heartBeatMs;
 
+    @Min(1)
+    private long healthFlushMs = 1000;
+
+    @Min(1)
+    private int maxPendingHealthWrites = 10000;
+
+    @Min(1)
+    private int heartBeatThreads = Runtime.getRuntime().availableProcessors();
+
+    @Min(1)
+    private int heartBeatQueueSize = 1000;
+
+    @Min(1)
+    private int publisherBatchSize = 100;
+
+    @Min(1)
+    private int publisherThreads = 1;
+
+    @Min(1)
+    private int daoPoolSize = 8;
+
+    @Min(1)
+    private long daoPoolMaxWaitMs = 30000;
+
+    @Min(1)
+    private int policyCacheSize = 1000;
+
+    @Min(1)
+    private long policyCacheTtlMs = 300000;
+
+    @Min(1)
+    private int maxTrackedDeployments = 1000;
+
+    @Min(1)
+    private int maxQuerySnapshots = 16;
+
+    @Min(1)
+    private int maxQuerySnapshotBytes = 1048576;
+
+    /**
+     * Types of PDPs that can apply UPDATE messages sent as deltas against the policies
+     * they already have. Other types of PDPs are always sent full updates.
+     */
+    private List<String> deltaPdpTypes = new ArrayList<>();
+
+    /**
+     * Types of PDPs that can decompress UPDATE messages. Large UPDATE messages sent to
+     * these types of PDPs are compressed.
+     */
+    private List<String> compressedPdpTypes = new ArrayList<>();
+
+    /**
+     * Maximum size, in bytes, to which a compressed message received from a PDP may be
+     * decompressed. Larger messages are discarded.
+     */
+    @Min(1)
+    private int maxDecompressedBytes = 4194304;
+
     private PdpUpdateParameters updateParameters;
     private PdpStateChangeParameters stateChangeParameters;
 
+    /**
+     * Controls whether UPDATE requests are released to the PDPs in waves.
+     */
+    private PdpRolloutParameters rolloutParameters = new PdpRolloutParameters();
+
 
     /**
      * Constructs the object.
@@ -0,0 +1,80 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.parameters;
+
+import lombok.Getter;
+import org.onap.policy.common.parameters.ParameterGroupImpl;
+import org.onap.policy.common.parameters.annotations.Min;
+import org.onap.policy.common.parameters.annotations.NotBlank;
+import org.onap.policy.common.parameters.annotations.NotNull;
+
+/**
+ * Parameters for rolling UPDATE requests out to the PDPs in waves. Rollouts are disabled
+ * when neither {@link #waveSize} nor {@link #wavePercent} is set, in which case every PDP
+ * is sent its UPDATE at once.
+ */
+@NotNull
+@NotBlank
+@Getter
+public class PdpRolloutParameters extends ParameterGroupImpl {
+
+    /**
+     * Minimum number of PDPs to be sent an UPDATE in each wave.
+     */
+    @Min(0)
+    private int waveSize = 0;
+
+    /**
+     * Minimum percentage of a deployment's PDPs to be sent an UPDATE in each wave. Values
+     * above 100 are treated as 100.
+     */
+    @Min(0)
+    private int wavePercent = 0;
+
+    /**
+     * Time, in milliseconds, to wait after a wave completes before releasing the next.
+     */
+    @Min(0)
+    private long wavePauseMs = 0;
+
+    /**
+     * Percentage of the PDPs released so far that may fail before the rollout is halted.
+     */
+    @Min(0)
+    private int maxFailurePercent = 0;
+
+
+    /**
+     * Constructs the object.
+     */
+    public PdpRolloutParameters() {
+        super(PdpRolloutParameters.class.getSimpleName());
+    }
+
+    /**
+     * Determines if UPDATE requests are to be rolled out in waves.
+     *
+     * @return {@code true} if rollouts are enabled, {@code false} otherwise
+     */
+    public boolean isEnabled() {
+        return (waveSize > 0 || wavePercent > 0);
+    }
+}
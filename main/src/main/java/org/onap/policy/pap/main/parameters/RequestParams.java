@@ -24,6 +24,7 @@ import lombok.Getter;
 import org.onap.policy.common.endpoints.listeners.RequestIdDispatcher;
 import org.onap.policy.models.pdp.concepts.PdpStatus;
 import org.onap.policy.pap.main.comm.Publisher;
+import org.onap.policy.pap.main.comm.Publisher.Lane;
 import org.onap.policy.pap.main.comm.TimerManager;
 
 
@@ -38,6 +39,12 @@ public class RequestParams {
     private TimerManager timers;
     private int maxRetryCount;
 
+    /**
+     * Lane in which to publish the request's messages, or {@code null} to choose the lane
+     * based on the message type.
+     */
+    private Lane lane;
+
 
     public RequestParams setPublisher(Publisher publisher) {
         this.publisher = publisher;
@@ -64,6 +71,11 @@ public class RequestParams {
         return this;
     }
 
+    public RequestParams setLane(Lane lane) {
+        this.lane = lane;
+        return this;
+    }
+
     /**
      * Validates the parameters.
      */
@@ -0,0 +1,107 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import io.swagger.annotations.Authorization;
+import io.swagger.annotations.Extension;
+import io.swagger.annotations.ExtensionProperty;
+import io.swagger.annotations.ResponseHeader;
+import java.util.UUID;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import org.apache.commons.lang3.tuple.Pair;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.pap.main.comm.DeploymentStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class to provide REST end points for PAP component to query the status of a deployment.
+ */
+public class DeploymentStatusControllerV1 extends PapRestControllerV1 {
+    private static final Logger logger = LoggerFactory.getLogger(DeploymentStatusControllerV1.class);
+
+    private final DeploymentStatusProvider provider = new DeploymentStatusProvider();
+
+    /**
+     * Queries the status of a deployment.
+     *
+     * @param requestId request ID used in ONAP logging
+     * @param trackingId tracking ID returned when the deployment was requested
+     * @param waitMs maximum time, in milliseconds, to wait for the deployment to complete
+     * @return a response
+     */
+    // @formatter:off
+    @GET
+    @Path("deployments/{trackingId}")
+    @ApiOperation(value = "Query the status of a deployment",
+        notes = "Queries the status of a deployment, optionally waiting for it to complete",
+        response = DeploymentStatus.class,
+        tags = {"Policy Administration (PAP) API"},
+        authorizations = @Authorization(value = AUTHORIZATION_TYPE),
+        responseHeaders = {
+            @ResponseHeader(name = VERSION_MINOR_NAME, description = VERSION_MINOR_DESCRIPTION,
+                            response = String.class),
+            @ResponseHeader(name = VERSION_PATCH_NAME, description = VERSION_PATCH_DESCRIPTION,
+                            response = String.class),
+            @ResponseHeader(name = VERSION_LATEST_NAME, description = VERSION_LATEST_DESCRIPTION,
+                            response = String.class),
+            @ResponseHeader(name = REQUEST_ID_NAME, description = REQUEST_ID_HDR_DESCRIPTION,
+                            response = UUID.class)},
+        extensions = {@Extension(name = EXTENSION_NAME,
+            properties = {@ExtensionProperty(name = API_VERSION_NAME, value = API_VERSION),
+                @ExtensionProperty(name = LAST_MOD_NAME, value = LAST_MOD_RELEASE)})})
+    @ApiResponses(value = {@ApiResponse(code = AUTHENTICATION_ERROR_CODE, message = AUTHENTICATION_ERROR_MESSAGE),
+                    @ApiResponse(code = AUTHORIZATION_ERROR_CODE, message = AUTHORIZATION_ERROR_MESSAGE),
+                    @ApiResponse(code = SERVER_ERROR_CODE, message = SERVER_ERROR_MESSAGE)})
+    // @formatter:on
+
+    public Response queryDeploymentStatus(
+                    @HeaderParam(REQUEST_ID_NAME) @ApiParam(REQUEST_ID_PARAM_DESCRIPTION) final UUID requestId,
+                    @PathParam("trackingId") @ApiParam(value = "Tracking ID",
+                                    required = true) final String trackingId,
+                    @QueryParam("waitMs") @DefaultValue("0") @ApiParam(
+                                    value = "Maximum time, in milliseconds, to wait for the deployment to complete")
+                                    final long waitMs) {
+
+        try {
+            final Pair<Status, DeploymentStatus> pair = provider.fetchDeploymentStatus(trackingId, waitMs);
+            return addLoggingHeaders(addVersionControlHeaders(Response.status(pair.getLeft())), requestId)
+                            .entity(pair.getRight()).build();
+
+        } catch (final PfModelException exp) {
+            logger.info("deployment status query failed", exp);
+            return addLoggingHeaders(
+                            addVersionControlHeaders(Response.status(exp.getErrorResponse().getResponseCode())),
+                            requestId).entity(exp.getErrorResponse()).build();
+        }
+    }
+}
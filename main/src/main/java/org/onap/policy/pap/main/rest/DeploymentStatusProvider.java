@@ -0,0 +1,75 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest;
+
+import javax.ws.rs.core.Response;
+import org.apache.commons.lang3.tuple.Pair;
+import org.onap.policy.common.utils.services.Registry;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.pap.main.PapConstants;
+import org.onap.policy.pap.main.comm.DeploymentStatus;
+import org.onap.policy.pap.main.comm.DeploymentTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provider for PAP component to query the status of a deployment.
+ */
+public class DeploymentStatusProvider {
+    private static final Logger logger = LoggerFactory.getLogger(DeploymentStatusProvider.class);
+
+    /**
+     * Maximum time, in milliseconds, that a request may wait for a deployment to
+     * complete, so that a client cannot tie up a server thread indefinitely.
+     */
+    public static final long MAX_WAIT_MS = 60000L;
+
+    /**
+     * Queries the status of a deployment, optionally waiting for it to complete.
+     *
+     * @param trackingId the deployment's tracking ID
+     * @param waitMs maximum time, in milliseconds, to wait for the deployment to
+     *        complete; capped at {@link #MAX_WAIT_MS}
+     * @return a pair containing the status and the response
+     * @throws PfModelException if the deployment is unknown or the wait was interrupted
+     */
+    public Pair<Response.Status, DeploymentStatus> fetchDeploymentStatus(String trackingId, long waitMs)
+                    throws PfModelException {
+
+        DeploymentTracker tracker = Registry.get(PapConstants.REG_DEPLOYMENT_TRACKER, DeploymentTracker.class);
+
+        DeploymentStatus status;
+        try {
+            status = tracker.awaitStatus(trackingId, Math.max(0, Math.min(waitMs, MAX_WAIT_MS)));
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PfModelException(Response.Status.SERVICE_UNAVAILABLE, "interrupted while waiting", e);
+        }
+
+        if (status == null) {
+            throw new PfModelException(Response.Status.NOT_FOUND, "unknown tracking ID: " + trackingId);
+        }
+
+        logger.debug("Deployment Status Response - {}", status);
+        return Pair.of(Response.Status.OK, status);
+    }
+}
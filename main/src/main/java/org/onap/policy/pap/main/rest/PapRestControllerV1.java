@@ -32,8 +32,12 @@ import java.util.UUID;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
 import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.pap.main.rest.PdpQuerySnapshots.Snapshot;
 
 /**
  * Version v1 common superclass to provide REST endpoints for PAP component.
@@ -83,6 +87,14 @@ public class PapRestControllerV1 {
     public static final String REQUEST_ID_HDR_DESCRIPTION = "Used to track REST transactions for logging purpose";
     public static final String REQUEST_ID_PARAM_DESCRIPTION = "RequestID for http transaction";
 
+    public static final String TRACKING_ID_NAME = "X-TrackingId";
+    public static final String TRACKING_ID_HDR_DESCRIPTION =
+                    "Used to retrieve the status of a deployment, once the PDPs have been told of it";
+
+    public static final String ETAG_NAME = "ETag";
+    public static final String ETAG_HDR_DESCRIPTION =
+                    "Identifies the version of the response; pass it via If-None-Match to get 304 if unchanged";
+
     public static final String AUTHORIZATION_TYPE = "basicAuth";
 
     public static final int AUTHENTICATION_ERROR_CODE = HttpURLConnection.HTTP_UNAUTHORIZED;
@@ -119,6 +131,26 @@ public class PapRestControllerV1 {
         return respBuilder.header(REQUEST_ID_NAME, requestId);
     }
 
+    /**
+     * Makes a response containing a snapshot. If the request's If-None-Match header
+     * matches the snapshot's tag, then the response is "not modified" and has no body.
+     * As the tag is derived from the version alone, the comparison is made without
+     * building the snapshot's content.
+     *
+     * @param request the request
+     * @param status status to use if the snapshot has been modified
+     * @param snapshot the snapshot
+     * @return the response builder, with the snapshot's tag
+     */
+    public ResponseBuilder makeSnapshotResponse(Request request, Status status, Snapshot snapshot) {
+        ResponseBuilder respBuilder = request.evaluatePreconditions(snapshot.getTag());
+        if (respBuilder == null) {
+            respBuilder = Response.status(status).entity(snapshot);
+        }
+
+        return respBuilder.tag(snapshot.getTag());
+    }
+
     /**
      * Functions that throw {@link PfModelException}.
      */
@@ -126,4 +158,12 @@ public class PapRestControllerV1 {
     public static interface RunnableWithPfEx {
         public void run() throws PfModelException;
     }
+
+    /**
+     * Suppliers that throw {@link PfModelException}.
+     */
+    @FunctionalInterface
+    public static interface SupplierWithPfEx<T> {
+        public T get() throws PfModelException;
+    }
 }
@@ -100,7 +100,10 @@ public class PapRestServer implements Startable {
                                         PdpGroupDeleteControllerV1.class.getName(),
                                         PdpGroupStateChangeControllerV1.class.getName(),
                                         PdpGroupQueryControllerV1.class.getName(),
-                                        PdpGroupHealthCheckControllerV1.class.getName()));
+                                        PdpGroupHealthCheckControllerV1.class.getName(),
+                                        DeploymentStatusControllerV1.class.getName(),
+                                        MetricsControllerV1.class.getName(),
+                                        RestLatencyFilter.class.getName()));
         props.setProperty(svcpfx + PolicyEndPointProperties.PROPERTY_MANAGED_SUFFIX, "false");
         props.setProperty(svcpfx + PolicyEndPointProperties.PROPERTY_HTTP_SWAGGER_SUFFIX, "true");
         props.setProperty(svcpfx + PolicyEndPointProperties.PROPERTY_HTTP_AUTH_USERNAME_SUFFIX,
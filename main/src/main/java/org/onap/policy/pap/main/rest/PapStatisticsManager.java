@@ -21,23 +21,44 @@
 
 package org.onap.policy.pap.main.rest;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import lombok.ToString;
+import org.onap.policy.common.utils.services.Registry;
+import org.onap.policy.pap.main.PapConstants;
 
 /**
- * Class to hold statistical data for pap component.
+ * Class to hold statistical data for pap component. Each statistic is kept in a striped
+ * counter, so that threads updating it concurrently (e.g., heart beat processing
+ * threads) do not contend on a single value. Statistics are kept in total and, when the
+ * updater identifies them, broken down by PDP group and by PDP type.
+ *
+ * <p>All of the counters are held in a single "generation", which is replaced as a whole
+ * when the statistics are reset. Thus an update that races with a reset is applied
+ * either entirely before it or entirely after it, rather than being partly lost.
  *
  * @author Ram Krishna Verma (ram.krishna.verma@est.tech)
  */
 public class PapStatisticsManager {
 
-    private final AtomicLong totalPdpCount = new AtomicLong(0);
-    private final AtomicLong totalPdpGroupCount = new AtomicLong(0);
-    private final AtomicLong totalPolicyDeployCount = new AtomicLong(0);
-    private final AtomicLong policyDeploySuccessCount = new AtomicLong(0);
-    private final AtomicLong policyDeployFailureCount = new AtomicLong(0);
-    private final AtomicLong totalPolicyDownloadCount = new AtomicLong(0);
-    private final AtomicLong policyDownloadSuccessCount = new AtomicLong(0);
-    private final AtomicLong policyDownloadFailureCount = new AtomicLong(0);
+    /**
+     * The statistics. Outcomes appear before their totals, which is the order in which
+     * they are read when a snapshot is taken. As a total is always updated before its
+     * outcome, a snapshot never shows more outcomes than the total.
+     */
+    public enum Stat {
+        POLICY_DEPLOY_SUCCESS, POLICY_DEPLOY_FAILURE, TOTAL_POLICY_DEPLOY,
+        POLICY_DOWNLOAD_SUCCESS, POLICY_DOWNLOAD_FAILURE, TOTAL_POLICY_DOWNLOAD,
+        TOTAL_PDP, TOTAL_PDP_GROUP
+    }
+
+    private final AtomicReference<Generation> generation = new AtomicReference<>(new Generation());
 
     /**
      * Constructs the object.
@@ -47,120 +68,254 @@ public class PapStatisticsManager {
     }
 
     /**
-     * Method to update the total pdp count.
+     * Gets the statistics manager that is in the Registry. If none has been registered
+     * (e.g., in junit tests), then a new, unregistered object is returned, so that
+     * components need not check whether statistics are being collected.
      *
-     * @return the updated value of totalPdpCount
+     * @return the statistics manager
      */
-    public long updateTotalPdpCount() {
-        return totalPdpCount.incrementAndGet();
+    public static PapStatisticsManager lookup() {
+        PapStatisticsManager mgr =
+                        Registry.getOrDefault(PapConstants.REG_STATISTICS_MANAGER, PapStatisticsManager.class, null);
+        return (mgr != null ? mgr : new PapStatisticsManager());
     }
 
     /**
-     * Method to update the total pdp group count.
+     * Updates a statistic.
      *
-     * @return the updated value of totalPdpGroupCount
+     * @param stat statistic to update
+     * @param groupName name of the PDP group to which the update applies, or {@code null}
+     * @param pdpType PDP type to which the update applies, or {@code null}
      */
-    public long updateTotalPdpGroupCount() {
-        return totalPdpGroupCount.incrementAndGet();
+    public void update(Stat stat, String groupName, String pdpType) {
+        update(stat, groupName, pdpType, 1);
     }
 
     /**
-     * Method to update the total policy deploy count.
+     * Adds a count to a statistic.
      *
-     * @return the updated value of totalPolicyDeployCount
+     * @param stat statistic to update
+     * @param groupName name of the PDP group to which the update applies, or {@code null}
+     * @param pdpType PDP type to which the update applies, or {@code null}
+     * @param count amount to be added to the statistic
+     */
+    public void update(Stat stat, String groupName, String pdpType, long count) {
+        Generation gen = generation.get();
+
+        gen.total.add(stat, count);
+
+        if (groupName != null) {
+            gen.getCounters(gen.groups, groupName).add(stat, count);
+        }
+
+        if (pdpType != null) {
+            gen.getCounters(gen.pdpTypes, pdpType).add(stat, count);
+        }
+    }
+
+    /**
+     * Method to update the total pdp count.
+     */
+    public void updateTotalPdpCount() {
+        update(Stat.TOTAL_PDP, null, null);
+    }
+
+    /**
+     * Method to update the total pdp group count.
      */
-    public long updateTotalPolicyDeployCount() {
-        return totalPolicyDeployCount.incrementAndGet();
+    public void updateTotalPdpGroupCount() {
+        update(Stat.TOTAL_PDP_GROUP, null, null);
+    }
+
+    /**
+     * Method to update the total policy deploy count.
+     */
+    public void updateTotalPolicyDeployCount() {
+        update(Stat.TOTAL_POLICY_DEPLOY, null, null);
     }
 
     /**
      * Method to update the policy deploy success count.
-     *
-     * @return the updated value of policyDeploySuccessCount
      */
-    public long updatePolicyDeploySuccessCount() {
-        return policyDeploySuccessCount.incrementAndGet();
+    public void updatePolicyDeploySuccessCount() {
+        update(Stat.POLICY_DEPLOY_SUCCESS, null, null);
     }
 
     /**
      * Method to update the policy deploy failure count.
-     *
-     * @return the updated value of policyDeployFailureCount
      */
-    public long updatePolicyDeployFailureCount() {
-        return policyDeployFailureCount.incrementAndGet();
+    public void updatePolicyDeployFailureCount() {
+        update(Stat.POLICY_DEPLOY_FAILURE, null, null);
     }
 
     /**
      * Method to update the total policy download count.
-     *
-     * @return the updated value of totalPolicyDownloadCount
      */
-    public long updateTotalPolicyDownloadCount() {
-        return totalPolicyDownloadCount.incrementAndGet();
+    public void updateTotalPolicyDownloadCount() {
+        update(Stat.TOTAL_POLICY_DOWNLOAD, null, null);
     }
 
     /**
      * Method to update the policy download success count.
-     *
-     * @return the updated value of policyDownloadSuccessCount
      */
-    public long updatePolicyDownloadSuccessCount() {
-        return policyDownloadSuccessCount.incrementAndGet();
+    public void updatePolicyDownloadSuccessCount() {
+        update(Stat.POLICY_DOWNLOAD_SUCCESS, null, null);
     }
 
     /**
      * Method to update the policy download failure count.
-     *
-     * @return the updated value of policyDownloadFailureCount
      */
-    public long updatePolicyDownloadFailureCount() {
-        return policyDownloadFailureCount.incrementAndGet();
+    public void updatePolicyDownloadFailureCount() {
+        update(Stat.POLICY_DOWNLOAD_FAILURE, null, null);
     }
 
     /**
      * Reset all the statistics counts to 0.
      */
     public void resetAllStatistics() {
-        totalPdpCount.set(0L);
-        totalPdpGroupCount.set(0L);
-        totalPolicyDeployCount.set(0L);
-        policyDeploySuccessCount.set(0L);
-        policyDeployFailureCount.set(0L);
-        totalPolicyDownloadCount.set(0L);
-        policyDownloadSuccessCount.set(0L);
-        policyDownloadFailureCount.set(0L);
+        generation.set(new Generation());
+    }
+
+    /**
+     * Takes a snapshot of the statistics. The totals and the breakdowns all come from the
+     * same generation, thus a snapshot never mixes values from before and after a reset.
+     *
+     * @return a snapshot of the statistics
+     */
+    public Snapshot getSnapshot() {
+        return new Snapshot(generation.get());
     }
 
     public long getTotalPdpCount() {
-        return totalPdpCount.get();
+        return generation.get().total.sum(Stat.TOTAL_PDP);
     }
 
     public long getTotalPdpGroupCount() {
-        return totalPdpGroupCount.get();
+        return generation.get().total.sum(Stat.TOTAL_PDP_GROUP);
     }
 
     public long getTotalPolicyDeployCount() {
-        return totalPolicyDeployCount.get();
+        return generation.get().total.sum(Stat.TOTAL_POLICY_DEPLOY);
     }
 
     public long getPolicyDeploySuccessCount() {
-        return policyDeploySuccessCount.get();
+        return generation.get().total.sum(Stat.POLICY_DEPLOY_SUCCESS);
     }
 
     public long getPolicyDeployFailureCount() {
-        return policyDeployFailureCount.get();
+        return generation.get().total.sum(Stat.POLICY_DEPLOY_FAILURE);
     }
 
     public long getTotalPolicyDownloadCount() {
-        return totalPolicyDownloadCount.get();
+        return generation.get().total.sum(Stat.TOTAL_POLICY_DOWNLOAD);
     }
 
     public long getPolicyDownloadSuccessCount() {
-        return policyDownloadSuccessCount.get();
+        return generation.get().total.sum(Stat.POLICY_DOWNLOAD_SUCCESS);
     }
 
     public long getPolicyDownloadFailureCount() {
-        return policyDownloadFailureCount.get();
+        return generation.get().total.sum(Stat.POLICY_DOWNLOAD_FAILURE);
+    }
+
+    /**
+     * One striped counter for each statistic.
+     */
+    private static class Counters {
+        private final LongAdder[] adders = new LongAdder[Stat.values().length];
+
+        public Counters() {
+            for (int index = 0; index < adders.length; ++index) {
+                adders[index] = new LongAdder();
+            }
+        }
+
+        public void add(Stat stat, long count) {
+            adders[stat.ordinal()].add(count);
+        }
+
+        public long sum(Stat stat) {
+            return adders[stat.ordinal()].sum();
+        }
+    }
+
+    /**
+     * Counters that are discarded together when the statistics are reset.
+     */
+    private static class Generation {
+        private final Counters total = new Counters();
+        private final ConcurrentMap<String, Counters> groups = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Counters> pdpTypes = new ConcurrentHashMap<>();
+
+        /**
+         * Gets the counters for a key, creating them if they don't exist yet. Tries a
+         * plain "get" first, as computeIfAbsent() locks the bin even when the key is
+         * present.
+         *
+         * @param map map containing the counters
+         * @param key key of the desired counters
+         * @return the counters associated with the key
+         */
+        public Counters getCounters(ConcurrentMap<String, Counters> map, String key) {
+            Counters counters = map.get(key);
+            return (counters != null ? counters : map.computeIfAbsent(key, name -> new Counters()));
+        }
+    }
+
+    /**
+     * Values of the statistics, at a point in time.
+     */
+    @Getter
+    @ToString
+    public static class Counts {
+        private final long totalPdpCount;
+        private final long totalPdpGroupCount;
+        private final long totalPolicyDeployCount;
+        private final long policyDeploySuccessCount;
+        private final long policyDeployFailureCount;
+        private final long totalPolicyDownloadCount;
+        private final long policyDownloadSuccessCount;
+        private final long policyDownloadFailureCount;
+
+        private Counts(Counters counters) {
+            // read the outcomes before their totals
+            long[] values = new long[Stat.values().length];
+            for (Stat stat : Stat.values()) {
+                values[stat.ordinal()] = counters.sum(stat);
+            }
+
+            this.policyDeploySuccessCount = values[Stat.POLICY_DEPLOY_SUCCESS.ordinal()];
+            this.policyDeployFailureCount = values[Stat.POLICY_DEPLOY_FAILURE.ordinal()];
+            this.totalPolicyDeployCount = values[Stat.TOTAL_POLICY_DEPLOY.ordinal()];
+            this.policyDownloadSuccessCount = values[Stat.POLICY_DOWNLOAD_SUCCESS.ordinal()];
+            this.policyDownloadFailureCount = values[Stat.POLICY_DOWNLOAD_FAILURE.ordinal()];
+            this.totalPolicyDownloadCount = values[Stat.TOTAL_POLICY_DOWNLOAD.ordinal()];
+            this.totalPdpCount = values[Stat.TOTAL_PDP.ordinal()];
+            this.totalPdpGroupCount = values[Stat.TOTAL_PDP_GROUP.ordinal()];
+        }
+    }
+
+    /**
+     * Snapshot of the statistics, in total, by PDP group, and by PDP type.
+     */
+    @Getter
+    @ToString
+    public static class Snapshot {
+        private final Counts total;
+        private final Map<String, Counts> groups;
+        private final Map<String, Counts> pdpTypes;
+
+        private Snapshot(Generation gen) {
+            // read the breakdowns first, so they never exceed the total
+            this.groups = toCounts(gen.groups);
+            this.pdpTypes = toCounts(gen.pdpTypes);
+            this.total = new Counts(gen.total);
+        }
+
+        private static Map<String, Counts> toCounts(Map<String, Counters> map) {
+            Map<String, Counts> result = new TreeMap<>();
+            map.forEach((key, counters) -> result.put(key, new Counts(counters)));
+            return Collections.unmodifiableMap(result);
+        }
     }
 }
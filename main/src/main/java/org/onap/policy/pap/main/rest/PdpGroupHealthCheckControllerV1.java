@@ -31,15 +31,20 @@ import io.swagger.annotations.ResponseHeader;
 
 import java.util.UUID;
 
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.onap.policy.models.base.PfModelException;
 import org.onap.policy.models.pdp.concepts.Pdps;
+import org.onap.policy.pap.main.rest.PdpQuerySnapshots.Snapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,14 +62,20 @@ public class PdpGroupHealthCheckControllerV1 extends PapRestControllerV1 {
     /**
      * Returns health status of all PDPs registered with PAP.
      *
+     * @param request the request, used to evaluate its If-None-Match header
      * @param requestId request ID used in ONAP logging
+     * @param groupName name of the group of interest, or {@code null} for all groups
+     * @param state state of the PDPs of interest, or {@code null} for all states
+     * @param pdpType PDP type of interest, or {@code null} for all types
+     * @param offset number of matching PDPs to skip
+     * @param limit maximum number of PDPs to return, or {@code 0} to return all of them
      * @return a response
      */
     // @formatter:off
     @GET
     @Path("pdps/healthcheck")
     @ApiOperation(value = "Returns health status of all PDPs registered with PAP",
-        notes = "Queries health status of all PDPs, returning all pdps health status",
+        notes = "Queries health status of all PDPs, returning all pdps health status, optionally filtered and paged",
         response = Pdps.class,
         tags = {"Policy Administration (PAP) API"},
         authorizations = @Authorization(value = AUTHORIZATION_TYPE),
@@ -76,7 +87,9 @@ public class PdpGroupHealthCheckControllerV1 extends PapRestControllerV1 {
             @ResponseHeader(name = VERSION_LATEST_NAME, description = VERSION_LATEST_DESCRIPTION,
                             response = String.class),
             @ResponseHeader(name = REQUEST_ID_NAME, description = REQUEST_ID_HDR_DESCRIPTION,
-                            response = UUID.class)},
+                            response = UUID.class),
+            @ResponseHeader(name = ETAG_NAME, description = ETAG_HDR_DESCRIPTION,
+                            response = String.class)},
         extensions = {@Extension(name = EXTENSION_NAME,
             properties = {@ExtensionProperty(name = API_VERSION_NAME, value = API_VERSION),
                 @ExtensionProperty(name = LAST_MOD_NAME, value = LAST_MOD_RELEASE)})})
@@ -86,12 +99,21 @@ public class PdpGroupHealthCheckControllerV1 extends PapRestControllerV1 {
     // @formatter:on
 
     public Response pdpGroupHealthCheck(
-            @HeaderParam(REQUEST_ID_NAME) @ApiParam(REQUEST_ID_PARAM_DESCRIPTION) final UUID requestId) {
+            @Context final Request request,
+            @HeaderParam(REQUEST_ID_NAME) @ApiParam(REQUEST_ID_PARAM_DESCRIPTION) final UUID requestId,
+            @QueryParam("group") @ApiParam("Name of the PDP group of interest") final String groupName,
+            @QueryParam("state") @ApiParam("State of the PDPs of interest") final String state,
+            @QueryParam("pdpType") @ApiParam("PDP type of interest") final String pdpType,
+            @QueryParam("offset") @DefaultValue("0") @ApiParam("Number of matching PDPs to skip") final int offset,
+            @QueryParam("limit") @DefaultValue("0") @ApiParam("Maximum number of PDPs to return, 0 for all")
+                            final int limit) {
 
         try {
-            final Pair<Status, Pdps> pair = provider.fetchPdpGroupHealthStatus();
-            return addLoggingHeaders(addVersionControlHeaders(Response.status(pair.getLeft())), requestId)
-                    .entity(pair.getRight()).build();
+            final PdpQueryFilter filter = new PdpQueryFilter(groupName, state, pdpType, offset, limit);
+            final Pair<Status, Snapshot> pair = provider.fetchPdpGroupHealthStatus(filter);
+            return addLoggingHeaders(
+                    addVersionControlHeaders(makeSnapshotResponse(request, pair.getLeft(), pair.getRight())),
+                    requestId).build();
         } catch (final PfModelException exp) {
             LOGGER.info("pdpGroup health check failed", exp);
             return addLoggingHeaders(
@@ -20,21 +20,17 @@
 
 package org.onap.policy.pap.main.rest;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import java.util.Iterator;
+import java.util.Objects;
 import javax.ws.rs.core.Response;
-
+import javax.ws.rs.core.StreamingOutput;
 import org.apache.commons.lang3.tuple.Pair;
 import org.onap.policy.common.utils.services.Registry;
 import org.onap.policy.models.base.PfModelException;
 import org.onap.policy.models.pdp.concepts.Pdp;
-import org.onap.policy.models.pdp.concepts.PdpGroup;
-import org.onap.policy.models.pdp.concepts.PdpSubGroup;
-import org.onap.policy.models.pdp.concepts.Pdps;
-import org.onap.policy.models.provider.PolicyModelsProvider;
 import org.onap.policy.pap.main.PapConstants;
-import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
+import org.onap.policy.pap.main.rest.PdpQuerySnapshots.Snapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,27 +44,53 @@ public class PdpGroupHealthCheckProvider {
     private static final Logger LOGGER = LoggerFactory.getLogger(PdpGroupHealthCheckProvider.class);
 
     /**
-     * Returns health status of all PDPs.
+     * Returns health status of the PDPs. The response is served from a snapshot, which
+     * is rebuilt only if the groups have changed since it was last built. Nothing is
+     * built until the response is written.
      *
+     * @param filter identifies the PDPs of interest; the state is matched against the
+     *        state of each PDP
      * @return a pair containing the status and the response
-     * @throws PfModelException in case of errors
+     * @throws PfModelException if an error occurred
+     */
+    public Pair<Response.Status, Snapshot> fetchPdpGroupHealthStatus(PdpQueryFilter filter) throws PfModelException {
+
+        final PdpGroupCache cache = Registry.get(PapConstants.REG_PDP_GROUP_CACHE, PdpGroupCache.class);
+        final PdpQuerySnapshots snapshots =
+                        Registry.get(PapConstants.REG_PDP_QUERY_SNAPSHOTS, PdpQuerySnapshots.class);
+
+        LOGGER.debug("PdpGroup HealthCheck - {}", filter);
+
+        // get the version first so that a snapshot is never labeled newer than its content
+        final long version = cache.getVersion();
+
+        return Pair.of(Response.Status.OK,
+                        snapshots.get("pdps/healthcheck " + filter, version, makeResponse(cache, filter)));
+    }
+
+    /**
+     * Makes a response that streams the PDPs, one group at a time, as it is written. The
+     * groups are not read until the response is written.
+     *
+     * @param cache cache from which to read the groups
+     * @param filter identifies the PDPs of interest
+     * @return a new response
      */
-    public Pair<Response.Status, Pdps> fetchPdpGroupHealthStatus() throws PfModelException {
+    private StreamingOutput makeResponse(PdpGroupCache cache, PdpQueryFilter filter) {
+        return output -> {
+            final Iterator<Pdp> pdps = cache.getGroupNames().stream()
+                            .filter(filter::matchesGroupName)
+                            .map(cache::copyGroup)
+                            .filter(Objects::nonNull)
+                            .flatMap(group -> group.getPdpSubgroups().stream())
+                            .filter(subgroup -> filter.matchesPdpType(subgroup.getPdpType()))
+                            .flatMap(subgroup -> subgroup.getPdpInstances().stream())
+                            .filter(pdp -> filter.matchesState(pdp.getPdpState()))
+                            .skip(filter.getOffset())
+                            .limit(filter.getMaxItems())
+                            .iterator();
 
-        final Pdps pdps = new Pdps();
-        final PolicyModelsProviderFactoryWrapper modelProviderWrapper =
-                Registry.get(PapConstants.REG_PAP_DAO_FACTORY, PolicyModelsProviderFactoryWrapper.class);
-        try (PolicyModelsProvider databaseProvider = modelProviderWrapper.create()) {
-            final List<PdpGroup> groups = databaseProvider.getPdpGroups(null);
-            final List<Pdp> pdpList = new ArrayList<>();
-            for (final PdpGroup group : groups) {
-                for (final PdpSubGroup subGroup : group.getPdpSubgroups()) {
-                    pdpList.addAll(subGroup.getPdpInstances());
-                }
-            }
-            pdps.setPdpList(pdpList);
-        }
-        LOGGER.debug("PdpGroup HealthCheck Response - {}", pdps);
-        return Pair.of(Response.Status.OK, pdps);
+            new StreamingJsonList<>("pdpList", pdps).write(output);
+        };
     }
 }
@@ -20,15 +20,18 @@
 
 package org.onap.policy.pap.main.rest;
 
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Collectors;
 import javax.ws.rs.core.Response;
-
+import javax.ws.rs.core.StreamingOutput;
 import org.apache.commons.lang3.tuple.Pair;
 import org.onap.policy.common.utils.services.Registry;
 import org.onap.policy.models.base.PfModelException;
-import org.onap.policy.models.pdp.concepts.PdpGroups;
-import org.onap.policy.models.provider.PolicyModelsProvider;
+import org.onap.policy.models.pdp.concepts.PdpGroup;
 import org.onap.policy.pap.main.PapConstants;
-import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
+import org.onap.policy.pap.main.rest.PdpQuerySnapshots.Snapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,20 +45,69 @@ public class PdpGroupQueryProvider {
     private static final Logger LOGGER = LoggerFactory.getLogger(PdpGroupQueryProvider.class);
 
     /**
-     * Queries details of all PDP groups.
+     * Queries details of the PDP groups. The response is served from a snapshot, which
+     * is rebuilt only if the groups have changed since it was last built. Nothing is
+     * built until the response is written.
      *
+     * @param filter identifies the groups of interest; if a PDP type is specified, then
+     *        the groups include only the subgroups of that type
      * @return a pair containing the status and the response
-     * @throws PfModelException in case of errors
+     * @throws PfModelException if an error occurred
      */
-    public Pair<Response.Status, PdpGroups> fetchPdpGroupDetails() throws PfModelException {
+    public Pair<Response.Status, Snapshot> fetchPdpGroupDetails(PdpQueryFilter filter) throws PfModelException {
+
+        final PdpGroupCache cache = Registry.get(PapConstants.REG_PDP_GROUP_CACHE, PdpGroupCache.class);
+        final PdpQuerySnapshots snapshots =
+                        Registry.get(PapConstants.REG_PDP_QUERY_SNAPSHOTS, PdpQuerySnapshots.class);
+
+        LOGGER.debug("PdpGroup Query - {}", filter);
 
-        final PdpGroups pdpGroups = new PdpGroups();
-        final PolicyModelsProviderFactoryWrapper modelProviderWrapper =
-                Registry.get(PapConstants.REG_PAP_DAO_FACTORY, PolicyModelsProviderFactoryWrapper.class);
-        try (PolicyModelsProvider databaseProvider = modelProviderWrapper.create()) {
-            pdpGroups.setGroups(databaseProvider.getPdpGroups(null));
+        // get the version first so that a snapshot is never labeled newer than its content
+        final long version = cache.getVersion();
+
+        return Pair.of(Response.Status.OK, snapshots.get("pdps " + filter, version, makeResponse(cache, filter)));
+    }
+
+    /**
+     * Makes a response that streams the groups, one at a time, as it is written. The
+     * groups are not read until the response is written.
+     *
+     * @param cache cache from which to read the groups
+     * @param filter identifies the groups of interest
+     * @return a new response
+     */
+    private StreamingOutput makeResponse(PdpGroupCache cache, PdpQueryFilter filter) {
+        return output -> {
+            final Iterator<PdpGroup> groups = cache.getGroupNames().stream()
+                            .filter(filter::matchesGroupName)
+                            .map(cache::copyGroup)
+                            .filter(group -> group != null && filter.matchesState(group.getPdpGroupState()))
+                            .map(group -> filterSubgroups(group, filter))
+                            .filter(Objects::nonNull)
+                            .skip(filter.getOffset())
+                            .limit(filter.getMaxItems())
+                            .iterator();
+
+            new StreamingJsonList<>("groups", groups).write(output);
+        };
+    }
+
+    /**
+     * Removes the subgroups that do not match the filter's PDP type.
+     *
+     * @param group group whose subgroups are to be filtered
+     * @param filter filter to apply
+     * @return the group, or {@code null} if it has no matching subgroups
+     */
+    private PdpGroup filterSubgroups(PdpGroup group, PdpQueryFilter filter) {
+        if (filter.getPdpType() == null) {
+            return group;
         }
-        LOGGER.debug("PdpGroup Query Response - {}", pdpGroups);
-        return Pair.of(Response.Status.OK, pdpGroups);
+
+        group.setPdpSubgroups(group.getPdpSubgroups().stream()
+                        .filter(subgroup -> filter.matchesPdpType(subgroup.getPdpType()))
+                        .collect(Collectors.toList()));
+
+        return (group.getPdpSubgroups().isEmpty() ? null : group);
     }
 }
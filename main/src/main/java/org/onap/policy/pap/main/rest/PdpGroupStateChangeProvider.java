@@ -110,6 +110,7 @@ public class PdpGroupStateChangeProvider extends PdpMessageGenerator {
             final PdpState pdpState) throws PfModelException {
         pdpGroups.get(0).setPdpGroupState(pdpState);
         databaseProvider.updatePdpGroups(pdpGroups);
+        groupCache.putGroups(pdpGroups);
 
         LOGGER.debug("Updated PdpGroup in DB - {} ", pdpGroups);
     }
@@ -123,6 +124,7 @@ public class PdpGroupStateChangeProvider extends PdpMessageGenerator {
             }
         }
         databaseProvider.updatePdpGroups(pdpGroups);
+        groupCache.putGroups(pdpGroups);
 
         LOGGER.debug("Updated PdpGroup and Pdp in DB - {} ", pdpGroups);
     }
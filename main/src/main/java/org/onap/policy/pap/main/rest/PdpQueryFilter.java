@@ -0,0 +1,149 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest;
+
+import javax.ws.rs.core.Response.Status;
+import lombok.Getter;
+import lombok.ToString;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.pdp.enums.PdpState;
+
+/**
+ * Criteria used to filter and paginate the results of a PDP query. Criteria that are
+ * {@code null} match everything.
+ */
+@Getter
+@ToString
+public class PdpQueryFilter {
+
+    /**
+     * Name of the group of interest.
+     */
+    private final String groupName;
+
+    /**
+     * State of interest.
+     */
+    private final PdpState state;
+
+    /**
+     * PDP type (i.e., subgroup) of interest.
+     */
+    private final String pdpType;
+
+    /**
+     * Number of matching items to skip.
+     */
+    private final int offset;
+
+    /**
+     * Maximum number of items to return, or {@code 0} to return all of them.
+     */
+    private final int limit;
+
+
+    /**
+     * Constructs the object.
+     *
+     * @param groupName name of the group of interest, or {@code null}
+     * @param state state of interest, or {@code null}
+     * @param pdpType PDP type of interest, or {@code null}
+     * @param offset number of matching items to skip
+     * @param limit maximum number of items to return, or {@code 0} to return all of them
+     * @throws PfModelException if any of the criteria are invalid
+     */
+    public PdpQueryFilter(String groupName, String state, String pdpType, int offset, int limit)
+                    throws PfModelException {
+
+        if (offset < 0) {
+            throw new PfModelException(Status.BAD_REQUEST, "offset must be >= 0");
+        }
+
+        if (limit < 0) {
+            throw new PfModelException(Status.BAD_REQUEST, "limit must be >= 0");
+        }
+
+        this.groupName = groupName;
+        this.state = toState(state);
+        this.pdpType = pdpType;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Determines if a group name matches the criteria.
+     *
+     * @param name group name to be checked
+     * @return {@code true} if the group name matches, {@code false} otherwise
+     */
+    public boolean matchesGroupName(String name) {
+        return (groupName == null || groupName.equals(name));
+    }
+
+    /**
+     * Determines if a state matches the criteria.
+     *
+     * @param actual state to be checked
+     * @return {@code true} if the state matches, {@code false} otherwise
+     */
+    public boolean matchesState(PdpState actual) {
+        return (state == null || state == actual);
+    }
+
+    /**
+     * Determines if a PDP type matches the criteria.
+     *
+     * @param type PDP type to be checked
+     * @return {@code true} if the PDP type matches, {@code false} otherwise
+     */
+    public boolean matchesPdpType(String type) {
+        return (pdpType == null || pdpType.equals(type));
+    }
+
+    /**
+     * Gets the maximum number of items to return.
+     *
+     * @return the maximum number of items to return
+     */
+    public long getMaxItems() {
+        return (limit == 0 ? Long.MAX_VALUE : limit);
+    }
+
+    /**
+     * Converts a state name to a state.
+     *
+     * @param state name of the state, or {@code null}
+     * @return the state, or {@code null}, if the name is {@code null}
+     * @throws PfModelException if the state name is invalid
+     */
+    private static PdpState toState(String state) throws PfModelException {
+        if (state == null) {
+            return null;
+        }
+
+        try {
+            return PdpState.valueOf(state);
+
+        } catch (IllegalArgumentException e) {
+            throw new PfModelException(Status.BAD_REQUEST, "invalid state: " + state, e);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.StreamingOutput;
+import lombok.Getter;
+
+/**
+ * Size-bounded cache of serialized responses to PDP queries, indexed by query. Each
+ * snapshot is labeled with the version of the PDP group cache from which it was built
+ * and is only reused while that version is current, thus a snapshot is rebuilt only
+ * after a group, subgroup, or PDP has changed. Snapshots are evicted in LRU order.
+ *
+ * <p>A response is never built in advance. When there is no current snapshot for a
+ * query, the response is built while it is being written, streaming it to the client,
+ * and is recorded along the way. Once it has been written, the recording becomes the
+ * query's snapshot, unless it exceeded the maximum size, in which case it is discarded
+ * and the response is built again for the next query. Thus a request whose entity tag
+ * is still current costs nothing to serve, and large responses are never held in
+ * memory, at the expense of rebuilding them each time they're requested.
+ */
+public class PdpQuerySnapshots {
+
+    /**
+     * Distinguishes the entity tags generated by this process from those generated by
+     * earlier incarnations, whose versions may be the same.
+     */
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+    /**
+     * Maps a query key to its snapshot. Accessed only while synchronized on this object.
+     */
+    private final Map<String, Snapshot> key2snapshot;
+
+    /**
+     * Maximum size, in bytes, of a response that may be kept as a snapshot.
+     */
+    private final int maxBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong oversizeCount = new AtomicLong();
+
+
+    /**
+     * Constructs the object.
+     *
+     * @param maxSize maximum number of snapshots to be held in the cache
+     * @param maxBytes maximum size, in bytes, of a response that may be kept as a
+     *        snapshot
+     */
+    public PdpQuerySnapshots(int maxSize, int maxBytes) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("max size must be >= 1");
+        }
+
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("max bytes must be >= 1");
+        }
+
+        this.maxBytes = maxBytes;
+
+        key2snapshot = new LinkedHashMap<String, Snapshot>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the snapshot for a query. If there is no snapshot for the given version, then
+     * a new snapshot is returned, which invokes the builder when it is written, and which
+     * is added to the cache once it has been written, if it is not too large. The builder
+     * is never invoked by this method.
+     *
+     * @param key identifies the query
+     * @param version current version of the data from which the response is built
+     * @param builder writes the response; only invoked if the snapshot must be built
+     * @return the snapshot
+     */
+    public Snapshot get(String key, long version, StreamingOutput builder) {
+        synchronized (this) {
+            Snapshot snapshot = key2snapshot.get(key);
+            if (snapshot != null && snapshot.version == version) {
+                hitCount.incrementAndGet();
+                return snapshot;
+            }
+        }
+
+        missCount.incrementAndGet();
+
+        EntityTag tag = new EntityTag(epoch + "-" + version);
+
+        return new Snapshot(version, tag, output -> record(key, version, tag, builder, output));
+    }
+
+    /**
+     * Builds a response, writing it to the client while recording it. If the recording
+     * does not exceed the maximum size, then it is added to the cache.
+     *
+     * @param key identifies the query
+     * @param version version of the data from which the response is built
+     * @param tag entity tag identifying the response
+     * @param builder writes the response
+     * @param output stream to which the response is to be written
+     * @throws IOException if the response cannot be built or written
+     */
+    private void record(String key, long version, EntityTag tag, StreamingOutput builder, OutputStream output)
+                    throws IOException {
+
+        Recorder recorder = new Recorder(output);
+        builder.write(recorder);
+        recorder.flush();
+
+        if (recorder.recording == null) {
+            oversizeCount.incrementAndGet();
+            return;
+        }
+
+        Snapshot snapshot = new Snapshot(version, tag, recorder.recording.toByteArray());
+
+        synchronized (this) {
+            Snapshot old = key2snapshot.get(key);
+            if (old == null || old.version < version) {
+                key2snapshot.put(key, snapshot);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of snapshots in the cache.
+     *
+     * @return the number of snapshots in the cache
+     */
+    public synchronized int size() {
+        return key2snapshot.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of responses that were too large to be kept as snapshots.
+     *
+     * @return the number of responses that were too large to be kept
+     */
+    public long getOversizeCount() {
+        return oversizeCount.get();
+    }
+
+    /**
+     * Serialized response, labeled with the version from which it was built.
+     */
+    public static class Snapshot implements StreamingOutput {
+        @Getter
+        private final long version;
+
+        @Getter
+        private final EntityTag tag;
+
+        /**
+         * Serialized response, or {@code null} if the response is built each time it is
+         * written.
+         */
+        @Getter
+        private final byte[] bytes;
+
+        /**
+         * Writes the response, if it has not been serialized.
+         */
+        private final StreamingOutput builder;
+
+        /**
+         * Constructs the object.
+         *
+         * @param version version of the data from which the response was built
+         * @param tag entity tag identifying the response
+         * @param bytes serialized response
+         */
+        public Snapshot(long version, EntityTag tag, byte[] bytes) {
+            this.version = version;
+            this.tag = tag;
+            this.bytes = bytes;
+            this.builder = null;
+        }
+
+        /**
+         * Constructs the object.
+         *
+         * @param version version of the data from which the response is built
+         * @param tag entity tag identifying the response
+         * @param builder writes the response
+         */
+        public Snapshot(long version, EntityTag tag, StreamingOutput builder) {
+            this.version = version;
+            this.tag = tag;
+            this.bytes = null;
+            this.builder = builder;
+        }
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            if (bytes != null) {
+                output.write(bytes);
+            } else {
+                builder.write(output);
+            }
+        }
+    }
+
+    /**
+     * Passes bytes through to the client while recording them, until the recording
+     * exceeds the maximum size, at which point it is discarded.
+     */
+    private class Recorder extends FilterOutputStream {
+
+        /**
+         * Bytes written thus far, or {@code null} if they exceeded the maximum size.
+         */
+        private ByteArrayOutputStream recording = new ByteArrayOutputStream();
+
+        public Recorder(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(int data) throws IOException {
+            out.write(data);
+
+            if (recording == null) {
+                return;
+            }
+
+            if (recording.size() >= maxBytes) {
+                recording = null;
+            } else {
+                recording.write(data);
+            }
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            out.write(data, offset, length);
+            record(data, offset, length);
+        }
+
+        private void record(byte[] data, int offset, int length) {
+            if (recording == null) {
+                return;
+            }
+
+            if (length > maxBytes - recording.size()) {
+                recording = null;
+            } else {
+                recording.write(data, offset, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import org.onap.policy.pap.main.metrics.PapMetrics;
+
+/**
+ * Records the latency of each REST endpoint, labeled by the name of the resource method.
+ * If the response has an entity, then the latency includes the time taken to write it.
+ */
+@Provider
+public class RestLatencyFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+    public static final String METRIC_NAME = "pap_rest_request_seconds";
+
+    private static final String START_PROPERTY = RestLatencyFilter.class.getName() + ".start";
+    private static final String ENDPOINT_PROPERTY = RestLatencyFilter.class.getName() + ".endpoint";
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        request.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (request.getProperty(START_PROPERTY) == null) {
+            // request was never matched to an endpoint
+            return;
+        }
+
+        String endpoint = getEndpoint();
+
+        if (response.hasEntity()) {
+            // record it once the entity has been written
+            request.setProperty(ENDPOINT_PROPERTY, endpoint);
+
+        } else {
+            record(endpoint, request.getProperty(START_PROPERTY));
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+
+        } finally {
+            Object endpoint = context.getProperty(ENDPOINT_PROPERTY);
+            if (endpoint != null) {
+                record(endpoint.toString(), context.getProperty(START_PROPERTY));
+            }
+        }
+    }
+
+    /**
+     * Gets the name of the endpoint that handled the request.
+     *
+     * @return the name of the resource method, or "unknown" if it cannot be determined
+     */
+    private String getEndpoint() {
+        Method method = (resourceInfo == null ? null : resourceInfo.getResourceMethod());
+        return (method == null ? "unknown" : method.getName());
+    }
+
+    /**
+     * Records the time that has elapsed since the request was received.
+     *
+     * @param endpoint name of the endpoint that handled the request
+     * @param start time, from {@link System#nanoTime()}, when the request was received
+     */
+    private void record(String endpoint, Object start) {
+        if (start instanceof Long) {
+            PapMetrics.lookup().histogram(METRIC_NAME, "Latency of the REST endpoints", "endpoint", endpoint)
+                            .recordSince((Long) start);
+        }
+    }
+}
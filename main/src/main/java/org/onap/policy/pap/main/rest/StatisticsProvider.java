@@ -23,6 +23,11 @@ package org.onap.policy.pap.main.rest;
 
 import org.onap.policy.common.utils.services.Registry;
 import org.onap.policy.pap.main.PapConstants;
+import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.onap.policy.pap.main.comm.PdpMessageCompressor;
+import org.onap.policy.pap.main.metrics.PapMetrics;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Counts;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Snapshot;
 import org.onap.policy.pap.main.startstop.PapActivator;
 
 /**
@@ -42,14 +47,37 @@ public class StatisticsProvider {
         report.setCode(Registry.get(PapConstants.REG_PAP_ACTIVATOR, PapActivator.class).isAlive() ? 200 : 500);
 
         PapStatisticsManager mgr = Registry.get(PapConstants.REG_STATISTICS_MANAGER, PapStatisticsManager.class);
-        report.setTotalPdpCount(mgr.getTotalPdpCount());
-        report.setTotalPdpGroupCount(mgr.getTotalPdpGroupCount());
-        report.setTotalPolicyDownloadCount(mgr.getTotalPolicyDownloadCount());
-        report.setPolicyDownloadSuccessCount(mgr.getPolicyDownloadSuccessCount());
-        report.setPolicyDownloadFailureCount(mgr.getPolicyDownloadFailureCount());
-        report.setTotalPolicyDeployCount(mgr.getTotalPolicyDeployCount());
-        report.setPolicyDeploySuccessCount(mgr.getPolicyDeploySuccessCount());
-        report.setPolicyDeployFailureCount(mgr.getPolicyDeployFailureCount());
+        Snapshot snapshot = mgr.getSnapshot();
+        Counts total = snapshot.getTotal();
+        report.setTotalPdpCount(total.getTotalPdpCount());
+        report.setTotalPdpGroupCount(total.getTotalPdpGroupCount());
+        report.setTotalPolicyDownloadCount(total.getTotalPolicyDownloadCount());
+        report.setPolicyDownloadSuccessCount(total.getPolicyDownloadSuccessCount());
+        report.setPolicyDownloadFailureCount(total.getPolicyDownloadFailureCount());
+        report.setTotalPolicyDeployCount(total.getTotalPolicyDeployCount());
+        report.setPolicyDeploySuccessCount(total.getPolicyDeploySuccessCount());
+        report.setPolicyDeployFailureCount(total.getPolicyDeployFailureCount());
+        report.setGroupStatistics(snapshot.getGroups());
+        report.setPdpTypeStatistics(snapshot.getPdpTypes());
+
+        PolicyModelsProviderFactoryWrapper daoFactory =
+                        Registry.get(PapConstants.REG_PAP_DAO_FACTORY, PolicyModelsProviderFactoryWrapper.class);
+        report.setDaoPoolActiveCount(daoFactory.getActiveCount());
+        report.setDaoPoolIdleCount(daoFactory.getIdleCount());
+        report.setDaoPoolTotalWaitMs(daoFactory.getTotalWaitMs());
+        report.setDaoPoolMaxWaitMs(daoFactory.getMaxWaitMs());
+
+        PdpMessageCompressor compressor =
+                        Registry.get(PapConstants.REG_PDP_MESSAGE_COMPRESSOR, PdpMessageCompressor.class);
+        report.setPdpMessagesCompressed(compressor.getCompressedCount());
+        report.setPdpCompressionRatio(compressor.getCompressionRatio());
+        report.setPdpCompressionCpuMs(compressor.getCompressCpuMs());
+        report.setPdpMessagesDecompressed(compressor.getDecompressedCount());
+        report.setPdpDecompressionCpuMs(compressor.getDecompressCpuMs());
+
+        PapMetrics metrics = Registry.get(PapConstants.REG_PAP_METRICS, PapMetrics.class);
+        report.setLatencies(metrics.getLatencies());
+        report.setCounts(metrics.getCounts());
 
         return report;
     }
@@ -20,9 +20,12 @@
 
 package org.onap.policy.pap.main.rest;
 
+import java.util.Map;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import org.onap.policy.pap.main.metrics.PapMetrics.LatencySummary;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Counts;
 
 /**
  * Class to represent statistics report of pap component.
@@ -59,4 +62,43 @@ public class StatisticsReport {
     @Getter
     @Setter
     private long policyDownloadFailureCount;
+    @Getter
+    @Setter
+    private Map<String, Counts> groupStatistics;
+    @Getter
+    @Setter
+    private Map<String, Counts> pdpTypeStatistics;
+    @Getter
+    @Setter
+    private int daoPoolActiveCount;
+    @Getter
+    @Setter
+    private int daoPoolIdleCount;
+    @Getter
+    @Setter
+    private long daoPoolTotalWaitMs;
+    @Getter
+    @Setter
+    private long daoPoolMaxWaitMs;
+    @Getter
+    @Setter
+    private long pdpMessagesCompressed;
+    @Getter
+    @Setter
+    private double pdpCompressionRatio;
+    @Getter
+    @Setter
+    private long pdpCompressionCpuMs;
+    @Getter
+    @Setter
+    private long pdpMessagesDecompressed;
+    @Getter
+    @Setter
+    private long pdpDecompressionCpuMs;
+    @Getter
+    @Setter
+    private Map<String, LatencySummary> latencies;
+    @Getter
+    @Setter
+    private Map<String, Long> counts;
 }
@@ -0,0 +1,94 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import javax.ws.rs.core.StreamingOutput;
+import org.onap.policy.common.utils.coder.Coder;
+import org.onap.policy.common.utils.coder.CoderException;
+import org.onap.policy.common.utils.coder.StandardCoder;
+
+/**
+ * Response entity that writes a JSON object, containing a single list field, to the
+ * servlet output one element at a time, as the elements are produced by an iterator.
+ * Only one element is held in memory at a time, regardless of the size of the list.
+ *
+ * @param <T> type of element contained within the list
+ */
+public class StreamingJsonList<T> implements StreamingOutput {
+    private static final Coder coder = new StandardCoder();
+
+    /**
+     * Name of the list field.
+     */
+    private final String fieldName;
+
+    /**
+     * Produces the list elements. Evaluated lazily, while the response is written.
+     */
+    private final Iterator<T> iterator;
+
+
+    /**
+     * Constructs the object.
+     *
+     * @param fieldName name of the list field
+     * @param iterator produces the list elements
+     */
+    public StreamingJsonList(String fieldName, Iterator<T> iterator) {
+        this.fieldName = fieldName;
+        this.iterator = iterator;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+        writer.write("{\"");
+        writer.write(fieldName);
+        writer.write("\":[");
+
+        boolean first = true;
+        while (iterator.hasNext()) {
+            if (!first) {
+                writer.write(',');
+            }
+
+            first = false;
+
+            try {
+                writer.write(coder.encode(iterator.next()));
+
+            } catch (CoderException e) {
+                throw new IOException("cannot encode " + fieldName, e);
+            }
+        }
+
+        writer.write("]}");
+        writer.flush();
+    }
+}
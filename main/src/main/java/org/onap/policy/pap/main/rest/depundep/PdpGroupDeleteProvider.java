@@ -20,6 +20,7 @@
 
 package org.onap.policy.pap.main.rest.depundep;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
@@ -52,10 +53,11 @@ public class PdpGroupDeleteProvider extends ProviderBase {
      * Deletes a PDP group.
      *
      * @param groupName name of the PDP group to be deleted
+     * @return the ID with which to track the deployment's completion
      * @throws PfModelException if an error occurred
      */
-    public void deleteGroup(String groupName) throws PfModelException {
-        process(groupName, this::deleteGroup);
+    public String deleteGroup(String groupName) throws PfModelException {
+        return process(groupName, (data, name) -> Collections.singleton(name), this::deleteGroup);
     }
 
     /**
@@ -76,7 +78,7 @@ public class PdpGroupDeleteProvider extends ProviderBase {
                 throw new PfModelException(Status.BAD_REQUEST, "group is still " + PdpState.ACTIVE);
             }
 
-            data.deleteGroupFromDb(group);
+            data.deleteGroup(group);
 
         } catch (PfModelException | RuntimeException e) {
             // no need to log the error object here, as it will be logged by the invoker
@@ -89,10 +91,12 @@ public class PdpGroupDeleteProvider extends ProviderBase {
      * Undeploys a policy.
      *
      * @param policyIdent identifier of the policy to be undeployed
+     * @return the ID with which to track the deployment's completion
      * @throws PfModelException if an error occurred
      */
-    public void undeploy(ToscaPolicyIdentifierOptVersion policyIdent) throws PfModelException {
-        process(policyIdent, this::undeployPolicy);
+    public String undeploy(ToscaPolicyIdentifierOptVersion policyIdent) throws PfModelException {
+        return process(policyIdent, (data, ident) -> getPolicyGroupNames(data, Collections.singleton(ident)),
+                        this::undeployPolicy);
     }
 
     /**
@@ -74,7 +74,9 @@ public class PdpGroupDeployControllerV1 extends PapRestControllerV1 {
             @ResponseHeader(name = VERSION_LATEST_NAME, description = VERSION_LATEST_DESCRIPTION,
                             response = String.class),
             @ResponseHeader(name = REQUEST_ID_NAME, description = REQUEST_ID_HDR_DESCRIPTION,
-                            response = UUID.class)},
+                            response = UUID.class),
+            @ResponseHeader(name = TRACKING_ID_NAME, description = TRACKING_ID_HDR_DESCRIPTION,
+                            response = String.class)},
         extensions = {@Extension(name = EXTENSION_NAME,
             properties = {@ExtensionProperty(name = API_VERSION_NAME, value = API_VERSION),
                 @ExtensionProperty(name = LAST_MOD_NAME, value = LAST_MOD_RELEASE)})})
@@ -112,7 +114,9 @@ public class PdpGroupDeployControllerV1 extends PapRestControllerV1 {
             @ResponseHeader(name = VERSION_LATEST_NAME, description = VERSION_LATEST_DESCRIPTION,
                             response = String.class),
             @ResponseHeader(name = REQUEST_ID_NAME, description = REQUEST_ID_HDR_DESCRIPTION,
-                            response = UUID.class)},
+                            response = UUID.class),
+            @ResponseHeader(name = TRACKING_ID_NAME, description = TRACKING_ID_HDR_DESCRIPTION,
+                            response = String.class)},
         extensions = {@Extension(name = EXTENSION_NAME,
             properties = {@ExtensionProperty(name = API_VERSION_NAME, value = API_VERSION),
                 @ExtensionProperty(name = LAST_MOD_NAME, value = LAST_MOD_RELEASE)})})
@@ -133,14 +137,15 @@ public class PdpGroupDeployControllerV1 extends PapRestControllerV1 {
      *
      * @param requestId request ID
      * @param errmsg error message to log if the operation throws an exception
-     * @param runnable operation to invoke
-     * @return a {@link PdpGroupDeployResponse} response entity
+     * @param operation operation to invoke, returning the ID with which to track the
+     *        deployment's completion
+     * @return a {@link PdpGroupDeployResponse} response entity, with the tracking ID in a header
      */
-    private Response doOperation(UUID requestId, String errmsg, RunnableWithPfEx runnable) {
+    private Response doOperation(UUID requestId, String errmsg, SupplierWithPfEx<String> operation) {
         try {
-            runnable.run();
+            String trackingId = operation.get();
             return addLoggingHeaders(addVersionControlHeaders(Response.status(Status.OK)), requestId)
-                            .entity(new PdpGroupDeployResponse()).build();
+                            .header(TRACKING_ID_NAME, trackingId).entity(new PdpGroupDeployResponse()).build();
 
         } catch (PfModelException | PfModelRuntimeException e) {
             logger.warn(errmsg, e);
@@ -25,11 +25,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import javax.ws.rs.core.Response.Status;
 import org.onap.policy.common.parameters.BeanValidationResult;
 import org.onap.policy.common.parameters.ObjectValidationResult;
@@ -50,6 +52,8 @@ import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifierOptVersion;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyTypeIdentifier;
+import org.onap.policy.pap.main.rest.PapStatisticsManager;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,21 +71,29 @@ public class PdpGroupDeployProvider extends ProviderBase {
 
     private static final String POLICY_RESULT_NAME = "policy";
 
+    /**
+     * Used to count the policies that are deployed.
+     */
+    private final PapStatisticsManager stats;
+
 
     /**
      * Constructs the object.
      */
     public PdpGroupDeployProvider() {
         super();
+
+        this.stats = PapStatisticsManager.lookup();
     }
 
     /**
      * Creates or updates PDP groups.
      *
      * @param groups PDP group configurations to be created or updated
+     * @return the ID with which to track the deployment's completion
      * @throws PfModelException if an error occurred
      */
-    public void createOrUpdateGroups(PdpGroups groups) throws PfModelException {
+    public String createOrUpdateGroups(PdpGroups groups) throws PfModelException {
         ValidationResult result = groups.validatePapRest();
 
         if (!result.isValid()) {
@@ -90,7 +102,9 @@ public class PdpGroupDeployProvider extends ProviderBase {
             throw new PfModelException(Status.BAD_REQUEST, msg);
         }
 
-        process(groups, this::createOrUpdate);
+        return process(groups,
+                        (data, req) -> req.getGroups().stream().map(PdpGroup::getName).collect(Collectors.toSet()),
+                        this::createOrUpdate);
     }
 
     /**
@@ -101,6 +115,8 @@ public class PdpGroupDeployProvider extends ProviderBase {
      * @throws PfModelException if an error occurred
      */
     private void createOrUpdate(SessionData data, PdpGroups groups) throws PfModelException {
+        prefetchPolicies(data, groups);
+
         BeanValidationResult result = new BeanValidationResult("groups", groups);
 
         for (PdpGroup group : groups.getGroups()) {
@@ -119,6 +135,42 @@ public class PdpGroupDeployProvider extends ProviderBase {
         }
     }
 
+    /**
+     * Loads all of the policies referenced by a request into the session's cache, so
+     * that they can be fetched from the DB with one query per policy name, rather than
+     * one query per reference, as each subgroup is validated. Policies that already appear in the DB's
+     * version of a subgroup are skipped, as validation does not look those up.
+     *
+     * @param data session data
+     * @param groups PDP group configurations
+     * @throws PfModelException if an error occurred
+     */
+    private void prefetchPolicies(SessionData data, PdpGroups groups) throws PfModelException {
+        Set<ToscaPolicyIdentifierOptVersion> idents = new LinkedHashSet<>();
+
+        for (PdpGroup group : groups.getGroups()) {
+            PdpGroup dbgroup = data.getGroup(group.getName());
+
+            // names of the policies in each DB subgroup, indexed by PDP type
+            Map<String, Set<String>> type2names = new HashMap<>();
+            if (dbgroup != null) {
+                for (PdpSubGroup dbsub : dbgroup.getPdpSubgroups()) {
+                    type2names.put(dbsub.getPdpType(), dbsub.getPolicies().stream().map(ToscaPolicyIdentifier::getName)
+                                    .collect(Collectors.toSet()));
+                }
+            }
+
+            for (PdpSubGroup subgrp : group.getPdpSubgroups()) {
+                Set<String> dbnames = type2names.getOrDefault(subgrp.getPdpType(), Collections.emptySet());
+
+                subgrp.getPolicies().stream().filter(ident -> !dbnames.contains(ident.getName()))
+                                .map(ToscaPolicyIdentifierOptVersion::new).forEach(idents::add);
+            }
+        }
+
+        data.getPolicies(idents);
+    }
+
     /**
      * Adds a new group.
      *
@@ -523,15 +575,29 @@ public class PdpGroupDeployProvider extends ProviderBase {
      * Deploys or updates PDP policies using the simple API.
      *
      * @param policies PDP policies
+     * @return the ID with which to track the deployment's completion
      * @throws PfModelException if an error occurred
      */
-    public void deployPolicies(PdpDeployPolicies policies) throws PfModelException {
-        process(policies, this::deploySimplePolicies);
+    public String deployPolicies(PdpDeployPolicies policies) throws PfModelException {
+        int npolicies = (policies.getPolicies() == null ? 0 : policies.getPolicies().size());
+        stats.update(Stat.TOTAL_POLICY_DEPLOY, null, null, npolicies);
+
+        try {
+            String trackingId = process(policies, (data, req) -> getPolicyGroupNames(data, req.getPolicies()),
+                            this::deploySimplePolicies);
+            stats.update(Stat.POLICY_DEPLOY_SUCCESS, null, null, npolicies);
+            return trackingId;
+
+        } catch (PfModelException | RuntimeException e) {
+            stats.update(Stat.POLICY_DEPLOY_FAILURE, null, null, npolicies);
+            throw e;
+        }
     }
 
     /**
      * Deploys or updates PDP policies using the simple API. This is the method that does
-     * the actual work.
+     * the actual work. All of the policies are applied in a single pass, thus each
+     * affected PDP receives a single UPDATE, regardless of the number of policies.
      *
      * @param data session data
      * @param extPolicies external PDP policies
@@ -540,16 +606,13 @@ public class PdpGroupDeployProvider extends ProviderBase {
      */
     private void deploySimplePolicies(SessionData data, PdpDeployPolicies policies) throws PfModelException {
 
-        for (ToscaPolicyIdentifierOptVersion desiredPolicy : policies.getPolicies()) {
-
-            try {
-                processPolicy(data, desiredPolicy);
+        try {
+            processPolicies(data, policies.getPolicies());
 
-            } catch (PfModelException | RuntimeException e) {
-                // no need to log the error here, as it will be logged by the invoker
-                logger.warn("failed to deploy policy: {}", desiredPolicy);
-                throw e;
-            }
+        } catch (PfModelException | RuntimeException e) {
+            // no need to log the error here, as it will be logged by the invoker
+            logger.warn("failed to deploy policies: {}", policies.getPolicies());
+            throw e;
         }
     }
 
@@ -20,18 +20,26 @@
 
 package org.onap.policy.pap.main.rest.depundep;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import javax.ws.rs.core.Response.Status;
-import org.apache.commons.lang3.tuple.Pair;
 import org.onap.policy.common.utils.services.Registry;
 import org.onap.policy.models.base.PfModelException;
 import org.onap.policy.models.base.PfModelRuntimeException;
 import org.onap.policy.models.pdp.concepts.Pdp;
 import org.onap.policy.models.pdp.concepts.PdpGroup;
-import org.onap.policy.models.pdp.concepts.PdpStateChange;
+import org.onap.policy.models.pdp.concepts.PdpMessage;
 import org.onap.policy.models.pdp.concepts.PdpSubGroup;
 import org.onap.policy.models.pdp.concepts.PdpUpdate;
 import org.onap.policy.models.provider.PolicyModelsProvider;
@@ -40,7 +48,13 @@ import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifierOp
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyTypeIdentifier;
 import org.onap.policy.pap.main.PapConstants;
 import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
-import org.onap.policy.pap.main.comm.PdpModifyRequestMap;
+import org.onap.policy.pap.main.comm.DeploymentTracker;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
+import org.onap.policy.pap.main.comm.PdpGroupLockManager;
+import org.onap.policy.pap.main.comm.PdpGroupLockManager.GroupLocks;
+import org.onap.policy.pap.main.comm.RolloutScheduler;
+import org.onap.policy.pap.main.comm.SharedPolicyList;
+import org.onap.policy.pap.main.comm.ToscaPolicyCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,14 +63,24 @@ import org.slf4j.LoggerFactory;
  * be in the {@link Registry}:
  * <ul>
  * <li>PDP Modification Lock</li>
- * <li>PDP Modify Request Map</li>
  * <li>PAP DAO Factory</li>
+ * <li>PDP Group Cache</li>
+ * <li>Policy Cache</li>
+ * <li>PDP Group Lock Manager</li>
+ * <li>Deployment Tracker</li>
+ * <li>Rollout Scheduler</li>
  * </ul>
  */
 public abstract class ProviderBase {
     private static final String DEPLOY_FAILED = "failed to deploy/undeploy policies";
     public static final String DB_ERROR_MSG = "DB error";
 
+    /**
+     * Maximum number of attempts to process a request without holding the PDP
+     * modification lock throughout.
+     */
+    private static final int MAX_ATTEMPTS = 5;
+
     private static final Logger logger = LoggerFactory.getLogger(ProviderBase.class);
 
     /**
@@ -65,14 +89,34 @@ public abstract class ProviderBase {
     private final Object updateLock;
 
     /**
-     * Used to send UPDATE and STATE-CHANGE requests to the PDPs.
+     * Factory for PAP DAO.
      */
-    private final PdpModifyRequestMap requestMap;
+    private final PolicyModelsProviderFactoryWrapper daoFactory;
 
     /**
-     * Factory for PAP DAO.
+     * In-memory copy of the PDP groups, which must be kept in step with the DB.
      */
-    private final PolicyModelsProviderFactoryWrapper daoFactory;
+    private final PdpGroupCache groupCache;
+
+    /**
+     * Policies, shared across all requests.
+     */
+    private final ToscaPolicyCache policyCache;
+
+    /**
+     * Used to lock individual PDP groups.
+     */
+    private final PdpGroupLockManager lockManager;
+
+    /**
+     * Tracks the outcome of the requests sent on behalf of each deployment.
+     */
+    private final DeploymentTracker deploymentTracker;
+
+    /**
+     * Used to send UPDATE and STATE-CHANGE requests to the PDPs, possibly in waves.
+     */
+    private final RolloutScheduler rolloutScheduler;
 
 
     /**
@@ -80,48 +124,240 @@ public abstract class ProviderBase {
      */
     public ProviderBase() {
         this.updateLock = Registry.get(PapConstants.REG_PDP_MODIFY_LOCK, Object.class);
-        this.requestMap = Registry.get(PapConstants.REG_PDP_MODIFY_MAP, PdpModifyRequestMap.class);
         this.daoFactory = Registry.get(PapConstants.REG_PAP_DAO_FACTORY, PolicyModelsProviderFactoryWrapper.class);
+        this.groupCache = Registry.get(PapConstants.REG_PDP_GROUP_CACHE, PdpGroupCache.class);
+        this.policyCache = Registry.get(PapConstants.REG_POLICY_CACHE, ToscaPolicyCache.class);
+        this.lockManager = Registry.get(PapConstants.REG_PDP_GROUP_LOCKS, PdpGroupLockManager.class);
+        this.deploymentTracker = Registry.get(PapConstants.REG_DEPLOYMENT_TRACKER, DeploymentTracker.class);
+        this.rolloutScheduler = Registry.get(PapConstants.REG_ROLLOUT_SCHEDULER, RolloutScheduler.class);
     }
 
     /**
-     * Processes a policy request.
+     * Processes a policy request, locking only the groups that the processor modifies.
+     * Equivalent to {@link #process(Object, GroupResolver, BiConsumerWithEx)} with a
+     * resolver that returns no groups.
      *
      * @param request PDP policy request
      * @param processor function that processes the request
+     * @return the ID with which to track the deployment's completion
      * @throws PfModelException if an error occurred
      */
-    protected <T> void process(T request, BiConsumerWithEx<SessionData, T> processor) throws PfModelException {
+    protected <T> String process(T request, BiConsumerWithEx<SessionData, T> processor) throws PfModelException {
+        return process(request, (data, req) -> Collections.emptySet(), processor);
+    }
 
-        synchronized (updateLock) {
-            // list of requests to be published to the PDPs
-            Collection<Pair<PdpUpdate, PdpStateChange>> requests = Collections.emptyList();
+    /**
+     * Processes a policy request. The groups identified by the resolver are locked before
+     * the request is processed, so that requests touching disjoint groups may be
+     * processed in parallel. The DB and cache updates are still made while holding the
+     * PDP modification lock, at which point the request is retried if any group it
+     * modified was changed by someone else in the meantime. If that happens too often,
+     * the request is processed while holding the PDP modification lock throughout.
+     *
+     * <p>The DB and cache updates cannot be made under the group locks alone, because
+     * the PDP registration, termination, and health updates modify the groups' PDP lists
+     * while holding only the PDP modification lock, whereas a group is written to the DB
+     * in its entirety, PDP list included. Those PDP lists are therefore refreshed and
+     * written to the DB and cache without releasing the modification lock. The PDP
+     * requests, on the other hand, are handed off after the modification lock has been
+     * released, but while the group locks are still held, which is sufficient to keep
+     * requests for the same PDP in order.
+     *
+     * @param request PDP policy request
+     * @param resolver function that identifies the groups that the request is likely to
+     *        modify
+     * @param processor function that processes the request
+     * @return the ID with which to track the deployment's completion
+     * @throws PfModelException if an error occurred
+     */
+    protected <T> String process(T request, GroupResolver<T> resolver, BiConsumerWithEx<SessionData, T> processor)
+                    throws PfModelException {
+
+        AtomicReference<GroupLocks> locks = new AtomicReference<>(lockManager.lock(Collections.emptySet()));
+
+        try {
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; ++attempt) {
+                String trackingId = processOnce(request, resolver, processor, locks, false);
+                if (trackingId != null) {
+                    return trackingId;
+                }
 
-            try (PolicyModelsProvider dao = daoFactory.create()) {
+                logger.info("groups {} changed while processing request - retrying", locks.get().getGroupNames());
+            }
+
+            // too many conflicts - process it while holding the modification lock throughout
+            synchronized (updateLock) {
+                return processOnce(request, resolver, processor, locks, true);
+            }
 
-                SessionData data = new SessionData(dao);
-                processor.accept(data, request);
+        } finally {
+            locks.get().close();
+        }
+    }
+
+    /**
+     * Makes one attempt at processing a policy request.
+     *
+     * @param request PDP policy request
+     * @param resolver function that identifies the groups to be locked
+     * @param processor function that processes the request
+     * @param locks group locks currently held; replaced if more groups must be locked
+     * @param exclusive {@code true} if the PDP modification lock is already held, in
+     *        which case no group locks are acquired and no conflicts can occur
+     * @return the ID with which to track the deployment's completion, or {@code null} if
+     *         a conflict occurred and the request should be retried
+     * @throws PfModelException if an error occurred
+     */
+    private <T> String processOnce(T request, GroupResolver<T> resolver, BiConsumerWithEx<SessionData, T> processor,
+                    AtomicReference<GroupLocks> locks, boolean exclusive) throws PfModelException {
+
+        try (PolicyModelsProvider dao = daoFactory.create()) {
+
+            // must be captured before anything is read from the DB
+            Map<String, Long> stamps = groupCache.getStamps();
+
+            SessionData data = new SessionData(dao, policyCache);
+
+            if (!exclusive) {
+                lockGroups(locks, resolveGroups(data, request, resolver));
+            }
+
+            processor.accept(data, request);
+
+            Set<String> modified = data.getModifiedGroupNames();
+
+            if (!exclusive) {
+                lockGroups(locks, modified);
+            }
+
+            synchronized (updateLock) {
+                if (isStale(stamps, modified)) {
+                    return null;
+                }
+
+                // PDP health changes don't make a group stale, so pick up the latest
+                data.refreshPdps(groupCache);
 
                 // make all of the DB updates
                 data.updateDb();
 
-                requests = data.getPdpRequests();
+                // apply the same updates to the cache
+                data.updateCache(groupCache);
+            }
+
+            // must be tracked before the requests are published, lest they complete first
+            String trackingId = deploymentTracker.add(getPdpMessages(data));
+
+            // publish the requests, or the first wave thereof
+            rolloutScheduler.release(trackingId, data.getPdpRequests());
+
+            return trackingId;
+
+        } catch (PfModelException | PfModelRuntimeException e) {
+            logger.warn(DEPLOY_FAILED, e);
+            throw e;
+
+        } catch (RuntimeException e) {
+            logger.warn(DEPLOY_FAILED, e);
+            throw new PfModelException(Status.INTERNAL_SERVER_ERROR, "request failed", e);
+        }
+    }
+
+    /**
+     * Gets the messages that are to be published to the PDPs.
+     *
+     * @param data session data
+     * @return the messages to be published
+     */
+    private List<PdpMessage> getPdpMessages(SessionData data) {
+        List<PdpMessage> messages = new ArrayList<>();
 
-            } catch (PfModelException | PfModelRuntimeException e) {
-                logger.warn(DEPLOY_FAILED, e);
-                throw e;
+        data.getPdpRequests().forEach(pair -> {
+            if (pair.getLeft() != null) {
+                messages.add(pair.getLeft());
+            }
 
-            } catch (RuntimeException e) {
-                logger.warn(DEPLOY_FAILED, e);
-                throw new PfModelException(Status.INTERNAL_SERVER_ERROR, "request failed", e);
+            if (pair.getRight() != null) {
+                messages.add(pair.getRight());
             }
+        });
 
+        return messages;
+    }
+
+    /**
+     * Identifies the groups that a request is likely to modify. This is only used to lock
+     * the groups in advance, thus any error is ignored here and left to be reported when
+     * the request is actually processed.
+     *
+     * @param data session data
+     * @param request PDP policy request
+     * @param resolver function that identifies the groups
+     * @return the names of the groups that the request is likely to modify
+     */
+    private <T> Collection<String> resolveGroups(SessionData data, T request, GroupResolver<T> resolver) {
+        try {
+            return resolver.apply(data, request);
 
-            // publish the requests
-            requests.forEach(pair -> requestMap.addRequest(pair.getLeft(), pair.getRight()));
+        } catch (PfModelException | RuntimeException e) {
+            logger.debug("cannot identify groups for request", e);
+            return Collections.emptySet();
         }
     }
 
+    /**
+     * Ensures that the given groups are locked. If any of them are not already locked,
+     * then all of the locks are released and then re-acquired, in order, so as to avoid
+     * deadlock.
+     *
+     * @param locks group locks currently held; replaced if more groups must be locked
+     * @param groupNames names of the groups that must be locked
+     */
+    private void lockGroups(AtomicReference<GroupLocks> locks, Collection<String> groupNames) {
+        GroupLocks current = locks.get();
+        if (current.containsAll(groupNames)) {
+            return;
+        }
+
+        Set<String> names = new TreeSet<>(current.getGroupNames());
+        names.addAll(groupNames);
+
+        current.close();
+        locks.set(lockManager.lock(names));
+    }
+
+    /**
+     * Determines if any of the given groups has been changed since the stamps were
+     * captured. Must be invoked while holding the PDP modification lock.
+     *
+     * @param stamps group modification stamps captured before the request was processed
+     * @param groupNames names of the groups of interest
+     * @return {@code true} if any of the groups has changed, {@code false} otherwise
+     */
+    private boolean isStale(Map<String, Long> stamps, Set<String> groupNames) {
+        return groupNames.stream().anyMatch(name -> groupCache.getStamp(name) != stamps.getOrDefault(name, 0L));
+    }
+
+    /**
+     * Gets the names of the active groups supporting the policies' types.
+     *
+     * @param data session data
+     * @param policies identifiers of the policies of interest
+     * @return the names of the groups supporting the given policies
+     * @throws PfModelException if an error occurred
+     */
+    protected Collection<String> getPolicyGroupNames(SessionData data,
+                    Collection<ToscaPolicyIdentifierOptVersion> policies) throws PfModelException {
+
+        Set<String> names = new TreeSet<>();
+
+        for (ToscaPolicy policy : data.getPolicies(policies).values()) {
+            getGroups(data, policy.getTypeIdentifier()).forEach(group -> names.add(group.getName()));
+        }
+
+        return names;
+    }
+
     /**
      * Process a single policy from the request.
      *
@@ -132,18 +368,59 @@ public abstract class ProviderBase {
     protected void processPolicy(SessionData data, ToscaPolicyIdentifierOptVersion desiredPolicy)
                     throws PfModelException {
 
-        ToscaPolicy policy = getPolicy(data, desiredPolicy);
+        processPolicies(data, Collections.singletonList(desiredPolicy));
+    }
+
+    /**
+     * Process a set of policies from the request. The policies are fetched from the DB
+     * together, and all of them are applied to the groups before any PDP requests are
+     * generated, thus each affected PDP receives a single request, regardless of the
+     * number of policies.
+     *
+     * @param data session data
+     * @param desiredPolicies request policies
+     * @throws PfModelException if an error occurred
+     */
+    protected void processPolicies(SessionData data, Collection<ToscaPolicyIdentifierOptVersion> desiredPolicies)
+                    throws PfModelException {
+
+        Map<ToscaPolicyIdentifierOptVersion, ToscaPolicy> policies = getPolicies(data, desiredPolicies);
+
+        // subgroups that were changed, indexed by group name and then by PDP type
+        Map<String, Map<String, PdpSubGroup>> changed = new LinkedHashMap<>();
+        Map<String, PdpGroup> name2group = new HashMap<>();
+
+        for (ToscaPolicyIdentifierOptVersion desiredPolicy : desiredPolicies) {
+            ToscaPolicy policy = policies.get(desiredPolicy);
 
-        Collection<PdpGroup> groups = getGroups(data, policy.getTypeIdentifier());
-        if (groups.isEmpty()) {
-            throw new PfModelException(Status.BAD_REQUEST, "policy not supported by any PDP group: "
-                            + desiredPolicy.getName() + " " + desiredPolicy.getVersion());
+            Collection<PdpGroup> groups = getGroups(data, policy.getTypeIdentifier());
+            if (groups.isEmpty()) {
+                throw new PfModelException(Status.BAD_REQUEST, "policy not supported by any PDP group: "
+                                + desiredPolicy.getName() + " " + desiredPolicy.getVersion());
+            }
+
+            BiFunction<PdpGroup, PdpSubGroup, Boolean> updater = makeUpdater(policy, desiredPolicy);
+
+            for (PdpGroup group : groups) {
+                for (PdpSubGroup subgroup : group.getPdpSubgroups()) {
+                    if (updater.apply(group, subgroup)) {
+                        name2group.put(group.getName(), group);
+                        changed.computeIfAbsent(group.getName(), key -> new LinkedHashMap<>())
+                                        .put(subgroup.getPdpType(), subgroup);
+                    }
+                }
+            }
         }
 
-        BiFunction<PdpGroup, PdpSubGroup, Boolean> updater = makeUpdater(policy, desiredPolicy);
+        // now that the subgroups have their final policy lists, generate the PDP requests
+        for (Entry<String, Map<String, PdpSubGroup>> ent : changed.entrySet()) {
+            PdpGroup group = name2group.get(ent.getKey());
+
+            for (PdpSubGroup subgroup : ent.getValue().values()) {
+                makeUpdates(data, group, subgroup);
+            }
 
-        for (PdpGroup group : groups) {
-            upgradeGroup(data, group, updater);
+            data.update(group);
         }
     }
 
@@ -175,58 +452,37 @@ public abstract class ProviderBase {
     }
 
     /**
-     * Updates a group, assigning a new version number, if it actually changes.
-     *
-     * @param data session data
-     * @param group the original group, to be updated
-     * @param updater function to update a group
-     * @throws PfModelRuntimeException if an error occurred
-     */
-    private void upgradeGroup(SessionData data, PdpGroup group, BiFunction<PdpGroup, PdpSubGroup, Boolean> updater) {
-
-        boolean updated = false;
-
-        for (PdpSubGroup subgroup : group.getPdpSubgroups()) {
-
-            if (!updater.apply(group, subgroup)) {
-                continue;
-            }
-
-            updated = true;
-
-            makeUpdates(data, group, subgroup);
-        }
-
-
-        if (updated) {
-            // something changed
-            data.update(group);
-        }
-    }
-
-    /**
-     * Makes UPDATE messages for each PDP in a subgroup.
+     * Makes UPDATE messages for each PDP in a subgroup. The messages all share the same
+     * list of policies, so that it need only be encoded once.
      *
      * @param data session data
      * @param group group containing the subgroup
      * @param subgroup subgroup whose PDPs should receive messages
      */
     protected void makeUpdates(SessionData data, PdpGroup group, PdpSubGroup subgroup) {
+        if (subgroup.getPdpInstances().isEmpty()) {
+            return;
+        }
+
+        SharedPolicyList policies = new SharedPolicyList(subgroup.getPolicies().stream()
+                        .map(ToscaPolicyIdentifierOptVersion::new).map(ident -> getPolicy(data, ident))
+                        .collect(Collectors.toList()));
+
         for (Pdp pdp : subgroup.getPdpInstances()) {
-            data.addUpdate(makeUpdate(data, group, subgroup, pdp));
+            data.addUpdate(makeUpdate(group, subgroup, pdp, policies));
         }
     }
 
     /**
      * Makes an UPDATE message for a particular PDP.
      *
-     * @param data session data
      * @param group group to which the PDP should belong
      * @param subgroup subgroup to which the PDP should belong
      * @param pdp the PDP of interest
+     * @param policies policies to be deployed to the PDP
      * @return a new UPDATE message
      */
-    private PdpUpdate makeUpdate(SessionData data, PdpGroup group, PdpSubGroup subgroup, Pdp pdp) {
+    private PdpUpdate makeUpdate(PdpGroup group, PdpSubGroup subgroup, Pdp pdp, SharedPolicyList policies) {
 
         PdpUpdate update = new PdpUpdate();
 
@@ -234,8 +490,7 @@ public abstract class ProviderBase {
         update.setDescription(group.getDescription());
         update.setPdpGroup(group.getName());
         update.setPdpSubgroup(subgroup.getPdpType());
-        update.setPolicies(subgroup.getPolicies().stream().map(ToscaPolicyIdentifierOptVersion::new)
-                        .map(ident -> getPolicy(data, ident)).collect(Collectors.toList()));
+        update.setPolicies(policies);
 
         return update;
     }
@@ -264,6 +519,34 @@ public abstract class ProviderBase {
         }
     }
 
+    /**
+     * Gets the specified policies.
+     *
+     * @param data session data
+     * @param idents policy identifiers, with optional versions
+     * @return a map of each identifier to its policy
+     * @throws PfModelRuntimeException if an error occurred or a policy was not found
+     */
+    private Map<ToscaPolicyIdentifierOptVersion, ToscaPolicy> getPolicies(SessionData data,
+                    Collection<ToscaPolicyIdentifierOptVersion> idents) {
+        try {
+            Map<ToscaPolicyIdentifierOptVersion, ToscaPolicy> policies = data.getPolicies(idents);
+
+            for (ToscaPolicyIdentifierOptVersion ident : idents) {
+                if (!policies.containsKey(ident)) {
+                    throw new PfModelRuntimeException(Status.NOT_FOUND,
+                                    "cannot find policy: " + ident.getName() + " " + ident.getVersion());
+                }
+            }
+
+            return policies;
+
+        } catch (PfModelException e) {
+            throw new PfModelRuntimeException(e.getErrorResponse().getResponseCode(),
+                            e.getErrorResponse().getErrorMessage(), e);
+        }
+    }
+
     @FunctionalInterface
     public static interface BiConsumerWithEx<F, S> {
         /**
@@ -275,4 +558,17 @@ public abstract class ProviderBase {
          */
         void accept(F firstArg, S secondArg) throws PfModelException;
     }
+
+    @FunctionalInterface
+    public static interface GroupResolver<T> {
+        /**
+         * Identifies the groups that a request is likely to modify.
+         *
+         * @param data session data
+         * @param request the request
+         * @return the names of the groups that the request is likely to modify
+         * @throws PfModelException if an error occurred
+         */
+        Collection<String> apply(SessionData data, T request) throws PfModelException;
+    }
 }
@@ -20,27 +20,39 @@
 
 package org.onap.policy.pap.main.rest.depundep;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.pdp.concepts.Pdp;
 import org.onap.policy.models.pdp.concepts.PdpGroup;
 import org.onap.policy.models.pdp.concepts.PdpGroupFilter;
 import org.onap.policy.models.pdp.concepts.PdpStateChange;
+import org.onap.policy.models.pdp.concepts.PdpSubGroup;
 import org.onap.policy.models.pdp.concepts.PdpUpdate;
 import org.onap.policy.models.pdp.enums.PdpState;
 import org.onap.policy.models.provider.PolicyModelsProvider;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyFilter;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyFilter.ToscaPolicyFilterBuilder;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifierOptVersion;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyType;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyTypeIdentifier;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
+import org.onap.policy.pap.main.comm.ToscaPolicyCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +73,11 @@ public class SessionData {
      */
     private final PolicyModelsProvider dao;
 
+    /**
+     * Policies, shared across all sessions.
+     */
+    private final ToscaPolicyCache sharedPolicies;
+
     /**
      * Maps a group name to its group data. This accumulates the set of groups to be
      * created and updated when the REST call completes.
@@ -88,14 +105,21 @@ public class SessionData {
      */
     private final Map<ToscaPolicyTypeIdentifier, ToscaPolicyType> typeCache = new HashMap<>();
 
+    /**
+     * Names of the groups to be deleted from the DB.
+     */
+    private final List<String> deletedGroups = new LinkedList<>();
+
 
     /**
      * Constructs the object.
      *
      * @param dao DAO provider
+     * @param sharedPolicies policies, shared across all sessions
      */
-    public SessionData(PolicyModelsProvider dao) {
+    public SessionData(PolicyModelsProvider dao, ToscaPolicyCache sharedPolicies) {
         this.dao = dao;
+        this.sharedPolicies = sharedPolicies;
     }
 
     /**
@@ -133,24 +157,116 @@ public class SessionData {
      */
     public ToscaPolicy getPolicy(ToscaPolicyIdentifierOptVersion desiredPolicy) throws PfModelException {
 
-        ToscaPolicy policy = policyCache.get(desiredPolicy);
-        if (policy == null) {
-            ToscaPolicyFilterBuilder filterBuilder = ToscaPolicyFilter.builder().name(desiredPolicy.getName());
-            setPolicyFilterVersion(filterBuilder, desiredPolicy.getVersion());
+        ToscaPolicy policy = getCachedPolicy(desiredPolicy);
 
-            List<ToscaPolicy> lst = dao.getFilteredPolicyList(filterBuilder.build());
+        if (policy == null) {
+            List<ToscaPolicy> lst = dao.getFilteredPolicyList(makePolicyFilter(desiredPolicy));
             if (lst.isEmpty()) {
                 return null;
             }
 
             policy = lst.get(0);
-            policyCache.put(desiredPolicy, policy);
+            cachePolicy(desiredPolicy, policy);
+        }
+
+        return policy;
+    }
+
+    /**
+     * Gets a set of policies. Policies that are not already cached are fetched from the
+     * DB with one query per distinct policy name, which returns every version of that
+     * policy, and then selected using the same version semantics as
+     * {@link #getPolicy(ToscaPolicyIdentifierOptVersion)}. Thus several versions of the
+     * same policy cost a single query, and nothing beyond the named policies is loaded.
+     *
+     * <p>One query per name is the floor: the DAO's policy filter matches a single name,
+     * or, if no name is given, loads every policy in the DB, which would only be cheaper
+     * for requests naming a large fraction of the DB's policies.
+     *
+     * @param desiredPolicies policies to get
+     * @return a map of each desired policy to the matching policy; policies that were not
+     *         found do not appear in the map
+     * @throws PfModelException if an error occurred
+     */
+    public Map<ToscaPolicyIdentifierOptVersion, ToscaPolicy> getPolicies(
+                    Collection<ToscaPolicyIdentifierOptVersion> desiredPolicies) throws PfModelException {
+
+        Map<ToscaPolicyIdentifierOptVersion, ToscaPolicy> result = new HashMap<>();
+
+        // uncached policies, grouped by name
+        Map<String, List<ToscaPolicyIdentifierOptVersion>> name2missing = new LinkedHashMap<>();
+
+        for (ToscaPolicyIdentifierOptVersion desiredPolicy : new LinkedHashSet<>(desiredPolicies)) {
+            ToscaPolicy policy = getCachedPolicy(desiredPolicy);
+            if (policy != null) {
+                result.put(desiredPolicy, policy);
+            } else {
+                name2missing.computeIfAbsent(desiredPolicy.getName(), key -> new ArrayList<>()).add(desiredPolicy);
+            }
+        }
+
+        for (Entry<String, List<ToscaPolicyIdentifierOptVersion>> ent : name2missing.entrySet()) {
+            ToscaPolicyFilter filter = ToscaPolicyFilter.builder().name(ent.getKey()).build();
+            List<ToscaPolicy> versions = dao.getFilteredPolicyList(filter);
+
+            for (ToscaPolicyIdentifierOptVersion desiredPolicy : ent.getValue()) {
+                List<ToscaPolicy> lst = makePolicyFilter(desiredPolicy).filter(versions);
+                if (!lst.isEmpty()) {
+                    ToscaPolicy policy = lst.get(0);
+                    cachePolicy(desiredPolicy, policy);
+                    result.put(desiredPolicy, policy);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets a policy from the session's cache or, if its version is fully qualified, from
+     * the shared cache.
+     *
+     * @param desiredPolicy policy identifier, with an optional version
+     * @return the cached policy, or {@code null} if it is not cached
+     */
+    private ToscaPolicy getCachedPolicy(ToscaPolicyIdentifierOptVersion desiredPolicy) {
+        ToscaPolicy policy = policyCache.get(desiredPolicy);
+        if (policy == null && isFullyQualified(desiredPolicy.getVersion())) {
+            policy = sharedPolicies.getIfPresent(
+                            new ToscaPolicyIdentifier(desiredPolicy.getName(), desiredPolicy.getVersion()));
+            if (policy != null) {
+                policyCache.put(desiredPolicy, policy);
+                policyCache.putIfAbsent(new ToscaPolicyIdentifierOptVersion(policy.getIdentifier()), policy);
+            }
         }
 
+        return policy;
+    }
+
+    /**
+     * Adds a policy, fetched from the DB, to the session's cache and to the shared cache.
+     *
+     * @param desiredPolicy policy identifier that was used to fetch the policy
+     * @param policy policy that was fetched
+     */
+    private void cachePolicy(ToscaPolicyIdentifierOptVersion desiredPolicy, ToscaPolicy policy) {
+        policyCache.put(desiredPolicy, policy);
+        sharedPolicies.put(policy);
+
         // desired version may have only been a prefix - cache with full identifier, too
         policyCache.putIfAbsent(new ToscaPolicyIdentifierOptVersion(policy.getIdentifier()), policy);
+    }
 
-        return policy;
+    /**
+     * Makes a filter to select a policy.
+     *
+     * @param desiredPolicy policy identifier, with an optional version
+     * @return a filter to select the policy
+     */
+    private ToscaPolicyFilter makePolicyFilter(ToscaPolicyIdentifierOptVersion desiredPolicy) {
+        ToscaPolicyFilterBuilder filterBuilder = ToscaPolicyFilter.builder().name(desiredPolicy.getName());
+        setPolicyFilterVersion(filterBuilder, desiredPolicy.getVersion());
+        return filterBuilder.build();
     }
 
     /**
@@ -175,6 +291,17 @@ public class SessionData {
         }
     }
 
+    /**
+     * Determines if a version is fully qualified.
+     *
+     * @param version version to inspect
+     * @return {@code true} if the version is fully qualified, {@code false} if it is
+     *         {@code null} or contains only a prefix
+     */
+    private static boolean isFullyQualified(String version) {
+        return (version != null && !isVersionPrefix(version));
+    }
+
     /**
      * Determines if a version contains only a prefix.
      *
@@ -389,17 +516,78 @@ public class SessionData {
             }
             dao.updatePdpGroups(updated.stream().map(GroupData::getGroup).collect(Collectors.toList()));
         }
+
+        // delete groups
+        for (String name : deletedGroups) {
+            logger.info("deleting DB group {}", name);
+            dao.deletePdpGroup(name);
+        }
     }
 
     /**
-     * Deletes a group from the DB, immediately (i.e., without caching the request to be
-     * executed later).
+     * Deletes a group. The group is not actually removed from the DB until
+     * {@link #updateDb()} is invoked.
      *
      * @param group the group to be deleted
-     * @throws PfModelException if an error occurred
      */
-    public void deleteGroupFromDb(PdpGroup group) throws PfModelException {
-        logger.info("deleting DB group {}", group.getName());
-        dao.deletePdpGroup(group.getName());
+    public void deleteGroup(PdpGroup group) {
+        logger.info("delete cached group {}", group.getName());
+        deletedGroups.add(group.getName());
+    }
+
+    /**
+     * Gets the names of the groups that have been created, updated, or deleted.
+     *
+     * @return the names of the groups that have been modified
+     */
+    public Set<String> getModifiedGroupNames() {
+        Set<String> names = groupCache.values().stream().filter(data -> !data.isUnchanged())
+                        .map(data -> data.getGroup().getName()).collect(Collectors.toCollection(TreeSet::new));
+        names.addAll(deletedGroups);
+
+        return names;
+    }
+
+    /**
+     * Replaces the PDPs within the updated groups with their counterparts from the group
+     * cache, so that health and state changes made since the groups were read from the
+     * DB are not overwritten when the groups are written back. Only PDPs that are still
+     * in the group are replaced; PDPs are neither added nor removed. This should be
+     * invoked, while holding the PDP modification lock, just before {@link #updateDb()}.
+     *
+     * @param cache the group cache
+     */
+    public void refreshPdps(PdpGroupCache cache) {
+        for (GroupData data : groupCache.values()) {
+            if (!data.isUpdated()) {
+                continue;
+            }
+
+            String groupName = data.getGroup().getName();
+
+            for (PdpSubGroup subgroup : data.getGroup().getPdpSubgroups()) {
+                List<Pdp> instances = new ArrayList<>(subgroup.getPdpInstances().size());
+
+                for (Pdp pdp : subgroup.getPdpInstances()) {
+                    Pdp current = cache.getPdp(groupName, subgroup.getPdpType(), pdp.getInstanceId());
+                    instances.add(current == null ? pdp : new Pdp(current));
+                }
+
+                subgroup.setPdpInstances(instances);
+            }
+        }
+    }
+
+    /**
+     * Applies the changes that were made to the DB to the group cache, too. This should
+     * only be invoked after {@link #updateDb()} completes successfully.
+     *
+     * @param cache the group cache to be updated
+     */
+    public void updateCache(PdpGroupCache cache) {
+        groupCache.values().stream().filter(data -> !data.isUnchanged()).map(GroupData::getGroup)
+                        .forEach(cache::putGroup);
+
+        deletedGroups.forEach(cache::removeGroup);
     }
 }
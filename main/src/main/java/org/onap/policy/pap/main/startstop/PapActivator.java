@@ -22,9 +22,14 @@
 package org.onap.policy.pap.main.startstop;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 import org.onap.policy.common.endpoints.event.comm.TopicEndpointManager;
+import org.onap.policy.common.endpoints.event.comm.TopicListener;
 import org.onap.policy.common.endpoints.event.comm.TopicSource;
 import org.onap.policy.common.endpoints.listeners.MessageTypeDispatcher;
 import org.onap.policy.common.endpoints.listeners.RequestIdDispatcher;
@@ -36,16 +41,29 @@ import org.onap.policy.models.pdp.enums.PdpMessageType;
 import org.onap.policy.pap.main.PapConstants;
 import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
 import org.onap.policy.pap.main.PolicyPapRuntimeException;
+import org.onap.policy.pap.main.comm.DecompressingTopicListener;
+import org.onap.policy.pap.main.comm.DeploymentTracker;
+import org.onap.policy.pap.main.comm.PartitionedExecutor;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
+import org.onap.policy.pap.main.comm.PdpGroupLockManager;
+import org.onap.policy.pap.main.comm.PdpHealthWriter;
 import org.onap.policy.pap.main.comm.PdpHeartbeatListener;
+import org.onap.policy.pap.main.comm.PdpMessageCoder;
+import org.onap.policy.pap.main.comm.PdpMessageCompressor;
 import org.onap.policy.pap.main.comm.PdpModifyRequestMap;
+import org.onap.policy.pap.main.comm.PdpStatusMessageHandler;
 import org.onap.policy.pap.main.comm.PdpTracker;
 import org.onap.policy.pap.main.comm.Publisher;
+import org.onap.policy.pap.main.comm.RolloutScheduler;
 import org.onap.policy.pap.main.comm.TimerManager;
+import org.onap.policy.pap.main.comm.ToscaPolicyCache;
+import org.onap.policy.pap.main.metrics.PapMetrics;
 import org.onap.policy.pap.main.parameters.PapParameterGroup;
 import org.onap.policy.pap.main.parameters.PdpModifyRequestMapParams;
 import org.onap.policy.pap.main.parameters.PdpParameters;
 import org.onap.policy.pap.main.rest.PapRestServer;
 import org.onap.policy.pap.main.rest.PapStatisticsManager;
+import org.onap.policy.pap.main.rest.PdpQuerySnapshots;
 
 /**
  * This class activates Policy Administration (PAP) as a complete service together with all its controllers, listeners &
@@ -62,6 +80,17 @@ public class PapActivator extends ServiceManagerContainer {
      */
     private static final int MAX_MISSED_HEARTBEATS = 3;
 
+    /**
+     * Number of times, per heart beat interval, that PAP checks for PDPs that have missed
+     * their heart beats.
+     */
+    private static final int LIVENESS_CHECKS_PER_HEARTBEAT = 10;
+
+    /**
+     * Number of threads used to execute the actions of expired timers.
+     */
+    private static final int TIMER_THREADS = 2;
+
     private final PapParameterGroup papParameterGroup;
 
     /**
@@ -77,9 +106,20 @@ public class PapActivator extends ServiceManagerContainer {
     private final RequestIdDispatcher<PdpStatus> reqIdDispatcher;
 
     /**
-     * Listener for anonymous {@link PdpStatus} messages either for registration or heartbeat.
+     * Compresses messages sent to the PDPs and decompresses messages received from them.
+     */
+    private final PdpMessageCompressor compressor;
+
+    /**
+     * Listens for messages on the topic, decompresses them, if necessary, and then passes
+     * them to {@link #msgDispatcher}.
+     */
+    private final TopicListener topicListener;
+
+    /**
+     * Executor used to process anonymous {@link PdpStatus} messages.
      */
-    private final PdpHeartbeatListener pdpHeartbeatListener;
+    private final PartitionedExecutor pdpHeartbeatExecutor;
 
     /**
      * Instantiate the activator for policy pap as a complete service.
@@ -97,7 +137,14 @@ public class PapActivator extends ServiceManagerContainer {
             this.papParameterGroup = papParameterGroup;
             this.msgDispatcher = new MessageTypeDispatcher(MSG_TYPE_NAMES);
             this.reqIdDispatcher = new RequestIdDispatcher<>(PdpStatus.class, REQ_ID_NAMES);
-            this.pdpHeartbeatListener = new PdpHeartbeatListener();
+            this.compressor = new PdpMessageCompressor(
+                            papParameterGroup.getPdpParameters().getCompressedPdpTypes(),
+                            papParameterGroup.getPdpParameters().getMaxDecompressedBytes());
+            this.topicListener = new DecompressingTopicListener(compressor, msgDispatcher,
+                            Collections.singleton(PdpMessageType.PDP_STATUS.name()));
+            this.pdpHeartbeatExecutor = new PartitionedExecutor("pdp-heartbeat",
+                            papParameterGroup.getPdpParameters().getHeartBeatThreads(),
+                            papParameterGroup.getPdpParameters().getHeartBeatQueueSize());
 
         } catch (final RuntimeException e) {
             throw new PolicyPapRuntimeException(e);
@@ -108,11 +155,17 @@ public class PapActivator extends ServiceManagerContainer {
         final Object pdpUpdateLock = new Object();
         final PdpParameters pdpParams = papParameterGroup.getPdpParameters();
         final AtomicReference<Publisher> pdpPub = new AtomicReference<>();
+        final AtomicReference<ExecutorService> timerExecutor = new AtomicReference<>();
         final AtomicReference<TimerManager> pdpUpdTimers = new AtomicReference<>();
         final AtomicReference<TimerManager> pdpStChgTimers = new AtomicReference<>();
-        final AtomicReference<TimerManager> heartBeatTimers = new AtomicReference<>();
         final AtomicReference<PolicyModelsProviderFactoryWrapper> daoFactory = new AtomicReference<>();
+        final AtomicReference<PdpGroupCache> groupCache = new AtomicReference<>();
+        final AtomicReference<PdpHealthWriter> healthWriter = new AtomicReference<>();
+        final AtomicReference<DeploymentTracker> deployTracker = new AtomicReference<>();
         final AtomicReference<PdpModifyRequestMap> requestMap = new AtomicReference<>();
+        final AtomicReference<ScheduledExecutorService> rolloutExecutor = new AtomicReference<>();
+        final AtomicReference<PdpTracker> pdpTracker = new AtomicReference<>();
+        final AtomicReference<PdpHeartbeatListener> pdpHeartbeatListener = new AtomicReference<>();
         final AtomicReference<PapRestServer> restServer = new AtomicReference<>();
 
         // @formatter:off
@@ -120,18 +173,77 @@ public class PapActivator extends ServiceManagerContainer {
             () -> ParameterService.register(papParameterGroup),
             () -> ParameterService.deregister(papParameterGroup.getName()));
 
+        /*
+         * Registered before anything else, so that each component can get its metrics
+         * when it's constructed.
+         */
+        addAction("PAP metrics",
+            () -> Registry.register(PapConstants.REG_PAP_METRICS, new PapMetrics()),
+            () -> Registry.unregister(PapConstants.REG_PAP_METRICS));
+
         addAction("DAO Factory",
-            () -> daoFactory.set(new PolicyModelsProviderFactoryWrapper(
-                                    papParameterGroup.getDatabaseProviderParameters())),
+            () -> {
+                daoFactory.set(new PolicyModelsProviderFactoryWrapper(
+                                    papParameterGroup.getDatabaseProviderParameters(),
+                                    pdpParams.getDaoPoolSize(), pdpParams.getDaoPoolMaxWaitMs(), pdpUpdateLock));
+                daoFactory.get().warmUp(pdpParams.getDaoPoolSize());
+            },
             () -> daoFactory.get().close());
 
         addAction("DAO Factory registration",
             () -> Registry.register(PapConstants.REG_PAP_DAO_FACTORY, daoFactory.get()),
             () -> Registry.unregister(PapConstants.REG_PAP_DAO_FACTORY));
 
+        addAction("PDP group cache",
+            () -> {
+                groupCache.set(new PdpGroupCache(daoFactory.get()));
+                Registry.register(PapConstants.REG_PDP_GROUP_CACHE, groupCache.get());
+            },
+            () -> Registry.unregister(PapConstants.REG_PDP_GROUP_CACHE));
+
+        addAction("PDP group locks",
+            () -> Registry.register(PapConstants.REG_PDP_GROUP_LOCKS, new PdpGroupLockManager()),
+            () -> Registry.unregister(PapConstants.REG_PDP_GROUP_LOCKS));
+
+        addAction("Policy cache",
+            () -> Registry.register(PapConstants.REG_POLICY_CACHE,
+                                    new ToscaPolicyCache(pdpParams.getPolicyCacheSize(),
+                                                         pdpParams.getPolicyCacheTtlMs())),
+            () -> Registry.unregister(PapConstants.REG_POLICY_CACHE));
+
+        addAction("PDP health writer",
+            () -> {
+                healthWriter.set(PdpHealthWriter.builder()
+                                    .daoFactory(daoFactory.get())
+                                    .groupCache(groupCache.get())
+                                    .modifyLock(pdpUpdateLock)
+                                    .flushMs(pdpParams.getHealthFlushMs())
+                                    .maxPending(pdpParams.getMaxPendingHealthWrites())
+                                    .build());
+                Registry.register(PapConstants.REG_PDP_HEALTH_WRITER, healthWriter.get());
+                startThread(healthWriter.get());
+            },
+            () -> {
+                // flushes any pending writes before the DB factory is closed
+                healthWriter.get().stop();
+                Registry.unregister(PapConstants.REG_PDP_HEALTH_WRITER);
+            });
+
+        addAction("Pdp Heartbeat Executor",
+            () -> pdpHeartbeatExecutor.start(),
+            () -> pdpHeartbeatExecutor.stop());
+
+        /*
+         * Listener for anonymous PdpStatus messages either for registration or heartbeat.
+         * It is registered before the topics are started, so that no messages are lost,
+         * but it defers them until its handler is set, below.
+         */
         addAction("Pdp Heartbeat Listener",
-            () -> reqIdDispatcher.register(pdpHeartbeatListener),
-            () -> reqIdDispatcher.unregister(pdpHeartbeatListener));
+            () -> {
+                pdpHeartbeatListener.set(new PdpHeartbeatListener(pdpHeartbeatExecutor));
+                reqIdDispatcher.register(pdpHeartbeatListener.get());
+            },
+            () -> reqIdDispatcher.unregister(pdpHeartbeatListener.get()));
 
         addAction("Request ID Dispatcher",
             () -> msgDispatcher.register(PdpMessageType.PDP_STATUS.name(), this.reqIdDispatcher),
@@ -149,31 +261,38 @@ public class PapActivator extends ServiceManagerContainer {
             () -> Registry.register(PapConstants.REG_STATISTICS_MANAGER, new PapStatisticsManager()),
             () -> Registry.unregister(PapConstants.REG_STATISTICS_MANAGER));
 
+        addAction("PDP message compressor",
+            () -> Registry.register(PapConstants.REG_PDP_MESSAGE_COMPRESSOR, compressor),
+            () -> Registry.unregister(PapConstants.REG_PDP_MESSAGE_COMPRESSOR));
+
         addAction("PDP publisher",
             () -> {
-                pdpPub.set(new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP));
+                pdpPub.set(new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP, new PdpMessageCoder(compressor),
+                                    pdpParams.getPublisherBatchSize(), pdpParams.getPublisherThreads()));
                 startThread(pdpPub.get());
             },
             () -> pdpPub.get().stop());
 
-        addAction("PDP heart beat timers",
-            () -> {
-                long maxWaitHeartBeatMs = MAX_MISSED_HEARTBEATS * pdpParams.getHeartBeatMs();
-                heartBeatTimers.set(new TimerManager("heart beat", maxWaitHeartBeatMs));
-                startThread(heartBeatTimers.get());
-            },
-            () -> heartBeatTimers.get().stop());
+        /*
+         * Expired timers are handed off to this executor so that a slow action (e.g., one
+         * that updates the DB) doesn't hold up the timer threads.
+         */
+        addAction("PDP timer executor",
+            () -> timerExecutor.set(Executors.newFixedThreadPool(TIMER_THREADS)),
+            () -> timerExecutor.get().shutdown());
 
         addAction("PDP update timers",
             () -> {
-                pdpUpdTimers.set(new TimerManager("update", pdpParams.getUpdateParameters().getMaxWaitMs()));
+                pdpUpdTimers.set(new TimerManager("update", pdpParams.getUpdateParameters().getMaxWaitMs(),
+                                    timerExecutor.get()));
                 startThread(pdpUpdTimers.get());
             },
             () -> pdpUpdTimers.get().stop());
 
         addAction("PDP state-change timers",
             () -> {
-                pdpStChgTimers.set(new TimerManager("state-change", pdpParams.getUpdateParameters().getMaxWaitMs()));
+                pdpStChgTimers.set(new TimerManager("state-change", pdpParams.getUpdateParameters().getMaxWaitMs(),
+                                    timerExecutor.get()));
                 startThread(pdpStChgTimers.get());
             },
             () -> pdpStChgTimers.get().stop());
@@ -182,11 +301,26 @@ public class PapActivator extends ServiceManagerContainer {
             () -> Registry.register(PapConstants.REG_PDP_MODIFY_LOCK, pdpUpdateLock),
             () -> Registry.unregister(PapConstants.REG_PDP_MODIFY_LOCK));
 
+        addAction("Deployment tracker",
+            () -> {
+                deployTracker.set(new DeploymentTracker(pdpParams.getMaxTrackedDeployments()));
+                Registry.register(PapConstants.REG_DEPLOYMENT_TRACKER, deployTracker.get());
+            },
+            () -> Registry.unregister(PapConstants.REG_DEPLOYMENT_TRACKER));
+
+        addAction("PDP query snapshots",
+            () -> Registry.register(PapConstants.REG_PDP_QUERY_SNAPSHOTS,
+                            new PdpQuerySnapshots(pdpParams.getMaxQuerySnapshots(),
+                                                  pdpParams.getMaxQuerySnapshotBytes())),
+            () -> Registry.unregister(PapConstants.REG_PDP_QUERY_SNAPSHOTS));
+
         addAction("PDP modification requests",
             () -> {
                 requestMap.set(new PdpModifyRequestMap(
                             new PdpModifyRequestMapParams()
                                     .setDaoFactory(daoFactory.get())
+                                    .setDeploymentTracker(deployTracker.get())
+                                    .setGroupCache(groupCache.get())
                                     .setModifyLock(pdpUpdateLock)
                                     .setParams(pdpParams)
                                     .setPublisher(pdpPub.get())
@@ -197,14 +331,49 @@ public class PapActivator extends ServiceManagerContainer {
             },
             () -> Registry.unregister(PapConstants.REG_PDP_MODIFY_MAP));
 
+        addAction("Rollout scheduler",
+            () -> {
+                rolloutExecutor.set(Executors.newSingleThreadScheduledExecutor());
+                RolloutScheduler scheduler = RolloutScheduler.builder()
+                                    .params(pdpParams.getRolloutParameters())
+                                    .requestMap(requestMap.get())
+                                    .deploymentTracker(deployTracker.get())
+                                    .modifyLock(pdpUpdateLock)
+                                    .executor(rolloutExecutor.get())
+                                    .build();
+                deployTracker.get().setListener(scheduler);
+                Registry.register(PapConstants.REG_ROLLOUT_SCHEDULER, scheduler);
+            },
+            () -> {
+                Registry.unregister(PapConstants.REG_ROLLOUT_SCHEDULER);
+                deployTracker.get().setListener(null);
+                rolloutExecutor.get().shutdownNow();
+            });
+
         addAction("PDP heart beat tracker",
-            () -> Registry.register(PapConstants.REG_PDP_TRACKER, PdpTracker.builder()
+            () -> {
+                pdpTracker.set(PdpTracker.builder()
                                     .daoFactory(daoFactory.get())
-                                    .timers(heartBeatTimers.get())
+                                    .maxWaitMs(MAX_MISSED_HEARTBEATS * pdpParams.getHeartBeatMs())
+                                    .sweepMs(Math.max(1, pdpParams.getHeartBeatMs() / LIVENESS_CHECKS_PER_HEARTBEAT))
                                     .modifyLock(pdpUpdateLock)
                                     .requestMap(requestMap.get())
-                                    .build()),
-            () -> Registry.unregister(PapConstants.REG_PDP_TRACKER));
+                                    .build());
+                Registry.register(PapConstants.REG_PDP_TRACKER, pdpTracker.get());
+                startThread(pdpTracker.get());
+            },
+            () -> {
+                pdpTracker.get().stop();
+                Registry.unregister(PapConstants.REG_PDP_TRACKER);
+            });
+
+        /*
+         * The handler isn't constructed until everything it uses is in the Registry, so
+         * that it can resolve those items once, up front.
+         */
+        addAction("Pdp Heartbeat Handler",
+            () -> pdpHeartbeatListener.get().setHandler(new PdpStatusMessageHandler()),
+            () -> pdpHeartbeatListener.get().setHandler(null));
 
         addAction("REST server",
             () -> {
@@ -242,7 +411,7 @@ public class PapActivator extends ServiceManagerContainer {
     private void registerMsgDispatcher() {
         for (final TopicSource source : TopicEndpointManager.getManager()
                 .getTopicSources(Arrays.asList(PapConstants.TOPIC_POLICY_PDP_PAP))) {
-            source.register(msgDispatcher);
+            source.register(topicListener);
         }
     }
 
@@ -252,7 +421,7 @@ public class PapActivator extends ServiceManagerContainer {
     private void unregisterMsgDispatcher() {
         for (final TopicSource source : TopicEndpointManager.getManager()
                 .getTopicSources(Arrays.asList(PapConstants.TOPIC_POLICY_PDP_PAP))) {
-            source.unregister(msgDispatcher);
+            source.unregister(topicListener);
         }
     }
 }
@@ -0,0 +1,402 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.ws.rs.core.Response.Status;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.policy.common.utils.services.Registry;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.pdp.concepts.PdpGroup;
+import org.onap.policy.models.provider.PolicyModelsProvider;
+import org.onap.policy.models.provider.PolicyModelsProviderParameters;
+import org.onap.policy.pap.main.metrics.PapMetrics;
+
+public class PolicyModelsProviderFactoryWrapperTest {
+    private static final int POOL_SIZE = 3;
+    private static final long WAIT_MS = 100L;
+    private static final String GROUP_NAME = "my-group";
+
+    private List<PolicyModelsProvider> built;
+    private MyWrapper wrapper;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        built = new LinkedList<>();
+        wrapper = new MyWrapper(POOL_SIZE, WAIT_MS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wrapper.close();
+    }
+
+    @Test
+    public void testPolicyModelsProviderFactoryWrapper() throws Exception {
+        PolicyModelsProviderParameters params = new PolicyModelsProviderParameters();
+        assertThatIllegalArgumentException().isThrownBy(() -> new PolicyModelsProviderFactoryWrapper(params, 0, 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> new PolicyModelsProviderFactoryWrapper(params, 1, -1));
+
+        // zero wait time is OK
+        new PolicyModelsProviderFactoryWrapper(params, 1, 0).close();
+        new PolicyModelsProviderFactoryWrapper(params).close();
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        wrapper.warmUp(2);
+        assertEquals(2, built.size());
+        assertEquals(2, wrapper.getIdleCount());
+
+        // limited to the pool size
+        wrapper.warmUp(POOL_SIZE + 10);
+        assertEquals(POOL_SIZE, built.size());
+        assertEquals(POOL_SIZE, wrapper.getIdleCount());
+
+        // borrowing should not build anything new
+        wrapper.create().close();
+        assertEquals(POOL_SIZE, built.size());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        wrapper.warmUp(1);
+        PolicyModelsProvider prov = wrapper.create();
+        wrapper.warmUp(1);
+
+        wrapper.close();
+
+        // idle provider should have been closed
+        verify(built.get(1)).close();
+        assertEquals(0, wrapper.getIdleCount());
+
+        // active one should be closed when it's returned
+        verify(built.get(0), never()).close();
+        prov.close();
+        verify(built.get(0)).close();
+        assertEquals(0, wrapper.getIdleCount());
+
+        // close again - no exception
+        wrapper.close();
+
+        assertThatThrownBy(() -> wrapper.create()).isInstanceOf(PfModelException.class)
+                        .hasMessageContaining("closed");
+    }
+
+    @Test
+    public void testClose_Exception() throws Exception {
+        wrapper.warmUp(1);
+        doThrow(new PfModelException(Status.BAD_REQUEST, "expected"))
+                        .when(built.get(0)).close();
+
+        // should not throw an exception
+        wrapper.close();
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        PolicyModelsProvider prov = wrapper.create();
+        assertEquals(1, built.size());
+        assertEquals(1, wrapper.getActiveCount());
+        assertEquals(0, wrapper.getIdleCount());
+        assertEquals(1, wrapper.getBorrowCount());
+
+        // calls should be passed through
+        List<PdpGroup> groups = Collections.emptyList();
+        when(built.get(0).getPdpGroups(GROUP_NAME)).thenReturn(groups);
+        assertSame(groups, prov.getPdpGroups(GROUP_NAME));
+
+        prov.close();
+        assertEquals(0, wrapper.getActiveCount());
+        assertEquals(1, wrapper.getIdleCount());
+
+        // the underlying provider should not have been closed
+        verify(built.get(0), never()).close();
+
+        // should reuse the same provider
+        try (PolicyModelsProvider prov2 = wrapper.create()) {
+            assertNotSame(prov, prov2);
+            assertEquals(1, built.size());
+
+            when(built.get(0).getPdpGroups(GROUP_NAME)).thenReturn(new ArrayList<>(groups));
+            assertEquals(groups, prov2.getPdpGroups(GROUP_NAME));
+        }
+
+        assertEquals(2, wrapper.getBorrowCount());
+    }
+
+    @Test
+    public void testCreate_ClosedTwice() throws Exception {
+        PolicyModelsProvider prov = wrapper.create();
+        prov.close();
+        prov.close();
+
+        // should only have been returned once
+        assertEquals(1, wrapper.getIdleCount());
+
+        // can't use it after it's been closed
+        assertThatIllegalStateException().isThrownBy(() -> prov.getPdpGroups(GROUP_NAME));
+    }
+
+    @Test
+    public void testCreate_DelegateException() throws Exception {
+        PolicyModelsProvider prov = wrapper.create();
+
+        PfModelException exc = new PfModelException(Status.BAD_REQUEST, "expected");
+        when(built.get(0).getPdpGroups(GROUP_NAME)).thenThrow(exc);
+
+        // should get the original exception, not a wrapped one
+        assertThatThrownBy(() -> prov.getPdpGroups(GROUP_NAME)).isSameAs(exc);
+    }
+
+    @Test
+    public void testCreate_BrokenDiscarded() throws Exception {
+        PolicyModelsProvider prov = wrapper.create();
+
+        RuntimeException exc = new IllegalStateException("expected");
+        when(built.get(0).getPdpGroups(GROUP_NAME)).thenThrow(exc);
+        assertThatThrownBy(() -> prov.getPdpGroups(GROUP_NAME)).isSameAs(exc);
+
+        // should be closed instead of being returned to the pool
+        prov.close();
+        verify(built.get(0)).close();
+        assertEquals(0, wrapper.getIdleCount());
+        assertEquals(0, wrapper.getActiveCount());
+        assertEquals(1, wrapper.getDiscardCount());
+
+        // permit should have been released, and a new provider built
+        for (int count = 0; count < POOL_SIZE; ++count) {
+            wrapper.create();
+        }
+
+        assertEquals(POOL_SIZE + 1, built.size());
+    }
+
+    @Test
+    public void testCreate_ServerErrorDiscarded() throws Exception {
+        PolicyModelsProvider prov = wrapper.create();
+
+        PfModelException exc = new PfModelException(Status.INTERNAL_SERVER_ERROR, "expected");
+        when(built.get(0).getPdpGroups(GROUP_NAME)).thenThrow(exc);
+        assertThatThrownBy(() -> prov.getPdpGroups(GROUP_NAME)).isSameAs(exc);
+
+        prov.close();
+        verify(built.get(0)).close();
+        assertEquals(1, wrapper.getDiscardCount());
+    }
+
+    @Test
+    public void testCreate_ClientErrorRetained() throws Exception {
+        PolicyModelsProvider prov = wrapper.create();
+
+        PfModelException exc = new PfModelException(Status.NOT_FOUND, "expected");
+        when(built.get(0).getPdpGroups(GROUP_NAME)).thenThrow(exc);
+        assertThatThrownBy(() -> prov.getPdpGroups(GROUP_NAME)).isSameAs(exc);
+
+        prov.close();
+        verify(built.get(0), never()).close();
+        assertEquals(1, wrapper.getIdleCount());
+        assertEquals(0, wrapper.getDiscardCount());
+    }
+
+    @Test
+    public void testCreate_LockHolder() throws Exception {
+        Object lock = new Object();
+        wrapper = new MyWrapper(1, WAIT_MS, lock);
+
+        // exhaust the pool
+        PolicyModelsProvider prov = wrapper.create();
+        assertThatThrownBy(() -> wrapper.create()).isInstanceOf(PfModelException.class);
+
+        // lock holder should get a provider from the reserve, without waiting
+        synchronized (lock) {
+            PolicyModelsProvider reserved1 = wrapper.create();
+            PolicyModelsProvider reserved2 = wrapper.create();
+            assertEquals(3, built.size());
+            assertEquals(3, wrapper.getActiveCount());
+
+            reserved2.close();
+            reserved1.close();
+
+            // should reuse a reserved provider
+            wrapper.create().close();
+            assertEquals(3, built.size());
+        }
+
+        // reserved providers are not returned to the pool
+        assertEquals(2, wrapper.getIdleCount());
+        assertThatThrownBy(() -> wrapper.create()).isInstanceOf(PfModelException.class);
+
+        prov.close();
+        wrapper.create();
+        assertEquals(3, built.size());
+    }
+
+    @Test
+    public void testCreate_Latency() throws Exception {
+        Registry.newRegistry();
+        PapMetrics metrics = new PapMetrics();
+        Registry.register(PapConstants.REG_PAP_METRICS, metrics);
+
+        try (MyWrapper wrapper2 = new MyWrapper(POOL_SIZE, WAIT_MS)) {
+            PolicyModelsProvider prov = wrapper2.create();
+            prov.getPdpGroups(GROUP_NAME);
+            prov.getPdpGroups(GROUP_NAME);
+
+            // close() is not a DAO call
+            prov.close();
+
+        } finally {
+            Registry.newRegistry();
+        }
+
+        assertEquals("[pap_dao_call_seconds{method=\"getPdpGroups\"}]", metrics.getLatencies().keySet().toString());
+        assertEquals(2, metrics.getLatencies().values().iterator().next().getCount());
+    }
+
+    @Test
+    public void testCreate_BuildException() throws Exception {
+        wrapper.buildException = new PfModelException(Status.BAD_REQUEST, "expected");
+
+        for (int count = 0; count < POOL_SIZE + 1; ++count) {
+            assertThatThrownBy(() -> wrapper.create()).isSameAs(wrapper.buildException);
+        }
+
+        // permits should have been released
+        wrapper.buildException = null;
+        wrapper.create();
+        assertEquals(1, wrapper.getActiveCount());
+    }
+
+    @Test
+    public void testCreate_Exhausted() throws Exception {
+        List<PolicyModelsProvider> provs = new ArrayList<>();
+        for (int count = 0; count < POOL_SIZE; ++count) {
+            provs.add(wrapper.create());
+        }
+
+        assertEquals(POOL_SIZE, wrapper.getActiveCount());
+
+        assertThatThrownBy(() -> wrapper.create()).isInstanceOf(PfModelException.class)
+                        .hasMessageContaining("no DAO provider became available");
+
+        assertTrue(wrapper.getMaxWaitMs() >= WAIT_MS);
+        assertTrue(wrapper.getTotalWaitMs() >= WAIT_MS);
+        assertEquals(POOL_SIZE, built.size());
+
+        // once one is returned, it should be possible to borrow again
+        provs.remove(0).close();
+        wrapper.create();
+    }
+
+    @Test
+    public void testCreate_WaitsForReturn() throws Exception {
+        wrapper = new MyWrapper(1, TimeUnit.SECONDS.toMillis(5));
+
+        PolicyModelsProvider prov = wrapper.create();
+
+        AtomicReference<PolicyModelsProvider> borrowed = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try {
+                borrowed.set(wrapper.create());
+            } catch (PfModelException e) {
+                throw new IllegalStateException(e);
+            }
+
+            latch.countDown();
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        prov.close();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, built.size());
+
+        borrowed.get().close();
+    }
+
+    @Test
+    public void testCreate_Interrupted() throws Exception {
+        wrapper = new MyWrapper(1, TimeUnit.SECONDS.toMillis(5));
+        wrapper.create();
+
+        Thread.currentThread().interrupt();
+
+        try {
+            assertThatThrownBy(() -> wrapper.create()).isInstanceOf(PfModelException.class)
+                            .hasMessageContaining("interrupted");
+            assertTrue(Thread.currentThread().isInterrupted());
+
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private class MyWrapper extends PolicyModelsProviderFactoryWrapper {
+        private PfModelException buildException = null;
+
+        public MyWrapper(int poolSize, long maxWaitMs) {
+            super(new PolicyModelsProviderParameters(), poolSize, maxWaitMs);
+        }
+
+        public MyWrapper(int poolSize, long maxWaitMs, Object modifyLock) {
+            super(new PolicyModelsProviderParameters(), poolSize, maxWaitMs, modifyLock);
+        }
+
+        @Override
+        protected PolicyModelsProvider makeProvider() throws PfModelException {
+            if (buildException != null) {
+                throw buildException;
+            }
+
+            PolicyModelsProvider prov = mock(PolicyModelsProvider.class);
+            built.add(prov);
+            return prov;
+        }
+    }
+}
@@ -78,6 +78,8 @@ public class CommonRequestBase {
     protected RequestListener listener;
     protected PolicyModelsProviderFactoryWrapper daoFactory;
     protected PolicyModelsProvider dao;
+    protected PdpGroupCache groupCache;
+    protected DeploymentTracker deploymentTracker;
     protected RequestParams reqParams;
     protected PdpModifyRequestMapParams mapParams;
 
@@ -98,16 +100,18 @@ public class CommonRequestBase {
         listener = mock(RequestListener.class);
         daoFactory = mock(PolicyModelsProviderFactoryWrapper.class);
         dao = mock(PolicyModelsProvider.class);
+        groupCache = mock(PdpGroupCache.class);
+        deploymentTracker = mock(DeploymentTracker.class);
 
         PdpParameters pdpParams = mock(PdpParameters.class);
 
         doAnswer(new Answer<Object>() {
             @Override
             public Object answer(InvocationOnMock invocation) throws Throwable {
-                queue.add(invocation.getArgumentAt(0, QueueToken.class));
+                queue.add(invocation.getArgumentAt(1, QueueToken.class));
                 return null;
             }
-        }).when(publisher).enqueue(any());
+        }).when(publisher).enqueue(any(), any());
 
         when(timers.register(any(), any())).thenReturn(timer);
 
@@ -125,7 +129,8 @@ public class CommonRequestBase {
                         .setResponseDispatcher(dispatcher).setTimers(timers);
 
         mapParams = new PdpModifyRequestMapParams().setModifyLock(lock).setPublisher(publisher)
-                        .setResponseDispatcher(dispatcher).setDaoFactory(daoFactory).setUpdateTimers(timers)
+                        .setResponseDispatcher(dispatcher).setDaoFactory(daoFactory).setGroupCache(groupCache)
+                        .setDeploymentTracker(deploymentTracker).setUpdateTimers(timers)
                         .setStateChangeTimers(timers).setParams(pdpParams);
     }
 
@@ -0,0 +1,95 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.onap.policy.common.endpoints.event.comm.Topic.CommInfrastructure;
+import org.onap.policy.common.endpoints.event.comm.TopicListener;
+
+public class DecompressingTopicListenerTest {
+    private static final CommInfrastructure INFRA = CommInfrastructure.NOOP;
+    private static final String TOPIC = "my-topic";
+    private static final String MESSAGE = "{\"messageName\":\"PDP_STATUS\"}";
+
+    @Mock
+    private TopicListener target;
+
+    private PdpMessageCompressor compressor;
+    private DecompressingTopicListener listener;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        compressor = new PdpMessageCompressor(Collections.emptyList());
+        listener = new DecompressingTopicListener(compressor, target);
+    }
+
+    @Test
+    public void testOnTopicEvent_NotCompressed() {
+        listener.onTopicEvent(INFRA, TOPIC, MESSAGE);
+        verify(target).onTopicEvent(INFRA, TOPIC, MESSAGE);
+    }
+
+    @Test
+    public void testOnTopicEvent_Compressed() throws Exception {
+        listener.onTopicEvent(INFRA, TOPIC, compressor.compress(MESSAGE));
+        verify(target).onTopicEvent(INFRA, TOPIC, MESSAGE);
+    }
+
+    @Test
+    public void testOnTopicEvent_Filtered() throws Exception {
+        compressor = new PdpMessageCompressor(Collections.emptyList());
+        listener = new DecompressingTopicListener(compressor, target, Collections.singleton("PDP_STATUS"));
+
+        // handled type
+        listener.onTopicEvent(INFRA, TOPIC, compressor.compress("PDP_STATUS", MESSAGE));
+        verify(target).onTopicEvent(INFRA, TOPIC, MESSAGE);
+
+        // no type - must be decompressed to find out
+        listener.onTopicEvent(INFRA, TOPIC, compressor.compress(MESSAGE));
+        verify(target, times(2)).onTopicEvent(INFRA, TOPIC, MESSAGE);
+
+        // not handled - should not be decompressed
+        listener.onTopicEvent(INFRA, TOPIC, compressor.compress("PDP_UPDATE", MESSAGE));
+        verify(target, times(2)).onTopicEvent(any(), any(), any());
+        assertEquals(2, compressor.getDecompressedCount());
+    }
+
+    @Test
+    public void testOnTopicEvent_Invalid() {
+        listener.onTopicEvent(INFRA, TOPIC, "{\"compression\":\"gzip\",\"payload\":\"AAAA\"}");
+        verify(target, never()).onTopicEvent(any(), any(), any());
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.onap.policy.models.pdp.concepts.PdpStateChange;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.pap.main.comm.DeploymentStatus.Outcome;
+import org.onap.policy.pap.main.comm.DeploymentStatus.PdpResult;
+import org.onap.policy.pap.main.comm.DeploymentStatus.State;
+
+public class DeploymentTrackerTest {
+    private static final String PDP1 = "pdp-1";
+    private static final String PDP2 = "pdp-2";
+    private static final String MY_REASON = "my reason";
+    private static final long WAIT_MS = 5000L;
+
+    private DeploymentTracker tracker;
+    private PdpUpdate update1;
+    private PdpUpdate update2;
+    private PdpStateChange change1;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        tracker = new DeploymentTracker(3);
+
+        update1 = new PdpUpdate();
+        update1.setName(PDP1);
+
+        update2 = new PdpUpdate();
+        update2.setName(PDP2);
+
+        change1 = new PdpStateChange();
+        change1.setName(PDP1);
+    }
+
+    @Test
+    public void testDeploymentTracker() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new DeploymentTracker(0));
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void testAdd() {
+        String id = tracker.add(Arrays.asList(update1, change1, update2));
+        assertNotNull(id);
+        assertNotEquals(id, tracker.add(Collections.singleton(update1)));
+
+        DeploymentStatus status = tracker.getStatus(id);
+        assertEquals(id, status.getTrackingId());
+        assertEquals(State.IN_PROGRESS, status.getState());
+        assertEquals(3, status.getPdps().size());
+
+        PdpResult result = status.getPdps().get(0);
+        assertEquals(PDP1, result.getPdpName());
+        assertEquals(PdpUpdate.class.getSimpleName(), result.getMessageType());
+        assertEquals(Outcome.PENDING, result.getOutcome());
+        assertNull(result.getReason());
+    }
+
+    @Test
+    public void testAdd_NoMessages() {
+        String id = tracker.add(Collections.emptyList());
+        assertEquals(State.SUCCESS, tracker.getStatus(id).getState());
+    }
+
+    @Test
+    public void testAdd_Evict() {
+        String id1 = tracker.add(Collections.singleton(update1));
+        String id2 = tracker.add(Collections.singleton(update1));
+        String id3 = tracker.add(Collections.singleton(update2));
+        String id4 = tracker.add(Collections.singleton(update2));
+
+        assertEquals(3, tracker.size());
+        assertNull(tracker.getStatus(id1));
+
+        // completing PDP1 should not resurrect the evicted deployment
+        tracker.success(update1);
+        assertNull(tracker.getStatus(id1));
+        assertEquals(State.SUCCESS, tracker.getStatus(id2).getState());
+        assertEquals(State.IN_PROGRESS, tracker.getStatus(id3).getState());
+        assertEquals(State.IN_PROGRESS, tracker.getStatus(id4).getState());
+    }
+
+    @Test
+    public void testSuccess() {
+        String id = tracker.add(Arrays.asList(update1, change1, update2));
+        String id2 = tracker.add(Collections.singleton(update1));
+
+        // unknown PDP - no effect
+        PdpUpdate other = new PdpUpdate();
+        other.setName("unknown");
+        tracker.success(other);
+
+        // completes the UPDATE for PDP1 in both deployments, but not its STATE-CHANGE
+        tracker.success(update1);
+        assertEquals(State.IN_PROGRESS, tracker.getStatus(id).getState());
+        assertEquals(State.SUCCESS, tracker.getStatus(id2).getState());
+
+        tracker.success(change1);
+        tracker.success(update2);
+
+        DeploymentStatus status = tracker.getStatus(id);
+        assertEquals(State.SUCCESS, status.getState());
+        assertTrue(status.getPdps().stream().allMatch(result -> result.getOutcome() == Outcome.SUCCESS));
+    }
+
+    @Test
+    public void testSuccess_Delta() {
+        String id = tracker.add(Collections.singleton(new PdpDeltaUpdate(update1, 1)));
+        assertEquals(PdpUpdate.class.getSimpleName(), tracker.getStatus(id).getPdps().get(0).getMessageType());
+
+        // a delta completes a plain UPDATE
+        tracker.success(new PdpDeltaUpdate(update1, 2));
+        assertEquals(State.SUCCESS, tracker.getStatus(id).getState());
+    }
+
+    @Test
+    public void testFailure() {
+        String id = tracker.add(Arrays.asList(update1, change1, update2));
+
+        // unknown PDP - no effect
+        tracker.failure("unknown", MY_REASON);
+
+        tracker.failure(PDP1, MY_REASON);
+
+        DeploymentStatus status = tracker.getStatus(id);
+        assertEquals(State.IN_PROGRESS, status.getState());
+        assertEquals(Outcome.FAILURE, status.getPdps().get(0).getOutcome());
+        assertEquals(MY_REASON, status.getPdps().get(0).getReason());
+        assertEquals(Outcome.FAILURE, status.getPdps().get(1).getOutcome());
+
+        tracker.success(update2);
+        assertEquals(State.FAILURE, tracker.getStatus(id).getState());
+    }
+
+    @Test
+    public void testRetryCountExhausted() {
+        String id = tracker.add(Collections.singleton(update1));
+
+        tracker.retryCountExhausted(PDP1);
+
+        DeploymentStatus status = tracker.getStatus(id);
+        assertEquals(State.FAILURE, status.getState());
+        assertEquals(Outcome.RETRY_EXHAUSTED, status.getPdps().get(0).getOutcome());
+
+        // later success should have no effect
+        tracker.success(update1);
+        assertEquals(State.FAILURE, tracker.getStatus(id).getState());
+    }
+
+    @Test
+    public void testHalted() {
+        String id = tracker.add(Arrays.asList(update1, change1, update2));
+        String id2 = tracker.add(Collections.singleton(update2));
+
+        // unknown deployment - no effect
+        tracker.halted("unknown", Collections.singleton(PDP2), MY_REASON);
+
+        tracker.halted(id, Collections.singleton(PDP2), MY_REASON);
+
+        DeploymentStatus status = tracker.getStatus(id);
+        assertEquals(State.IN_PROGRESS, status.getState());
+        assertEquals(Outcome.HALTED, status.getPdps().get(2).getOutcome());
+        assertEquals(MY_REASON, status.getPdps().get(2).getReason());
+
+        // only the UPDATE is halted
+        tracker.halted(id, Collections.singleton(PDP1), MY_REASON);
+        status = tracker.getStatus(id);
+        assertEquals(Outcome.HALTED, status.getPdps().get(0).getOutcome());
+        assertEquals(Outcome.PENDING, status.getPdps().get(1).getOutcome());
+
+        // the other deployment is unaffected
+        assertEquals(State.IN_PROGRESS, tracker.getStatus(id2).getState());
+        tracker.success(update2);
+        assertEquals(State.SUCCESS, tracker.getStatus(id2).getState());
+        assertEquals(Outcome.HALTED, tracker.getStatus(id).getPdps().get(2).getOutcome());
+
+        tracker.success(change1);
+        assertEquals(State.FAILURE, tracker.getStatus(id).getState());
+    }
+
+    @Test
+    public void testListener() {
+        DeploymentTracker.Listener listener = mock(DeploymentTracker.Listener.class);
+        tracker.setListener(listener);
+
+        String id = tracker.add(Arrays.asList(update1, change1, update2));
+
+        tracker.success(update1);
+        tracker.failure(PDP2, MY_REASON);
+
+        ArgumentCaptor<PdpResult> captor = ArgumentCaptor.forClass(PdpResult.class);
+        verify(listener, times(2)).completed(eq(id), captor.capture());
+
+        List<PdpResult> results = captor.getAllValues();
+        assertEquals(PDP1, results.get(0).getPdpName());
+        assertEquals(Outcome.SUCCESS, results.get(0).getOutcome());
+        assertEquals(PDP2, results.get(1).getPdpName());
+        assertEquals(Outcome.FAILURE, results.get(1).getOutcome());
+
+        // repeated success - nothing new completes
+        tracker.success(update1);
+        verify(listener, times(2)).completed(any(), any());
+
+        // an exception should not prevent the tracker from completing the message
+        doThrow(new IllegalStateException("expected exception")).when(listener).completed(any(), any());
+        tracker.success(change1);
+        assertEquals(State.FAILURE, tracker.getStatus(id).getState());
+
+        // removed
+        tracker.setListener(null);
+        String id2 = tracker.add(Collections.singleton(update1));
+        tracker.success(update1);
+        verify(listener, never()).completed(eq(id2), any());
+    }
+
+    @Test
+    public void testListener_Evicted() {
+        DeploymentTracker.Listener listener = mock(DeploymentTracker.Listener.class);
+        tracker.setListener(listener);
+
+        String id1 = tracker.add(Collections.singleton(update1));
+        String id2 = tracker.add(Collections.singleton(update2));
+        tracker.success(update2);
+        tracker.add(Collections.singleton(update1));
+
+        // evicting an incomplete deployment is reported
+        tracker.add(Collections.singleton(update1));
+        verify(listener).evicted(id1);
+
+        // evicting a completed deployment is not
+        tracker.add(Collections.singleton(update1));
+        verify(listener, never()).evicted(id2);
+    }
+
+    @Test
+    public void testGetStatus() {
+        assertNull(tracker.getStatus("unknown"));
+
+        String id = tracker.add(Collections.singleton(update1));
+        DeploymentStatus status = tracker.getStatus(id);
+
+        // status is a snapshot
+        tracker.success(update1);
+        assertEquals(State.IN_PROGRESS, status.getState());
+        assertEquals(Outcome.PENDING, status.getPdps().get(0).getOutcome());
+    }
+
+    @Test
+    public void testAwaitStatus() throws Exception {
+        assertNull(tracker.awaitStatus("unknown", 1));
+
+        String id = tracker.add(Collections.singleton(update1));
+
+        // times out
+        assertEquals(State.IN_PROGRESS, tracker.awaitStatus(id, 1).getState());
+
+        AtomicReference<DeploymentStatus> status = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try {
+                started.countDown();
+                status.set(tracker.awaitStatus(id, WAIT_MS));
+                done.countDown();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        assertTrue(started.await(WAIT_MS, TimeUnit.MILLISECONDS));
+        tracker.success(update1);
+
+        assertTrue(done.await(WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(State.SUCCESS, status.get().getState());
+    }
+}
@@ -0,0 +1,359 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PartitionedExecutorTest {
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedExecutorTest.class);
+
+    private static final String NAME = "my-executor";
+    private static final int NWORKERS = 4;
+    private static final long MAX_WAIT_SEC = 5;
+
+    private PartitionedExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new PartitionedExecutor(NAME, NWORKERS);
+        executor.start();
+    }
+
+    @After
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    public void testPartitionedExecutor() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new PartitionedExecutor(NAME, 0));
+        assertThatIllegalArgumentException().isThrownBy(() -> new PartitionedExecutor(NAME, 1, 0));
+    }
+
+    @Test
+    public void testStart() {
+        assertThatIllegalStateException().isThrownBy(() -> executor.start());
+
+        // can restart after it has been stopped
+        executor.stop();
+        executor.start();
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        executor.stop();
+
+        // stop again - no exception
+        executor.stop();
+
+        // tasks should be discarded
+        AtomicInteger count = new AtomicInteger();
+        executor.execute("abc", count::incrementAndGet);
+
+        executor.start();
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.execute("abc", latch::countDown);
+        assertTrue(latch.await(MAX_WAIT_SEC, TimeUnit.SECONDS));
+
+        assertEquals(0, count.get());
+    }
+
+    @Test
+    public void testStop_WaitsForTasks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger count = new AtomicInteger();
+
+        executor.execute("abc", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            count.incrementAndGet();
+        });
+
+        // queued behind the first
+        executor.execute("abc", count::incrementAndGet);
+
+        assertTrue(started.await(MAX_WAIT_SEC, TimeUnit.SECONDS));
+        executor.stop();
+
+        // both tasks should have completed by the time stop() returns
+        assertEquals(2, count.get());
+    }
+
+    @Test
+    public void testExecute_QueueFull() throws Exception {
+        executor.stop();
+
+        executor = new PartitionedExecutor(NAME, 1, 1);
+        executor.start();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger count = new AtomicInteger();
+
+        // occupy the worker
+        executor.execute("abc", () -> {
+            started.countDown();
+            try {
+                release.await(MAX_WAIT_SEC, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertTrue(started.await(MAX_WAIT_SEC, TimeUnit.SECONDS));
+
+        // this one fills the queue
+        executor.execute("abc", count::incrementAndGet);
+        assertEquals(0, executor.getDroppedCount());
+
+        // these should be dropped
+        executor.execute("abc", count::incrementAndGet);
+        executor.execute("def", count::incrementAndGet);
+        assertEquals(2, executor.getDroppedCount());
+
+        release.countDown();
+        executor.stop();
+
+        assertEquals(1, count.get());
+
+        // tasks discarded while stopped aren't counted as dropped
+        executor.execute("abc", count::incrementAndGet);
+        assertEquals(2, executor.getDroppedCount());
+    }
+
+    @Test
+    public void testExecuteOrWait() throws Exception {
+        executor.stop();
+
+        // discarded while stopped
+        AtomicInteger count = new AtomicInteger();
+        executor.executeOrWait("abc", count::incrementAndGet);
+
+        executor = new PartitionedExecutor(NAME, 1, 1);
+        executor.start();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // occupy the worker and fill its queue
+        executor.execute("abc", () -> {
+            started.countDown();
+            try {
+                release.await(MAX_WAIT_SEC, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertTrue(started.await(MAX_WAIT_SEC, TimeUnit.SECONDS));
+        executor.execute("abc", count::incrementAndGet);
+
+        // this should wait for room rather than being dropped
+        Thread waiter = new Thread(() -> executor.executeOrWait("def", count::incrementAndGet));
+        waiter.setDaemon(true);
+        waiter.start();
+
+        waiter.join(100);
+        assertTrue(waiter.isAlive());
+
+        release.countDown();
+        waiter.join(MAX_WAIT_SEC * 1000);
+        assertFalse(waiter.isAlive());
+
+        executor.stop();
+
+        assertEquals(2, count.get());
+        assertEquals(0, executor.getDroppedCount());
+    }
+
+    @Test
+    public void testExecute_NullKey() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(null, latch::countDown);
+        assertTrue(latch.await(MAX_WAIT_SEC, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExecute_Ordered() throws Exception {
+        final int nkeys = 10;
+        final int ntasks = 100;
+
+        Map<String, List<Integer>> key2seen = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(nkeys * ntasks);
+
+        for (int task = 0; task < ntasks; ++task) {
+            for (int nkey = 0; nkey < nkeys; ++nkey) {
+                String key = "key-" + nkey;
+                int value = task;
+
+                executor.execute(key, () -> {
+                    key2seen.computeIfAbsent(key, xxx -> Collections.synchronizedList(new ArrayList<>())).add(value);
+                    latch.countDown();
+                });
+            }
+        }
+
+        assertTrue(latch.await(MAX_WAIT_SEC, TimeUnit.SECONDS));
+
+        // each key should have seen its tasks in order
+        assertEquals(nkeys, key2seen.size());
+
+        for (List<Integer> seen : key2seen.values()) {
+            assertEquals(ntasks, seen.size());
+
+            for (int task = 0; task < ntasks; ++task) {
+                assertEquals(task, seen.get(task).intValue());
+            }
+        }
+    }
+
+    @Test
+    public void testExecute_Concurrent() throws Exception {
+        // find one key for each partition
+        Map<Integer, String> part2key = new HashMap<>();
+        for (int nkey = 0; part2key.size() < NWORKERS; ++nkey) {
+            String key = "pdp-" + nkey;
+            part2key.putIfAbsent(PartitionedExecutor.getPartition(key, NWORKERS), key);
+        }
+
+        // the barrier only trips if all of the tasks are running at the same time
+        CyclicBarrier barrier = new CyclicBarrier(NWORKERS);
+        CountDownLatch latch = new CountDownLatch(NWORKERS);
+
+        for (String key : part2key.values()) {
+            executor.execute(key, () -> {
+                try {
+                    barrier.await(MAX_WAIT_SEC, TimeUnit.SECONDS);
+                    latch.countDown();
+
+                } catch (Exception e) {
+                    logger.warn("barrier did not trip", e);
+                }
+            });
+        }
+
+        assertTrue(latch.await(MAX_WAIT_SEC, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExecute_TaskException() throws Exception {
+        executor.execute("abc", () -> {
+            throw new IllegalStateException("expected exception");
+        });
+
+        // worker should still be usable
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.execute("abc", latch::countDown);
+        assertTrue(latch.await(MAX_WAIT_SEC, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testGetPartition() {
+        assertEquals(0, PartitionedExecutor.getPartition(null, NWORKERS));
+
+        for (int nkey = 0; nkey < 100; ++nkey) {
+            String key = "key-" + nkey;
+            int part = PartitionedExecutor.getPartition(key, NWORKERS);
+
+            assertTrue(part >= 0 && part < NWORKERS);
+            assertEquals(part, PartitionedExecutor.getPartition(key, NWORKERS));
+        }
+
+        // negative hash code
+        assertFalse(PartitionedExecutor.getPartition("polygenelubricants", NWORKERS) < 0);
+    }
+
+    /**
+     * Load test. Simulates heart beats from many PDPs, each of which blocks for a bit, as
+     * it would while waiting on the DB, and verifies that throughput increases with the
+     * number of workers.
+     */
+    @Test
+    public void testLoad() throws Exception {
+        executor.stop();
+
+        final int npdps = 40;
+        final int nbeats = 10;
+
+        long elapsed1 = runLoad(1, npdps, nbeats);
+        long elapsedN = runLoad(NWORKERS, npdps, nbeats);
+
+        logger.info("{} heart beats: 1 worker {}ms, {} workers {}ms", npdps * nbeats, elapsed1, NWORKERS, elapsedN);
+
+        assertTrue(elapsedN < elapsed1);
+    }
+
+    private long runLoad(int nworkers, int npdps, int nbeats) throws InterruptedException {
+        PartitionedExecutor exec = new PartitionedExecutor(NAME, nworkers);
+        exec.start();
+
+        try {
+            CountDownLatch latch = new CountDownLatch(npdps * nbeats);
+            long tstart = System.currentTimeMillis();
+
+            for (int beat = 0; beat < nbeats; ++beat) {
+                for (int pdp = 0; pdp < npdps; ++pdp) {
+                    exec.execute("pdp-" + pdp, () -> {
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+
+                        latch.countDown();
+                    });
+                }
+            }
+
+            assertTrue(latch.await(MAX_WAIT_SEC * 4, TimeUnit.SECONDS));
+
+            return System.currentTimeMillis() - tstart;
+
+        } finally {
+            exec.stop();
+        }
+    }
+}
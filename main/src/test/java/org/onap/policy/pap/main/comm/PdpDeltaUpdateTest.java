@@ -0,0 +1,87 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.models.pdp.enums.PdpMessageType;
+
+public class PdpDeltaUpdateTest {
+
+    @Test
+    public void testPdpDeltaUpdate() {
+        PdpDeltaUpdate delta = new PdpDeltaUpdate();
+        assertEquals(PdpMessageType.PDP_UPDATE, delta.getMessageName());
+        assertEquals(0, delta.getGeneration());
+        assertFalse(delta.isDelta());
+    }
+
+    @Test
+    public void testPdpDeltaUpdatePdpUpdateLong() {
+        PdpUpdate update = new PdpUpdate();
+        update.setName("my-name");
+        update.setDescription("my description");
+        update.setPdpGroup("my-group");
+        update.setPdpSubgroup("my-subgroup");
+        update.setPdpHeartbeatIntervalMs(1000L);
+        update.setPolicies(Arrays.asList(SharedPolicyListTest.makePolicy("policy-A")));
+
+        PdpDeltaUpdate delta = new PdpDeltaUpdate(update, 3);
+        assertEquals(update.getName(), delta.getName());
+        assertEquals(update.getDescription(), delta.getDescription());
+        assertEquals(update.getPdpGroup(), delta.getPdpGroup());
+        assertEquals(update.getPdpSubgroup(), delta.getPdpSubgroup());
+        assertEquals(update.getPdpHeartbeatIntervalMs(), delta.getPdpHeartbeatIntervalMs());
+        assertSame(update.getPolicies(), delta.getPolicies());
+        assertEquals(3, delta.getGeneration());
+        assertFalse(delta.isDelta());
+    }
+
+    @Test
+    public void testMakeFullUpdate() {
+        PdpDeltaUpdate delta = new PdpDeltaUpdate();
+        delta.setName("my-name");
+        delta.setPolicies(Arrays.asList(SharedPolicyListTest.makePolicy("policy-A")));
+        delta.setGeneration(5);
+        delta.setBaseGeneration(4);
+        delta.setPoliciesToBeDeployed(Collections.emptyList());
+        delta.setPoliciesToBeUndeployed(Collections.emptyList());
+        assertTrue(delta.isDelta());
+
+        PdpDeltaUpdate full = delta.makeFullUpdate();
+        assertFalse(full.isDelta());
+        assertEquals(5, full.getGeneration());
+        assertEquals(delta.getName(), full.getName());
+        assertSame(delta.getPolicies(), full.getPolicies());
+        assertNull(full.getPoliciesToBeDeployed());
+        assertNull(full.getPoliciesToBeUndeployed());
+        assertNotEquals(delta.getRequestId(), full.getRequestId());
+    }
+}
@@ -0,0 +1,461 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.onap.policy.common.utils.coder.StandardCoder;
+import org.onap.policy.common.utils.resources.ResourceUtils;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.pdp.concepts.Pdp;
+import org.onap.policy.models.pdp.concepts.PdpGroup;
+import org.onap.policy.models.pdp.concepts.PdpGroups;
+import org.onap.policy.models.pdp.concepts.PdpSubGroup;
+import org.onap.policy.models.pdp.enums.PdpHealthStatus;
+import org.onap.policy.models.provider.PolicyModelsProvider;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyTypeIdentifier;
+import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.onap.policy.pap.main.PolicyPapRuntimeException;
+
+public class PdpGroupCacheTest {
+    private static final String GROUP_X = "group-X";
+    private static final String GROUP_Y = "group-Y";
+    private static final String GROUP_Z = "group-Z";
+    private static final String APEX = "apex";
+    private static final String DROOLS = "drools";
+    private static final String PDP_A = "pdp-A";
+    private static final String PDP_B = "pdp-B";
+    private static final String PDP_C = "pdp-C";
+    private static final String UNKNOWN = "unknown";
+
+    @Mock
+    private PolicyModelsProviderFactoryWrapper daoFactory;
+
+    @Mock
+    private PolicyModelsProvider dao;
+
+    private List<PdpGroup> groups;
+    private PdpGroupCache cache;
+
+    /**
+     * Sets up.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        String groupsJson = ResourceUtils.getResourceAsString("comm/PdpGroupCache.json");
+        groups = new StandardCoder().decode(groupsJson, PdpGroups.class).getGroups();
+
+        when(daoFactory.create()).thenReturn(dao);
+        when(dao.getPdpGroups(null)).thenReturn(groups);
+
+        cache = new PdpGroupCache(daoFactory);
+    }
+
+    @Test
+    public void testPdpGroupCache() throws Exception {
+        verify(dao).getPdpGroups(null);
+        verify(dao).close();
+
+        // should have copied the groups
+        assertEquals(groups.get(0), cache.getGroup(GROUP_X));
+        assertNotSame(groups.get(0), cache.getGroup(GROUP_X));
+
+        assertEquals(groups.get(1), cache.getGroup(GROUP_Y));
+    }
+
+    @Test
+    public void testPdpGroupCache_NullFactory() {
+        assertThatThrownBy(() -> new PdpGroupCache(null)).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    public void testPdpGroupCache_DaoException() throws Exception {
+        PfModelException ex = mock(PfModelException.class);
+        when(daoFactory.create()).thenThrow(ex);
+
+        assertThatThrownBy(() -> new PdpGroupCache(daoFactory)).isInstanceOf(PolicyPapRuntimeException.class)
+                        .hasCause(ex);
+    }
+
+    @Test
+    public void testGetGroup() {
+        assertEquals(GROUP_X, cache.getGroup(GROUP_X).getName());
+        assertNull(cache.getGroup(UNKNOWN));
+        assertNull(cache.getGroup(null));
+    }
+
+    @Test
+    public void testGetActiveGroup() {
+        assertSame(cache.getGroup(GROUP_X), cache.getActiveGroup(GROUP_X));
+
+        // not active
+        assertNotNull(cache.getGroup(GROUP_Y));
+        assertNull(cache.getActiveGroup(GROUP_Y));
+
+        assertNull(cache.getActiveGroup(UNKNOWN));
+    }
+
+    @Test
+    public void testGetGroups() {
+        List<PdpGroup> result = cache.getGroups();
+        assertEquals(2, result.size());
+
+        // should be copies
+        result.forEach(group -> {
+            assertEquals(group, cache.getGroup(group.getName()));
+            assertNotSame(group, cache.getGroup(group.getName()));
+        });
+    }
+
+    @Test
+    public void testGetGroupNames() {
+        assertEquals(Arrays.asList(GROUP_X, GROUP_Y), cache.getGroupNames());
+
+        cache.removeGroup(GROUP_X);
+        assertEquals(Arrays.asList(GROUP_Y), cache.getGroupNames());
+    }
+
+    @Test
+    public void testGetVersion() {
+        long version = cache.getVersion();
+
+        cache.putGroup(cache.getGroup(GROUP_X));
+        long version2 = cache.getVersion();
+        assertTrue(version2 > version);
+
+        // lookups should not change it
+        cache.getGroup(GROUP_X);
+        cache.copyGroup(GROUP_Y);
+        assertEquals(version2, cache.getVersion());
+
+        cache.removeGroup(GROUP_Y);
+        assertTrue(cache.getVersion() > version2);
+    }
+
+    @Test
+    public void testCopyGroup() {
+        PdpGroup group = cache.copyGroup(GROUP_X);
+        assertEquals(cache.getGroup(GROUP_X), group);
+        assertNotSame(cache.getGroup(GROUP_X), group);
+
+        assertNull(cache.copyGroup(UNKNOWN));
+        assertNull(cache.copyGroup(null));
+    }
+
+    @Test
+    public void testGetSubGroup() {
+        assertEquals(APEX, cache.getSubGroup(GROUP_X, APEX).getPdpType());
+        assertEquals(DROOLS, cache.getSubGroup(GROUP_X, DROOLS).getPdpType());
+
+        assertNull(cache.getSubGroup(GROUP_X, UNKNOWN));
+        assertNull(cache.getSubGroup(GROUP_X, null));
+        assertNull(cache.getSubGroup(UNKNOWN, APEX));
+        assertNull(cache.getSubGroup(null, APEX));
+    }
+
+    @Test
+    public void testGetPdp() {
+        assertEquals(PDP_A, cache.getPdp(GROUP_X, APEX, PDP_A).getInstanceId());
+        assertEquals(PDP_B, cache.getPdp(GROUP_X, APEX, PDP_B).getInstanceId());
+        assertEquals(PDP_C, cache.getPdp(GROUP_X, DROOLS, PDP_C).getInstanceId());
+
+        // in a different subgroup
+        assertNull(cache.getPdp(GROUP_X, DROOLS, PDP_A));
+
+        assertNull(cache.getPdp(GROUP_X, APEX, UNKNOWN));
+        assertNull(cache.getPdp(GROUP_X, APEX, null));
+        assertNull(cache.getPdp(GROUP_X, UNKNOWN, PDP_A));
+        assertNull(cache.getPdp(UNKNOWN, APEX, PDP_A));
+    }
+
+    @Test
+    public void testPutGroups_testPutGroup() {
+        PdpGroup groupx = new PdpGroup(cache.getGroup(GROUP_X));
+        groupx.setDescription("my description");
+
+        PdpGroup groupz = new PdpGroup(groupx);
+        groupz.setName(GROUP_Z);
+
+        cache.putGroups(Arrays.asList(groupx, groupz));
+
+        // should have been replaced, with a copy
+        assertEquals(groupx, cache.getGroup(GROUP_X));
+        assertNotSame(groupx, cache.getGroup(GROUP_X));
+
+        // should have been added, with a copy
+        assertEquals(groupz, cache.getGroup(GROUP_Z));
+        assertNotSame(groupz, cache.getGroup(GROUP_Z));
+        assertEquals(PDP_C, cache.getPdp(GROUP_Z, DROOLS, PDP_C).getInstanceId());
+
+        // other group is unchanged
+        assertEquals(groups.get(1), cache.getGroup(GROUP_Y));
+    }
+
+    @Test
+    public void testPutSubGroup() {
+        PdpSubGroup subgrp = new PdpSubGroup(cache.getSubGroup(GROUP_X, APEX));
+        subgrp.getPdpInstances().removeIf(pdp -> PDP_A.equals(pdp.getInstanceId()));
+        subgrp.setCurrentInstanceCount(1);
+
+        cache.putSubGroup(GROUP_X, subgrp);
+
+        assertEquals(subgrp, cache.getSubGroup(GROUP_X, APEX));
+        assertNotSame(subgrp, cache.getSubGroup(GROUP_X, APEX));
+
+        assertNull(cache.getPdp(GROUP_X, APEX, PDP_A));
+        assertNotNull(cache.getPdp(GROUP_X, APEX, PDP_B));
+
+        // group should reflect the change
+        PdpGroup group = cache.getGroup(GROUP_X);
+        assertEquals(2, group.getPdpSubgroups().size());
+        assertEquals(subgrp, group.getPdpSubgroups().get(0));
+
+        // new subgroup
+        PdpSubGroup subgrp2 = new PdpSubGroup(subgrp);
+        subgrp2.setPdpType(UNKNOWN);
+        cache.putSubGroup(GROUP_X, subgrp2);
+
+        assertEquals(subgrp2, cache.getSubGroup(GROUP_X, UNKNOWN));
+        assertEquals(3, cache.getGroup(GROUP_X).getPdpSubgroups().size());
+    }
+
+    @Test
+    public void testPutSubGroup_UnknownGroup() {
+        PdpSubGroup subgrp = new PdpSubGroup(cache.getSubGroup(GROUP_X, APEX));
+
+        cache.putSubGroup(UNKNOWN, subgrp);
+
+        assertNull(cache.getGroup(UNKNOWN));
+        assertNull(cache.getSubGroup(UNKNOWN, APEX));
+    }
+
+    @Test
+    public void testPutPdp() {
+        Pdp pdp = new Pdp(cache.getPdp(GROUP_X, APEX, PDP_B));
+        pdp.setHealthy(PdpHealthStatus.NOT_HEALTHY);
+
+        cache.putPdp(GROUP_X, APEX, pdp);
+
+        assertEquals(pdp, cache.getPdp(GROUP_X, APEX, PDP_B));
+        assertNotSame(pdp, cache.getPdp(GROUP_X, APEX, PDP_B));
+
+        // subgroup and group should reflect the change
+        assertEquals(pdp, cache.getSubGroup(GROUP_X, APEX).getPdpInstances().get(1));
+        assertEquals(pdp, cache.getGroup(GROUP_X).getPdpSubgroups().get(0).getPdpInstances().get(1));
+
+        // other PDP is unchanged
+        assertEquals(PdpHealthStatus.HEALTHY, cache.getPdp(GROUP_X, APEX, PDP_A).getHealthy());
+    }
+
+    @Test
+    public void testPutPdp_CopyOnWrite() {
+        List<Pdp> instances = cache.getSubGroup(GROUP_X, APEX).getPdpInstances();
+        Pdp oldPdp = instances.get(1);
+
+        Pdp pdp = new Pdp(oldPdp);
+        pdp.setHealthy(PdpHealthStatus.NOT_HEALTHY);
+        cache.putPdp(GROUP_X, APEX, pdp);
+
+        // list held by the reader is unchanged
+        assertSame(oldPdp, instances.get(1));
+        assertEquals(PdpHealthStatus.HEALTHY, oldPdp.getHealthy());
+
+        // new list has the new PDP
+        assertNotSame(instances, cache.getSubGroup(GROUP_X, APEX).getPdpInstances());
+        assertEquals(pdp, cache.getSubGroup(GROUP_X, APEX).getPdpInstances().get(1));
+    }
+
+    @Test
+    public void testPutSubGroup_CopyOnWrite() {
+        List<PdpSubGroup> subgroups = cache.getGroup(GROUP_X).getPdpSubgroups();
+        PdpSubGroup oldSubgrp = subgroups.get(0);
+
+        PdpSubGroup subgrp = new PdpSubGroup(oldSubgrp);
+        subgrp.setCurrentInstanceCount(1);
+        cache.putSubGroup(GROUP_X, subgrp);
+
+        subgrp = new PdpSubGroup(oldSubgrp);
+        subgrp.setPdpType(UNKNOWN);
+        cache.putSubGroup(GROUP_X, subgrp);
+
+        // list held by the reader is unchanged
+        assertEquals(2, subgroups.size());
+        assertSame(oldSubgrp, subgroups.get(0));
+
+        assertEquals(3, cache.getGroup(GROUP_X).getPdpSubgroups().size());
+    }
+
+    @Test
+    public void testPutPdp_Immutable() {
+        PdpGroup group = cache.getGroup(GROUP_X);
+        PdpSubGroup subgrp = cache.getSubGroup(GROUP_X, APEX);
+        assertSame(subgrp, group.getPdpSubgroups().get(0));
+
+        Pdp pdp = new Pdp(cache.getPdp(GROUP_X, APEX, PDP_B));
+        pdp.setHealthy(PdpHealthStatus.NOT_HEALTHY);
+        cache.putPdp(GROUP_X, APEX, pdp);
+
+        // objects held by the reader are unchanged
+        assertSame(subgrp, group.getPdpSubgroups().get(0));
+        assertEquals(PdpHealthStatus.HEALTHY, subgrp.getPdpInstances().get(1).getHealthy());
+
+        // new group and subgroup were built, sharing the subgroup that did not change
+        assertNotSame(group, cache.getGroup(GROUP_X));
+        assertNotSame(subgrp, cache.getSubGroup(GROUP_X, APEX));
+        assertSame(group.getPdpSubgroups().get(1), cache.getSubGroup(GROUP_X, DROOLS));
+
+        // cached lists cannot be modified
+        assertThatThrownBy(() -> cache.getGroup(GROUP_X).getPdpSubgroups().clear())
+                        .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> cache.getSubGroup(GROUP_X, APEX).getPdpInstances().clear())
+                        .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testPutPdp_Unknown() {
+        Pdp pdp = new Pdp(cache.getPdp(GROUP_X, APEX, PDP_B));
+        pdp.setHealthy(PdpHealthStatus.NOT_HEALTHY);
+
+        // unknown subgroup
+        cache.putPdp(GROUP_X, UNKNOWN, pdp);
+        assertNull(cache.getPdp(GROUP_X, UNKNOWN, PDP_B));
+
+        // unknown PDP - should not be added
+        pdp.setInstanceId(UNKNOWN);
+        cache.putPdp(GROUP_X, APEX, pdp);
+        assertNull(cache.getPdp(GROUP_X, APEX, UNKNOWN));
+        assertEquals(2, cache.getSubGroup(GROUP_X, APEX).getPdpInstances().size());
+    }
+
+    @Test
+    public void testRemoveGroup() {
+        cache.removeGroup(GROUP_X);
+        assertNull(cache.getGroup(GROUP_X));
+        assertNull(cache.getPdp(GROUP_X, APEX, PDP_A));
+
+        assertNotNull(cache.getGroup(GROUP_Y));
+
+        // remove it again - no exception
+        cache.removeGroup(GROUP_X);
+
+        cache.removeGroup(GROUP_Y);
+        assertEquals(Collections.emptyList(), cache.getGroups());
+    }
+
+    @Test
+    public void testGetStamp_ConfigOnly() {
+        long stampx = cache.getStamp(GROUP_X);
+        long version = cache.getVersion();
+
+        // PDP health changes should not advance the stamp, only the version
+        Pdp pdp = new Pdp(cache.getPdp(GROUP_X, APEX, PDP_B));
+        pdp.setHealthy(PdpHealthStatus.NOT_HEALTHY);
+        cache.putPdp(GROUP_X, APEX, pdp);
+        assertEquals(stampx, cache.getStamp(GROUP_X));
+        assertTrue(cache.getVersion() > version);
+        version = cache.getVersion();
+
+        // neither should a subgroup whose configuration is unchanged
+        PdpSubGroup subgroup = new PdpSubGroup(cache.getSubGroup(GROUP_X, APEX));
+        subgroup.getPdpInstances().get(0).setHealthy(PdpHealthStatus.NOT_HEALTHY);
+        cache.putSubGroup(GROUP_X, subgroup);
+        assertEquals(stampx, cache.getStamp(GROUP_X));
+        assertTrue(cache.getVersion() > version);
+
+        // policy change
+        subgroup = new PdpSubGroup(cache.getSubGroup(GROUP_X, APEX));
+        subgroup.getPolicies().add(new ToscaPolicyIdentifier("my-policy", "1.0.0"));
+        cache.putSubGroup(GROUP_X, subgroup);
+        assertTrue(cache.getStamp(GROUP_X) > stampx);
+        stampx = cache.getStamp(GROUP_X);
+
+        // supported type change
+        subgroup = new PdpSubGroup(cache.getSubGroup(GROUP_X, APEX));
+        subgroup.getSupportedPolicyTypes().add(new ToscaPolicyTypeIdentifier("my-type", "1.0.0"));
+        cache.putSubGroup(GROUP_X, subgroup);
+        assertTrue(cache.getStamp(GROUP_X) > stampx);
+        stampx = cache.getStamp(GROUP_X);
+
+        // desired count change
+        subgroup = new PdpSubGroup(cache.getSubGroup(GROUP_X, APEX));
+        subgroup.setDesiredInstanceCount(subgroup.getDesiredInstanceCount() + 1);
+        cache.putSubGroup(GROUP_X, subgroup);
+        assertTrue(cache.getStamp(GROUP_X) > stampx);
+        stampx = cache.getStamp(GROUP_X);
+
+        // PDP removed - groups are written as a whole, thus this changes it, too
+        subgroup = new PdpSubGroup(cache.getSubGroup(GROUP_X, APEX));
+        subgroup.getPdpInstances().remove(0);
+        cache.putSubGroup(GROUP_X, subgroup);
+        assertTrue(cache.getStamp(GROUP_X) > stampx);
+        stampx = cache.getStamp(GROUP_X);
+
+        // new subgroup
+        subgroup = new PdpSubGroup(cache.getSubGroup(GROUP_X, APEX));
+        subgroup.setPdpType(UNKNOWN);
+        cache.putSubGroup(GROUP_X, subgroup);
+        assertTrue(cache.getStamp(GROUP_X) > stampx);
+    }
+
+    @Test
+    public void testGetStamp_testGetStamps() {
+        assertEquals(0L, cache.getStamp(UNKNOWN));
+
+        Map<String, Long> stamps = cache.getStamps();
+        long stampx = cache.getStamp(GROUP_X);
+        long stampy = cache.getStamp(GROUP_Y);
+
+        // each modification should advance the stamp of the modified group only
+        cache.putGroup(new PdpGroup(cache.getGroup(GROUP_X)));
+        assertTrue(cache.getStamp(GROUP_X) > stampx);
+        assertEquals(stampy, cache.getStamp(GROUP_Y));
+        stampx = cache.getStamp(GROUP_X);
+
+        cache.removeGroup(GROUP_Y);
+        assertTrue(cache.getStamp(GROUP_Y) > stampy);
+
+        // the earlier snapshot should be unaffected
+        assertEquals(stampy, stamps.getOrDefault(GROUP_Y, 0L).longValue());
+        assertEquals(stamps.size(), cache.getStamps().size());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.policy.pap.main.comm.PdpGroupLockManager.GroupLocks;
+
+public class PdpGroupLockManagerTest {
+    private static final long MAX_WAIT_MS = 5000L;
+    private static final long SHORT_WAIT_MS = 100L;
+    private static final String GROUP_A = "group-A";
+    private static final String GROUP_B = "group-B";
+    private static final String GROUP_C = "group-C";
+
+    private PdpGroupLockManager mgr;
+
+    @Before
+    public void setUp() {
+        mgr = new PdpGroupLockManager();
+    }
+
+    @Test
+    public void testLock_testGetGroupNames_testContainsAll() {
+        try (GroupLocks locks = mgr.lock(Arrays.asList(GROUP_C, GROUP_A, GROUP_C))) {
+            // sorted, without duplicates
+            assertEquals("[group-A, group-C]", locks.getGroupNames().toString());
+
+            assertTrue(locks.containsAll(Collections.emptyList()));
+            assertTrue(locks.containsAll(Arrays.asList(GROUP_A, GROUP_C)));
+            assertFalse(locks.containsAll(Arrays.asList(GROUP_A, GROUP_B)));
+        }
+    }
+
+    @Test
+    public void testLock_SameGroup() throws Exception {
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        GroupLocks locks = mgr.lock(Arrays.asList(GROUP_A, GROUP_B));
+
+        Thread thread = new Thread(() -> {
+            try (GroupLocks locks2 = mgr.lock(Arrays.asList(GROUP_B, GROUP_C))) {
+                acquired.countDown();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        // should be blocked on group B
+        assertFalse(acquired.await(SHORT_WAIT_MS, TimeUnit.MILLISECONDS));
+
+        locks.close();
+        assertTrue(acquired.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+
+        thread.join(MAX_WAIT_MS);
+    }
+
+    @Test
+    public void testLock_DisjointGroups() throws Exception {
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        try (GroupLocks locks = mgr.lock(Arrays.asList(GROUP_A, GROUP_B))) {
+            Thread thread = new Thread(() -> {
+                try (GroupLocks locks2 = mgr.lock(Collections.singleton(GROUP_C))) {
+                    acquired.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+
+            // should not be blocked
+            assertTrue(acquired.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+
+            thread.join(MAX_WAIT_MS);
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        GroupLocks locks = mgr.lock(Collections.singleton(GROUP_A));
+        locks.close();
+
+        // close again - no exception
+        locks.close();
+
+        // another thread should be able to acquire it now
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try (GroupLocks locks2 = mgr.lock(Collections.singleton(GROUP_A))) {
+                acquired.countDown();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        assertTrue(acquired.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+
+        thread.join(MAX_WAIT_MS);
+    }
+}
@@ -0,0 +1,370 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.onap.policy.common.utils.coder.StandardCoder;
+import org.onap.policy.common.utils.resources.ResourceUtils;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.pdp.concepts.Pdp;
+import org.onap.policy.models.pdp.concepts.PdpGroup;
+import org.onap.policy.models.pdp.concepts.PdpGroups;
+import org.onap.policy.models.pdp.enums.PdpHealthStatus;
+import org.onap.policy.models.pdp.enums.PdpState;
+import org.onap.policy.models.provider.PolicyModelsProvider;
+import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+
+public class PdpHealthWriterTest extends Threaded {
+    private static final String GROUP_X = "group-X";
+    private static final String APEX = "apex";
+    private static final String DROOLS = "drools";
+    private static final String PDP_A = "pdp-A";
+    private static final String PDP_B = "pdp-B";
+    private static final String PDP_C = "pdp-C";
+    private static final long FLUSH_MS = 100000;
+    private static final int MAX_PENDING = 2;
+
+    @Mock
+    private PolicyModelsProviderFactoryWrapper daoFactory;
+
+    @Mock
+    private PolicyModelsProvider dao;
+
+    private PdpGroupCache cache;
+    private PdpHealthWriter.PdpHealthWriterBuilder builder;
+    private PdpHealthWriter writer;
+
+    /**
+     * Sets up.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+
+        MockitoAnnotations.initMocks(this);
+
+        String groupsJson = ResourceUtils.getResourceAsString("comm/PdpGroupCache.json");
+        List<PdpGroup> groups = new StandardCoder().decode(groupsJson, PdpGroups.class).getGroups();
+
+        when(daoFactory.create()).thenReturn(dao);
+        when(dao.getPdpGroups(null)).thenReturn(groups);
+
+        cache = new PdpGroupCache(daoFactory);
+
+        builder = PdpHealthWriter.builder().daoFactory(daoFactory).groupCache(cache).modifyLock(new Object())
+                        .flushMs(FLUSH_MS).maxPending(MAX_PENDING);
+
+        writer = builder.build();
+    }
+
+    @Override
+    protected void stopThread() {
+        writer.stop();
+    }
+
+    @Test
+    public void testPdpHealthWriter_MissingArgs() {
+        assertThatThrownBy(() -> builder.daoFactory(null).build()).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> builder.daoFactory(daoFactory).groupCache(null).build())
+                        .isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> builder.groupCache(cache).modifyLock(null).build())
+                        .isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+
+        writer.stop();
+        verify(dao).updatePdp(eq(GROUP_X), eq(APEX), any());
+        assertEquals(1, writer.getWriteCount());
+    }
+
+    @Test
+    public void testStop_WaitsForWriter() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(args -> {
+            writing.countDown();
+            release.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+            return null;
+        }).when(dao).updatePdp(any(), any(), any());
+
+        writer = builder.flushMs(1).build();
+        startThread(writer);
+
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+        assertTrue(writing.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+
+        // queued while the writer thread is flushing
+        writer.write(GROUP_X, APEX, makePdp(PDP_B, PdpHealthStatus.NOT_HEALTHY));
+
+        Thread stopper = new Thread(writer::stop);
+        stopper.setDaemon(true);
+        stopper.start();
+
+        // stop() must not flush until the writer thread exits
+        stopper.join(100);
+        assertTrue(stopper.isAlive());
+        verify(dao).updatePdp(any(), any(), any());
+
+        release.countDown();
+        stopper.join(MAX_WAIT_MS);
+        assertFalse(stopper.isAlive());
+        assertTrue(waitStop());
+
+        verify(dao, times(2)).updatePdp(any(), any(), any());
+        assertEquals(2, writer.getWriteCount());
+    }
+
+    @Test
+    public void testWrite_Unchanged() throws Exception {
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.HEALTHY));
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.HEALTHY));
+
+        writer.flush();
+
+        verify(dao, never()).updatePdp(any(), any(), any());
+        assertEquals(2, writer.getSkippedCount());
+        assertEquals(0, writer.getCoalescedCount());
+        assertEquals(0, writer.getWriteCount());
+    }
+
+    @Test
+    public void testWrite_Coalesced() throws Exception {
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.TEST_IN_PROGRESS));
+
+        // cache is updated immediately
+        assertEquals(PdpHealthStatus.TEST_IN_PROGRESS, cache.getPdp(GROUP_X, APEX, PDP_A).getHealthy());
+
+        // nothing written yet
+        verify(dao, never()).updatePdp(any(), any(), any());
+
+        writer.flush();
+
+        // should only write the latest value
+        verify(dao).updatePdp(GROUP_X, APEX, cache.getPdp(GROUP_X, APEX, PDP_A));
+        assertEquals(1, writer.getWriteCount());
+        assertEquals(1, writer.getCoalescedCount());
+        assertEquals(0, writer.getSkippedCount());
+
+        // flush again - nothing more to write
+        writer.flush();
+        assertEquals(1, writer.getWriteCount());
+
+        // change it again - should be queued again
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.HEALTHY));
+        writer.flush();
+        assertEquals(2, writer.getWriteCount());
+    }
+
+    @Test
+    public void testWrite_StateChanged() throws Exception {
+        Pdp pdp = makePdp(PDP_A, PdpHealthStatus.HEALTHY);
+        pdp.setPdpState(PdpState.SAFE);
+
+        writer.write(GROUP_X, APEX, pdp);
+        writer.flush();
+
+        verify(dao).updatePdp(GROUP_X, APEX, pdp);
+    }
+
+    @Test
+    public void testWrite_QueueFull() throws Exception {
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+        writer.write(GROUP_X, APEX, makePdp(PDP_B, PdpHealthStatus.NOT_HEALTHY));
+        verify(dao, never()).updatePdp(any(), any(), any());
+
+        // the caller should not write anything, even though the queue is full
+        writer.write(GROUP_X, DROOLS, makePdp(PDP_C, PdpHealthStatus.NOT_HEALTHY));
+        verify(dao, never()).updatePdp(any(), any(), any());
+
+        // the overflow is written with the rest
+        writer.flush();
+        verify(dao, times(2)).updatePdp(eq(GROUP_X), eq(APEX), any());
+        verify(dao).updatePdp(eq(GROUP_X), eq(DROOLS), any());
+        assertEquals(3, writer.getWriteCount());
+    }
+
+    @Test
+    public void testWrite_QueueFullRequestsFlush() throws Exception {
+        // long flush interval, thus only a flush request will wake the writer
+        startThread(writer);
+
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+        writer.write(GROUP_X, APEX, makePdp(PDP_B, PdpHealthStatus.NOT_HEALTHY));
+        writer.write(GROUP_X, DROOLS, makePdp(PDP_C, PdpHealthStatus.NOT_HEALTHY));
+
+        verify(dao, timeout(MAX_WAIT_MS)).updatePdp(eq(GROUP_X), eq(DROOLS), any());
+        verify(dao, timeout(MAX_WAIT_MS).times(2)).updatePdp(eq(GROUP_X), eq(APEX), any());
+
+        writer.stop();
+        assertTrue(waitStop());
+    }
+
+    @Test
+    public void testWrite_PdpRemoved() throws Exception {
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+
+        // remove the group before it's flushed
+        cache.removeGroup(GROUP_X);
+
+        writer.flush();
+        verify(dao, never()).updatePdp(any(), any(), any());
+    }
+
+    @Test
+    public void testWrite_UnknownPdp() throws Exception {
+        writer.write(GROUP_X, APEX, makePdp("unknown", PdpHealthStatus.NOT_HEALTHY));
+
+        writer.flush();
+        verify(dao, never()).updatePdp(any(), any(), any());
+    }
+
+    @Test
+    public void testFlush_DaoException() throws Exception {
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+
+        when(daoFactory.create()).thenThrow(mock(PfModelException.class));
+
+        // should not throw an exception
+        writer.flush();
+        assertEquals(1, writer.getRetryCount());
+
+        // a newer change should be merged with the retry
+        when(daoFactory.create()).thenReturn(dao);
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.HEALTHY));
+        writer.flush();
+
+        verify(dao).updatePdp(GROUP_X, APEX, cache.getPdp(GROUP_X, APEX, PDP_A));
+        assertEquals(1, writer.getCoalescedCount());
+    }
+
+    @Test
+    public void testFlush_RetriedAfterFailure() throws Exception {
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+
+        when(daoFactory.create()).thenThrow(mock(PfModelException.class)).thenReturn(dao);
+
+        // fails the first time
+        writer.flush();
+        verify(dao, never()).updatePdp(any(), any(), any());
+
+        // an identical heart beat is still skipped, as the cache already has the change
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+        assertEquals(1, writer.getSkippedCount());
+
+        // but the next flush writes it anyway
+        writer.flush();
+        verify(dao).updatePdp(GROUP_X, APEX, cache.getPdp(GROUP_X, APEX, PDP_A));
+        assertEquals(1, writer.getWriteCount());
+        assertEquals(1, writer.getRetryCount());
+
+        // nothing more to write
+        writer.flush();
+        assertEquals(1, writer.getWriteCount());
+    }
+
+    @Test
+    public void testFlush_UpdateException() throws Exception {
+        doThrow(mock(PfModelException.class)).when(dao).updatePdp(eq(GROUP_X), eq(APEX), any());
+
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+        writer.write(GROUP_X, DROOLS, makePdp(PDP_C, PdpHealthStatus.NOT_HEALTHY));
+
+        // should not throw an exception
+        writer.flush();
+
+        // second one should still have been written
+        verify(dao).updatePdp(eq(GROUP_X), eq(DROOLS), any());
+        assertEquals(1, writer.getWriteCount());
+
+        // first one should be retried on the next flush
+        doNothing().when(dao).updatePdp(eq(GROUP_X), eq(APEX), any());
+        writer.flush();
+        verify(dao, times(2)).updatePdp(eq(GROUP_X), eq(APEX), any());
+        verify(dao).updatePdp(eq(GROUP_X), eq(DROOLS), any());
+        assertEquals(2, writer.getWriteCount());
+        assertEquals(1, writer.getRetryCount());
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        writer = builder.flushMs(1).build();
+        startThread(writer);
+
+        writer.write(GROUP_X, APEX, makePdp(PDP_A, PdpHealthStatus.NOT_HEALTHY));
+
+        verify(dao, timeout(MAX_WAIT_MS)).updatePdp(eq(GROUP_X), eq(APEX), any());
+
+        writer.stop();
+        assertTrue(waitStop());
+    }
+
+    @Test
+    public void testRun_Interrupted() throws Exception {
+        startThread(writer);
+
+        interruptThread();
+        assertTrue(waitStop());
+    }
+
+    /**
+     * Makes a copy of a PDP in the cache, with a new health status.
+     *
+     * @param instanceId PDP instance ID
+     * @param health new health status
+     * @return a new PDP
+     */
+    private Pdp makePdp(String instanceId, PdpHealthStatus health) {
+        Pdp pdp = new Pdp();
+        pdp.setInstanceId(instanceId);
+        pdp.setPdpState(PdpState.ACTIVE);
+        pdp.setHealthy(health);
+
+        return pdp;
+    }
+}
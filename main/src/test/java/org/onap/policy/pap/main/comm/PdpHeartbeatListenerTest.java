@@ -0,0 +1,152 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.onap.policy.models.pdp.concepts.PdpStatus;
+import org.onap.policy.models.pdp.enums.PdpState;
+
+public class PdpHeartbeatListenerTest {
+    private static final String PDP1 = "pdp-1";
+    private static final String PDP2 = "pdp-2";
+    private static final String GROUP = "my-group";
+    private static final String SUBGROUP = "my-subgroup";
+    private static final long MAX_WAIT_MS = 5000;
+
+    private PartitionedExecutor executor;
+    private PdpStatusMessageHandler handler;
+    private PdpHeartbeatListener listener;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        // a single worker, so that the order in which messages are handled is known
+        executor = new PartitionedExecutor("my-heartbeat", 1);
+        executor.start();
+
+        handler = mock(PdpStatusMessageHandler.class);
+        listener = new PdpHeartbeatListener(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    public void testOnTopicEvent() {
+        listener = new PdpHeartbeatListener(executor, handler);
+
+        PdpStatus status = makeStatus(PDP1);
+        listener.onTopicEvent(null, null, status);
+
+        verify(handler, timeout(MAX_WAIT_MS)).handlePdpStatus(status);
+        assertEquals(0, listener.getDeferredCount());
+    }
+
+    @Test
+    public void testOnTopicEvent_Deferred() {
+        PdpStatus status1 = makeStatus(PDP1);
+        PdpStatus status2 = makeStatus(PDP2);
+        PdpStatus status3 = makeStatus(PDP1);
+
+        listener.onTopicEvent(null, null, status1);
+        listener.onTopicEvent(null, null, status2);
+        listener.onTopicEvent(null, null, status3);
+
+        // only the latest message from each PDP is kept
+        assertEquals(2, listener.getDeferredCount());
+
+        // nothing handled until the handler is set
+        PdpStatus status4 = makeStatus(PDP2);
+        listener.setHandler(handler);
+        listener.onTopicEvent(null, null, status4);
+
+        assertEquals(0, listener.getDeferredCount());
+
+        // wait for the last one - there's only one worker, so the others are done, too
+        verify(handler, timeout(MAX_WAIT_MS)).handlePdpStatus(status4);
+
+        InOrder order = inOrder(handler);
+        order.verify(handler).handlePdpStatus(status2);
+        order.verify(handler).handlePdpStatus(status3);
+        order.verify(handler).handlePdpStatus(status4);
+
+        verify(handler, never()).handlePdpStatus(status1);
+    }
+
+    @Test
+    public void testOnTopicEvent_NotDroppable() {
+        executor.stop();
+        executor = mock(PartitionedExecutor.class);
+        listener = new PdpHeartbeatListener(executor, handler);
+
+        // registration
+        listener.onTopicEvent(null, null, makeStatus(PDP1));
+        verify(executor).executeOrWait(eq(PDP1), any());
+
+        // plain heart beat
+        PdpStatus status = makeStatus(PDP2);
+        status.setPdpGroup(GROUP);
+        status.setPdpSubgroup(SUBGROUP);
+        status.setState(PdpState.ACTIVE);
+        listener.onTopicEvent(null, null, status);
+        verify(executor).execute(eq(PDP2), any());
+
+        // termination
+        status.setState(PdpState.TERMINATED);
+        listener.onTopicEvent(null, null, status);
+        verify(executor).executeOrWait(eq(PDP2), any());
+        verify(executor).execute(any(), any());
+    }
+
+    @Test
+    public void testSetHandler_Null() {
+        listener.setHandler(handler);
+        listener.setHandler(null);
+
+        // should be deferred again
+        listener.onTopicEvent(null, null, makeStatus(PDP1));
+        assertEquals(1, listener.getDeferredCount());
+
+        verify(handler, never()).handlePdpStatus(any());
+    }
+
+    private PdpStatus makeStatus(String pdpName) {
+        PdpStatus status = new PdpStatus();
+        status.setName(pdpName);
+        return status;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.policy.common.utils.coder.Coder;
+import org.onap.policy.common.utils.coder.StandardCoder;
+import org.onap.policy.models.pdp.concepts.PdpStateChange;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+
+public class PdpMessageCoderTest {
+    private static final Coder stdCoder = new StandardCoder();
+
+    private PdpMessageCoder coder;
+    private SharedPolicyList policies;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        coder = new PdpMessageCoder();
+
+        ToscaPolicy policy1 = SharedPolicyListTest.makePolicy("policy-A");
+        ToscaPolicy policy2 = SharedPolicyListTest.makePolicy("policy-B");
+
+        Map<String, Object> props = new TreeMap<>();
+        props.put("text", "some <html> & \"quoted\" text");
+        props.put("number", 10.5);
+        policy2.setProperties(props);
+
+        policies = new SharedPolicyList(Arrays.asList(policy1, policy2));
+    }
+
+    @Test
+    public void testEncode_NotUpdate() throws Exception {
+        PdpStateChange change = new PdpStateChange();
+        change.setName("my-name");
+
+        assertEquals(stdCoder.encode(change), coder.encode(change));
+    }
+
+    @Test
+    public void testEncode_NotShared() throws Exception {
+        PdpUpdate update = makeUpdate("pdp-A");
+        update.setPolicies(Arrays.asList(policies.get(0), policies.get(1)));
+
+        assertEquals(stdCoder.encode(update), coder.encode(update));
+    }
+
+    @Test
+    public void testEncode_Shared() throws Exception {
+        PdpUpdate update1 = makeUpdate("pdp-A");
+        update1.setPolicies(policies);
+
+        PdpUpdate update2 = makeUpdate("pdp-B");
+        update2.setPolicies(policies);
+
+        String json1 = coder.encode(update1);
+        String json2 = coder.encode(update2);
+        assertNotEquals(json1, json2);
+
+        // should decode to the same thing the standard coder produces
+        assertJsonEquals(update1, json1);
+        assertJsonEquals(update2, json2);
+
+        // and should decode to the original message
+        PdpUpdate decoded = coder.decode(json2, PdpUpdate.class);
+        assertEquals(update2.getName(), decoded.getName());
+        assertEquals(update2.getRequestId(), decoded.getRequestId());
+        assertEquals(policies, decoded.getPolicies());
+    }
+
+    @Test
+    public void testEncode_SharedHeader() throws Exception {
+        PdpUpdate update = makeUpdate("pdp-A");
+        update.setDescription("some <html> & \"quoted\" text");
+        update.setPolicies(policies);
+
+        // header fields should be encoded exactly as the standard coder encodes them
+        String json = coder.encode(update);
+        assertTrue(json.contains("\"description\":" + stdCoder.encode(update.getDescription())));
+        assertJsonEquals(update, json);
+    }
+
+    @Test
+    public void testEncode_SharedEmpty() throws Exception {
+        PdpUpdate update = makeUpdate("pdp-A");
+        update.setPolicies(new SharedPolicyList(Collections.emptyList()));
+
+        assertJsonEquals(update, coder.encode(update));
+    }
+
+    @Test
+    public void testEncode_Delta() throws Exception {
+        PdpDeltaUpdate delta = new PdpDeltaUpdate(makeUpdate("pdp-A"), 2);
+        delta.setPolicies(policies);
+        delta.setBaseGeneration(1);
+        delta.setPoliciesToBeDeployed(Collections.singletonList(policies.get(1)));
+        delta.setPoliciesToBeUndeployed(Collections.singletonList(
+                        SharedPolicyListTest.makePolicy("policy-Z").getIdentifier()));
+
+        String json = coder.encode(delta);
+        assertFalse(json.contains("\"policies\""));
+
+        PdpDeltaUpdate decoded = coder.decode(json, PdpDeltaUpdate.class);
+        assertEquals(delta.getName(), decoded.getName());
+        assertEquals(delta.getRequestId(), decoded.getRequestId());
+        assertNull(decoded.getPolicies());
+        assertEquals(2, decoded.getGeneration());
+        assertEquals(1, decoded.getBaseGeneration());
+        assertEquals(delta.getPoliciesToBeDeployed(), decoded.getPoliciesToBeDeployed());
+        assertEquals(delta.getPoliciesToBeUndeployed(), decoded.getPoliciesToBeUndeployed());
+    }
+
+    @Test
+    public void testEncode_DeltaFull() throws Exception {
+        PdpDeltaUpdate full = new PdpDeltaUpdate(makeUpdate("pdp-A"), 2);
+
+        // shared policies
+        full.setPolicies(policies);
+        assertJsonEquals(full, coder.encode(full));
+
+        // not shared
+        full.setPolicies(Arrays.asList(policies.get(0), policies.get(1)));
+        assertEquals(stdCoder.encode(full), coder.encode(full));
+
+        PdpDeltaUpdate decoded = coder.decode(coder.encode(full), PdpDeltaUpdate.class);
+        assertEquals(full.getPolicies(), decoded.getPolicies());
+        assertEquals(2, decoded.getGeneration());
+    }
+
+    @Test
+    public void testEncode_Compressed() throws Exception {
+        PdpMessageCompressor compressor = new PdpMessageCompressor(Collections.singleton("my-subgroup"));
+        coder = new PdpMessageCoder(compressor);
+
+        PdpUpdate update = makeUpdate("pdp-A");
+        update.setPolicies(policies);
+        update.setDescription(makeText(PdpMessageCompressor.MIN_LENGTH));
+
+        String json = coder.encode(update);
+        assertTrue(PdpMessageCompressor.isCompressed(json));
+        assertEquals("PDP_UPDATE", PdpMessageCompressor.parseEnvelope(json).getMessageName());
+        assertJsonEquals(update, compressor.decompress(json));
+        assertEquals(1, compressor.getCompressedCount());
+    }
+
+    @Test
+    public void testEncode_NotCompressed() throws Exception {
+        PdpMessageCompressor compressor = new PdpMessageCompressor(Collections.singleton("my-subgroup"));
+        coder = new PdpMessageCoder(compressor);
+
+        // too small
+        PdpUpdate update = makeUpdate("pdp-A");
+        update.setPolicies(policies);
+        assertJsonEquals(update, coder.encode(update));
+
+        // not enabled for the PDP type
+        update.setDescription(makeText(PdpMessageCompressor.MIN_LENGTH));
+        update.setPdpSubgroup("other-subgroup");
+        assertJsonEquals(update, coder.encode(update));
+
+        // not an update
+        PdpStateChange change = new PdpStateChange();
+        change.setName(makeText(PdpMessageCompressor.MIN_LENGTH));
+        change.setPdpSubgroup("my-subgroup");
+        assertEquals(stdCoder.encode(change), coder.encode(change));
+
+        assertEquals(0, compressor.getCompressedCount());
+    }
+
+    private String makeText(int length) {
+        StringBuilder bldr = new StringBuilder(length);
+        while (bldr.length() < length) {
+            bldr.append("some text ");
+        }
+
+        return bldr.toString();
+    }
+
+    /**
+     * Verifies that JSON decodes to the same thing as the standard encoding of a message.
+     *
+     * @param update the original message
+     * @param json the JSON to be checked
+     * @throws Exception if an error occurs
+     */
+    private void assertJsonEquals(PdpUpdate update, String json) throws Exception {
+        Object expected = stdCoder.decode(stdCoder.encode(update), Object.class);
+        Object actual = stdCoder.decode(json, Object.class);
+
+        assertEquals(expected, actual);
+    }
+
+    private PdpUpdate makeUpdate(String name) {
+        PdpUpdate update = new PdpUpdate();
+        update.setName(name);
+        update.setDescription("my description");
+        update.setPdpGroup("my-group");
+        update.setPdpSubgroup("my-subgroup");
+        update.setPdpHeartbeatIntervalMs(1000L);
+
+        return update;
+    }
+}
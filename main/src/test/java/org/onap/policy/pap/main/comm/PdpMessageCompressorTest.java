@@ -0,0 +1,167 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.policy.common.utils.coder.CoderException;
+
+public class PdpMessageCompressorTest {
+    private static final String TYPE_A = "type-A";
+    private static final String TYPE_B = "type-B";
+    private static final String MESSAGE = "{\"messageName\":\"PDP_STATUS\",\"text\":\"ab\\u00e9cd\"}";
+
+    private PdpMessageCompressor compressor;
+
+    @Before
+    public void setUp() {
+        compressor = new PdpMessageCompressor(Arrays.asList(TYPE_A, TYPE_B));
+    }
+
+    @Test
+    public void testPdpMessageCompressor() {
+        assertThatIllegalArgumentException()
+                        .isThrownBy(() -> new PdpMessageCompressor(Collections.emptyList(), 0));
+    }
+
+    @Test
+    public void testIsEnabled() {
+        assertTrue(compressor.isEnabled(TYPE_A));
+        assertTrue(compressor.isEnabled(TYPE_B));
+        assertFalse(compressor.isEnabled("unknown"));
+        assertFalse(compressor.isEnabled(null));
+
+        assertFalse(new PdpMessageCompressor(Collections.emptyList()).isEnabled(TYPE_A));
+    }
+
+    @Test
+    public void testCompress() throws Exception {
+        StringBuilder bldr = new StringBuilder();
+        for (int count = 0; count < 100; ++count) {
+            bldr.append(MESSAGE);
+        }
+
+        String original = bldr.toString();
+        String compressed = compressor.compress(original);
+
+        assertTrue(PdpMessageCompressor.isCompressed(compressed));
+        assertTrue(compressed.length() < original.length());
+
+        assertEquals(original, compressor.decompress(compressed));
+
+        assertEquals(1, compressor.getCompressedCount());
+        assertEquals(original.getBytes("UTF-8").length, compressor.getUncompressedBytes());
+        assertEquals(compressed.length(), compressor.getCompressedBytes());
+        assertTrue(compressor.getCompressionRatio() > 1);
+        assertTrue(compressor.getCompressCpuMs() >= 0);
+        assertEquals(1, compressor.getDecompressedCount());
+        assertTrue(compressor.getDecompressCpuMs() >= 0);
+    }
+
+    @Test
+    public void testCompress_MessageName() throws Exception {
+        String compressed = compressor.compress("PDP_STATUS", MESSAGE);
+
+        assertEquals("PDP_STATUS", PdpMessageCompressor.parseEnvelope(compressed).getMessageName());
+        assertEquals(MESSAGE, compressor.decompress(compressed));
+
+        // without a name
+        assertNull(PdpMessageCompressor.parseEnvelope(compressor.compress(MESSAGE)).getMessageName());
+    }
+
+    @Test
+    public void testDecompress_NotCompressed() throws Exception {
+        assertSame(MESSAGE, compressor.decompress(MESSAGE));
+        assertEquals(0, compressor.getDecompressedCount());
+    }
+
+    @Test
+    public void testDecompress_Invalid() {
+        assertThatThrownBy(() -> compressor.decompress("{\"compression\":\"gzip\",\"payload\":\"not-base64!\"}"))
+                        .isInstanceOf(CoderException.class);
+
+        assertThatThrownBy(() -> compressor.decompress("{\"compression\":\"gzip\",\"payload\":\"AAAA\"}"))
+                        .isInstanceOf(CoderException.class);
+    }
+
+    @Test
+    public void testDecompress_TooLarge() throws Exception {
+        StringBuilder bldr = new StringBuilder();
+        for (int count = 0; count < 1000; ++count) {
+            bldr.append('x');
+        }
+
+        String original = bldr.toString();
+
+        // exactly at the limit
+        compressor = new PdpMessageCompressor(Collections.emptyList(), original.length());
+        assertEquals(original, compressor.decompress(compressor.compress(original)));
+
+        // one byte over the limit
+        compressor = new PdpMessageCompressor(Collections.emptyList(), original.length() - 1);
+        String compressed = compressor.compress(original);
+        assertThatThrownBy(() -> compressor.decompress(compressed)).isInstanceOf(CoderException.class)
+                        .hasMessage("decompressed message exceeds 999 bytes");
+
+        assertEquals(0, compressor.getDecompressedCount());
+    }
+
+    @Test
+    public void testIsCompressed() {
+        assertFalse(PdpMessageCompressor.isCompressed(MESSAGE));
+        assertFalse(PdpMessageCompressor.isCompressed("{\"compression\":\"gzip\",\"payload\":\""));
+        assertTrue(PdpMessageCompressor.isCompressed("{\"compression\":\"gzip\",\"payload\":\"\"}"));
+    }
+
+    @Test
+    public void testParseEnvelope() throws Exception {
+        // any order, any white space
+        String payload = PdpMessageCompressor.parseEnvelope(compressor.compress(MESSAGE)).getPayload();
+        String json = " {\n \"payload\" : \"" + payload + "\",\n \"compression\" : \"gzip\" }\n";
+        assertEquals(payload, PdpMessageCompressor.parseEnvelope(json).getPayload());
+        assertEquals(MESSAGE, compressor.decompress(json));
+
+        // not envelopes
+        assertNull(PdpMessageCompressor.parseEnvelope(""));
+        assertNull(PdpMessageCompressor.parseEnvelope("not json"));
+        assertNull(PdpMessageCompressor.parseEnvelope("[]"));
+        assertNull(PdpMessageCompressor.parseEnvelope("{\"payload\":\"\"}"));
+        assertNull(PdpMessageCompressor.parseEnvelope("{\"compression\":\"zip\",\"payload\":\"\"}"));
+        assertNull(PdpMessageCompressor.parseEnvelope("{\"compression\":\"gzip\",\"payload\":10}"));
+        assertNull(PdpMessageCompressor.parseEnvelope("{\"compression\":\"gzip\",\"payload\":\"\",\"x\":\"\"}"));
+        assertNull(PdpMessageCompressor.parseEnvelope("{\"compression\":\"gzip\",\"payload\":\"\"} {}"));
+    }
+
+    @Test
+    public void testGetCompressionRatio() {
+        assertEquals(0, compressor.getCompressionRatio(), 0);
+    }
+}
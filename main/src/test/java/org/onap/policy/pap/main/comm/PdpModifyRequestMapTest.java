@@ -22,6 +22,7 @@ package org.onap.policy.pap.main.comm;
 
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -54,9 +55,12 @@ import org.onap.policy.models.pdp.concepts.PdpStatus;
 import org.onap.policy.models.pdp.concepts.PdpSubGroup;
 import org.onap.policy.models.pdp.concepts.PdpUpdate;
 import org.onap.policy.models.pdp.enums.PdpState;
+import org.onap.policy.pap.main.comm.Publisher.Lane;
 import org.onap.policy.pap.main.comm.msgdata.Request;
 import org.onap.policy.pap.main.comm.msgdata.RequestListener;
 import org.onap.policy.pap.main.parameters.PdpModifyRequestMapParams;
+import org.onap.policy.pap.main.rest.PapStatisticsManager;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Counts;
 import org.powermock.reflect.Whitebox;
 
 public class PdpModifyRequestMapTest extends CommonRequestBase {
@@ -115,6 +119,7 @@ public class PdpModifyRequestMapTest extends CommonRequestBase {
         assertSame(mapParams, Whitebox.getInternalState(map, "params"));
         assertSame(lock, Whitebox.getInternalState(map, "modifyLock"));
         assertSame(daoFactory, Whitebox.getInternalState(map, "daoFactory"));
+        assertSame(deploymentTracker, Whitebox.getInternalState(map, "deploymentTracker"));
     }
 
     @Test
@@ -130,6 +135,9 @@ public class PdpModifyRequestMapTest extends CommonRequestBase {
         // try again - it shouldn't stop publishing again
         map.stopPublishing(PDP1);
         verify(requests, times(1)).stopPublishing();
+
+        // any deployments waiting on the PDP should have been failed
+        verify(deploymentTracker, times(3)).failure(eq(PDP1), any());
     }
 
     @Test
@@ -209,6 +217,58 @@ public class PdpModifyRequestMapTest extends CommonRequestBase {
                         .withMessageStartingWith("unexpected broadcast message: PdpUpdate");
     }
 
+    @Test
+    public void testAddRequestPdpUpdate_Delta() {
+        when(mapParams.getParams().getDeltaPdpTypes()).thenReturn(Arrays.asList(MY_SUBGROUP));
+        map = new MyMap(mapParams);
+
+        update.setPolicies(Arrays.asList(makePolicy("policy-a", "1.0.0"), makePolicy("policy-b", "1.0.0")));
+        map.addRequest(update);
+
+        // first one is a full update
+        Request req = getSingletons(1).get(0);
+        PdpDeltaUpdate full = (PdpDeltaUpdate) req.getMessage();
+        assertFalse(full.isDelta());
+        assertEquals(update.getPolicies(), full.getPolicies());
+
+        // once acknowledged, the next one should be a delta
+        getListener(req).success(PDP1);
+
+        PdpUpdate update2 = makeUpdate(PDP1, MY_GROUP, MY_SUBGROUP);
+        update2.setPolicies(Arrays.asList(update.getPolicies().get(0)));
+        map.addRequest(update2);
+
+        req = getSingletons(2).get(1);
+        PdpDeltaUpdate delta = (PdpDeltaUpdate) req.getMessage();
+        assertTrue(delta.isDelta());
+        assertEquals(full.getGeneration(), delta.getBaseGeneration());
+        assertTrue(delta.getPoliciesToBeDeployed().isEmpty());
+        assertEquals(Arrays.asList(update.getPolicies().get(1).getIdentifier()), delta.getPoliciesToBeUndeployed());
+        verify(deploymentTracker).success(full);
+
+        // after a failure, the next one should be a full update
+        getListener(req).failure(PDP1, MY_REASON);
+
+        map.addRequest(update2);
+        assertFalse(((PdpDeltaUpdate) getSingletons(3).get(2).getMessage()).isDelta());
+    }
+
+    @Test
+    public void testAddRequestPdpUpdate_DeltaOtherType() {
+        when(mapParams.getParams().getDeltaPdpTypes()).thenReturn(Arrays.asList(MY_SUBGROUP));
+        map = new MyMap(mapParams);
+
+        // type doesn't support deltas - should be sent as is
+        PdpUpdate update2 = makeUpdate(PDP1, MY_GROUP, DIFFERENT);
+        map.addRequest(update2);
+        assertSame(update2, getSingletons(1).get(0).getMessage());
+
+        // PDP being removed from its subgroup - should be sent as is
+        PdpUpdate update3 = makeUpdate(PDP1, null, null);
+        map.addRequest(update3);
+        assertSame(update3, getSingletons(2).get(1).getMessage());
+    }
+
     @Test
     public void testAddRequestPdpStateChange() {
         // null should be ok
@@ -326,6 +386,28 @@ public class PdpModifyRequestMapTest extends CommonRequestBase {
         assertEquals(PdpState.PASSIVE, change.getState());
     }
 
+    @Test
+    public void testDisablePdp_StateChangeLane() throws Exception {
+        map.addRequest(update);
+
+        // put the PDP in a group
+        PdpGroup group = makeGroup(MY_GROUP);
+        group.setPdpSubgroups(Arrays.asList(makeSubGroup(MY_SUBGROUP, PDP1)));
+
+        when(dao.getFilteredPdpGroups(any())).thenReturn(Arrays.asList(group));
+
+        // indicate failure
+        invokeFailureHandler(1);
+
+        // both the UPDATE and the PASSIVE state-change bypass the BULK lane
+        List<Request> singletons = getSingletons(3);
+        singletons.get(1).startPublishing();
+        singletons.get(2).startPublishing();
+
+        verify(publisher, times(2)).enqueue(eq(Lane.STATE_CHANGE), any());
+        verify(publisher, never()).enqueue(eq(Lane.BULK), any());
+    }
+
     @Test
     public void testDisablePdp_NotInGroup() {
         map.addRequest(update);
@@ -472,6 +554,7 @@ public class PdpModifyRequestMapTest extends CommonRequestBase {
         invokeFailureHandler(1);
 
         verify(requests).stopPublishing();
+        verify(deploymentTracker).failure(PDP1, MY_REASON);
     }
 
     @Test
@@ -483,6 +566,7 @@ public class PdpModifyRequestMapTest extends CommonRequestBase {
         invokeFailureHandler(1);
 
         verify(requests, never()).stopPublishing();
+        verify(deploymentTracker, never()).failure(any(), any());
     }
 
     @Test
@@ -493,6 +577,7 @@ public class PdpModifyRequestMapTest extends CommonRequestBase {
         invokeSuccessHandler(1);
 
         verify(requests, never()).stopPublishing();
+        verify(deploymentTracker).success(change);
 
         // requests should have been removed from the map so this should allocate another
         map.addRequest(update);
@@ -508,6 +593,7 @@ public class PdpModifyRequestMapTest extends CommonRequestBase {
         invokeSuccessHandler(1);
 
         verify(requests, never()).stopPublishing();
+        verify(deploymentTracker, never()).success(any());
 
         // no effect on the map
         map.addRequest(update);
@@ -531,6 +617,28 @@ public class PdpModifyRequestMapTest extends CommonRequestBase {
         assertEquals(2, map.nalloc);
     }
 
+    @Test
+    public void testSingletonListener_DownloadStatistics() throws Exception {
+        PapStatisticsManager stats = Whitebox.getInternalState(map, "stats");
+        stats.resetAllStatistics();
+
+        // state changes are not counted
+        map.addRequest(change);
+        invokeSuccessHandler(1);
+        assertEquals(0, stats.getTotalPolicyDownloadCount());
+
+        map.addRequest(update);
+        getListener(getSingletons(2).get(1)).success(PDP1);
+        map.addRequest(update);
+        getListener(getSingletons(3).get(2)).failure(PDP1, MY_REASON);
+
+        Counts counts = stats.getSnapshot().getGroups().get(MY_GROUP);
+        assertEquals(2, counts.getTotalPolicyDownloadCount());
+        assertEquals(1, counts.getPolicyDownloadSuccessCount());
+        assertEquals(1, counts.getPolicyDownloadFailureCount());
+        assertEquals(2, stats.getSnapshot().getPdpTypes().get(MY_SUBGROUP).getTotalPolicyDownloadCount());
+    }
+
     @Test
     public void testSingletonListenerRetryCountExhausted() throws Exception {
         map.addRequest(change);
@@ -539,6 +647,7 @@ public class PdpModifyRequestMapTest extends CommonRequestBase {
         getListener(getSingletons(1).get(0)).retryCountExhausted();
 
         verify(requests).stopPublishing();
+        verify(deploymentTracker).retryCountExhausted(PDP1);
     }
 
 
@@ -20,22 +20,23 @@
 
 package org.onap.policy.pap.main.comm;
 
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.onap.policy.common.utils.coder.StandardCoder;
@@ -46,38 +47,27 @@ import org.onap.policy.models.pdp.concepts.PdpGroups;
 import org.onap.policy.models.provider.PolicyModelsProvider;
 import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
 import org.onap.policy.pap.main.PolicyPapRuntimeException;
-import org.onap.policy.pap.main.comm.TimerManager.Timer;
 
-public class PdpTrackerTest {
+public class PdpTrackerTest extends Threaded {
     private static final String PDP1 = "pdp1";
     private static final String PDP2 = "pdp2";
+    private static final long PDP_WAIT_MS = 30000;
+    private static final long SWEEP_MS = 1000;
 
-    private PdpTracker tracker;
+    private MyTracker tracker;
     private PdpTracker.PdpTrackerBuilder builder;
 
     private Object modifyLock;
 
-    @Captor
-    private ArgumentCaptor<Consumer<String>> handlerCaptor;
-
     @Mock
     private PdpModifyRequestMap requestMap;
 
-    @Mock
-    private TimerManager timers;
-
     @Mock
     private PolicyModelsProviderFactoryWrapper daoFactory;
 
     @Mock
     private PolicyModelsProvider dao;
 
-    @Mock
-    private Timer timer1;
-
-    @Mock
-    private Timer timer2;
-
     /**
      * Sets up.
      *
@@ -85,21 +75,25 @@ public class PdpTrackerTest {
      */
     @Before
     public void setUp() throws Exception {
+        super.setUp();
+
         MockitoAnnotations.initMocks(this);
 
         modifyLock = new Object();
 
         builder = PdpTracker.builder().daoFactory(daoFactory).modifyLock(modifyLock).requestMap(requestMap)
-                        .timers(timers);
+                        .maxWaitMs(PDP_WAIT_MS).sweepMs(SWEEP_MS);
 
         when(daoFactory.create()).thenReturn(dao);
 
         when(dao.getPdpGroups(null)).thenReturn(Collections.emptyList());
 
-        when(timers.register(eq(PDP1), any())).thenReturn(timer1);
-        when(timers.register(eq(PDP2), any())).thenReturn(timer2);
+        tracker = new MyTracker();
+    }
 
-        tracker = builder.build();
+    @Override
+    protected void stopThread() {
+        tracker.stop();
     }
 
     @Test
@@ -124,8 +118,13 @@ public class PdpTrackerTest {
     }
 
     @Test
-    public void testPdpTracker_MissingTimers() throws Exception {
-        assertThatThrownBy(() -> builder.timers(null).build()).isInstanceOf(NullPointerException.class);
+    public void testPdpTracker_InvalidMaxWait() throws Exception {
+        assertThatIllegalArgumentException().isThrownBy(() -> builder.maxWaitMs(0).build());
+    }
+
+    @Test
+    public void testPdpTracker_InvalidSweep() throws Exception {
+        assertThatIllegalArgumentException().isThrownBy(() -> builder.sweepMs(0).build());
     }
 
     @Test
@@ -140,13 +139,16 @@ public class PdpTrackerTest {
         List<PdpGroup> groups = new StandardCoder().decode(groupsJson, PdpGroups.class).getGroups();
         when(dao.getPdpGroups(null)).thenReturn(groups);
 
-        tracker = builder.build();
+        tracker = new MyTracker();
+
+        tracker.advance(PDP_WAIT_MS);
+        tracker.sweep();
 
-        // verify that all PDPs were registered
-        verify(timers).register(eq("pdp-A"), any());
-        verify(timers).register(eq("pdp-B"), any());
-        verify(timers).register(eq("pdp-C"), any());
-        verify(timers).register(eq("pdp-D"), any());
+        // verify that all PDPs were being tracked
+        verify(requestMap).removeFromGroups("pdp-A");
+        verify(requestMap).removeFromGroups("pdp-B");
+        verify(requestMap).removeFromGroups("pdp-C");
+        verify(requestMap).removeFromGroups("pdp-D");
     }
 
     @Test
@@ -159,54 +161,132 @@ public class PdpTrackerTest {
     }
 
     @Test
-    public void testAdd() {
+    public void testAdd() throws Exception {
         tracker.add(PDP1);
-        verify(timers).register(eq(PDP1), any());
-        verify(timer1, never()).cancel();
-
         tracker.add(PDP2);
-        verify(timers).register(eq(PDP2), any());
-        verify(timer1, never()).cancel();
-        verify(timer2, never()).cancel();
 
-        // re-add PDP1 - old timer should be canceled and a new timer added
-        Timer timer3 = mock(Timer.class);
-        when(timers.register(eq(PDP1), any())).thenReturn(timer3);
+        tracker.advance(PDP_WAIT_MS - 1);
+        tracker.sweep();
+        verify(requestMap, never()).removeFromGroups(any());
+
+        // re-add PDP1 - it should get a new lease on life
         tracker.add(PDP1);
-        verify(timer1).cancel();
-        verify(timer2, never()).cancel();
-        verify(timer3, never()).cancel();
+
+        tracker.advance(1);
+        tracker.sweep();
+        verify(requestMap).removeFromGroups(PDP2);
+        verify(requestMap, never()).removeFromGroups(PDP1);
+
+        tracker.advance(PDP_WAIT_MS);
+        tracker.sweep();
+        verify(requestMap).removeFromGroups(PDP1);
+
+        // sweep again - nothing more should be removed
+        tracker.advance(PDP_WAIT_MS);
+        tracker.sweep();
+        verify(requestMap, times(2)).removeFromGroups(any());
     }
 
     @Test
-    public void testHandleTimeout() throws Exception {
+    public void testAdd_AfterExpired() throws Exception {
         tracker.add(PDP1);
-        tracker.add(PDP2);
+        tracker.advance(PDP_WAIT_MS);
+        tracker.sweep();
+        verify(requestMap).removeFromGroups(PDP1);
 
-        verify(timers).register(eq(PDP1), handlerCaptor.capture());
+        // add it again - should be tracked again
+        tracker.add(PDP1);
+        tracker.advance(PDP_WAIT_MS - 1);
+        tracker.sweep();
+        verify(requestMap).removeFromGroups(PDP1);
 
-        handlerCaptor.getValue().accept(PDP1);
+        tracker.advance(1);
+        tracker.sweep();
+        verify(requestMap, times(2)).removeFromGroups(PDP1);
+    }
 
-        verify(requestMap).removeFromGroups(PDP1);
+    @Test
+    public void testHandleTimeout_ReAdded() throws Exception {
+        // PDP sends a heart beat while it's being removed
+        when(requestMap.removeFromGroups(PDP1)).thenAnswer(args -> {
+            tracker.add(PDP1);
+            return true;
+        });
 
-        // now we'll re-add PDP1 - the original timer should not be canceled
-        Timer timer3 = mock(Timer.class);
-        when(timers.register(eq(PDP1), any())).thenReturn(timer3);
         tracker.add(PDP1);
-        verify(timer1, never()).cancel();
+        tracker.advance(PDP_WAIT_MS);
+        tracker.sweep();
+        verify(requestMap).removeFromGroups(PDP1);
+
+        // should still be tracked
+        tracker.advance(PDP_WAIT_MS);
+        tracker.sweep();
+        verify(requestMap, times(2)).removeFromGroups(PDP1);
     }
 
     @Test
     public void testHandleTimeout_MapException() throws Exception {
         tracker.add(PDP1);
-
-        verify(timers).register(eq(PDP1), handlerCaptor.capture());
+        tracker.add(PDP2);
 
         // arrange for request map to throw an exception
         PfModelException ex = mock(PfModelException.class);
         when(requestMap.removeFromGroups(PDP1)).thenThrow(ex);
 
         // exception should be caught, but not re-thrown
-        handlerCaptor.getValue().accept(PDP1);
+        tracker.advance(PDP_WAIT_MS);
+        tracker.sweep();
+
+        verify(requestMap).removeFromGroups(PDP2);
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        PdpTracker tracker2 = builder.maxWaitMs(1).sweepMs(1).build();
+        startThread(tracker2);
+
+        tracker2.add(PDP1);
+        verify(requestMap, timeout(MAX_WAIT_MS)).removeFromGroups(PDP1);
+
+        tracker2.stop();
+        assertTrue(waitStop());
+    }
+
+    @Test
+    public void testRun_Interrupted() throws Exception {
+        startThread(tracker);
+
+        interruptThread();
+        assertTrue(waitStop());
+    }
+
+    @Test
+    public void testCurrentTimeNanos() {
+        long tbeg = System.nanoTime();
+        long tcur = builder.build().currentTimeNanos();
+        long tend = System.nanoTime();
+
+        assertTrue(tcur - tbeg >= 0);
+        assertTrue(tend - tcur >= 0);
+    }
+
+    /**
+     * Tracker whose notion of time is controlled here.
+     */
+    private class MyTracker extends PdpTracker {
+        private long curTime;
+
+        public MyTracker() {
+            super(requestMap, modifyLock, PDP_WAIT_MS, SWEEP_MS, daoFactory);
+        }
+
+        public void advance(long timeMs) {
+            curTime += TimeUnit.MILLISECONDS.toNanos(timeMs);
+        }
+
+        @Override
+        protected long currentTimeNanos() {
+            return curTime;
+        }
     }
 }
@@ -20,12 +20,15 @@
 
 package org.onap.policy.pap.main.comm;
 
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
@@ -42,10 +45,15 @@ import org.onap.policy.common.endpoints.utils.ParameterUtils;
 import org.onap.policy.common.utils.coder.Coder;
 import org.onap.policy.common.utils.coder.CoderException;
 import org.onap.policy.common.utils.coder.StandardCoder;
+import org.onap.policy.common.utils.services.Registry;
 import org.onap.policy.models.pdp.concepts.PdpMessage;
 import org.onap.policy.models.pdp.concepts.PdpStateChange;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.models.pdp.enums.PdpState;
 import org.onap.policy.pap.main.PapConstants;
 import org.onap.policy.pap.main.PolicyPapException;
+import org.onap.policy.pap.main.comm.Publisher.Lane;
+import org.onap.policy.pap.main.metrics.PapMetrics;
 import org.onap.policy.pap.main.parameters.PapParameterGroup;
 import org.onap.policy.pap.main.parameters.PapParameterHandler;
 import org.onap.policy.pap.main.startstop.PapCommandLineArguments;
@@ -152,6 +160,16 @@ public class PublisherTest extends Threaded {
         assertThatThrownBy(() -> new Publisher("unknwon-topic")).isInstanceOf(PolicyPapException.class);
     }
 
+    @Test
+    public void testPublisher_InvalidArgs() throws Exception {
+        Coder coder = new StandardCoder();
+
+        assertThatIllegalArgumentException()
+                        .isThrownBy(() -> new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP, coder, 0, 1));
+        assertThatIllegalArgumentException()
+                        .isThrownBy(() -> new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP, coder, 1, 0));
+    }
+
     @Test
     public void testEnqueue() throws Exception {
         // enqueue before running
@@ -168,6 +186,92 @@ public class PublisherTest extends Threaded {
         assertEquals(JSON2, json);
     }
 
+    @Test
+    public void testEnqueue_Lanes() throws Exception {
+        PdpUpdate update = new PdpUpdate();
+        PdpUpdate retry = new PdpUpdate();
+
+        // bulk first, then a retry, then a state change
+        pub.enqueue(new QueueToken<>(update));
+        pub.enqueue(Lane.RETRY, new QueueToken<>(retry));
+        pub.enqueue(new QueueToken<>(MSG1));
+
+        assertEquals(3, pub.getDepth());
+        assertEquals(1, pub.getDepth(Lane.STATE_CHANGE));
+        assertEquals(1, pub.getDepth(Lane.RETRY));
+        assertEquals(1, pub.getDepth(Lane.BULK));
+
+        startThread(pub);
+
+        // should be published in lane order
+        Coder coder = new StandardCoder();
+        assertEquals(JSON1, listener.await(MAX_WAIT_MS));
+        assertEquals(coder.encode(retry), listener.await(MAX_WAIT_MS));
+        assertEquals(coder.encode(update), listener.await(MAX_WAIT_MS));
+
+        assertEquals(0, pub.getDepth());
+    }
+
+    @Test
+    public void testLaneOf() {
+        assertEquals(Lane.STATE_CHANGE, Lane.of(MSG1, false));
+        assertEquals(Lane.STATE_CHANGE, Lane.of(MSG1, true));
+        assertEquals(Lane.BULK, Lane.of(new PdpUpdate(), false));
+        assertEquals(Lane.RETRY, Lane.of(new PdpUpdate(), true));
+        assertEquals(Lane.BULK, Lane.of(null, false));
+    }
+
+    @Test
+    public void testRun_WeightedFair() throws Exception {
+        pub = new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP, new StandardCoder(), 3, 1);
+
+        // a large fan-out of updates, followed by some state changes
+        for (int count = 0; count < 10; ++count) {
+            pub.enqueue(new QueueToken<>(new PdpUpdate()));
+        }
+
+        for (int count = 0; count < 10; ++count) {
+            pub.enqueue(new QueueToken<>(new PdpStateChange()));
+        }
+
+        startThread(pub);
+
+        // state changes get four slots for every one taken by the updates
+        StringBuilder order = new StringBuilder();
+        for (int count = 0; count < 20; ++count) {
+            String json = listener.await(MAX_WAIT_MS);
+            assertNotNull(json);
+            order.append(json.contains("PDP_STATE_CHANGE") ? 'S' : 'U');
+        }
+
+        assertEquals("SSSSUSSSSUSSUUUUUUUU", order.toString());
+    }
+
+    @Test
+    public void testRun_DisableBypassesBulk() throws Exception {
+        pub = new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP, new StandardCoder(), 1, 1);
+
+        // saturate the BULK lane
+        for (int count = 0; count < 10; ++count) {
+            pub.enqueue(new QueueToken<>(new PdpUpdate()));
+        }
+
+        // the sequence used to disable a PDP goes in the STATE-CHANGE lane
+        PdpUpdate update = new PdpUpdate();
+        PdpStateChange passive = new PdpStateChange();
+        passive.setState(PdpState.PASSIVE);
+
+        pub.enqueue(Lane.STATE_CHANGE, new QueueToken<>(update));
+        pub.enqueue(Lane.STATE_CHANGE, new QueueToken<>(passive));
+
+        startThread(pub);
+
+        // neither should wait for the updates that were queued ahead of them
+        Coder coder = new StandardCoder();
+        assertEquals(coder.encode(update), listener.await(MAX_WAIT_MS));
+        assertEquals(coder.encode(passive), listener.await(MAX_WAIT_MS));
+    }
+
     @Test
     public void testRun_StopBeforeProcess() throws Exception {
         // enqueue before running
@@ -223,6 +327,118 @@ public class PublisherTest extends Threaded {
         assertTrue(waitStop());
     }
 
+    @Test
+    public void testRun_Batched() throws Exception {
+        Coder coder = new StandardCoder();
+        pub = new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP, coder, 10, 4);
+
+        // enqueue enough to fill several batches, including some empty tokens
+        final int nmessages = 95;
+        List<String> expected = new ArrayList<>(nmessages);
+        for (int count = 0; count < nmessages; ++count) {
+            PdpStateChange msg = new PdpStateChange();
+            expected.add(coder.encode(msg));
+            pub.enqueue(new QueueToken<>(msg));
+
+            if (count % 7 == 0) {
+                pub.enqueue(new QueueToken<>(null));
+            }
+        }
+
+        startThread(pub);
+
+        // should be published in order
+        for (String json : expected) {
+            assertEquals(json, listener.await(MAX_WAIT_MS));
+        }
+
+        // enqueue another after running
+        pub.enqueue(new QueueToken<>(MSG1));
+        assertEquals(JSON1, listener.await(MAX_WAIT_MS));
+
+        pub.stop();
+        assertTrue(waitStop());
+        assertTrue(listener.isEmpty());
+    }
+
+    @Test
+    public void testRun_BatchedReplace() throws Exception {
+        pub = new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP, new StandardCoder(), 10, 2);
+
+        QueueToken<PdpMessage> token1 = new QueueToken<>(MSG1);
+        pub.enqueue(token1);
+
+        QueueToken<PdpMessage> token2 = new QueueToken<>(MSG1);
+        pub.enqueue(token2);
+
+        // replace one and cancel the other before they're published
+        token1.replaceItem(MSG2);
+        token2.replaceItem(null);
+
+        startThread(pub);
+
+        assertEquals(JSON2, listener.await(MAX_WAIT_MS));
+        assertNull(token1.get());
+
+        pub.stop();
+        assertTrue(waitStop());
+        assertTrue(listener.isEmpty());
+    }
+
+    @Test
+    public void testEncode_Exception() throws Exception {
+        Coder coder = new StandardCoder() {
+            @Override
+            public String encode(Object object) throws CoderException {
+                if (object == MSG1) {
+                    throw new CoderException("expected exception");
+                }
+
+                return super.encode(object);
+            }
+        };
+
+        pub = new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP, coder, 10, 2);
+
+        pub.enqueue(new QueueToken<>(MSG1));
+        pub.enqueue(new QueueToken<>(MSG2));
+
+        startThread(pub);
+
+        // only the second should have been published
+        assertEquals(JSON2, listener.await(MAX_WAIT_MS));
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        Registry.newRegistry();
+        PapMetrics metrics = new PapMetrics();
+        Registry.register(PapConstants.REG_PAP_METRICS, metrics);
+
+        pub = new Publisher(PapConstants.TOPIC_POLICY_PDP_PAP);
+
+        pub.enqueue(new QueueToken<>(MSG1));
+        pub.enqueue(new QueueToken<>(MSG2));
+        assertEquals(2L, metrics.getCounts().get("pap_publisher_queue_depth").longValue());
+        assertEquals(2L, metrics.getCounts().get("pap_publisher_lane_depth{lane=\"state_change\"}").longValue());
+        assertEquals(0L, metrics.getCounts().get("pap_publisher_lane_depth{lane=\"bulk\"}").longValue());
+
+        startThread(pub);
+        assertEquals(JSON1, listener.await(MAX_WAIT_MS));
+        assertEquals(JSON2, listener.await(MAX_WAIT_MS));
+
+        pub.stop();
+        assertTrue(waitStop());
+
+        assertEquals(2L, metrics.getCounts().get("pap_publisher_sent_total").longValue());
+        assertEquals(0L, metrics.getCounts().get("pap_publisher_failed_total").longValue());
+        assertEquals(2L, metrics.getLatencies().get("pap_publisher_send_seconds").getCount());
+        assertEquals(2L, metrics.getLatencies().get("pap_publisher_lane_wait_seconds{lane=\"state_change\"}")
+                        .getCount());
+
+        Registry.newRegistry();
+    }
+
     /**
      * Listener for messages published to the topic.
      */
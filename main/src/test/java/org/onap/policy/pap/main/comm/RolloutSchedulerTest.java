@@ -0,0 +1,374 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.onap.policy.models.pdp.concepts.PdpMessage;
+import org.onap.policy.models.pdp.concepts.PdpStateChange;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.pap.main.comm.DeploymentStatus.Outcome;
+import org.onap.policy.pap.main.comm.DeploymentStatus.PdpResult;
+import org.onap.policy.pap.main.comm.DeploymentStatus.State;
+import org.onap.policy.pap.main.parameters.PdpRolloutParameters;
+
+public class RolloutSchedulerTest {
+    private static final long PAUSE_MS = 100L;
+    private static final String MY_REASON = "my reason";
+
+    @Mock
+    private PdpRolloutParameters params;
+
+    @Mock
+    private PdpModifyRequestMap requestMap;
+
+    @Mock
+    private ScheduledExecutorService executor;
+
+    private DeploymentTracker tracker;
+    private RolloutScheduler.RolloutSchedulerBuilder builder;
+    private RolloutScheduler scheduler;
+    private int nscheduled;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        when(params.isEnabled()).thenReturn(true);
+        when(params.getWaveSize()).thenReturn(2);
+        when(params.getWavePauseMs()).thenReturn(PAUSE_MS);
+
+        tracker = new DeploymentTracker(100);
+        nscheduled = 0;
+
+        builder = RolloutScheduler.builder().params(params).requestMap(requestMap).deploymentTracker(tracker)
+                        .modifyLock(new Object()).executor(executor);
+
+        scheduler = builder.build();
+        tracker.setListener(scheduler);
+    }
+
+    @Test
+    public void testBuilder() {
+        assertNotNull(builder.toString());
+
+        assertThatThrownBy(() -> builder.params(null).build()).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    public void testRelease_Disabled() {
+        when(params.isEnabled()).thenReturn(false);
+
+        List<Pair<PdpUpdate, PdpStateChange>> requests = makeUpdates("a", "b", "c", "d", "e");
+        scheduler.release(tracker.add(getMessages(requests)), requests);
+
+        assertEquals("[a, b, c, d, e]", getReleased(5).toString());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void testRelease_SingleWave() {
+        List<Pair<PdpUpdate, PdpStateChange>> requests = makeUpdates("a", "b");
+        scheduler.release(tracker.add(getMessages(requests)), requests);
+
+        assertEquals("[a, b]", getReleased(2).toString());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void testRelease_StateChange() {
+        List<Pair<PdpUpdate, PdpStateChange>> requests = makeUpdates("a", "b", "c", "d");
+
+        PdpStateChange change = new PdpStateChange();
+        change.setName("x");
+        requests.add(Pair.of(makeUpdate("x"), change));
+
+        PdpStateChange change2 = new PdpStateChange();
+        change2.setName("y");
+        requests.add(Pair.of(null, change2));
+
+        scheduler.release(tracker.add(getMessages(requests)), requests);
+
+        // requests with a state-change are not held back
+        verify(requestMap).addRequest(requests.get(4).getLeft(), change);
+        verify(requestMap).addRequest(null, change2);
+        assertEquals("[a, b]", getReleased(2).toString());
+        assertEquals(1, scheduler.size());
+    }
+
+    @Test
+    public void testRelease_Waves() {
+        List<Pair<PdpUpdate, PdpStateChange>> requests = makeUpdates("a", "b", "c", "d", "e");
+        String id = tracker.add(getMessages(requests));
+        scheduler.release(id, requests);
+
+        assertEquals("[a, b]", getReleased(2).toString());
+        assertEquals(1, scheduler.size());
+
+        // completing part of the wave is not enough
+        tracker.success(requests.get(0).getLeft());
+        verify(executor, never()).schedule(any(Runnable.class), anyLong(), any());
+
+        tracker.success(requests.get(1).getLeft());
+        runNextWave();
+        assertEquals("[a, b, c, d]", getReleased(4).toString());
+
+        tracker.success(requests.get(2).getLeft());
+        tracker.success(requests.get(3).getLeft());
+        runNextWave();
+        assertEquals("[a, b, c, d, e]", getReleased(5).toString());
+
+        // nothing left to release
+        assertEquals(0, scheduler.size());
+
+        tracker.success(requests.get(4).getLeft());
+        assertEquals(State.SUCCESS, tracker.getStatus(id).getState());
+    }
+
+    @Test
+    public void testRelease_Percent() {
+        when(params.getWaveSize()).thenReturn(0);
+        when(params.getWavePercent()).thenReturn(25);
+
+        List<Pair<PdpUpdate, PdpStateChange>> requests = makeUpdates("a", "b", "c", "d", "e", "f", "g", "h", "i");
+        scheduler.release(tracker.add(getMessages(requests)), requests);
+
+        // rounded up
+        assertEquals("[a, b, c]", getReleased(3).toString());
+
+        // larger of the two
+        when(params.getWaveSize()).thenReturn(4);
+
+        requests = makeUpdates("j", "k", "l", "m", "n", "o", "p", "q", "r");
+        scheduler.release(tracker.add(getMessages(requests)), requests);
+        assertEquals("[a, b, c, j, k, l, m]", getReleased(7).toString());
+
+        // percentages above 100 are clamped
+        when(params.getWaveSize()).thenReturn(0);
+        when(params.getWavePercent()).thenReturn(500);
+
+        requests = makeUpdates("s", "t", "u");
+        scheduler.release(tracker.add(getMessages(requests)), requests);
+        assertEquals("[a, b, c, j, k, l, m, s, t, u]", getReleased(10).toString());
+    }
+
+    @Test
+    public void testHalt() {
+        List<Pair<PdpUpdate, PdpStateChange>> requests = makeUpdates("a", "b", "c", "d", "e");
+        String id = tracker.add(getMessages(requests));
+        scheduler.release(id, requests);
+
+        tracker.success(requests.get(0).getLeft());
+        tracker.failure("b", MY_REASON);
+        runNextWave();
+
+        // nothing more is released
+        assertEquals("[a, b]", getReleased(2).toString());
+        assertEquals(0, scheduler.size());
+
+        DeploymentStatus status = tracker.getStatus(id);
+        assertEquals(State.FAILURE, status.getState());
+
+        List<Outcome> outcomes = status.getPdps().stream().map(PdpResult::getOutcome).collect(Collectors.toList());
+        assertEquals(Arrays.asList(Outcome.SUCCESS, Outcome.FAILURE, Outcome.HALTED, Outcome.HALTED,
+                        Outcome.HALTED), outcomes);
+        assertTrue(status.getPdps().get(2).getReason().contains("1 of 2"));
+    }
+
+    @Test
+    public void testHalt_BelowThreshold() {
+        when(params.getMaxFailurePercent()).thenReturn(50);
+
+        List<Pair<PdpUpdate, PdpStateChange>> requests = makeUpdates("a", "b", "c", "d", "e");
+        String id = tracker.add(getMessages(requests));
+        scheduler.release(id, requests);
+
+        // 1 of 2 is not more than 50%
+        tracker.success(requests.get(0).getLeft());
+        tracker.retryCountExhausted("b");
+        runNextWave();
+        assertEquals("[a, b, c, d]", getReleased(4).toString());
+
+        // 3 of 4 is
+        tracker.failure("c", MY_REASON);
+        tracker.failure("d", MY_REASON);
+        runNextWave();
+        assertEquals("[a, b, c, d]", getReleased(4).toString());
+        assertEquals(Outcome.HALTED, tracker.getStatus(id).getPdps().get(4).getOutcome());
+    }
+
+    @Test
+    public void testSupersede() {
+        List<Pair<PdpUpdate, PdpStateChange>> requests = makeUpdates("a", "b", "c", "d", "e");
+        String id = tracker.add(getMessages(requests));
+        scheduler.release(id, requests);
+        assertEquals("[a, b]", getReleased(2).toString());
+
+        // newer UPDATE for "c" and "d"
+        List<Pair<PdpUpdate, PdpStateChange>> requests2 = makeUpdates("c", "d");
+        scheduler.release(tracker.add(getMessages(requests2)), requests2);
+        assertEquals("[a, b, c, d]", getReleased(4).toString());
+
+        // only "e" remains in the older rollout
+        tracker.success(requests.get(0).getLeft());
+        tracker.success(requests.get(1).getLeft());
+        runNextWave();
+        assertEquals("[a, b, c, d, e]", getReleased(5).toString());
+        assertEquals(0, scheduler.size());
+
+        // superseding everything discards the rollout
+        requests = makeUpdates("f", "g", "h");
+        scheduler.release(tracker.add(getMessages(requests)), requests);
+        assertEquals(1, scheduler.size());
+
+        requests2 = makeUpdates("h");
+        scheduler.release(tracker.add(getMessages(requests2)), requests2);
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void testEvicted() {
+        List<Pair<PdpUpdate, PdpStateChange>> requests = makeUpdates("a", "b", "c", "d", "e");
+        String id = tracker.add(getMessages(requests));
+        scheduler.release(id, requests);
+
+        // unknown - no effect
+        scheduler.evicted("unknown");
+        verify(executor, never()).execute(any());
+
+        scheduler.evicted(id);
+
+        // releases everything that remains, at once
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(captor.capture());
+        captor.getValue().run();
+
+        assertEquals("[a, b, c, d, e]", getReleased(5).toString());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void testCompleted_Ignored() {
+        List<Pair<PdpUpdate, PdpStateChange>> requests = makeUpdates("a", "b", "c");
+        String id = tracker.add(getMessages(requests));
+        scheduler.release(id, requests);
+
+        PdpResult result = new PdpResult();
+        result.setPdpName("a");
+        result.setMessageType(PdpStateChange.class.getSimpleName());
+        result.setOutcome(Outcome.SUCCESS);
+
+        // wrong message type
+        scheduler.completed(id, result);
+
+        // unknown deployment
+        result.setMessageType(PdpUpdate.class.getSimpleName());
+        scheduler.completed("unknown", result);
+
+        // not in the current wave
+        result.setPdpName("c");
+        scheduler.completed(id, result);
+
+        result.setPdpName("b");
+        scheduler.completed(id, result);
+
+        verify(executor, never()).schedule(any(Runnable.class), anyLong(), any());
+    }
+
+    /**
+     * Runs the most recently scheduled wave.
+     */
+    private void runNextWave() {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(++nscheduled)).schedule(captor.capture(), eq(PAUSE_MS), eq(TimeUnit.MILLISECONDS));
+        captor.getValue().run();
+    }
+
+    /**
+     * Gets the names of the PDPs whose UPDATE requests were released to the request map.
+     *
+     * @param count number of releases expected
+     * @return the names of the PDPs, in the order released
+     */
+    private List<String> getReleased(int count) {
+        ArgumentCaptor<PdpUpdate> captor = ArgumentCaptor.forClass(PdpUpdate.class);
+        verify(requestMap, times(count)).addRequest(captor.capture(), eq(null));
+
+        return captor.getAllValues().stream().map(PdpUpdate::getName).collect(Collectors.toList());
+    }
+
+    private List<Pair<PdpUpdate, PdpStateChange>> makeUpdates(String... pdpNames) {
+        List<Pair<PdpUpdate, PdpStateChange>> requests = new ArrayList<>();
+
+        for (String pdpName : pdpNames) {
+            requests.add(Pair.of(makeUpdate(pdpName), null));
+        }
+
+        return requests;
+    }
+
+    private PdpUpdate makeUpdate(String pdpName) {
+        PdpUpdate update = new PdpUpdate();
+        update.setName(pdpName);
+        return update;
+    }
+
+    private List<PdpMessage> getMessages(List<Pair<PdpUpdate, PdpStateChange>> requests) {
+        List<PdpMessage> messages = new ArrayList<>();
+
+        for (Pair<PdpUpdate, PdpStateChange> pair : requests) {
+            if (pair.getLeft() != null) {
+                messages.add(pair.getLeft());
+            }
+
+            if (pair.getRight() != null) {
+                messages.add(pair.getRight());
+            }
+        }
+
+        return messages;
+    }
+}
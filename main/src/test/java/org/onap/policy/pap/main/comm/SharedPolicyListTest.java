@@ -0,0 +1,113 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.policy.common.utils.coder.Coder;
+import org.onap.policy.common.utils.coder.StandardCoder;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+
+public class SharedPolicyListTest {
+    private ToscaPolicy policy1;
+    private ToscaPolicy policy2;
+    private List<ToscaPolicy> original;
+    private SharedPolicyList list;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        policy1 = makePolicy("policy-A");
+        policy2 = makePolicy("policy-B");
+
+        original = new ArrayList<>(Arrays.asList(policy1, policy2));
+        list = new SharedPolicyList(original);
+    }
+
+    @Test
+    public void testSharedPolicyList() {
+        assertEquals(original, list);
+        assertEquals(list, original);
+        assertEquals(original.hashCode(), list.hashCode());
+
+        // changes to the original should not be reflected in the list
+        original.clear();
+        assertEquals(2, list.size());
+    }
+
+    @Test
+    public void testGet_testSize() {
+        assertEquals(2, list.size());
+        assertSame(policy1, list.get(0));
+        assertSame(policy2, list.get(1));
+    }
+
+    @Test
+    public void testImmutable() {
+        assertThatThrownBy(() -> list.add(policy1)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> list.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> list.set(0, policy2)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testToJson() throws Exception {
+        Coder coder = spy(new StandardCoder());
+
+        String json = list.toJson(coder);
+        assertEquals(coder.encode(Arrays.asList(policy1, policy2)), json);
+
+        // should be cached
+        assertSame(json, list.toJson(coder));
+        assertSame(json, list.toJson(coder));
+
+        // once above, once here
+        verify(coder, times(2)).encode(any());
+    }
+
+    /**
+     * Makes a policy.
+     *
+     * @param name policy name
+     * @return a new policy
+     */
+    protected static ToscaPolicy makePolicy(String name) {
+        ToscaPolicy policy = new ToscaPolicy();
+        policy.setName(name);
+        policy.setVersion("1.2.3");
+        policy.setType("my-type");
+        policy.setTypeVersion("4.5.6");
+
+        return policy;
+    }
+}
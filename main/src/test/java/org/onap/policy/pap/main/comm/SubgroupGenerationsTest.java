@@ -0,0 +1,189 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+
+public class SubgroupGenerationsTest {
+    private static final String PDP1 = "pdp-1";
+    private static final String PDP2 = "pdp-2";
+    private static final String GROUP = "my-group";
+    private static final String SUBGROUP = "my-subgroup";
+
+    private SubgroupGenerations generations;
+    private ToscaPolicy policy1;
+    private ToscaPolicy policy2;
+    private ToscaPolicy policy3;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        generations = new SubgroupGenerations();
+
+        policy1 = SharedPolicyListTest.makePolicy("policy-A");
+        policy2 = SharedPolicyListTest.makePolicy("policy-B");
+        policy3 = SharedPolicyListTest.makePolicy("policy-C");
+    }
+
+    @Test
+    public void testMakeUpdate_Full() {
+        PdpUpdate update = makeUpdate(PDP1, policy1, policy2);
+        update.setDescription("my description");
+        update.setPdpHeartbeatIntervalMs(1000L);
+
+        PdpDeltaUpdate result = generations.makeUpdate(update);
+        assertFalse(result.isDelta());
+        assertEquals(1, result.getGeneration());
+        assertEquals(PDP1, result.getName());
+        assertEquals(GROUP, result.getPdpGroup());
+        assertEquals(SUBGROUP, result.getPdpSubgroup());
+        assertEquals(update.getDescription(), result.getDescription());
+        assertEquals(update.getPdpHeartbeatIntervalMs(), result.getPdpHeartbeatIntervalMs());
+        assertEquals(update.getPolicies(), result.getPolicies());
+        assertNull(result.getPoliciesToBeDeployed());
+
+        // same policies - same generation
+        assertEquals(1, generations.makeUpdate(makeUpdate(PDP2, policy2, policy1)).getGeneration());
+
+        // different policies - new generation
+        assertEquals(2, generations.makeUpdate(makeUpdate(PDP2, policy1)).getGeneration());
+    }
+
+    @Test
+    public void testMakeUpdate_Delta() {
+        generations.acknowledge(generations.makeUpdate(makeUpdate(PDP1, policy1, policy2)));
+
+        PdpDeltaUpdate result = generations.makeUpdate(makeUpdate(PDP1, policy2, policy3));
+        assertTrue(result.isDelta());
+        assertEquals(1, result.getBaseGeneration());
+        assertEquals(2, result.getGeneration());
+        assertEquals(Collections.singletonList(policy3), result.getPoliciesToBeDeployed());
+        assertEquals(Collections.singletonList(policy1.getIdentifier()), result.getPoliciesToBeUndeployed());
+
+        // complete set is retained
+        assertEquals(Arrays.asList(policy2, policy3), result.getPolicies());
+
+        // other PDPs in the subgroup still get a full update
+        assertFalse(generations.makeUpdate(makeUpdate(PDP2, policy2, policy3)).isDelta());
+    }
+
+    @Test
+    public void testMakeUpdate_UndeployAll() {
+        generations.acknowledge(generations.makeUpdate(makeUpdate(PDP1, policy1)));
+
+        PdpDeltaUpdate result = generations.makeUpdate(makeUpdate(PDP1));
+        assertTrue(result.isDelta());
+        assertTrue(result.getPoliciesToBeDeployed().isEmpty());
+        assertEquals(Collections.singletonList(policy1.getIdentifier()), result.getPoliciesToBeUndeployed());
+    }
+
+    @Test
+    public void testMakeUpdate_DeltaNotSmaller() {
+        generations.acknowledge(generations.makeUpdate(makeUpdate(PDP1, policy1)));
+
+        assertFalse(generations.makeUpdate(makeUpdate(PDP1, policy2, policy3)).isDelta());
+    }
+
+    @Test
+    public void testMakeUpdate_DifferentSubgroup() {
+        generations.acknowledge(generations.makeUpdate(makeUpdate(PDP1, policy1, policy2)));
+
+        PdpUpdate update = makeUpdate(PDP1, policy1, policy2, policy3);
+        update.setPdpSubgroup("other-subgroup");
+
+        PdpDeltaUpdate result = generations.makeUpdate(update);
+        assertFalse(result.isDelta());
+        assertEquals(1, result.getGeneration());
+    }
+
+    @Test
+    public void testMakeUpdate_NoSubgroup() {
+        generations.acknowledge(generations.makeUpdate(makeUpdate(PDP1, policy1, policy2)));
+
+        PdpUpdate update = makeUpdate(PDP1);
+        update.setPdpGroup(null);
+        update.setPdpSubgroup(null);
+
+        PdpDeltaUpdate result = generations.makeUpdate(update);
+        assertFalse(result.isDelta());
+        assertEquals(0, result.getGeneration());
+
+        // PDP's generation should have been forgotten
+        assertFalse(generations.makeUpdate(makeUpdate(PDP1, policy1, policy2, policy3)).isDelta());
+    }
+
+    @Test
+    public void testAcknowledge() {
+        // plain UPDATE - nothing to record
+        generations.acknowledge(makeUpdate(PDP1, policy1, policy2));
+        assertFalse(generations.makeUpdate(makeUpdate(PDP1, policy1, policy2, policy3)).isDelta());
+
+        // no subgroup - nothing to record
+        PdpUpdate update = generations.makeUpdate(makeUpdate(PDP1, policy1, policy2));
+        update.setPdpSubgroup(null);
+        generations.acknowledge(update);
+        assertFalse(generations.makeUpdate(makeUpdate(PDP1, policy1, policy2, policy3)).isDelta());
+
+        // acknowledging a delta records the resulting set
+        generations.acknowledge(generations.makeUpdate(makeUpdate(PDP1, policy1, policy2)));
+        PdpDeltaUpdate delta = generations.makeUpdate(makeUpdate(PDP1, policy1));
+        assertTrue(delta.isDelta());
+        generations.acknowledge(delta);
+
+        PdpDeltaUpdate result = generations.makeUpdate(makeUpdate(PDP1, policy1, policy3));
+        assertEquals(delta.getGeneration(), result.getBaseGeneration());
+        assertEquals(Collections.singletonList(policy3), result.getPoliciesToBeDeployed());
+        assertTrue(result.getPoliciesToBeUndeployed().isEmpty());
+    }
+
+    @Test
+    public void testForget() {
+        generations.acknowledge(generations.makeUpdate(makeUpdate(PDP1, policy1, policy2)));
+        generations.forget(PDP1);
+
+        assertFalse(generations.makeUpdate(makeUpdate(PDP1, policy1, policy2, policy3)).isDelta());
+    }
+
+    private PdpUpdate makeUpdate(String pdpName, ToscaPolicy... policies) {
+        PdpUpdate update = new PdpUpdate();
+        update.setName(pdpName);
+        update.setPdpGroup(GROUP);
+        update.setPdpSubgroup(SUBGROUP);
+
+        List<ToscaPolicy> list = Arrays.asList(policies);
+        update.setPolicies(list);
+
+        return update;
+    }
+}
@@ -21,19 +21,26 @@
 package org.onap.policy.pap.main.comm;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onap.policy.common.utils.services.Registry;
+import org.onap.policy.pap.main.PapConstants;
 import org.onap.policy.pap.main.comm.TimerManager.Timer;
+import org.onap.policy.pap.main.metrics.PapMetrics;
+import org.onap.policy.pap.main.metrics.PapMetrics.LatencySummary;
 
 public class TimerManagerTest extends Threaded {
     private static final String EXPECTED_EXCEPTION = "expected exception";
@@ -46,12 +53,6 @@ public class TimerManagerTest extends Threaded {
 
     private MyManager mgr;
 
-    /*
-     * This is a field rather than a local variable to prevent checkstyle from complaining
-     * about the distance between its assignment and its use.
-     */
-    private long tcur;
-
     /**
      * Sets up.
      *
@@ -61,7 +62,7 @@ public class TimerManagerTest extends Threaded {
     public void setUp() throws Exception {
         super.setUp();
 
-        mgr = new MyManager(MGR_NAME, MGR_TIMEOUT_MS);
+        mgr = new MyManager(MGR_NAME, MGR_TIMEOUT_MS, Runnable::run);
     }
 
     @After
@@ -73,7 +74,6 @@ public class TimerManagerTest extends Threaded {
     protected void stopThread() throws Exception {
         if (mgr != null) {
             mgr.stop();
-            mgr.allowSleep(10);
         }
     }
 
@@ -90,107 +90,138 @@ public class TimerManagerTest extends Threaded {
 
     @Test
     public void testRegister() throws Exception {
+        start();
+
         mgr.register(NAME2, mgr::addToQueue);
-        mgr.registerNewTime(NAME1, mgr::addToQueue);
+        mgr.advance(1);
+        mgr.register(NAME1, mgr::addToQueue);
+        mgr.advance(1);
+        mgr.register(NAME3, mgr::addToQueue);
 
-        // goes to the end of the queue
-        mgr.registerNewTime(NAME2, mgr::addToQueue);
+        mgr.advance(MGR_TIMEOUT_MS * 2);
 
-        startThread(mgr);
+        assertEquals(NAME2, mgr.pollTimer());
+        assertEquals(NAME1, mgr.pollTimer());
+        assertEquals(NAME3, mgr.pollTimer());
+        assertNull(mgr.pollTimer());
+    }
+
+    @Test
+    public void testRegister_BeforeStart() throws Exception {
+        mgr.register(NAME1, mgr::addToQueue);
 
-        mgr.allowSleep(2);
+        start();
 
-        assertEquals(NAME1, mgr.awaitTimer());
-        assertEquals(NAME2, mgr.awaitTimer());
+        mgr.advance(MGR_TIMEOUT_MS);
+        assertEquals(NAME1, mgr.pollTimer());
     }
 
     @Test
-    public void testRun_Ex() throws Exception {
-        startThread(mgr);
-        mgr.register(NAME1, mgr::addToQueue);
+    public void testRegister_Replace() throws Exception {
+        start();
 
-        mgr.awaitSleep();
+        Timer timer = mgr.register(NAME1, name -> mgr.addToQueue("hello"));
+        mgr.advance(MGR_TIMEOUT_MS / 2);
 
-        // background thread is "sleeping" - now we can interrupt it
-        interruptThread();
+        // replace the timer - it goes to the end
+        mgr.register(NAME1, name -> mgr.addToQueue("world"));
+        mgr.register(NAME2, mgr::addToQueue);
 
-        assertTrue(waitStop());
+        // old timer can no longer be cancelled
+        assertFalse(timer.cancel());
+
+        // the original timer would have fired by now
+        mgr.advance(MGR_TIMEOUT_MS / 2);
+        assertNull(mgr.pollTimer());
+
+        mgr.advance(MGR_TIMEOUT_MS);
+        assertEquals("world", mgr.pollTimer());
+        assertEquals(NAME2, mgr.pollTimer());
+        assertNull(mgr.pollTimer());
     }
 
     @Test
-    public void testProcessTimers() throws Exception {
-        startThread(mgr);
-        mgr.register(NAME1, mgr::addToQueue);
-        mgr.awaitSleep();
-        mgr.allowSleep(1);
+    public void testRun_Lateness() throws Exception {
+        Registry.newRegistry();
+        PapMetrics metrics = new PapMetrics();
+        Registry.register(PapConstants.REG_PAP_METRICS, metrics);
 
-        mgr.registerNewTime(NAME2, mgr::addToQueue);
-        mgr.awaitSleep();
+        mgr = new MyManager(MGR_NAME, MGR_TIMEOUT_MS, Runnable::run);
+        Registry.newRegistry();
 
-        // tell it to stop before returning from "sleep"
-        mgr.stop();
-        mgr.allowSleep(1);
+        start();
 
-        assertTrue(waitStop());
+        mgr.register(NAME1, mgr::addToQueue);
 
+        // expires a full timeout late
+        mgr.advance(MGR_TIMEOUT_MS * 2);
         assertEquals(NAME1, mgr.pollTimer());
-        assertNull(mgr.pollTimer());
+
+        LatencySummary lateness = metrics.getLatencies().get("pap_timer_lateness_seconds{timer=\"my-manager\"}");
+        assertEquals(1, lateness.getCount());
+        assertTrue(lateness.getMaxMs() >= MGR_TIMEOUT_MS / 2);
     }
 
     @Test
-    public void testGetNextTimer() throws Exception {
-        startThread(mgr);
+    public void testRun_Ex() throws Exception {
+        start();
         mgr.register(NAME1, mgr::addToQueue);
-        mgr.awaitSleep();
-        mgr.allowSleep(1);
 
-        mgr.registerNewTime(NAME2, mgr::addToQueue);
-        mgr.awaitSleep();
+        // background thread is "sleeping" - now we can interrupt it
+        interruptThread();
+
+        assertTrue(waitStop());
+        assertNull(mgr.pollTimer());
     }
 
     @Test
-    public void testProcessTimer_StopWhileWaiting() throws Exception {
-        startThread(mgr);
+    public void testRun_NotEarly() throws Exception {
+        start();
         mgr.register(NAME1, mgr::addToQueue);
-        mgr.awaitSleep();
-        mgr.allowSleep(1);
 
-        mgr.registerNewTime(NAME2, mgr::addToQueue);
-        mgr.awaitSleep();
+        mgr.advance(MGR_TIMEOUT_MS - 1);
+        assertNull(mgr.pollTimer());
 
-        mgr.stop();
-        mgr.allowSleep(1);
+        mgr.advance(1);
+        assertEquals(NAME1, mgr.pollTimer());
+    }
+
+    @Test
+    public void testRun_StopWhileWaiting() throws Exception {
+        start();
+        mgr.register(NAME1, mgr::addToQueue);
 
+        mgr.stop();
         assertTrue(waitStop());
 
-        // should have stopped after processing the first timer
-        assertEquals(NAME1, mgr.pollTimer());
+        mgr.advanceTime(MGR_TIMEOUT_MS);
         assertNull(mgr.pollTimer());
     }
 
     @Test
-    public void testProcessTimer_CancelWhileWaiting() throws Exception {
-        startThread(mgr);
-        Timer timer = mgr.register(NAME1, mgr::addToQueue);
-        mgr.awaitSleep();
-
-        timer.cancel();
-        mgr.allowSleep(1);
+    public void testRun_ManyTimers() throws Exception {
+        start();
+
+        // spread them across many slots of the wheel
+        final int ntimers = 2000;
+        for (int count = 0; count < ntimers; ++count) {
+            mgr.register("timer-" + count, mgr::addToQueue);
+            mgr.advanceTime(3);
+        }
 
-        mgr.registerNewTime(NAME2, mgr::addToQueue);
-        mgr.awaitSleep();
-        mgr.allowSleep(1);
+        mgr.advance(MGR_TIMEOUT_MS);
 
-        mgr.registerNewTime(NAME1, mgr::addToQueue);
-        mgr.awaitSleep();
+        // should have expired in order
+        for (int count = 0; count < ntimers; ++count) {
+            assertEquals("timer-" + count, mgr.pollTimer());
+        }
 
-        // should have fired timer 2, but not timer 1
-        assertEquals(NAME2, mgr.pollTimer());
         assertNull(mgr.pollTimer());
     }
 
     @Test
-    public void testProcessTimer_TimerEx() throws Exception {
+    public void testRun_TimerEx() throws Exception {
+        start();
 
         mgr.register(NAME1, name -> {
             throw new RuntimeException(EXPECTED_EXCEPTION);
@@ -198,77 +229,100 @@ public class TimerManagerTest extends Threaded {
 
         mgr.register(NAME2, mgr::addToQueue);
 
-        // same times, so only need one sleep
-        startThread(mgr);
-        mgr.awaitSleep();
-        mgr.allowSleep(1);
-
-        mgr.registerNewTime(NAME3, mgr::addToQueue);
-        mgr.awaitSleep();
+        mgr.advance(MGR_TIMEOUT_MS);
 
         // timer 1 fired but threw an exception, so only timer 2 should be in the queue
         assertEquals(NAME2, mgr.pollTimer());
+        assertNull(mgr.pollTimer());
     }
 
     @Test
-    public void testTimerAwait() throws Exception {
-        startThread(mgr);
+    public void testRun_Executor() throws Exception {
+        Queue<Runnable> tasks = new LinkedList<>();
+        mgr = new MyManager(MGR_NAME, MGR_TIMEOUT_MS, tasks::add);
+        start();
 
-        // same times - should only sleep once
         mgr.register(NAME1, mgr::addToQueue);
         mgr.register(NAME2, mgr::addToQueue);
-        mgr.awaitSleep();
+        mgr.advance(MGR_TIMEOUT_MS);
 
-        tcur = mgr.currentTimeMillis();
-
-        mgr.allowSleep(1);
-
-        // next one will have a new timeout, so expect to sleep again
-        mgr.registerNewTime(NAME3, mgr::addToQueue);
-        mgr.awaitSleep();
+        // should have been handed to the executor, but not run yet
+        assertNull(mgr.pollTimer());
+        assertEquals(2, tasks.size());
 
-        long tcur2 = mgr.currentTimeMillis();
-        assertTrue(tcur2 >= tcur + MGR_TIMEOUT_MS);
+        tasks.remove().run();
+        tasks.remove().run();
 
         assertEquals(NAME1, mgr.pollTimer());
         assertEquals(NAME2, mgr.pollTimer());
+    }
+
+    @Test
+    public void testRun_ExecutorRejected() throws Exception {
+        Executor executor = task -> {
+            throw new RejectedExecutionException(EXPECTED_EXCEPTION);
+        };
+
+        mgr = new MyManager(MGR_NAME, MGR_TIMEOUT_MS, executor);
+        start();
+
+        Timer timer = mgr.register(NAME1, mgr::addToQueue);
+        mgr.advance(MGR_TIMEOUT_MS);
+
+        // discarded, but no longer registered
         assertNull(mgr.pollTimer());
+        assertFalse(timer.cancel());
+
+        // manager should still be running
+        mgr.advance(MGR_TIMEOUT_MS);
     }
 
     @Test
-    public void testTimerCancel_WhileWaiting() throws Exception {
-        startThread(mgr);
+    public void testTimerCancel() throws Exception {
+        start();
 
         Timer timer = mgr.register(NAME1, mgr::addToQueue);
-        mgr.awaitSleep();
+        mgr.register(NAME2, mgr::addToQueue);
+        mgr.advance(1);
 
-        // cancel while sleeping
-        timer.cancel();
+        assertTrue(timer.cancel());
 
-        mgr.registerNewTime(NAME2, mgr::addToQueue);
+        // already cancelled
+        assertFalse(timer.cancel());
 
-        // allow it to sleep through both timers
-        mgr.allowSleep(2);
+        mgr.advance(MGR_TIMEOUT_MS);
 
         // only timer 2 should have fired
-        assertEquals(NAME2, mgr.awaitTimer());
+        assertEquals(NAME2, mgr.pollTimer());
+        assertNull(mgr.pollTimer());
+
+        // can register the name again
+        mgr.register(NAME1, mgr::addToQueue);
+        mgr.advance(MGR_TIMEOUT_MS);
+        assertEquals(NAME1, mgr.pollTimer());
     }
 
     @Test
-    public void testTimerCancel_ViaReplace() throws Exception {
-        startThread(mgr);
+    public void testTimerCancel_BeforeLinked() throws Exception {
+        // cancel before the timer thread has seen it
+        Timer timer = mgr.register(NAME1, mgr::addToQueue);
+        assertTrue(timer.cancel());
 
-        mgr.register(NAME1, name -> mgr.addToQueue("hello"));
-        mgr.awaitSleep();
+        start();
 
-        // replace the timer while the background thread is sleeping
-        mgr.registerNewTime(NAME1, name -> mgr.addToQueue("world"));
+        mgr.advance(MGR_TIMEOUT_MS);
+        assertNull(mgr.pollTimer());
+    }
 
-        // allow it to sleep through both timers
-        mgr.allowSleep(2);
+    @Test
+    public void testTimerCancel_AfterExpired() throws Exception {
+        start();
 
-        // only timer 2 should have fired
-        assertEquals("world", mgr.awaitTimer());
+        Timer timer = mgr.register(NAME1, mgr::addToQueue);
+        mgr.advance(MGR_TIMEOUT_MS);
+        assertEquals(NAME1, mgr.pollTimer());
+
+        assertFalse(timer.cancel());
     }
 
     @Test
@@ -297,62 +351,86 @@ public class TimerManagerTest extends Threaded {
         assertTrue(tend >= tbeg + 10);
     }
 
+    /**
+     * Starts the manager's thread and waits for it to sleep.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private void start() throws InterruptedException {
+        startThread(mgr);
+        mgr.awaitSleep();
+    }
+
 
     /**
-     * Timer Manager whose notions of time are controlled here. It also overrides the
-     * {@link #sleep(long)} method so that the test thread can control when the background
-     * timer thread finishes sleeping.
+     * Timer Manager whose notion of time is controlled here. It also overrides the
+     * {@link #sleep(long)} method so that the background timer thread only wakes up when
+     * the test thread advances the time.
      */
     private static class MyManager extends TimerManager {
         private final Object lockit = new Object();
         private long curTime = 1000;
-        private int offset = 0;
-        private final Semaphore sleepEntered = new Semaphore(0);
-        private final Semaphore sleepsAllowed = new Semaphore(0);
+        private boolean stopped = false;
+        private boolean sleeping = false;
+        private long wakeTime = 0;
         private final LinkedBlockingQueue<String> results = new LinkedBlockingQueue<>();
 
-        public MyManager(String name, long waitTimeMs) {
-            super(name, waitTimeMs);
+        public MyManager(String name, long waitTimeMs, Executor executor) {
+            super(name, waitTimeMs, executor);
+        }
+
+        @Override
+        public void stop() {
+            super.stop();
+
+            synchronized (lockit) {
+                stopped = true;
+                lockit.notifyAll();
+            }
         }
 
         /**
-         * Registers a timer with a new starting time. Because the manager uses the
-         * current time when determining the expiration time, we have to temporarily
-         * fiddle with {@link #curTime}, but we leave it unchanged when we're done.
-         * Increases the {@link #offset} each time it's invoked.
+         * Advances the time, without waiting for the background thread.
          *
-         * @return the new timer
+         * @param timeMs amount by which to advance the time
          */
-        public Timer registerNewTime(String timerName, Consumer<String> action) {
+        public void advanceTime(long timeMs) {
             synchronized (lockit) {
-                offset++;
-
-                curTime += offset;
-                Timer timer = super.register(timerName, action);
-                curTime -= offset;
-
-                return timer;
+                curTime += timeMs;
+                lockit.notifyAll();
             }
         }
 
         /**
-         * Allows the manager to "sleep" several times.
+         * Advances the time and then waits for the background thread to process all of
+         * the ticks up to the new time.
          *
-         * @param ntimes the number of times the manager should sleep
+         * @param timeMs amount by which to advance the time
+         * @throws InterruptedException if the thread is interrupted while waiting
          */
-        public void allowSleep(int ntimes) {
-            sleepsAllowed.release(ntimes);
+        public void advance(long timeMs) throws InterruptedException {
+            advanceTime(timeMs);
+            awaitSleep();
         }
 
         /**
-         * Waits for the manager to "sleep".
+         * Waits for the manager to "sleep" until some time after the current time.
          *
          * @throws InterruptedException if the thread is interrupted while waiting for the
          *         background thread to sleep
          */
         public void awaitSleep() throws InterruptedException {
-            if (!sleepEntered.tryAcquire(MAX_WAIT_MS, TimeUnit.MILLISECONDS)) {
-                fail("background thread failed to sleep");
+            long tend = System.currentTimeMillis() + MAX_WAIT_MS;
+
+            synchronized (lockit) {
+                while (!sleeping || wakeTime <= curTime) {
+                    long tleft = tend - System.currentTimeMillis();
+                    if (tleft <= 0) {
+                        fail("background thread failed to sleep");
+                    }
+
+                    lockit.wait(tleft);
+                }
             }
         }
 
@@ -365,24 +443,22 @@ public class TimerManagerTest extends Threaded {
 
         @Override
         protected void sleep(long timeMs) throws InterruptedException {
-            sleepEntered.release();
-            sleepsAllowed.acquire();
-
             synchronized (lockit) {
-                curTime += timeMs;
+                wakeTime = curTime + timeMs;
+                sleeping = true;
+                lockit.notifyAll();
+
+                try {
+                    while (!stopped && curTime < wakeTime) {
+                        lockit.wait();
+                    }
+
+                } finally {
+                    sleeping = false;
+                }
             }
         }
 
-        /**
-         * Waits for a timer to fire.
-         *
-         * @return the message the timer added to {@link #results}
-         * @throws InterruptedException if this thread is interrupted while waiting
-         */
-        private String awaitTimer() throws InterruptedException {
-            return results.poll(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
-        }
-
         /**
          * Adds a name to the queue.
          *
@@ -0,0 +1,240 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.comm;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import javax.ws.rs.core.Response.Status;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.provider.PolicyModelsProvider;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
+
+public class ToscaPolicyCacheTest {
+    private static final int MAX_SIZE = 3;
+    private static final long TTL_MS = 1000;
+    private static final String VERSION = "1.2.3";
+
+    private PolicyModelsProvider dao;
+    private long curTimeMs;
+    private ToscaPolicyCache cache;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() throws Exception {
+        dao = mock(PolicyModelsProvider.class);
+        when(dao.getPolicyList(any(), any())).thenReturn(Collections.emptyList());
+
+        curTimeMs = 1000;
+        cache = new MyCache(MAX_SIZE);
+    }
+
+    @Test
+    public void testToscaPolicyCache() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new ToscaPolicyCache(0, TTL_MS));
+        assertThatIllegalArgumentException().isThrownBy(() -> new ToscaPolicyCache(MAX_SIZE, 0));
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        ToscaPolicy policy = makePolicy("policy-A");
+        ToscaPolicyIdentifier ident = policy.getIdentifier();
+        when(dao.getPolicyList("policy-A", VERSION)).thenReturn(Arrays.asList(policy));
+
+        assertSame(policy, cache.get(dao, ident));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // should come from the cache this time
+        assertSame(policy, cache.get(dao, new ToscaPolicyIdentifier("policy-A", VERSION)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        verify(dao).getPolicyList(any(), any());
+    }
+
+    @Test
+    public void testGet_Expired() throws Exception {
+        ToscaPolicy policy = makePolicy("policy-A");
+        ToscaPolicyIdentifier ident = policy.getIdentifier();
+        when(dao.getPolicyList("policy-A", VERSION)).thenReturn(Arrays.asList(policy));
+
+        assertSame(policy, cache.get(dao, ident));
+
+        // still valid
+        curTimeMs += TTL_MS - 1;
+        assertSame(policy, cache.get(dao, ident));
+        verify(dao).getPolicyList(any(), any());
+
+        // expired - should be reloaded
+        ToscaPolicy policy2 = makePolicy("policy-A");
+        when(dao.getPolicyList("policy-A", VERSION)).thenReturn(Arrays.asList(policy2));
+
+        curTimeMs += 1;
+        assertSame(policy2, cache.get(dao, ident));
+        verify(dao, times(2)).getPolicyList(any(), any());
+        assertEquals(1, cache.size());
+
+        // valid again
+        assertSame(policy2, cache.get(dao, ident));
+        verify(dao, times(2)).getPolicyList(any(), any());
+    }
+
+    @Test
+    public void testGetIfPresent_Expired() {
+        ToscaPolicy policy = makePolicy("policy-A");
+        cache.put(policy);
+
+        curTimeMs += TTL_MS;
+        assertNull(cache.getIfPresent(policy.getIdentifier()));
+
+        // expired entry should have been discarded
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testGet_NotFound() throws Exception {
+        ToscaPolicyIdentifier ident = new ToscaPolicyIdentifier("unknown", VERSION);
+
+        assertNull(cache.get(dao, ident));
+        assertNull(cache.get(dao, ident));
+
+        // not found - should not have been cached
+        verify(dao, times(2)).getPolicyList(any(), any());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testGet_DaoEx() throws Exception {
+        PfModelException ex = new PfModelException(Status.INTERNAL_SERVER_ERROR, "expected exception");
+        when(dao.getPolicyList(any(), any())).thenThrow(ex);
+
+        assertThatThrownBy(() -> cache.get(dao, new ToscaPolicyIdentifier("policy-A", VERSION))).isSameAs(ex);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testGetIfPresent_testPut() throws Exception {
+        ToscaPolicy policy = makePolicy("policy-A");
+        assertNull(cache.getIfPresent(policy.getIdentifier()));
+
+        cache.put(policy);
+        assertSame(policy, cache.getIfPresent(policy.getIdentifier()));
+
+        // replace it
+        ToscaPolicy policy2 = makePolicy("policy-A");
+        cache.put(policy2);
+        assertSame(policy2, cache.getIfPresent(policy.getIdentifier()));
+        assertEquals(1, cache.size());
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        verify(dao, never()).getPolicyList(any(), any());
+    }
+
+    @Test
+    public void testEviction() {
+        ToscaPolicy policyA = makePolicy("policy-A");
+        ToscaPolicy policyB = makePolicy("policy-B");
+        ToscaPolicy policyC = makePolicy("policy-C");
+        ToscaPolicy policyD = makePolicy("policy-D");
+
+        cache.put(policyA);
+        cache.put(policyB);
+        cache.put(policyC);
+
+        // touch A so that B becomes the least recently used
+        cache.getIfPresent(policyA.getIdentifier());
+
+        cache.put(policyD);
+        assertEquals(MAX_SIZE, cache.size());
+
+        assertNull(cache.getIfPresent(policyB.getIdentifier()));
+        assertSame(policyA, cache.getIfPresent(policyA.getIdentifier()));
+        assertSame(policyC, cache.getIfPresent(policyC.getIdentifier()));
+        assertSame(policyD, cache.getIfPresent(policyD.getIdentifier()));
+    }
+
+    @Test
+    public void testRemove() {
+        ToscaPolicy policyA = makePolicy("policy-A");
+        ToscaPolicy policyB = makePolicy("policy-B");
+
+        cache.put(policyA);
+        cache.put(policyB);
+
+        cache.remove(policyA.getIdentifier());
+        assertNull(cache.getIfPresent(policyA.getIdentifier()));
+        assertSame(policyB, cache.getIfPresent(policyB.getIdentifier()));
+
+        // remove again - no exception
+        cache.remove(policyA.getIdentifier());
+    }
+
+    @Test
+    public void testClear() {
+        cache.put(makePolicy("policy-A"));
+        cache.put(makePolicy("policy-B"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    private ToscaPolicy makePolicy(String name) {
+        ToscaPolicy policy = new ToscaPolicy();
+        policy.setName(name);
+        policy.setVersion(VERSION);
+        policy.setType("my-type");
+        policy.setTypeVersion("4.5.6");
+
+        return policy;
+    }
+
+    private class MyCache extends ToscaPolicyCache {
+
+        public MyCache(int maxSize) {
+            super(maxSize, TTL_MS);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return curTimeMs;
+        }
+    }
+}
@@ -37,12 +37,16 @@ import static org.mockito.Mockito.verify;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.onap.policy.common.utils.services.Registry;
 import org.onap.policy.models.pdp.concepts.PdpMessage;
 import org.onap.policy.models.pdp.concepts.PdpStateChange;
 import org.onap.policy.models.pdp.concepts.PdpStatus;
 import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.pap.main.PapConstants;
 import org.onap.policy.pap.main.comm.CommonRequestBase;
+import org.onap.policy.pap.main.comm.Publisher.Lane;
 import org.onap.policy.pap.main.comm.QueueToken;
+import org.onap.policy.pap.main.metrics.PapMetrics;
 import org.onap.policy.pap.main.parameters.RequestParams;
 
 public class RequestImplTest extends CommonRequestBase {
@@ -119,13 +123,13 @@ public class RequestImplTest extends CommonRequestBase {
 
         verify(dispatcher).register(eq(msg.getRequestId()), any());
         verify(timers).register(eq(msg.getRequestId()), any());
-        verify(publisher).enqueue(token);
+        verify(publisher).enqueue(Lane.STATE_CHANGE, token);
 
         verify(dispatcher).unregister(eq(msg.getRequestId()));
 
         verify(dispatcher).register(eq(msg2.getRequestId()), any());
         verify(timers).register(eq(msg2.getRequestId()), any());
-        verify(publisher).enqueue(any());
+        verify(publisher).enqueue(any(), any());
     }
 
     @Test
@@ -186,7 +190,7 @@ public class RequestImplTest extends CommonRequestBase {
 
         verify(dispatcher).register(eq(msg.getRequestId()), any());
         verify(timers).register(eq(msg.getRequestId()), any());
-        verify(publisher).enqueue(any());
+        verify(publisher).enqueue(any(), any());
 
         QueueToken<PdpMessage> token = queue.poll();
         assertNotNull(token);
@@ -197,7 +201,7 @@ public class RequestImplTest extends CommonRequestBase {
         req.startPublishing(null);
         verify(dispatcher, times(1)).register(any(), any());
         verify(timers, times(1)).register(any(), any());
-        verify(publisher, times(1)).enqueue(any());
+        verify(publisher, times(1)).enqueue(any(), any());
         assertNull(queue.poll());
 
         // should NOT have cancelled the timer
@@ -219,7 +223,7 @@ public class RequestImplTest extends CommonRequestBase {
 
         verify(dispatcher).register(eq(msg.getRequestId()), any());
         verify(timers).register(eq(msg.getRequestId()), any());
-        verify(publisher).enqueue(any());
+        verify(publisher).enqueue(any(), any());
 
         QueueToken<PdpMessage> token = queue.poll();
         assertNotNull(token);
@@ -230,7 +234,7 @@ public class RequestImplTest extends CommonRequestBase {
         req.startPublishing();
         verify(dispatcher, times(1)).register(any(), any());
         verify(timers, times(1)).register(any(), any());
-        verify(publisher, times(1)).enqueue(any());
+        verify(publisher, times(1)).enqueue(any(), any());
         assertNull(queue.poll());
     }
 
@@ -412,6 +416,24 @@ public class RequestImplTest extends CommonRequestBase {
         verify(timer).cancel();
     }
 
+    @Test
+    public void testProcessResponse_Metrics() {
+        Registry.newRegistry();
+        PapMetrics metrics = new PapMetrics();
+        Registry.register(PapConstants.REG_PAP_METRICS, metrics);
+
+        // histogram is resolved when the request is created
+        req = new MyRequest(reqParams, MY_REQ_NAME, msg);
+        req.setListener(listener);
+        Registry.newRegistry();
+
+        req.startPublishing();
+        invokeProcessResponse(response);
+
+        assertEquals(1L, metrics.getLatencies().get("pap_pdp_response_seconds{type=\"PDP_STATE_CHANGE\"}")
+                        .getCount());
+    }
+
     @Test
     public void testProcessResponse_NotPublishing() {
         // force registration with the dispatcher - needed by invokeProcessResponse(response)
@@ -437,6 +459,27 @@ public class RequestImplTest extends CommonRequestBase {
         verify(timer).cancel();
     }
 
+    @Test
+    public void testProcessResponse_Fallback() {
+        PdpStateChange fallback = new PdpStateChange();
+        fallback.setName(PDP1);
+        req.fallback = fallback;
+
+        req.startPublishing();
+        queue.poll().replaceItem(null);
+
+        response.setName(DIFFERENT);
+
+        invokeProcessResponse(response);
+
+        // should re-publish the fallback message instead of failing
+        verify(listener, never()).success(any());
+        verify(listener, never()).failure(any(), any());
+        assertSame(fallback, req.getMessage());
+        assertTrue(req.isPublishing());
+        assertSame(fallback, queue.poll().get());
+    }
+
     @Test
     public void testHandleTimeout() {
         req.startPublishing();
@@ -451,6 +494,52 @@ public class RequestImplTest extends CommonRequestBase {
 
         // should have invoked startPublishing() a second time
         verify(dispatcher, times(2)).register(eq(msg.getRequestId()), any());
+
+        // STATE-CHANGE retries remain in their own lane
+        verify(publisher, times(2)).enqueue(eq(Lane.STATE_CHANGE), any());
+    }
+
+    @Test
+    public void testHandleTimeout_RetryLane() {
+        PdpUpdate update = new PdpUpdate();
+        update.setName(PDP1);
+
+        req = new MyRequest(reqParams, MY_REQ_NAME, update);
+        req.setListener(listener);
+
+        req.startPublishing();
+        verify(publisher).enqueue(eq(Lane.BULK), any());
+
+        // remove it from the queue
+        queue.poll().replaceItem(null);
+
+        invokeTimeoutHandler();
+
+        // should have been re-published in the retry lane
+        verify(publisher).enqueue(eq(Lane.RETRY), any());
+        verify(publisher, times(1)).enqueue(eq(Lane.BULK), any());
+        assertSame(update, queue.poll().get());
+    }
+
+    @Test
+    public void testEnqueue_LaneOverride() {
+        PdpUpdate update = new PdpUpdate();
+        update.setName(PDP1);
+
+        req = new MyRequest(reqParams.setLane(Lane.STATE_CHANGE), MY_REQ_NAME, update);
+        req.setListener(listener);
+
+        req.startPublishing();
+        verify(publisher).enqueue(eq(Lane.STATE_CHANGE), any());
+
+        // remove it from the queue
+        queue.poll().replaceItem(null);
+
+        invokeTimeoutHandler();
+
+        // retries stay in the requested lane, too
+        verify(publisher, times(2)).enqueue(eq(Lane.STATE_CHANGE), any());
+        verify(publisher, never()).enqueue(eq(Lane.RETRY), any());
     }
 
     @Test
@@ -553,6 +642,7 @@ public class RequestImplTest extends CommonRequestBase {
     }
 
     private class MyRequest extends RequestImpl {
+        private PdpMessage fallback = null;
 
         public MyRequest(RequestParams params, String name, PdpMessage message) {
             super(params, name, message);
@@ -567,5 +657,10 @@ public class RequestImplTest extends CommonRequestBase {
         public boolean isSameContent(Request other) {
             return false;
         }
+
+        @Override
+        protected PdpMessage makeFallbackMessage(PdpStatus response) {
+            return fallback;
+        }
     }
 }
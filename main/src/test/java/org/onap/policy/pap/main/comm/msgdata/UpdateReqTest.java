@@ -22,12 +22,15 @@ package org.onap.policy.pap.main.comm.msgdata;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
@@ -36,6 +39,7 @@ import org.onap.policy.models.pdp.concepts.PdpStatus;
 import org.onap.policy.models.pdp.concepts.PdpUpdate;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
 import org.onap.policy.pap.main.comm.CommonRequestBase;
+import org.onap.policy.pap.main.comm.PdpDeltaUpdate;
 
 public class UpdateReqTest extends CommonRequestBase {
 
@@ -132,6 +136,59 @@ public class UpdateReqTest extends CommonRequestBase {
         assertEquals("policies do not match", data.checkResponse(response));
     }
 
+    @Test
+    public void testCheckResponse_Delta() {
+        data = new UpdateReq(reqParams, MY_REQ_NAME, makeDelta());
+        assertNull(data.checkResponse(response));
+
+        // PDP did not end up with the complete set of policies
+        response.setPolicies(Collections.emptyList());
+        assertEquals("policies do not match - generation mismatch", data.checkResponse(response));
+    }
+
+    @Test
+    public void testMakeFallbackMessage() {
+        response.setPolicies(Collections.emptyList());
+
+        // not a delta
+        assertNull(data.makeFallbackMessage(response));
+        assertNull(new UpdateReq(reqParams, MY_REQ_NAME, new PdpDeltaUpdate(update, 2)).makeFallbackMessage(response));
+
+        PdpDeltaUpdate delta = makeDelta();
+        data = new UpdateReq(reqParams, MY_REQ_NAME, delta);
+
+        PdpDeltaUpdate full = (PdpDeltaUpdate) data.makeFallbackMessage(response);
+        assertNotNull(full);
+        assertFalse(full.isDelta());
+        assertEquals(delta.getGeneration(), full.getGeneration());
+        assertSame(delta.getPolicies(), full.getPolicies());
+        assertNotEquals(delta.getRequestId(), full.getRequestId());
+    }
+
+    @Test
+    public void testMakeFallbackMessage_NoFallback() {
+        data = new UpdateReq(reqParams, MY_REQ_NAME, makeDelta());
+
+        // policies match
+        assertNull(data.makeFallbackMessage(response));
+
+        response.setPolicies(Collections.emptyList());
+
+        // wrong name
+        response.setName(DIFFERENT);
+        assertNull(data.makeFallbackMessage(response));
+        response.setName(MY_NAME);
+
+        // wrong group
+        response.setPdpGroup(DIFFERENT);
+        assertNull(data.makeFallbackMessage(response));
+        response.setPdpGroup(update.getPdpGroup());
+
+        // wrong subgroup
+        response.setPdpSubgroup(DIFFERENT);
+        assertNull(data.makeFallbackMessage(response));
+    }
+
     @Test
     public void isSameContent() {
         PdpUpdate msg2 = new PdpUpdate(update);
@@ -242,4 +299,14 @@ public class UpdateReqTest extends CommonRequestBase {
 
         return upd;
     }
+
+    private PdpDeltaUpdate makeDelta() {
+        PdpDeltaUpdate delta = new PdpDeltaUpdate(update, 2);
+
+        delta.setBaseGeneration(1);
+        delta.setPoliciesToBeDeployed(Collections.singletonList(update.getPolicies().get(1)));
+        delta.setPoliciesToBeUndeployed(Collections.emptyList());
+
+        return delta;
+    }
 }
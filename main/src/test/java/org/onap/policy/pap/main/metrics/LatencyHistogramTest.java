@@ -0,0 +1,165 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.policy.pap.main.metrics.LatencyHistogram.Snapshot;
+
+public class LatencyHistogramTest {
+    private static final double DELTA = 1.0e-9;
+
+    private LatencyHistogram hist;
+
+    @Before
+    public void setUp() {
+        hist = new LatencyHistogram();
+    }
+
+    @Test
+    public void testRecord() {
+        hist.record(10);
+        hist.record(-5);
+        hist.record(Long.MAX_VALUE);
+
+        assertEquals(3, hist.getCount());
+
+        Snapshot snap = hist.snapshot();
+        assertEquals(3, snap.getCount());
+        assertEquals(Long.MAX_VALUE, snap.getMaxNanos());
+        assertEquals(0, snap.getValueAtPercentile(0));
+        assertEquals(Long.MAX_VALUE, snap.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testRecordSince() {
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5);
+        hist.recordSince(start);
+
+        assertTrue(hist.snapshot().getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    public void testSnapshot_Empty() {
+        Snapshot snap = hist.snapshot();
+        assertEquals(0, snap.getCount());
+        assertEquals(0, snap.getSumNanos());
+        assertEquals(0, snap.getMaxNanos());
+        assertEquals(0, snap.getMeanNanos(), DELTA);
+        assertEquals(0, snap.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testSnapshot_SmallValues() {
+        // values below the number of sub-buckets are exact
+        for (long value = 0; value < LatencyHistogram.SUB_BUCKETS; ++value) {
+            hist.record(value);
+        }
+
+        Snapshot snap = hist.snapshot();
+        assertEquals(LatencyHistogram.SUB_BUCKETS, snap.getCount());
+        assertEquals(3, snap.getValueAtPercentile(50));
+        assertEquals(LatencyHistogram.SUB_BUCKETS - 1, snap.getValueAtPercentile(100));
+        assertEquals(3.5, snap.getMeanNanos(), DELTA);
+    }
+
+    @Test
+    public void testSnapshot_Percentiles() {
+        for (long value = 1; value <= 1000; ++value) {
+            hist.record(value * 1000);
+        }
+
+        Snapshot snap = hist.snapshot();
+        assertEquals(1000, snap.getCount());
+        assertEquals(500500000L, snap.getSumNanos());
+        assertEquals(1000000L, snap.getMaxNanos());
+
+        checkPercentile(snap, 50, 500000);
+        checkPercentile(snap, 90, 900000);
+        checkPercentile(snap, 99, 990000);
+
+        // never reports more than the max
+        assertEquals(1000000L, snap.getValueAtPercentile(100));
+        assertEquals(1000000L, snap.getValueAtPercentile(200));
+    }
+
+    @Test
+    public void testSnapshot_IsCopy() {
+        hist.record(100);
+        Snapshot snap = hist.snapshot();
+
+        hist.record(200);
+        assertEquals(1, snap.getCount());
+        assertEquals(100, snap.getSumNanos());
+    }
+
+    @Test
+    public void testRecord_Concurrent() throws Exception {
+        final int nthreads = 4;
+        final int nvalues = 10000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads);
+        for (int thread = 0; thread < nthreads; ++thread) {
+            executor.execute(() -> {
+                for (int value = 0; value < nvalues; ++value) {
+                    hist.record(value);
+                }
+            });
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        Snapshot snap = hist.snapshot();
+        assertEquals(nthreads * nvalues, snap.getCount());
+        assertEquals(nvalues - 1, snap.getMaxNanos());
+    }
+
+    @Test
+    public void testToMillis() {
+        assertEquals(1.5, Snapshot.toMillis(1500000), DELTA);
+    }
+
+    @Test
+    public void testToSeconds() {
+        assertEquals(1.5, Snapshot.toSeconds(1500000000), DELTA);
+    }
+
+    /**
+     * Verifies that a percentile is within the precision of the histogram.
+     *
+     * @param snap snapshot to check
+     * @param percentile percentile of interest
+     * @param expected expected value
+     */
+    private void checkPercentile(Snapshot snap, double percentile, long expected) {
+        long actual = snap.getValueAtPercentile(percentile);
+        assertTrue("percentile " + percentile + " is " + actual, actual >= expected);
+        assertTrue("percentile " + percentile + " is " + actual,
+                        actual <= expected + expected / LatencyHistogram.SUB_BUCKETS);
+    }
+}
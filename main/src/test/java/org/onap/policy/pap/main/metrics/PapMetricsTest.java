@@ -0,0 +1,170 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.policy.common.utils.services.Registry;
+import org.onap.policy.pap.main.PapConstants;
+import org.onap.policy.pap.main.metrics.PapMetrics.LatencySummary;
+
+public class PapMetricsTest {
+    private static final String HIST_NAME = "my_hist_seconds";
+    private static final String HIST_HELP = "my histogram";
+    private static final String COUNTER_NAME = "my_counter_total";
+    private static final String GAUGE_NAME = "my_gauge";
+    private static final String LABEL = "method";
+    private static final double DELTA = 1.0e-9;
+
+    private PapMetrics metrics;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        Registry.newRegistry();
+        metrics = new PapMetrics();
+    }
+
+    @After
+    public void tearDown() {
+        Registry.newRegistry();
+    }
+
+    @Test
+    public void testLookup() {
+        // nothing registered - always gets a new object
+        PapMetrics unregistered = PapMetrics.lookup();
+        assertNotSame(unregistered, PapMetrics.lookup());
+
+        Registry.register(PapConstants.REG_PAP_METRICS, metrics);
+        assertSame(metrics, PapMetrics.lookup());
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram hist = metrics.histogram(HIST_NAME, HIST_HELP);
+        assertSame(hist, metrics.histogram(HIST_NAME, HIST_HELP));
+
+        LatencyHistogram histA = metrics.histogram(HIST_NAME, HIST_HELP, LABEL, "a");
+        assertNotSame(hist, histA);
+        assertSame(histA, metrics.histogram(HIST_NAME, HIST_HELP, LABEL, "a"));
+        assertNotSame(histA, metrics.histogram(HIST_NAME, HIST_HELP, LABEL, "b"));
+    }
+
+    @Test
+    public void testCounter() {
+        LongAdder counter = metrics.counter(COUNTER_NAME, "my counter");
+        assertSame(counter, metrics.counter(COUNTER_NAME, "my counter"));
+    }
+
+    @Test
+    public void testGetLatencies() {
+        metrics.histogram(HIST_NAME, HIST_HELP).record(TimeUnit.MILLISECONDS.toNanos(4));
+        metrics.histogram(HIST_NAME, HIST_HELP, LABEL, "a").record(TimeUnit.MILLISECONDS.toNanos(2));
+
+        Map<String, LatencySummary> latencies = metrics.getLatencies();
+        assertEquals("[my_hist_seconds, my_hist_seconds{method=\"a\"}]", latencies.keySet().toString());
+
+        LatencySummary summary = latencies.get(HIST_NAME);
+        assertEquals(1, summary.getCount());
+        assertEquals(4.0, summary.getMeanMs(), DELTA);
+        assertEquals(4.0, summary.getMaxMs(), DELTA);
+        assertTrue(summary.getP50Ms() <= 4.0);
+        assertTrue(summary.getP50Ms() <= summary.getP90Ms());
+        assertTrue(summary.getP90Ms() <= summary.getP99Ms());
+    }
+
+    @Test
+    public void testGetCounts() {
+        metrics.counter(COUNTER_NAME, "my counter").add(3);
+        metrics.gauge(GAUGE_NAME, "my gauge", () -> 5);
+
+        assertEquals("{my_counter_total=3, my_gauge=5}", metrics.getCounts().toString());
+
+        // replace the gauge
+        metrics.gauge(GAUGE_NAME, "my gauge", () -> 7);
+        assertEquals(7L, metrics.getCounts().get(GAUGE_NAME).longValue());
+    }
+
+    @Test
+    public void testGauge_Labeled() {
+        metrics.gauge(GAUGE_NAME, "my gauge", LABEL, "a", () -> 5);
+        metrics.gauge(GAUGE_NAME, "my gauge", LABEL, "b", () -> 6);
+
+        assertEquals("{my_gauge{method=\"a\"}=5, my_gauge{method=\"b\"}=6}", metrics.getCounts().toString());
+
+        // replace one of them
+        metrics.gauge(GAUGE_NAME, "my gauge", LABEL, "b", () -> 7);
+        assertEquals(7L, metrics.getCounts().get("my_gauge{method=\"b\"}").longValue());
+    }
+
+    @Test
+    public void testWritePrometheus() throws Exception {
+        metrics.counter(COUNTER_NAME, "my counter").add(3);
+        metrics.gauge(GAUGE_NAME, "my gauge", () -> 5);
+        metrics.histogram(HIST_NAME, HIST_HELP, LABEL, "a\"b").record(TimeUnit.SECONDS.toNanos(2));
+
+        StringWriter writer = new StringWriter();
+        metrics.writePrometheus(writer);
+
+        // @formatter:off
+        String expected =
+            "# HELP my_counter_total my counter\n"
+            + "# TYPE my_counter_total counter\n"
+            + "my_counter_total 3\n"
+            + "# HELP my_gauge my gauge\n"
+            + "# TYPE my_gauge gauge\n"
+            + "my_gauge 5\n"
+            + "# HELP my_hist_seconds my histogram\n"
+            + "# TYPE my_hist_seconds summary\n"
+            + "my_hist_seconds{method=\"a\\\"b\",quantile=\"0.5\"} 2.0\n"
+            + "my_hist_seconds{method=\"a\\\"b\",quantile=\"0.9\"} 2.0\n"
+            + "my_hist_seconds{method=\"a\\\"b\",quantile=\"0.99\"} 2.0\n"
+            + "my_hist_seconds_sum{method=\"a\\\"b\"} 2.0\n"
+            + "my_hist_seconds_count{method=\"a\\\"b\"} 1\n";
+        // @formatter:on
+
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    public void testWritePrometheus_NoLabels() throws Exception {
+        metrics.histogram(HIST_NAME, HIST_HELP);
+
+        StringWriter writer = new StringWriter();
+        metrics.writePrometheus(writer);
+
+        assertTrue(writer.toString().contains("my_hist_seconds{quantile=\"0.5\"} 0.0\n"));
+        assertTrue(writer.toString().contains("my_hist_seconds_count 0\n"));
+    }
+}
@@ -28,6 +28,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.onap.policy.common.endpoints.listeners.RequestIdDispatcher;
 import org.onap.policy.models.pdp.concepts.PdpStatus;
+import org.onap.policy.pap.main.comm.DeploymentTracker;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
 import org.onap.policy.pap.main.comm.Publisher;
 import org.onap.policy.pap.main.comm.TimerManager;
 
@@ -39,6 +41,8 @@ public class TestPdpModifyRequestMapParams {
     private PdpParameters pdpParams;
     private TimerManager updTimers;
     private TimerManager stateTimers;
+    private PdpGroupCache groupCache;
+    private DeploymentTracker tracker;
 
     /**
      * Sets up the objects and creates an empty {@link #params}.
@@ -52,9 +56,12 @@ public class TestPdpModifyRequestMapParams {
         pdpParams = mock(PdpParameters.class);
         updTimers = mock(TimerManager.class);
         stateTimers = mock(TimerManager.class);
+        groupCache = mock(PdpGroupCache.class);
+        tracker = mock(DeploymentTracker.class);
 
         params = new PdpModifyRequestMapParams().setModifyLock(lock).setPublisher(pub).setResponseDispatcher(disp)
-                        .setParams(pdpParams).setStateChangeTimers(stateTimers).setUpdateTimers(updTimers);
+                        .setParams(pdpParams).setStateChangeTimers(stateTimers).setUpdateTimers(updTimers)
+                        .setGroupCache(groupCache).setDeploymentTracker(tracker);
     }
 
     @Test
@@ -65,6 +72,8 @@ public class TestPdpModifyRequestMapParams {
         assertSame(pdpParams, params.getParams());
         assertSame(updTimers, params.getUpdateTimers());
         assertSame(stateTimers, params.getStateChangeTimers());
+        assertSame(groupCache, params.getGroupCache());
+        assertSame(tracker, params.getDeploymentTracker());
     }
 
     @Test
@@ -108,4 +117,16 @@ public class TestPdpModifyRequestMapParams {
         assertThatIllegalArgumentException().isThrownBy(() -> params.setUpdateTimers(null).validate())
                         .withMessageContaining("update");
     }
+
+    @Test
+    public void testValidate_MissingGroupCache() {
+        assertThatIllegalArgumentException().isThrownBy(() -> params.setGroupCache(null).validate())
+                        .withMessageContaining("groupCache");
+    }
+
+    @Test
+    public void testValidate_MissingDeploymentTracker() {
+        assertThatIllegalArgumentException().isThrownBy(() -> params.setDeploymentTracker(null).validate())
+                        .withMessageContaining("deploymentTracker");
+    }
 }
@@ -48,6 +48,64 @@ public class TestPdpParameters {
         assertEquals(5, state.getMaxWaitMs());
 
         assertEquals(6L, params.getHeartBeatMs());
+        assertEquals(700L, params.getHealthFlushMs());
+        assertEquals(800, params.getMaxPendingHealthWrites());
+        assertEquals(3, params.getHeartBeatThreads());
+        assertEquals(29, params.getHeartBeatQueueSize());
+        assertEquals(900, params.getPublisherBatchSize());
+        assertEquals(4, params.getPublisherThreads());
+        assertEquals(2, params.getDaoPoolSize());
+        assertEquals(21000L, params.getDaoPoolMaxWaitMs());
+        assertEquals(22, params.getPolicyCacheSize());
+        assertEquals(30, params.getPolicyCacheTtlMs());
+        assertEquals(23, params.getMaxTrackedDeployments());
+        assertEquals(24, params.getMaxQuerySnapshots());
+        assertEquals(31, params.getMaxQuerySnapshotBytes());
+
+        PdpRolloutParameters rollout = params.getRolloutParameters();
+        assertNotNull(rollout);
+        assertEquals(25, rollout.getWaveSize());
+        assertEquals(26, rollout.getWavePercent());
+        assertEquals(27L, rollout.getWavePauseMs());
+        assertEquals(28, rollout.getMaxFailurePercent());
+    }
+
+    @Test
+    public void testDefaults() throws Exception {
+        String json = testData.getPapParameterGroupAsString(1).replace("\"healthFlushMs\"", "\"healthFlushMsXxx\"")
+                        .replace("\"maxPendingHealthWrites\"", "\"maxPendingHealthWritesXxx\"")
+                        .replace("\"heartBeatThreads\"", "\"heartBeatThreadsXxx\"")
+                        .replace("\"heartBeatQueueSize\"", "\"heartBeatQueueSizeXxx\"")
+                        .replace("\"publisherBatchSize\"", "\"publisherBatchSizeXxx\"")
+                        .replace("\"publisherThreads\"", "\"publisherThreadsXxx\"")
+                        .replace("\"daoPoolSize\"", "\"daoPoolSizeXxx\"")
+                        .replace("\"daoPoolMaxWaitMs\"", "\"daoPoolMaxWaitMsXxx\"")
+                        .replace("\"policyCacheSize\"", "\"policyCacheSizeXxx\"")
+                        .replace("\"policyCacheTtlMs\"", "\"policyCacheTtlMsXxx\"")
+                        .replace("\"maxTrackedDeployments\"", "\"maxTrackedDeploymentsXxx\"")
+                        .replace("\"maxQuerySnapshots\"", "\"maxQuerySnapshotsXxx\"")
+                        .replace("\"maxQuerySnapshotBytes\"", "\"maxQuerySnapshotBytesXxx\"")
+                        .replace("\"rolloutParameters\"", "\"rolloutParametersXxx\"");
+
+        PdpParameters params = coder.decode(json, PapParameterGroup.class).getPdpParameters();
+        assertEquals(1000L, params.getHealthFlushMs());
+        assertEquals(10000, params.getMaxPendingHealthWrites());
+        assertEquals(Runtime.getRuntime().availableProcessors(), params.getHeartBeatThreads());
+        assertEquals(1000, params.getHeartBeatQueueSize());
+        assertEquals(100, params.getPublisherBatchSize());
+        assertEquals(1, params.getPublisherThreads());
+        assertEquals(8, params.getDaoPoolSize());
+        assertEquals(30000L, params.getDaoPoolMaxWaitMs());
+        assertEquals(1000, params.getPolicyCacheSize());
+        assertEquals(300000, params.getPolicyCacheTtlMs());
+        assertEquals(1000, params.getMaxTrackedDeployments());
+        assertEquals(16, params.getMaxQuerySnapshots());
+        assertEquals(1048576, params.getMaxQuerySnapshotBytes());
+        assertTrue(params.getDeltaPdpTypes().isEmpty());
+        assertTrue(params.getCompressedPdpTypes().isEmpty());
+        assertEquals(4194304, params.getMaxDecompressedBytes());
+        assertFalse(params.getRolloutParameters().isEnabled());
+        assertTrue(params.validate().isValid());
     }
 
     @Test
@@ -67,6 +125,92 @@ public class TestPdpParameters {
         assertTrue(result.getResult().contains(
                         "field 'heartBeatMs' type 'long' value '0' INVALID, must be >= 1".replace('\'', '"')));
 
+        // invalid flush interval
+        json2 = json.replaceFirst(": 700", ": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains(
+                        "field 'healthFlushMs' type 'long' value '0' INVALID, must be >= 1".replace('\'', '"')));
+
+        // invalid queue size
+        json2 = json.replaceFirst(": 800", ": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("maxPendingHealthWrites"));
+
+        // invalid thread count
+        json2 = json.replaceFirst(": 3", ": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("heartBeatThreads"));
+
+        // invalid heart beat queue size
+        json2 = json.replace("\"heartBeatQueueSize\": 29", "\"heartBeatQueueSize\": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("heartBeatQueueSize"));
+
+        // invalid batch size
+        json2 = json.replaceFirst(": 900", ": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("publisherBatchSize"));
+
+        // invalid publisher thread count
+        json2 = json.replaceFirst(": 4", ": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("publisherThreads"));
+
+        // invalid pool size
+        json2 = json.replace("\"daoPoolSize\": 2", "\"daoPoolSize\": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("daoPoolSize"));
+
+        // invalid pool wait time
+        json2 = json.replace("\"daoPoolMaxWaitMs\": 21000", "\"daoPoolMaxWaitMs\": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("daoPoolMaxWaitMs"));
+
+        // invalid policy cache size
+        json2 = json.replace("\"policyCacheSize\": 22", "\"policyCacheSize\": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("policyCacheSize"));
+
+        // invalid policy cache time-to-live
+        json2 = json.replace("\"policyCacheTtlMs\": 30", "\"policyCacheTtlMs\": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("policyCacheTtlMs"));
+
+        // invalid number of tracked deployments
+        json2 = json.replace("\"maxTrackedDeployments\": 23", "\"maxTrackedDeployments\": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("maxTrackedDeployments"));
+
+        // invalid number of query snapshots
+        json2 = json.replace("\"maxQuerySnapshots\": 24", "\"maxQuerySnapshots\": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("maxQuerySnapshots"));
+
+        // invalid query snapshot size
+        json2 = json.replace("\"maxQuerySnapshotBytes\": 31", "\"maxQuerySnapshotBytes\": 0");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("maxQuerySnapshotBytes"));
+
+        // invalid rollout params
+        json2 = json.replace("\"waveSize\": 25", "\"waveSize\": -25");
+        result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("parameter group 'PdpRolloutParameters'".replace('\'', '"')));
+        assertTrue(result.getResult().contains("waveSize"));
+
         // no update params
         json2 = testData.nullifyField(json, "updateParameters");
         result = coder.decode(json2, PapParameterGroup.class).getPdpParameters().validate();
@@ -0,0 +1,93 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.parameters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.onap.policy.common.parameters.GroupValidationResult;
+import org.onap.policy.common.utils.coder.Coder;
+import org.onap.policy.common.utils.coder.StandardCoder;
+
+public class TestPdpRolloutParameters {
+    private static final Coder coder = new StandardCoder();
+
+    @Test
+    public void testGetters() throws Exception {
+        PdpRolloutParameters params = makeParams("{'waveSize':1, 'wavePercent':2, 'wavePauseMs':3, "
+                        + "'maxFailurePercent':4}");
+        assertEquals(1, params.getWaveSize());
+        assertEquals(2, params.getWavePercent());
+        assertEquals(3L, params.getWavePauseMs());
+        assertEquals(4, params.getMaxFailurePercent());
+    }
+
+    @Test
+    public void testDefaults() throws Exception {
+        PdpRolloutParameters params = makeParams("{}");
+        assertEquals(0, params.getWaveSize());
+        assertEquals(0, params.getWavePercent());
+        assertEquals(0L, params.getWavePauseMs());
+        assertEquals(0, params.getMaxFailurePercent());
+        assertFalse(params.isEnabled());
+        assertTrue(params.validate().isValid());
+    }
+
+    @Test
+    public void testIsEnabled() throws Exception {
+        assertTrue(makeParams("{'waveSize':1}").isEnabled());
+        assertTrue(makeParams("{'wavePercent':1}").isEnabled());
+
+        // these alone do not enable it
+        assertFalse(makeParams("{'wavePauseMs':1, 'maxFailurePercent':1}").isEnabled());
+    }
+
+    @Test
+    public void testValidate() throws Exception {
+        // valid
+        GroupValidationResult result = makeParams("{'waveSize':10, 'wavePercent':200}").validate();
+        assertNull(result.getResult());
+        assertTrue(result.isValid());
+
+        result = makeParams("{'waveSize':-1}").validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("waveSize"));
+
+        result = makeParams("{'wavePercent':-1}").validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("wavePercent"));
+
+        result = makeParams("{'wavePauseMs':-1}").validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("wavePauseMs"));
+
+        result = makeParams("{'maxFailurePercent':-1}").validate();
+        assertFalse(result.isValid());
+        assertTrue(result.getResult().contains("maxFailurePercent"));
+    }
+
+    private PdpRolloutParameters makeParams(String json) throws Exception {
+        return coder.decode(json.replace('\'', '"'), PdpRolloutParameters.class);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Collections;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+import org.onap.policy.common.utils.services.Registry;
+import org.onap.policy.models.errors.concepts.ErrorResponse;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.pap.main.PapConstants;
+import org.onap.policy.pap.main.comm.DeploymentStatus;
+import org.onap.policy.pap.main.comm.DeploymentStatus.State;
+import org.onap.policy.pap.main.comm.DeploymentTracker;
+
+/**
+ * Class to perform unit test of {@link DeploymentStatusControllerV1}.
+ */
+public class TestDeploymentStatusControllerV1 extends CommonPapRestServer {
+
+    private static final String DEPLOYMENTS_ENDPOINT = "deployments/";
+
+    @Test
+    public void testSwagger() throws Exception {
+        super.testSwagger(DEPLOYMENTS_ENDPOINT + "{trackingId}");
+    }
+
+    @Test
+    public void testQueryDeploymentStatus() throws Exception {
+        DeploymentTracker tracker = Registry.get(PapConstants.REG_DEPLOYMENT_TRACKER, DeploymentTracker.class);
+        String trackingId = tracker.add(Collections.emptyList());
+
+        final String uri = DEPLOYMENTS_ENDPOINT + trackingId;
+
+        Invocation.Builder invocationBuilder = sendRequest(uri);
+        Response rawresp = invocationBuilder.get();
+        assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+
+        DeploymentStatus resp = rawresp.readEntity(DeploymentStatus.class);
+        assertNotNull(resp);
+        assertEquals(trackingId, resp.getTrackingId());
+        assertEquals(State.SUCCESS, resp.getState());
+
+        // verify it fails when no authorization info is included
+        checkUnauthRequest(uri, req -> req.get());
+    }
+
+    @Test
+    public void testQueryDeploymentStatus_Wait() throws Exception {
+        PdpUpdate update = new PdpUpdate();
+        update.setName("pdpA");
+
+        DeploymentTracker tracker = Registry.get(PapConstants.REG_DEPLOYMENT_TRACKER, DeploymentTracker.class);
+        String trackingId = tracker.add(Collections.singleton(update));
+
+        // times out while still in progress
+        Response rawresp = sendRequest(DEPLOYMENTS_ENDPOINT + trackingId + "?waitMs=10").get();
+        assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+        assertEquals(State.IN_PROGRESS, rawresp.readEntity(DeploymentStatus.class).getState());
+
+        tracker.success(update);
+
+        rawresp = sendRequest(DEPLOYMENTS_ENDPOINT + trackingId + "?waitMs=10").get();
+        assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+        assertEquals(State.SUCCESS, rawresp.readEntity(DeploymentStatus.class).getState());
+    }
+
+    @Test
+    public void testQueryDeploymentStatus_Unknown() throws Exception {
+        Response rawresp = sendRequest(DEPLOYMENTS_ENDPOINT + "unknown-id").get();
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), rawresp.getStatus());
+
+        ErrorResponse resp = rawresp.readEntity(ErrorResponse.class);
+        assertNotNull(resp.getErrorMessage());
+    }
+}
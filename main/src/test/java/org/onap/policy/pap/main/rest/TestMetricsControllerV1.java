@@ -0,0 +1,61 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+
+/**
+ * Class to perform unit test of {@link MetricsControllerV1}.
+ */
+public class TestMetricsControllerV1 extends CommonPapRestServer {
+
+    private static final String METRICS_ENDPOINT = "metrics";
+
+    @Test
+    public void testSwagger() throws Exception {
+        super.testSwagger(METRICS_ENDPOINT);
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        // make sure there's at least one REST latency to report
+        sendRequest("healthcheck").get().close();
+
+        Response rawresp = sendRequest(METRICS_ENDPOINT).accept(MediaType.TEXT_PLAIN).get();
+        assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+        assertTrue(rawresp.getMediaType().isCompatible(MediaType.TEXT_PLAIN_TYPE));
+
+        String text = rawresp.readEntity(String.class);
+        assertTrue(text.contains("# TYPE pap_publisher_queue_depth gauge\n"));
+        assertTrue(text.contains("pap_publisher_lane_depth{lane=\"state_change\"} "));
+        assertTrue(text.contains("# TYPE pap_timer_lateness_seconds summary\n"));
+        assertTrue(text.contains("# TYPE " + RestLatencyFilter.METRIC_NAME + " summary\n"));
+        assertTrue(text.contains(RestLatencyFilter.METRIC_NAME + "_count{endpoint=\"healthcheck\"}"));
+
+        // verify it fails when no authorization info is included
+        checkUnauthRequest(METRICS_ENDPOINT, req -> req.get());
+    }
+}
@@ -18,13 +18,29 @@
  * ============LICENSE_END=========================================================
  */
 
+
 package org.onap.policy.pap.main.rest;
 
 import static org.junit.Assert.assertEquals;
-
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
+import org.onap.policy.common.utils.services.Registry;
+import org.onap.policy.pap.main.PapConstants;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Counts;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Snapshot;
+import org.onap.policy.pap.main.rest.PapStatisticsManager.Stat;
 
 public class TestPapStatisticsManager {
+    private static final String GROUP_A = "group-A";
+    private static final String GROUP_B = "group-B";
+    private static final String PDP_TYPE = "xacml";
 
     @Test
     public void test() {
@@ -33,35 +49,35 @@ public class TestPapStatisticsManager {
         // try each update
 
         assertEquals(0, mgr.getTotalPdpCount());
-        assertEquals(1, mgr.updateTotalPdpCount());
+        mgr.updateTotalPdpCount();
         assertEquals(1, mgr.getTotalPdpCount());
 
         assertEquals(0, mgr.getTotalPdpGroupCount());
-        assertEquals(1, mgr.updateTotalPdpGroupCount());
+        mgr.updateTotalPdpGroupCount();
         assertEquals(1, mgr.getTotalPdpGroupCount());
 
         assertEquals(0, mgr.getTotalPolicyDeployCount());
-        assertEquals(1, mgr.updateTotalPolicyDeployCount());
+        mgr.updateTotalPolicyDeployCount();
         assertEquals(1, mgr.getTotalPolicyDeployCount());
 
         assertEquals(0, mgr.getPolicyDeploySuccessCount());
-        assertEquals(1, mgr.updatePolicyDeploySuccessCount());
+        mgr.updatePolicyDeploySuccessCount();
         assertEquals(1, mgr.getPolicyDeploySuccessCount());
 
         assertEquals(0, mgr.getPolicyDeployFailureCount());
-        assertEquals(1, mgr.updatePolicyDeployFailureCount());
+        mgr.updatePolicyDeployFailureCount();
         assertEquals(1, mgr.getPolicyDeployFailureCount());
 
         assertEquals(0, mgr.getTotalPolicyDownloadCount());
-        assertEquals(1, mgr.updateTotalPolicyDownloadCount());
+        mgr.updateTotalPolicyDownloadCount();
         assertEquals(1, mgr.getTotalPolicyDownloadCount());
 
         assertEquals(0, mgr.getPolicyDownloadSuccessCount());
-        assertEquals(1, mgr.updatePolicyDownloadSuccessCount());
+        mgr.updatePolicyDownloadSuccessCount();
         assertEquals(1, mgr.getPolicyDownloadSuccessCount());
 
         assertEquals(0, mgr.getPolicyDownloadFailureCount());
-        assertEquals(1, mgr.updatePolicyDownloadFailureCount());
+        mgr.updatePolicyDownloadFailureCount();
         assertEquals(1, mgr.getPolicyDownloadFailureCount());
 
         // now check reset
@@ -77,4 +93,105 @@ public class TestPapStatisticsManager {
         assertEquals(0, mgr.getPolicyDownloadSuccessCount());
         assertEquals(0, mgr.getPolicyDownloadFailureCount());
     }
+
+    @Test
+    public void testLookup() {
+        Registry.newRegistry();
+
+        // nothing registered - always gets a new object
+        assertNotSame(PapStatisticsManager.lookup(), PapStatisticsManager.lookup());
+
+        PapStatisticsManager mgr = new PapStatisticsManager();
+        Registry.register(PapConstants.REG_STATISTICS_MANAGER, mgr);
+        assertSame(mgr, PapStatisticsManager.lookup());
+
+        Registry.newRegistry();
+    }
+
+    @Test
+    public void testGetSnapshot() {
+        PapStatisticsManager mgr = new PapStatisticsManager();
+
+        mgr.update(Stat.TOTAL_POLICY_DOWNLOAD, GROUP_A, PDP_TYPE);
+        mgr.update(Stat.TOTAL_POLICY_DOWNLOAD, GROUP_B, PDP_TYPE);
+        mgr.update(Stat.POLICY_DOWNLOAD_SUCCESS, GROUP_B, PDP_TYPE);
+        mgr.update(Stat.TOTAL_PDP, GROUP_A, null);
+        mgr.update(Stat.TOTAL_POLICY_DEPLOY, GROUP_A, null, 5);
+        mgr.updateTotalPdpGroupCount();
+
+        Snapshot snap = mgr.getSnapshot();
+
+        Counts total = snap.getTotal();
+        assertEquals(2, total.getTotalPolicyDownloadCount());
+        assertEquals(1, total.getPolicyDownloadSuccessCount());
+        assertEquals(1, total.getTotalPdpCount());
+        assertEquals(1, total.getTotalPdpGroupCount());
+        assertEquals(5, total.getTotalPolicyDeployCount());
+
+        assertEquals("[group-A, group-B]", snap.getGroups().keySet().toString());
+        assertEquals(1, snap.getGroups().get(GROUP_A).getTotalPolicyDownloadCount());
+        assertEquals(0, snap.getGroups().get(GROUP_A).getPolicyDownloadSuccessCount());
+        assertEquals(1, snap.getGroups().get(GROUP_A).getTotalPdpCount());
+        assertEquals(5, snap.getGroups().get(GROUP_A).getTotalPolicyDeployCount());
+        assertEquals(1, snap.getGroups().get(GROUP_B).getPolicyDownloadSuccessCount());
+
+        assertEquals("[xacml]", snap.getPdpTypes().keySet().toString());
+        assertEquals(2, snap.getPdpTypes().get(PDP_TYPE).getTotalPolicyDownloadCount());
+        assertEquals(0, snap.getPdpTypes().get(PDP_TYPE).getTotalPdpCount());
+
+        // snapshot is not affected by later updates or by a reset
+        mgr.update(Stat.TOTAL_POLICY_DOWNLOAD, GROUP_A, PDP_TYPE);
+        mgr.resetAllStatistics();
+        assertEquals(2, snap.getTotal().getTotalPolicyDownloadCount());
+
+        snap = mgr.getSnapshot();
+        assertEquals(0, snap.getTotal().getTotalPolicyDownloadCount());
+        assertTrue(snap.getGroups().isEmpty());
+        assertTrue(snap.getPdpTypes().isEmpty());
+    }
+
+    @Test
+    public void testUpdate_Concurrent() throws Exception {
+        final int nthreads = 8;
+        final int nupdates = 10000;
+
+        PapStatisticsManager mgr = new PapStatisticsManager();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads);
+        for (int thread = 0; thread < nthreads; ++thread) {
+            String group = (thread % 2 == 0 ? GROUP_A : GROUP_B);
+
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int count = 0; count < nupdates; ++count) {
+                    mgr.update(Stat.TOTAL_POLICY_DEPLOY, group, PDP_TYPE);
+                    mgr.update(Stat.POLICY_DEPLOY_SUCCESS, group, PDP_TYPE);
+                }
+            });
+        }
+
+        start.countDown();
+
+        // snapshots taken while updating never show more successes than attempts
+        for (int count = 0; count < 100; ++count) {
+            Counts total = mgr.getSnapshot().getTotal();
+            assertTrue(total.toString(), total.getPolicyDeploySuccessCount() <= total.getTotalPolicyDeployCount());
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Snapshot snap = mgr.getSnapshot();
+        assertEquals(nthreads * nupdates, snap.getTotal().getTotalPolicyDeployCount());
+        assertEquals(nthreads * nupdates, snap.getTotal().getPolicyDeploySuccessCount());
+        assertEquals(nthreads * nupdates / 2, snap.getGroups().get(GROUP_A).getTotalPolicyDeployCount());
+        assertEquals(nthreads * nupdates, snap.getPdpTypes().get(PDP_TYPE).getPolicyDeploySuccessCount());
+    }
 }
@@ -61,4 +61,13 @@ public class TestPdpGroupHealthCheckControllerV1 extends CommonPapRestServer {
         // verify it fails when no authorization info is included
         checkUnauthRequest(uri, req -> req.get());
     }
+
+    @Test
+    public void testInvalidFilter() throws Exception {
+        Response rawresp = sendRequest(ENDPOINT + "?state=unknown").get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), rawresp.getStatus());
+
+        rawresp = sendRequest(ENDPOINT + "?limit=-1").get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), rawresp.getStatus());
+    }
 }
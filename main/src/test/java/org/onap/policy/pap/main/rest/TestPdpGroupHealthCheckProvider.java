@@ -21,15 +21,23 @@
 package org.onap.policy.pap.main.rest;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Before;
@@ -44,11 +52,13 @@ import org.onap.policy.common.utils.services.Registry;
 import org.onap.policy.models.pdp.concepts.Pdp;
 import org.onap.policy.models.pdp.concepts.PdpGroup;
 import org.onap.policy.models.pdp.concepts.PdpGroups;
-import org.onap.policy.models.pdp.concepts.PdpSubGroup;
 import org.onap.policy.models.pdp.concepts.Pdps;
+import org.onap.policy.models.pdp.enums.PdpState;
 import org.onap.policy.models.provider.PolicyModelsProvider;
 import org.onap.policy.pap.main.PapConstants;
 import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
+import org.onap.policy.pap.main.rest.PdpQuerySnapshots.Snapshot;
 
 /**
  * Class to perform unit test of {@link PdpGroupHealthCheckProvider}.
@@ -62,6 +72,8 @@ public class TestPdpGroupHealthCheckProvider {
     private PolicyModelsProviderFactoryWrapper daofact;
     private List<PdpGroup> groups;
     private Coder coder = new StandardCoder();
+    private PdpGroupCache cache;
+    private PdpGroupHealthCheckProvider provider;
 
     /**
      * Configures DAO and mocks.
@@ -75,27 +87,84 @@ public class TestPdpGroupHealthCheckProvider {
         when(daofact.create()).thenReturn(dao);
 
         groups = loadFile("pdpGroup.json").getGroups();
+        groups.get(1).getPdpSubgroups().get(0).getPdpInstances().get(1).setPdpState(PdpState.ACTIVE);
 
         when(dao.getPdpGroups(any())).thenReturn(groups);
 
         Registry.register(PapConstants.REG_PAP_DAO_FACTORY, daofact);
+        cache = new PdpGroupCache(daofact);
+        Registry.register(PapConstants.REG_PDP_GROUP_CACHE, cache);
+        Registry.register(PapConstants.REG_PDP_QUERY_SNAPSHOTS, new PdpQuerySnapshots(10, 100000));
+
+        provider = new PdpGroupHealthCheckProvider();
     }
 
     @Test
     public void testFetchPdpGroupHealthStatus() throws Exception {
-        final PdpGroupHealthCheckProvider provider = new PdpGroupHealthCheckProvider();
-        final Pair<Status, Pdps> pair = provider.fetchPdpGroupHealthStatus();
+        final Pair<Status, Snapshot> pair =
+                        provider.fetchPdpGroupHealthStatus(new PdpQueryFilter(null, null, null, 0, 0));
         assertEquals(Response.Status.OK, pair.getLeft());
-        verifyPdps(pair.getRight().getPdpList(), groups);
+        assertEquals("[pdpAA_1, pdpAA_2, pdpAB_1, pdpBA_1, pdpBA_2]", fetch(pair.getRight()).toString());
     }
 
-    private void verifyPdps(final List<Pdp> pdpList, final List<PdpGroup> groups) {
-        assertEquals(5, pdpList.size());
-        for (final PdpGroup group : groups) {
-            for (final PdpSubGroup subGroup : group.getPdpSubgroups()) {
-                pdpList.containsAll(subGroup.getPdpInstances());
-            }
-        }
+    @Test
+    public void testFetchPdpGroupHealthStatus_Filtered() throws Exception {
+        assertEquals("[pdpBA_1, pdpBA_2]", fetchFiltered("queryGroup2", null, null).toString());
+        assertEquals("[pdpAA_1, pdpAA_2, pdpBA_1, pdpBA_2]", fetchFiltered(null, "pdpTypeA", null).toString());
+        assertEquals("[pdpBA_2]", fetchFiltered(null, null, "ACTIVE").toString());
+        assertEquals("[pdpAA_1, pdpAA_2, pdpBA_1]", fetchFiltered(null, "pdpTypeA", "PASSIVE").toString());
+        assertEquals("[]", fetchFiltered("unknown", null, null).toString());
+    }
+
+    @Test
+    public void testFetchPdpGroupHealthStatus_Paged() throws Exception {
+        assertEquals("[pdpAA_1, pdpAA_2]", fetch(new PdpQueryFilter(null, null, null, 0, 2)).toString());
+        assertEquals("[pdpAB_1, pdpBA_1]", fetch(new PdpQueryFilter(null, null, null, 2, 2)).toString());
+        assertEquals("[pdpBA_2]", fetch(new PdpQueryFilter(null, null, null, 4, 2)).toString());
+        assertEquals("[]", fetch(new PdpQueryFilter(null, null, null, 5, 2)).toString());
+        assertEquals("[pdpBA_1]", fetch(new PdpQueryFilter("queryGroup2", null, null, 0, 1)).toString());
+    }
+
+    @Test
+    public void testFetchPdpGroupHealthStatus_Snapshot() throws Exception {
+        final PdpQueryFilter filter = new PdpQueryFilter(null, null, null, 0, 0);
+        final Snapshot snapshot = provider.fetchPdpGroupHealthStatus(filter).getRight();
+        assertNull(snapshot.getBytes());
+        fetch(snapshot);
+
+        // unchanged - should reuse the snapshot that was recorded when it was written
+        final Snapshot recorded = provider.fetchPdpGroupHealthStatus(filter).getRight();
+        assertNotNull(recorded.getBytes());
+        assertEquals(snapshot.getTag(), recorded.getTag());
+        assertSame(recorded, provider.fetchPdpGroupHealthStatus(filter).getRight());
+
+        // a different query should get its own snapshot
+        assertNotEquals(fetch(snapshot), fetch(new PdpQueryFilter(null, null, null, 0, 1)));
+
+        // changing a PDP should cause the snapshot to be rebuilt
+        final Pdp pdp = new Pdp(cache.getPdp("queryGroup1", "pdpTypeA", "pdpAA_1"));
+        pdp.setPdpState(PdpState.SAFE);
+        cache.putPdp("queryGroup1", "pdpTypeA", pdp);
+
+        final Snapshot snapshot2 = provider.fetchPdpGroupHealthStatus(filter).getRight();
+        assertNotEquals(snapshot.getTag(), snapshot2.getTag());
+        assertEquals("[pdpAA_1]", fetch(new PdpQueryFilter(null, "SAFE", null, 0, 0)).toString());
+    }
+
+    private List<String> fetchFiltered(String groupName, String pdpType, String state) throws Exception {
+        return fetch(new PdpQueryFilter(groupName, state, pdpType, 0, 0));
+    }
+
+    private List<String> fetch(PdpQueryFilter filter) throws Exception {
+        return fetch(provider.fetchPdpGroupHealthStatus(filter).getRight());
+    }
+
+    private List<String> fetch(StreamingOutput output) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        output.write(bytes);
+
+        Pdps pdps = coder.decode(new String(bytes.toByteArray(), StandardCharsets.UTF_8), Pdps.class);
+        return pdps.getPdpList().stream().map(Pdp::getInstanceId).collect(Collectors.toList());
     }
 
     private PdpGroups loadFile(final String fileName) {
@@ -24,6 +24,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import org.junit.Test;
@@ -61,4 +63,35 @@ public class TestPdpGroupQueryControllerV1 extends CommonPapRestServer {
         // verify it fails when no authorization info is included
         checkUnauthRequest(uri, req -> req.get());
     }
+
+    @Test
+    public void testNotModified() throws Exception {
+        Response rawresp = sendRequest(GROUP_ENDPOINT).get();
+        assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+
+        EntityTag tag = rawresp.getEntityTag();
+        assertNotNull(tag);
+
+        rawresp = sendRequest(GROUP_ENDPOINT).header(HttpHeaders.IF_NONE_MATCH, tag.toString()).get();
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), rawresp.getStatus());
+        assertEquals(tag, rawresp.getEntityTag());
+
+        // a different query has a different snapshot, but is unchanged
+        rawresp = sendRequest(GROUP_ENDPOINT + "?limit=1").header(HttpHeaders.IF_NONE_MATCH, tag.toString()).get();
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), rawresp.getStatus());
+
+        // mismatched tag
+        rawresp = sendRequest(GROUP_ENDPOINT).header(HttpHeaders.IF_NONE_MATCH, "\"unknown\"").get();
+        assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+        assertNotNull(rawresp.readEntity(PdpGroups.class));
+    }
+
+    @Test
+    public void testInvalidFilter() throws Exception {
+        Response rawresp = sendRequest(GROUP_ENDPOINT + "?state=unknown").get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), rawresp.getStatus());
+
+        rawresp = sendRequest(GROUP_ENDPOINT + "?limit=-1").get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), rawresp.getStatus());
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.ws.rs.core.Response.Status;
+import org.junit.Test;
+import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.pdp.enums.PdpState;
+
+public class TestPdpQueryFilter {
+    private static final String GROUP = "my-group";
+    private static final String TYPE = "my-type";
+
+    @Test
+    public void testPdpQueryFilter() throws Exception {
+        PdpQueryFilter filter = new PdpQueryFilter(GROUP, "ACTIVE", TYPE, 10, 20);
+        assertEquals(GROUP, filter.getGroupName());
+        assertEquals(PdpState.ACTIVE, filter.getState());
+        assertEquals(TYPE, filter.getPdpType());
+        assertEquals(10, filter.getOffset());
+        assertEquals(20, filter.getLimit());
+        assertEquals(20, filter.getMaxItems());
+
+        filter = new PdpQueryFilter(null, null, null, 0, 0);
+        assertNull(filter.getState());
+        assertEquals(Long.MAX_VALUE, filter.getMaxItems());
+    }
+
+    @Test
+    public void testPdpQueryFilter_Invalid() {
+        assertThatThrownBy(() -> new PdpQueryFilter(null, "unknown", null, 0, 0)).isInstanceOf(PfModelException.class)
+                        .hasMessageContaining("invalid state")
+                        .matches(exc -> ((PfModelException) exc).getErrorResponse().getResponseCode()
+                                        == Status.BAD_REQUEST);
+
+        assertThatThrownBy(() -> new PdpQueryFilter(null, null, null, -1, 0)).isInstanceOf(PfModelException.class)
+                        .hasMessageContaining("offset");
+
+        assertThatThrownBy(() -> new PdpQueryFilter(null, null, null, 0, -1)).isInstanceOf(PfModelException.class)
+                        .hasMessageContaining("limit");
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+        PdpQueryFilter filter = new PdpQueryFilter(GROUP, "ACTIVE", TYPE, 0, 0);
+        assertTrue(filter.matchesGroupName(GROUP));
+        assertFalse(filter.matchesGroupName("other"));
+        assertTrue(filter.matchesState(PdpState.ACTIVE));
+        assertFalse(filter.matchesState(PdpState.PASSIVE));
+        assertTrue(filter.matchesPdpType(TYPE));
+        assertFalse(filter.matchesPdpType("other"));
+
+        // no criteria - matches everything
+        filter = new PdpQueryFilter(null, null, null, 0, 0);
+        assertTrue(filter.matchesGroupName("other"));
+        assertTrue(filter.matchesState(PdpState.PASSIVE));
+        assertTrue(filter.matchesPdpType("other"));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.StreamingOutput;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.policy.pap.main.rest.PdpQuerySnapshots.Snapshot;
+
+public class TestPdpQuerySnapshots {
+    private static final String KEY1 = "key-1";
+    private static final String KEY2 = "key-2";
+    private static final String KEY3 = "key-3";
+    private static final int MAX_BYTES = 10;
+
+    private PdpQuerySnapshots snapshots;
+    private AtomicInteger nbuilds;
+    private StreamingOutput builder;
+
+    /**
+     * Sets up.
+     */
+    @Before
+    public void setUp() {
+        snapshots = new PdpQuerySnapshots(2, MAX_BYTES);
+        nbuilds = new AtomicInteger();
+
+        builder = output -> output.write(("build-" + nbuilds.incrementAndGet()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPdpQuerySnapshots() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new PdpQuerySnapshots(0, MAX_BYTES));
+        assertThatIllegalArgumentException().isThrownBy(() -> new PdpQuerySnapshots(2, 0));
+        assertEquals(0, snapshots.size());
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        Snapshot snapshot = snapshots.get(KEY1, 10, builder);
+        assertEquals(10, snapshot.getVersion());
+        assertEquals(1, snapshots.getMissCount());
+
+        // nothing is built until it's written
+        assertEquals(0, nbuilds.get());
+        assertEquals(0, snapshots.size());
+        assertEquals("build-1", write(snapshot));
+
+        // same version - reuses the recording
+        Snapshot recorded = snapshots.get(KEY1, 10, builder);
+        assertNotSame(snapshot, recorded);
+        assertEquals(snapshot.getTag(), recorded.getTag());
+        assertEquals("build-1", new String(recorded.getBytes(), StandardCharsets.UTF_8));
+        assertEquals("build-1", write(recorded));
+        assertSame(recorded, snapshots.get(KEY1, 10, builder));
+        assertEquals(1, nbuilds.get());
+        assertEquals(2, snapshots.getHitCount());
+
+        // different key - built
+        Snapshot snapshot2 = snapshots.get(KEY2, 10, builder);
+        assertEquals("build-2", write(snapshot2));
+        assertEquals(snapshot.getTag(), snapshot2.getTag());
+
+        // new version - rebuilt
+        Snapshot snapshot3 = snapshots.get(KEY1, 11, builder);
+        assertNotEquals(snapshot.getTag(), snapshot3.getTag());
+        assertEquals("build-3", write(snapshot3));
+        Snapshot recorded3 = snapshots.get(KEY1, 11, builder);
+        assertEquals("build-3", new String(recorded3.getBytes(), StandardCharsets.UTF_8));
+
+        // an older version should not replace the newer one
+        write(snapshots.get(KEY1, 10, builder));
+        assertSame(recorded3, snapshots.get(KEY1, 11, builder));
+    }
+
+    @Test
+    public void testGet_Evict() throws Exception {
+        write(snapshots.get(KEY1, 1, builder));
+        write(snapshots.get(KEY2, 1, builder));
+        write(snapshots.get(KEY1, 1, builder));
+        write(snapshots.get(KEY3, 1, builder));
+        assertEquals(2, snapshots.size());
+        assertEquals(3, nbuilds.get());
+
+        // KEY2 was least recently used
+        write(snapshots.get(KEY1, 1, builder));
+        write(snapshots.get(KEY3, 1, builder));
+        assertEquals(3, nbuilds.get());
+
+        write(snapshots.get(KEY2, 1, builder));
+        assertEquals(4, nbuilds.get());
+    }
+
+    @Test
+    public void testGet_Oversize() throws Exception {
+        // one byte over the limit
+        StreamingOutput large = output -> {
+            nbuilds.incrementAndGet();
+            output.write(new byte[MAX_BYTES]);
+            output.write('x');
+        };
+
+        assertEquals(MAX_BYTES + 1, write(snapshots.get(KEY1, 1, large)).length());
+        assertEquals(0, snapshots.size());
+        assertEquals(1, snapshots.getOversizeCount());
+
+        // should be built again
+        Snapshot snapshot = snapshots.get(KEY1, 1, large);
+        assertNull(snapshot.getBytes());
+        assertEquals(MAX_BYTES + 1, write(snapshot).length());
+        assertEquals(2, nbuilds.get());
+        assertEquals(2, snapshots.getOversizeCount());
+
+        // exactly at the limit
+        StreamingOutput limit = output -> {
+            output.write(new byte[MAX_BYTES - 1]);
+            output.write('x');
+        };
+
+        write(snapshots.get(KEY2, 1, limit));
+        assertNotNull(snapshots.get(KEY2, 1, limit).getBytes());
+        assertEquals(2, snapshots.getOversizeCount());
+    }
+
+    @Test
+    public void testGet_BuilderException() {
+        Snapshot snapshot = snapshots.get(KEY1, 1, output -> {
+            throw new IOException("expected exception");
+        });
+
+        assertThatThrownBy(() -> write(snapshot)).isInstanceOf(IOException.class);
+
+        assertEquals(0, snapshots.size());
+    }
+
+    private String write(Snapshot snapshot) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        snapshot.write(output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
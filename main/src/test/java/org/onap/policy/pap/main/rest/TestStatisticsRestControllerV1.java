@@ -22,6 +22,7 @@
 package org.onap.policy.pap.main.rest;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import javax.ws.rs.client.Invocation;
 import org.junit.Test;
@@ -53,6 +54,10 @@ public class TestStatisticsRestControllerV1 extends CommonPapRestServer {
         report = invocationBuilder.get(StatisticsReport.class);
         validateStatisticsReport(report, 1, 200);
 
+        // the first request should have been timed
+        assertTrue(report.getLatencies().containsKey(RestLatencyFilter.METRIC_NAME + "{endpoint=\"statistics\"}"));
+        assertTrue(report.getCounts().containsKey("pap_publisher_queue_depth"));
+
         // verify it fails when no authorization info is included
         checkUnauthRequest(STATISTICS_ENDPOINT, req -> req.get());
     }
@@ -92,5 +97,9 @@ public class TestStatisticsRestControllerV1 extends CommonPapRestServer {
         assertEquals(count, report.getTotalPolicyDownloadCount());
         assertEquals(count, report.getPolicyDeploySuccessCount());
         assertEquals(count, report.getPolicyDeployFailureCount());
+        assertEquals(0, report.getDaoPoolActiveCount());
+        assertTrue(report.getDaoPoolIdleCount() > 0);
+        assertEquals(0, report.getPdpMessagesCompressed());
+        assertEquals(0, report.getPdpMessagesDecompressed());
     }
 }
@@ -31,6 +31,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.Collectors;
 import org.junit.Before;
 import org.mockito.ArgumentCaptor;
@@ -51,7 +52,13 @@ import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyType;
 import org.onap.policy.pap.main.PapConstants;
 import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
+import org.onap.policy.pap.main.comm.DeploymentTracker;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
+import org.onap.policy.pap.main.comm.PdpGroupLockManager;
 import org.onap.policy.pap.main.comm.PdpModifyRequestMap;
+import org.onap.policy.pap.main.comm.RolloutScheduler;
+import org.onap.policy.pap.main.comm.ToscaPolicyCache;
+import org.onap.policy.pap.main.parameters.PdpRolloutParameters;
 
 /**
  * Super class for TestPdpGroupDeployProviderXxx classes.
@@ -72,6 +79,9 @@ public class ProviderSuper {
     protected Object lockit;
     protected PdpModifyRequestMap reqmap;
     protected PolicyModelsProviderFactoryWrapper daofact;
+    protected PdpGroupCache groupCache;
+    protected ToscaPolicyCache policyCache;
+    protected DeploymentTracker deploymentTracker;
     protected ToscaPolicy policy1;
 
 
@@ -89,6 +99,9 @@ public class ProviderSuper {
 
         lockit = new Object();
         daofact = mock(PolicyModelsProviderFactoryWrapper.class);
+        groupCache = mock(PdpGroupCache.class);
+        policyCache = new ToscaPolicyCache(100, 60000);
+        deploymentTracker = new DeploymentTracker(100);
         policy1 = loadPolicy("policy.json");
 
         when(daofact.create()).thenReturn(dao);
@@ -103,6 +116,14 @@ public class ProviderSuper {
         Registry.register(PapConstants.REG_PDP_MODIFY_LOCK, lockit);
         Registry.register(PapConstants.REG_PDP_MODIFY_MAP, reqmap);
         Registry.register(PapConstants.REG_PAP_DAO_FACTORY, daofact);
+        Registry.register(PapConstants.REG_PDP_GROUP_CACHE, groupCache);
+        Registry.register(PapConstants.REG_POLICY_CACHE, policyCache);
+        Registry.register(PapConstants.REG_PDP_GROUP_LOCKS, new PdpGroupLockManager());
+        Registry.register(PapConstants.REG_DEPLOYMENT_TRACKER, deploymentTracker);
+        Registry.register(PapConstants.REG_ROLLOUT_SCHEDULER,
+                        RolloutScheduler.builder().params(new PdpRolloutParameters()).requestMap(reqmap)
+                                        .deploymentTracker(deploymentTracker).modifyLock(lockit)
+                                        .executor(mock(ScheduledExecutorService.class)).build());
     }
 
     protected void assertGroup(List<PdpGroup> groups, String name) {
@@ -94,7 +94,7 @@ public class TestPdpGroupDeleteProvider extends ProviderSuper {
 
         prov.deleteGroup(GROUP1_NAME);
 
-        verify(session).deleteGroupFromDb(group);
+        verify(session).deleteGroup(group);
 
         // should be no PDP requests
         verify(session, never()).addRequests(any(), any());
@@ -128,7 +128,7 @@ public class TestPdpGroupDeleteProvider extends ProviderSuper {
 
         prov.deleteGroup(GROUP1_NAME);
 
-        verify(session).deleteGroupFromDb(group);
+        verify(session).deleteGroup(group);
 
         // should done no requests for the PDPs
         verify(session, never()).addRequests(any(), any());
@@ -138,10 +138,8 @@ public class TestPdpGroupDeleteProvider extends ProviderSuper {
     public void testDeleteGroup_DaoEx() throws Exception {
         PdpGroup group = loadGroup("deleteGroup.json");
 
-        when(session.getGroup(GROUP1_NAME)).thenReturn(group);
-
         PfModelException ex = new PfModelException(Status.BAD_REQUEST, EXPECTED_EXCEPTION);
-        doThrow(ex).when(session).deleteGroupFromDb(group);
+        when(session.getGroup(GROUP1_NAME)).thenThrow(ex);
 
         assertThatThrownBy(() -> prov.deleteGroup(GROUP1_NAME)).isSameAs(ex);
     }
@@ -273,8 +271,10 @@ public class TestPdpGroupDeleteProvider extends ProviderSuper {
     private class MyProvider extends PdpGroupDeleteProvider {
 
         @Override
-        protected <T> void process(T request, BiConsumerWithEx<SessionData, T> processor) throws PfModelException {
+        protected <T> String process(T request, GroupResolver<T> resolver,
+                        BiConsumerWithEx<SessionData, T> processor) throws PfModelException {
             processor.accept(session, request);
+            return null;
         }
 
         @Override
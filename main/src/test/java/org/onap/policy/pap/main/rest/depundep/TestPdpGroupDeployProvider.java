@@ -27,6 +27,7 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -35,27 +36,40 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.TreeMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.ws.rs.core.Response.Status;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.onap.policy.common.utils.services.Registry;
 import org.onap.policy.models.base.PfModelException;
 import org.onap.policy.models.base.PfModelRuntimeException;
 import org.onap.policy.models.pap.concepts.PdpDeployPolicies;
+import org.onap.policy.models.pdp.concepts.Pdp;
 import org.onap.policy.models.pdp.concepts.PdpGroup;
+import org.onap.policy.models.pdp.concepts.PdpGroupFilter;
 import org.onap.policy.models.pdp.concepts.PdpGroups;
 import org.onap.policy.models.pdp.concepts.PdpStateChange;
 import org.onap.policy.models.pdp.concepts.PdpSubGroup;
 import org.onap.policy.models.pdp.concepts.PdpUpdate;
 import org.onap.policy.models.pdp.enums.PdpState;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyFilter;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifierOptVersion;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyTypeIdentifier;
 
 public class TestPdpGroupDeployProvider extends ProviderSuper {
     private static final String EXPECTED_EXCEPTION = "expected exception";
+    private static final long MAX_WAIT_SEC = 10L;
+    private static final String POLICY_PREFIX = "policy-";
+    private static final String TYPE_PREFIX = "type-";
 
     private static final String POLICY2_NAME = "policyB";
     private static final String POLICY1_VERSION = "1.2.3";
@@ -155,6 +169,44 @@ public class TestPdpGroupDeployProvider extends ProviderSuper {
         assertNoGroupAction();
     }
 
+    @Test
+    public void testCreateOrUpdate_PrefetchPolicies() throws Exception {
+        PdpGroups groups = loadPdpGroups("createGroups.json");
+        PdpSubGroup subgrp = groups.getGroups().get(0).getPdpSubgroups().get(0);
+
+        final int npolicies = 10;
+        List<ToscaPolicy> dbPolicies = new ArrayList<>();
+        dbPolicies.add(policy1);
+
+        for (int count = 0; count < npolicies; ++count) {
+            ToscaPolicy policy = new ToscaPolicy();
+            policy.setName(POLICY_PREFIX + count);
+            policy.setVersion(policy1.getVersion());
+            policy.setType(policy1.getType());
+            policy.setTypeVersion(policy1.getTypeVersion());
+
+            dbPolicies.add(policy);
+
+            // only the prefix of the version is specified
+            subgrp.getPolicies().add(new ToscaPolicyIdentifier(policy.getName(), "1"));
+        }
+
+        when(dao.getFilteredPolicyList(any())).thenReturn(dbPolicies);
+
+        prov.createOrUpdateGroups(groups);
+
+        // each policy should have been fetched by name, once, before validation
+        ArgumentCaptor<ToscaPolicyFilter> captor = ArgumentCaptor.forClass(ToscaPolicyFilter.class);
+        verify(dao, times(npolicies + 1)).getFilteredPolicyList(captor.capture());
+        assertEquals(npolicies + 1, captor.getAllValues().stream().map(ToscaPolicyFilter::getName)
+                        .filter(name -> name != null).distinct().count());
+
+        // versions should have been fully qualified
+        PdpGroup group = getGroupCreates().get(0);
+        assertTrue(group.getPdpSubgroups().get(0).getPolicies().stream()
+                        .allMatch(ident -> policy1.getVersion().equals(ident.getVersion())));
+    }
+
     @Test
     public void testValidateGroupOnly_NullState() throws PfModelException {
         PdpGroups groups = loadPdpGroups("createGroups.json");
@@ -639,6 +691,138 @@ public class TestPdpGroupDeployProvider extends ProviderSuper {
                         .hasMessage("policy not supported by any PDP group: policyA 1.2.3");
     }
 
+    @Test
+    public void testDeployPolicies_Bulk() throws Exception {
+        final int npolicies = 300;
+
+        // policy1 is already deployed to one of the subgroups
+        List<ToscaPolicy> dbPolicies = new ArrayList<>(npolicies + 1);
+        dbPolicies.add(policy1);
+
+        List<ToscaPolicyIdentifierOptVersion> idents = new ArrayList<>(npolicies);
+
+        for (int count = 0; count < npolicies; ++count) {
+            ToscaPolicy policy = new ToscaPolicy();
+            policy.setName(POLICY_PREFIX + count);
+            policy.setVersion(policy1.getVersion());
+            policy.setType(policy1.getType());
+            policy.setTypeVersion(policy1.getTypeVersion());
+
+            dbPolicies.add(policy);
+            idents.add(new ToscaPolicyIdentifierOptVersion(policy.getName(), policy.getVersion()));
+        }
+
+        when(dao.getFilteredPolicyList(any())).thenReturn(dbPolicies);
+        when(dao.getFilteredPdpGroups(any())).thenReturn(loadGroups("upgradeGroupDao.json"));
+
+        PdpDeployPolicies request = new PdpDeployPolicies();
+        request.setPolicies(idents);
+
+        prov.deployPolicies(request);
+
+        // one query for the requested policies, plus one for the policy already deployed
+        verify(dao, times(2)).getFilteredPolicyList(any());
+        verify(dao).getFilteredPdpGroups(any());
+
+        // group should have been updated once
+        assertGroup(getGroupUpdates(), GROUP1_NAME);
+
+        // each PDP should have received a single update, containing all of the policies
+        List<PdpUpdate> requests = getUpdateRequests(3);
+        Collections.sort(requests, (left, right) -> left.getName().compareTo(right.getName()));
+
+        assertEquals("[pdpB, pdpC, pdpD]",
+                        requests.stream().map(PdpUpdate::getName).collect(Collectors.toList()).toString());
+        assertEquals(npolicies, requests.get(0).getPolicies().size());
+        assertEquals(npolicies + 1, requests.get(1).getPolicies().size());
+        assertEquals(npolicies, requests.get(2).getPolicies().size());
+    }
+
+    /**
+     * Deploys policies to disjoint groups, simultaneously. Each request should only lock
+     * its own group, thus all of the requests should be able to read their groups at the
+     * same time.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testDeployPolicies_DisjointGroups() throws Exception {
+        final int ngroups = 10;
+
+        // trips only if every request is reading its group at the same time
+        CyclicBarrier barrier = new CyclicBarrier(ngroups);
+
+        when(dao.getFilteredPolicyList(any())).thenAnswer(args -> {
+            String name = args.getArgumentAt(0, ToscaPolicyFilter.class).getName();
+            return Arrays.asList(makePolicy(name.substring(POLICY_PREFIX.length())));
+        });
+
+        when(dao.getFilteredPdpGroups(any())).thenAnswer(args -> {
+            ToscaPolicyTypeIdentifier type = args.getArgumentAt(0, PdpGroupFilter.class).getPolicyTypeList().get(0);
+            barrier.await(MAX_WAIT_SEC, TimeUnit.SECONDS);
+            return Arrays.asList(makeGroup(type.getName().substring(TYPE_PREFIX.length()), type));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(ngroups);
+
+        try {
+            List<Future<Object>> futures = new ArrayList<>(ngroups);
+
+            for (int count = 0; count < ngroups; ++count) {
+                PdpDeployPolicies request = new PdpDeployPolicies();
+                request.setPolicies(Arrays.asList(new ToscaPolicyIdentifierOptVersion(POLICY_PREFIX + count, "1.0.0")));
+
+                futures.add(executor.submit(() -> {
+                    prov.deployPolicies(request);
+                    return null;
+                }));
+            }
+
+            for (Future<Object> future : futures) {
+                future.get(MAX_WAIT_SEC, TimeUnit.SECONDS);
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // each group should have been updated, and its PDP notified
+        verify(dao, times(ngroups)).updatePdpGroups(any());
+
+        List<PdpUpdate> requests = getUpdateRequests(ngroups);
+        assertEquals(ngroups, requests.size());
+        assertEquals(ngroups, requests.stream().map(PdpUpdate::getPdpGroup).distinct().count());
+    }
+
+    private ToscaPolicy makePolicy(String suffix) {
+        ToscaPolicy policy = new ToscaPolicy();
+        policy.setName(POLICY_PREFIX + suffix);
+        policy.setVersion("1.0.0");
+        policy.setType(TYPE_PREFIX + suffix);
+        policy.setTypeVersion("1.0.0");
+
+        return policy;
+    }
+
+    private PdpGroup makeGroup(String suffix, ToscaPolicyTypeIdentifier type) {
+        Pdp pdp = new Pdp();
+        pdp.setInstanceId("pdp-" + suffix);
+        pdp.setPdpState(PdpState.ACTIVE);
+
+        PdpSubGroup subgrp = new PdpSubGroup();
+        subgrp.setPdpType("pdpType-" + suffix);
+        subgrp.setSupportedPolicyTypes(new ArrayList<>(Arrays.asList(type)));
+        subgrp.setPolicies(new ArrayList<>());
+        subgrp.setPdpInstances(new ArrayList<>(Arrays.asList(pdp)));
+
+        PdpGroup group = new PdpGroup();
+        group.setName("group-" + suffix);
+        group.setPdpGroupState(PdpState.ACTIVE);
+        group.setPdpSubgroups(new ArrayList<>(Arrays.asList(subgrp)));
+
+        return group;
+    }
+
     @Test
     public void testMakeUpdater() throws Exception {
         /*
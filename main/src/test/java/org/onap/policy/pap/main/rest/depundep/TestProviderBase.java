@@ -22,18 +22,23 @@ package org.onap.policy.pap.main.rest.depundep;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import javax.ws.rs.core.Response.Status;
 import org.junit.AfterClass;
@@ -48,6 +53,11 @@ import org.onap.policy.models.pdp.concepts.PdpSubGroup;
 import org.onap.policy.models.pdp.concepts.PdpUpdate;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifierOptVersion;
+import org.onap.policy.pap.main.PapConstants;
+import org.onap.policy.pap.main.comm.DeploymentStatus;
+import org.onap.policy.pap.main.comm.DeploymentStatus.State;
+import org.onap.policy.pap.main.comm.RolloutScheduler;
+import org.onap.policy.pap.main.comm.SharedPolicyList;
 import org.powermock.reflect.Whitebox;
 
 public class TestProviderBase extends ProviderSuper {
@@ -92,17 +102,51 @@ public class TestProviderBase extends ProviderSuper {
     @Test
     public void testProviderBase() {
         assertSame(lockit, Whitebox.getInternalState(prov, "updateLock"));
-        assertSame(reqmap, Whitebox.getInternalState(prov, "requestMap"));
+        assertSame(Registry.get(PapConstants.REG_ROLLOUT_SCHEDULER, RolloutScheduler.class),
+                        Whitebox.getInternalState(prov, "rolloutScheduler"));
         assertSame(daofact, Whitebox.getInternalState(prov, "daoFactory"));
+        assertSame(deploymentTracker, Whitebox.getInternalState(prov, "deploymentTracker"));
     }
 
     @Test
     public void testProcess() throws Exception {
-        prov.process(loadRequest(), this::handle);
+        String trackingId = prov.process(loadRequest(), this::handle);
 
         assertGroup(getGroupUpdates(), GROUP1_NAME);
 
-        assertUpdate(getUpdateRequests(1), GROUP1_NAME, PDP1_TYPE, PDP1);
+        List<PdpUpdate> updates = getUpdateRequests(1);
+        PdpUpdate update = updates.get(0);
+        assertUpdate(updates, GROUP1_NAME, PDP1_TYPE, PDP1);
+
+        // the deployment should be waiting on the PDP
+        DeploymentStatus status = deploymentTracker.getStatus(trackingId);
+        assertNotNull(status);
+        assertEquals(State.IN_PROGRESS, status.getState());
+        assertEquals(1, status.getPdps().size());
+        assertEquals(PDP1, status.getPdps().get(0).getPdpName());
+
+        deploymentTracker.success(update);
+        assertEquals(State.SUCCESS, deploymentTracker.getStatus(trackingId).getState());
+    }
+
+    @Test
+    public void testProcess_Conflict() throws Exception {
+        final int maxAttempts = 5;
+        AtomicInteger count = new AtomicInteger();
+
+        // the group changes during every optimistic attempt
+        when(groupCache.getStamp(any())).thenAnswer(args -> (count.get() <= maxAttempts ? count.get() : 0L));
+
+        prov.add(true, true, true, true, true, true, true, true, true, true);
+
+        String trackingId = prov.process(loadRequest(), (data, request) -> {
+            count.incrementAndGet();
+            handle(data, request);
+        });
+
+        // should have given up on the optimistic attempts and then held the lock throughout
+        assertNotNull(trackingId);
+        assertEquals(maxAttempts + 1, count.get());
     }
 
     @Test
@@ -134,7 +178,7 @@ public class TestProviderBase extends ProviderSuper {
     public void testProcessPolicy_NoGroups() throws Exception {
         when(dao.getFilteredPdpGroups(any())).thenReturn(Collections.emptyList());
 
-        SessionData session = new SessionData(dao);
+        SessionData session = new SessionData(dao, policyCache);
         ToscaPolicyIdentifierOptVersion ident = new ToscaPolicyIdentifierOptVersion(POLICY1_NAME, POLICY1_VERSION);
         assertThatThrownBy(() -> prov.processPolicy(session, ident)).isInstanceOf(PfModelException.class)
                         .hasMessage("policy not supported by any PDP group: policyA 1.2.3");
@@ -250,22 +294,73 @@ public class TestProviderBase extends ProviderSuper {
         assertGroup(changes, GROUP1_NAME);
         assertGroup(changes, GROUP2_NAME);
 
+        // cache should have been updated, too
+        verify(groupCache, times(2)).putGroup(any());
+
         List<PdpUpdate> requests = getUpdateRequests(3);
         assertUpdateIgnorePolicy(requests, GROUP1_NAME, PDP1_TYPE, PDP1);
         assertUpdateIgnorePolicy(requests, GROUP2_NAME, PDP2_TYPE, PDP2);
         assertUpdateIgnorePolicy(requests, GROUP1_NAME, PDP3_TYPE, PDP3);
     }
 
+    @Test
+    public void testProcessPolicies() throws Exception {
+        /*
+         * Same data as testUpgradeGroup_Multiple(), but all of the policies are processed
+         * in a single pass.
+         */
+
+        when(dao.getFilteredPolicyList(any())).thenReturn(loadPolicies("daoPolicyList.json"))
+                        .thenReturn(loadPolicies("upgradeGroupPolicy2.json"))
+                        .thenReturn(loadPolicies("upgradeGroupPolicy3.json"))
+                        .thenReturn(loadPolicies("upgradeGroupPolicy4.json"));
+
+        // one query for each policy type
+        when(dao.getFilteredPdpGroups(any())).thenReturn(loadGroups("upgradeGroupGroup1.json"))
+                        .thenReturn(loadGroups("upgradeGroupGroup2.json"))
+                        .thenReturn(loadGroups("upgradeGroupGroup1.json"));
+
+        PdpDeployPolicies request = loadFile("updateGroupReqMultiple.json", PdpDeployPolicies.class);
+
+        SessionData session = spy(new SessionData(dao, policyCache));
+        prov.processPolicies(session, request.getPolicies());
+
+        // each group and each PDP should have been updated only once
+        verify(session, times(2)).update(any());
+        verify(session, times(3)).addUpdate(any());
+
+        List<PdpUpdate> requests = new ArrayList<>(session.getPdpUpdates());
+        Collections.sort(requests, (left, right) -> left.getName().compareTo(right.getName()));
+        assertUpdateIgnorePolicy(requests, GROUP1_NAME, PDP1_TYPE, PDP1);
+        assertUpdateIgnorePolicy(requests, GROUP2_NAME, PDP2_TYPE, PDP2);
+        assertUpdateIgnorePolicy(requests, GROUP1_NAME, PDP3_TYPE, PDP3);
+    }
+
+    @Test
+    public void testProcessPolicies_NotFound() throws Exception {
+        when(dao.getFilteredPolicyList(any())).thenReturn(Collections.emptyList());
+
+        SessionData session = new SessionData(dao, policyCache);
+        ToscaPolicyIdentifierOptVersion ident = new ToscaPolicyIdentifierOptVersion(POLICY1_NAME, POLICY1_VERSION);
+        assertThatThrownBy(() -> prov.processPolicies(session, Collections.singleton(ident)))
+                        .isInstanceOf(PfModelRuntimeException.class)
+                        .hasMessage("cannot find policy: policyA 1.2.3");
+    }
+
     @Test
     public void testUpgradeGroup_NothingUpdated() throws Exception {
         prov.clear();
         prov.add(false);
 
-        prov.process(loadRequest(), this::handle);
+        String trackingId = prov.process(loadRequest(), this::handle);
 
         verify(dao, never()).createPdpGroups(any());
         verify(dao, never()).updatePdpGroups(any());
+        verify(groupCache, never()).putGroup(any());
         verify(reqmap, never()).addRequest(any(PdpUpdate.class));
+
+        // nothing to wait on
+        assertEquals(State.SUCCESS, deploymentTracker.getStatus(trackingId).getState());
     }
 
 
@@ -277,6 +372,7 @@ public class TestProviderBase extends ProviderSuper {
         assertEquals(pdpType, update.getPdpSubgroup());
         assertEquals(pdpName, update.getName());
         assertTrue(update.getPolicies().contains(policy1));
+        assertTrue(update.getPolicies() instanceof SharedPolicyList);
     }
 
     /**
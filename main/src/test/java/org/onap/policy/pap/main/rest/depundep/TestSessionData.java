@@ -25,10 +25,13 @@ import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -39,22 +42,30 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import javax.ws.rs.core.Response.Status;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.onap.policy.models.base.PfModelException;
+import org.onap.policy.models.pdp.concepts.Pdp;
 import org.onap.policy.models.pdp.concepts.PdpGroup;
 import org.onap.policy.models.pdp.concepts.PdpStateChange;
+import org.onap.policy.models.pdp.concepts.PdpSubGroup;
 import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.models.pdp.enums.PdpHealthStatus;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyFilter;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifierOptVersion;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyType;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyTypeIdentifier;
+import org.onap.policy.pap.main.comm.ToscaPolicyCache;
 
 public class TestSessionData extends ProviderSuper {
     private static final String GROUP_NAME = "groupA";
@@ -69,6 +80,7 @@ public class TestSessionData extends ProviderSuper {
     private static final String EXPECTED_EXCEPTION = "expected exception";
 
     private SessionData session;
+    private ToscaPolicyCache sharedPolicies;
     private ToscaPolicyIdentifierOptVersion ident;
     private ToscaPolicyTypeIdentifier type;
     private ToscaPolicyTypeIdentifier type2;
@@ -90,7 +102,8 @@ public class TestSessionData extends ProviderSuper {
         group1 = loadGroup("group1.json");
         group2 = loadGroup("group2.json");
 
-        session = new SessionData(dao);
+        sharedPolicies = new ToscaPolicyCache(10, 60000);
+        session = new SessionData(dao, sharedPolicies);
     }
 
     @Test
@@ -173,6 +186,26 @@ public class TestSessionData extends ProviderSuper {
         verify(dao).getFilteredPolicyList(any());
     }
 
+    @Test
+    public void testGetPolicy_SharedCache() throws Exception {
+        ToscaPolicy policy1 = makePolicy(POLICY_NAME, POLICY_VERSION);
+        when(dao.getFilteredPolicyList(any())).thenReturn(Arrays.asList(policy1));
+
+        // loading it from the DB should add it to the shared cache
+        assertSame(policy1, session.getPolicy(ident));
+        assertSame(policy1, sharedPolicies.getIfPresent(policy1.getIdentifier()));
+
+        // a new session should find it in the shared cache
+        SessionData session2 = new SessionData(dao, sharedPolicies);
+        assertSame(policy1, session2.getPolicy(new ToscaPolicyIdentifierOptVersion(POLICY_NAME, POLICY_VERSION)));
+        verify(dao).getFilteredPolicyList(any());
+
+        // but not if only a prefix is given, as that must be resolved via the DB
+        assertSame(policy1, session2.getPolicy(new ToscaPolicyIdentifierOptVersion(POLICY_NAME,
+                        POLICY_VERSION_PREFIX.substring(0, POLICY_VERSION_PREFIX.length() - 1))));
+        verify(dao, times(2)).getFilteredPolicyList(any());
+    }
+
     @Test
     public void testGetPolicy_NotFound() throws Exception {
         when(dao.getFilteredPolicyList(any())).thenReturn(Collections.emptyList());
@@ -188,6 +221,81 @@ public class TestSessionData extends ProviderSuper {
         assertThatThrownBy(() -> session.getPolicy(ident)).isSameAs(ex);
     }
 
+    @Test
+    public void testGetPolicies() throws Exception {
+        ToscaPolicy policy1 = makePolicy(POLICY_NAME, POLICY_VERSION);
+        when(dao.getFilteredPolicyList(any())).thenReturn(Arrays.asList(policy1))
+                        .thenReturn(Collections.emptyList());
+
+        ToscaPolicyIdentifierOptVersion ident2 = new ToscaPolicyIdentifierOptVersion("unknown", null);
+
+        Map<ToscaPolicyIdentifierOptVersion, ToscaPolicy> policies = session.getPolicies(Arrays.asList(ident, ident2));
+        assertEquals(1, policies.size());
+        assertSame(policy1, policies.get(ident));
+
+        // one query per name
+        verify(dao, times(2)).getFilteredPolicyList(any());
+
+        // retrieve a second time - should use cache for the first one
+        policies = session.getPolicies(Arrays.asList(ident, ident, ident2));
+        assertSame(policy1, policies.get(ident));
+        verify(dao, times(3)).getFilteredPolicyList(any());
+    }
+
+    @Test
+    public void testGetPolicies_Many() throws Exception {
+        final int npolicies = 10;
+        List<ToscaPolicy> dbPolicies = new ArrayList<>();
+        List<ToscaPolicyIdentifierOptVersion> idents = new ArrayList<>();
+
+        for (int count = 0; count < npolicies; ++count) {
+            dbPolicies.add(makePolicy(POLICY_NAME + count, POLICY_VERSION));
+            idents.add(new ToscaPolicyIdentifierOptVersion(POLICY_NAME + count, POLICY_VERSION));
+        }
+
+        // multiple versions of the same policy
+        ToscaPolicy old = makePolicy(POLICY_NAME, "1.0.0");
+        ToscaPolicy latest1 = makePolicy(POLICY_NAME, "1.10.0");
+        ToscaPolicy latest = makePolicy(POLICY_NAME, "2.0.0");
+        dbPolicies.addAll(Arrays.asList(latest1, latest, old));
+
+        ToscaPolicyIdentifierOptVersion exact = new ToscaPolicyIdentifierOptVersion(POLICY_NAME, "1.0.0");
+        ToscaPolicyIdentifierOptVersion prefix = new ToscaPolicyIdentifierOptVersion(POLICY_NAME, "1");
+        ToscaPolicyIdentifierOptVersion noVersion = new ToscaPolicyIdentifierOptVersion(POLICY_NAME, null);
+        ToscaPolicyIdentifierOptVersion unknown = new ToscaPolicyIdentifierOptVersion("unknown", null);
+        idents.addAll(Arrays.asList(exact, prefix, noVersion, unknown));
+
+        when(dao.getFilteredPolicyList(any())).thenReturn(dbPolicies);
+
+        Map<ToscaPolicyIdentifierOptVersion, ToscaPolicy> policies = session.getPolicies(idents);
+
+        // should have fetched each name once, with every version, and never all policies
+        ArgumentCaptor<ToscaPolicyFilter> captor = ArgumentCaptor.forClass(ToscaPolicyFilter.class);
+        verify(dao, times(npolicies + 2)).getFilteredPolicyList(captor.capture());
+
+        Set<String> names = new HashSet<>();
+        for (ToscaPolicyFilter filter : captor.getAllValues()) {
+            assertNotNull(filter.getName());
+            assertNull(filter.getVersion());
+            assertTrue(names.add(filter.getName()));
+        }
+
+        assertEquals(idents.size() - 1, policies.size());
+        for (int count = 0; count < npolicies; ++count) {
+            assertSame(dbPolicies.get(count), policies.get(idents.get(count)));
+        }
+
+        assertSame(old, policies.get(exact));
+        assertSame(latest1, policies.get(prefix));
+        assertSame(latest, policies.get(noVersion));
+        assertNull(policies.get(unknown));
+
+        // should now be cached
+        assertSame(latest1, session.getPolicy(prefix));
+        assertSame(latest1, sharedPolicies.getIfPresent(latest1.getIdentifier()));
+        verify(dao, times(npolicies + 2)).getFilteredPolicyList(any());
+    }
+
     @Test
     public void testIsVersionPrefix() {
         assertTrue(SessionData.isVersionPrefix("1"));
@@ -527,12 +635,119 @@ public class TestSessionData extends ProviderSuper {
     }
 
     @Test
-    public void testDeleteGroupFromDb() throws Exception {
-        session.deleteGroupFromDb(group1);
+    public void testRefreshPdps() throws Exception {
+        // group 1 has two PDPs
+        PdpSubGroup subgroup = new PdpSubGroup();
+        subgroup.setPdpType(POLICY_TYPE);
+        subgroup.setPdpInstances(Arrays.asList(makePdp(PDP1, PdpHealthStatus.HEALTHY),
+                        makePdp(PDP2, PdpHealthStatus.HEALTHY)));
+        group1.setPdpSubgroups(Arrays.asList(subgroup));
+
+        // force the groups into the cache
+        when(dao.getFilteredPdpGroups(any())).thenReturn(Arrays.asList(group1, group2));
+        session.getActivePdpGroupsByPolicyType(type);
+
+        // update group 1
+        when(dao.getFilteredPdpGroups(any())).thenReturn(Arrays.asList(group1));
+        PdpGroup newgrp1 = new PdpGroup(group1);
+        session.update(newgrp1);
+
+        // the group cache has a newer copy of PDP 1 only
+        Pdp pdp1 = makePdp(PDP1, PdpHealthStatus.NOT_HEALTHY);
+        when(groupCache.getPdp(GROUP_NAME, POLICY_TYPE, PDP1)).thenReturn(pdp1);
+
+        session.refreshPdps(groupCache);
+
+        List<Pdp> pdps = newgrp1.getPdpSubgroups().get(0).getPdpInstances();
+        assertEquals(2, pdps.size());
+        assertEquals(pdp1, pdps.get(0));
+        assertNotSame(pdp1, pdps.get(0));
+        assertEquals(PDP2, pdps.get(1).getInstanceId());
+        assertEquals(PdpHealthStatus.HEALTHY, pdps.get(1).getHealthy());
+
+        // unchanged groups should not be refreshed
+        verify(groupCache, never()).getPdp(eq(group2.getName()), any(), any());
+    }
+
+    private Pdp makePdp(String instanceId, PdpHealthStatus health) {
+        Pdp pdp = new Pdp();
+        pdp.setInstanceId(instanceId);
+        pdp.setHealthy(health);
+        return pdp;
+    }
+
+    @Test
+    public void testUpdateCache() throws Exception {
+        // force the groups into the cache
+        when(dao.getFilteredPdpGroups(any())).thenReturn(Arrays.asList(group1, group2));
+        session.getActivePdpGroupsByPolicyType(type);
+
+        // create group 4
+        PdpGroup group4 = loadGroup("group4.json");
+        session.create(group4);
+
+        // update group 1
+        when(dao.getFilteredPdpGroups(any())).thenReturn(Arrays.asList(group1));
+        PdpGroup newgrp1 = new PdpGroup(group1);
+        session.update(newgrp1);
+
+        // delete group 2
+        session.deleteGroup(group2);
+
+        session.updateDb();
+        session.updateCache(groupCache);
+
+        verify(groupCache).putGroup(group4);
+        verify(groupCache).putGroup(newgrp1);
+        verify(groupCache, never()).putGroup(group2);
+        verify(groupCache).removeGroup(group2.getName());
+    }
+
+    @Test
+    public void testUpdateCache_Empty() throws Exception {
+        // force data into the cache
+        when(dao.getFilteredPdpGroups(any())).thenReturn(Arrays.asList(group1, group2));
+        session.getActivePdpGroupsByPolicyType(type);
+
+        session.updateCache(groupCache);
+        verify(groupCache, never()).putGroup(any());
+        verify(groupCache, never()).removeGroup(any());
+    }
+
+    @Test
+    public void testDeleteGroup() throws Exception {
+        session.deleteGroup(group1);
 
+        // nothing deleted until the DB is updated
+        verify(dao, never()).deletePdpGroup(any());
+
+        session.updateDb();
         verify(dao).deletePdpGroup(group1.getName());
     }
 
+    @Test
+    public void testGetModifiedGroupNames() throws Exception {
+        // force the groups into the cache
+        when(dao.getFilteredPdpGroups(any())).thenReturn(Arrays.asList(group1, group2));
+        session.getActivePdpGroupsByPolicyType(type);
+
+        assertTrue(session.getModifiedGroupNames().isEmpty());
+
+        // create group 4
+        PdpGroup group4 = loadGroup("group4.json");
+        session.create(group4);
+
+        // update group 1
+        when(dao.getFilteredPdpGroups(any())).thenReturn(Arrays.asList(group1));
+        session.update(new PdpGroup(group1));
+
+        // delete group 2
+        session.deleteGroup(group2);
+
+        assertEquals(new TreeSet<>(Arrays.asList(group1.getName(), group2.getName(), group4.getName())),
+                        session.getModifiedGroupNames());
+    }
+
     private PdpUpdate makeUpdate(String pdpName) {
         PdpUpdate update = new PdpUpdate();
 
@@ -40,6 +40,7 @@ import org.onap.policy.models.tosca.authorative.concepts.ToscaServiceTemplate;
 import org.onap.policy.pap.main.PapConstants;
 import org.onap.policy.pap.main.PolicyModelsProviderFactoryWrapper;
 import org.onap.policy.pap.main.PolicyPapRuntimeException;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
 import org.onap.policy.pap.main.rest.CommonPapRestServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -160,6 +161,9 @@ public class End2EndBase extends CommonPapRestServer {
         }
 
         dbConn.createPdpGroups(groups.getGroups());
+
+        // groups were written directly to the DB, thus the cache must be updated, too
+        Registry.get(PapConstants.REG_PDP_GROUP_CACHE, PdpGroupCache.class).putGroups(groups.getGroups());
     }
 
     /**
@@ -0,0 +1,635 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest.e2e;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import lombok.Builder;
+import lombok.NonNull;
+import org.onap.policy.common.endpoints.event.comm.Topic.CommInfrastructure;
+import org.onap.policy.common.endpoints.event.comm.TopicEndpointManager;
+import org.onap.policy.common.endpoints.event.comm.TopicListener;
+import org.onap.policy.common.endpoints.event.comm.bus.NoopTopicSource;
+import org.onap.policy.common.endpoints.listeners.MessageTypeDispatcher;
+import org.onap.policy.common.endpoints.listeners.ScoListener;
+import org.onap.policy.common.utils.coder.Coder;
+import org.onap.policy.common.utils.coder.CoderException;
+import org.onap.policy.common.utils.coder.StandardCoder;
+import org.onap.policy.common.utils.coder.StandardCoderObject;
+import org.onap.policy.models.pdp.concepts.PdpMessage;
+import org.onap.policy.models.pdp.concepts.PdpResponseDetails;
+import org.onap.policy.models.pdp.concepts.PdpStateChange;
+import org.onap.policy.models.pdp.concepts.PdpStatus;
+import org.onap.policy.models.pdp.concepts.PdpUpdate;
+import org.onap.policy.models.pdp.enums.PdpHealthStatus;
+import org.onap.policy.models.pdp.enums.PdpMessageType;
+import org.onap.policy.models.pdp.enums.PdpResponseStatus;
+import org.onap.policy.models.pdp.enums.PdpState;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicy;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyTypeIdentifier;
+import org.onap.policy.pap.main.PapConstants;
+import org.onap.policy.pap.main.metrics.LatencyHistogram;
+import org.onap.policy.pap.main.metrics.PapMetrics;
+import org.onap.policy.pap.main.metrics.PapMetrics.LatencySummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simulates a fleet of PDPs, in-process, over the same "noop" topic that is used by the
+ * {@link End2EndContext}. Whereas the context's PDPs replay canned replies, each virtual
+ * PDP registers, sends heart beats at a fixed rate, and answers every UPDATE and
+ * STATE-CHANGE that applies to it, after a random delay. A configurable fraction of the
+ * answers report a failure, by echoing the PDP's previous state and policies. Messages
+ * from PAP are routed to the PDPs by name, thus the fleet may contain thousands of PDPs.
+ *
+ * <p>The simulator records the latencies that the PDPs observe, and reports them along
+ * with PAP's own heart beat histograms.
+ */
+public class FleetSimulator implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FleetSimulator.class);
+
+    /**
+     * Latency names, as they appear in the report.
+     */
+    public static final String REGISTRATION = "fleet_registration";
+    public static final String DEPLOY_DELIVERY = "fleet_deploy_delivery";
+    public static final String DEPLOY_COMPLETION = "fleet_deploy_completion";
+
+    /**
+     * PAP histograms that are included in the report.
+     */
+    private static final List<String> PAP_HISTOGRAMS = Collections.unmodifiableList(Arrays.asList(
+                    "pap_heartbeat_latency_seconds", "pap_heartbeat_processing_seconds", "pap_pdp_response_seconds"));
+
+    /**
+     * Message placed onto a queue to stop the thread that reads it.
+     */
+    private static final String DONE = "";
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final Coder coder = new StandardCoder();
+
+    private final String pdpType;
+    private final List<ToscaPolicyTypeIdentifier> supportedPolicyTypes;
+    private final long registrationPeriodNs;
+    private final long heartbeatMs;
+    private final long minResponseMs;
+    private final long maxResponseMs;
+    private final double failureRate;
+
+    /**
+     * The virtual PDPs, in the order in which they register.
+     */
+    private final List<VirtualPdp> pdps;
+
+    /**
+     * Maps a PDP name to the virtual PDP.
+     */
+    private final Map<String, VirtualPdp> name2pdp = new ConcurrentHashMap<>();
+
+    /**
+     * Messages to be sent to PAP, and messages received from PAP.
+     */
+    private final BlockingQueue<String> toPap = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> toPdps = new LinkedBlockingQueue<>();
+
+    private final NoopTopicSource toPapTopic;
+    private final TopicListener topicListener = (infra, topic, text) -> toPdps.add(text);
+    private final MessageTypeDispatcher dispatcher;
+
+    /**
+     * Runs the registrations, heart beats and delayed replies.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    private final Thread toPapThread;
+    private final Thread toPdpsThread;
+
+    /**
+     * Counted down as each PDP receives its first UPDATE.
+     */
+    private final CountDownLatch registered;
+
+    private final LatencyHistogram registration = new LatencyHistogram();
+    private final LatencyHistogram deployDelivery = new LatencyHistogram();
+    private final LatencyHistogram deployCompletion = new LatencyHistogram();
+
+    private final LongAdder heartbeatCount = new LongAdder();
+    private final LongAdder updateCount = new LongAdder();
+    private final LongAdder stateChangeCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+
+    /**
+     * Policy whose delivery is being timed, and when its deployment started.
+     */
+    private volatile ToscaPolicyIdentifier expectedPolicy = null;
+    private volatile long deployStartNs;
+
+    private volatile boolean running = false;
+
+
+    /**
+     * Constructs the object.
+     *
+     * @param npdps number of virtual PDPs
+     * @param pdpType type of the PDPs
+     * @param supportedPolicyTypes policy types supported by the PDPs
+     * @param registrationsPerSec rate at which the PDPs register
+     * @param heartbeatMs time, in milliseconds, between each PDP's heart beats
+     * @param minResponseMs minimum time, in milliseconds, a PDP takes to answer a request
+     * @param maxResponseMs maximum time, in milliseconds, a PDP takes to answer a request
+     * @param failureRate fraction, between 0 and 1, of requests that the PDPs fail
+     * @param nthreads number of threads used to run the PDPs
+     */
+    @Builder
+    public FleetSimulator(int npdps, @NonNull String pdpType,
+                    @NonNull List<ToscaPolicyTypeIdentifier> supportedPolicyTypes, double registrationsPerSec,
+                    long heartbeatMs, long minResponseMs, long maxResponseMs, double failureRate, int nthreads) {
+
+        if (npdps < 1) {
+            throw new IllegalArgumentException("npdps must be >= 1");
+        }
+
+        if (registrationsPerSec <= 0) {
+            throw new IllegalArgumentException("registrationsPerSec must be > 0");
+        }
+
+        if (heartbeatMs < 1) {
+            throw new IllegalArgumentException("heartbeatMs must be >= 1");
+        }
+
+        if (minResponseMs < 0 || maxResponseMs < minResponseMs) {
+            throw new IllegalArgumentException("response times must satisfy 0 <= minResponseMs <= maxResponseMs");
+        }
+
+        if (failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("failureRate must be between 0 and 1");
+        }
+
+        if (nthreads < 1) {
+            throw new IllegalArgumentException("nthreads must be >= 1");
+        }
+
+        this.pdpType = pdpType;
+        this.supportedPolicyTypes = supportedPolicyTypes;
+        this.registrationPeriodNs = (long) (TimeUnit.SECONDS.toNanos(1) / registrationsPerSec);
+        this.heartbeatMs = heartbeatMs;
+        this.minResponseMs = minResponseMs;
+        this.maxResponseMs = maxResponseMs;
+        this.failureRate = failureRate;
+
+        this.pdps = new ArrayList<>(npdps);
+        for (int index = 0; index < npdps; ++index) {
+            VirtualPdp pdp = new VirtualPdp("fleet-pdp-" + index);
+            pdps.add(pdp);
+            name2pdp.put(pdp.name, pdp);
+        }
+
+        this.registered = new CountDownLatch(npdps);
+
+        this.toPapTopic = TopicEndpointManager.getManager().getNoopTopicSource(PapConstants.TOPIC_POLICY_PDP_PAP);
+
+        this.dispatcher = new MessageTypeDispatcher("messageName");
+        dispatcher.register(PdpMessageType.PDP_UPDATE.name(), new UpdateListener());
+        dispatcher.register(PdpMessageType.PDP_STATE_CHANGE.name(), new ChangeListener());
+
+        this.scheduler = Executors.newScheduledThreadPool(nthreads, runner -> {
+            Thread thread = new Thread(runner, "fleet-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.toPapThread = new Thread(this::sendToPap, "fleet-to-pap");
+        this.toPdpsThread = new Thread(this::dispatchToPdps, "fleet-to-pdps");
+    }
+
+    /**
+     * Starts the simulator. The PDPs register at the configured rate, and each starts
+     * sending heart beats once it has registered.
+     */
+    public void start() {
+        if (running) {
+            throw new IllegalStateException("already running");
+        }
+
+        running = true;
+
+        TopicEndpointManager.getManager().getNoopTopicSink(PapConstants.TOPIC_POLICY_PDP_PAP).register(topicListener);
+
+        for (Thread thread : new Thread[] {toPapThread, toPdpsThread}) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        for (int index = 0; index < pdps.size(); ++index) {
+            VirtualPdp pdp = pdps.get(index);
+            scheduler.schedule(pdp::register, index * registrationPeriodNs, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops the simulator.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+
+        scheduler.shutdownNow();
+        TopicEndpointManager.getManager().getNoopTopicSink(PapConstants.TOPIC_POLICY_PDP_PAP).unregister(topicListener);
+
+        toPap.add(DONE);
+        toPdps.add(DONE);
+    }
+
+    /**
+     * Waits for every PDP to be registered, that is, to receive its first UPDATE.
+     *
+     * @param waitMs maximum time, in milliseconds, to wait
+     * @return {@code true} if every PDP was registered, {@code false} otherwise
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitRegistration(long waitMs) throws InterruptedException {
+        return registered.await(waitMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Indicates that a policy is about to be deployed. The time until each PDP receives
+     * an UPDATE containing the policy is recorded as a delivery latency.
+     *
+     * @param policy policy that is about to be deployed
+     * @return the time, as returned by {@link System#nanoTime()}, at which the
+     *         deployment started
+     */
+    public long startDeployment(ToscaPolicyIdentifier policy) {
+        deployStartNs = System.nanoTime();
+        expectedPolicy = policy;
+        return deployStartNs;
+    }
+
+    /**
+     * Indicates that PAP has reported that a deployment is complete.
+     *
+     * @param startNs time, as returned by {@link #startDeployment(ToscaPolicyIdentifier)},
+     *        at which the deployment started
+     */
+    public void deploymentComplete(long startNs) {
+        deployCompletion.recordSince(startNs);
+        expectedPolicy = null;
+    }
+
+    /**
+     * Gets the number of PDPs that hold the given policy.
+     *
+     * @param policy policy of interest
+     * @return the number of PDPs holding the policy
+     */
+    public long countPdpsWith(ToscaPolicyIdentifier policy) {
+        return pdps.stream().filter(pdp -> pdp.policies.contains(policy)).count();
+    }
+
+    /**
+     * Gets the message counts.
+     *
+     * @return a map of count name to value, sorted by name
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        counts.put("fleet_heartbeats_sent", heartbeatCount.sum());
+        counts.put("fleet_updates_received", updateCount.sum());
+        counts.put("fleet_state_changes_received", stateChangeCount.sum());
+        counts.put("fleet_failures_injected", failureCount.sum());
+        return counts;
+    }
+
+    /**
+     * Gets the latencies observed by the PDPs, along with PAP's heart beat and response
+     * latencies.
+     *
+     * @return a map of latency name to summary, sorted by name
+     */
+    public Map<String, LatencySummary> getLatencies() {
+        Map<String, LatencySummary> latencies = new TreeMap<>();
+        latencies.put(REGISTRATION, new LatencySummary(registration.snapshot()));
+        latencies.put(DEPLOY_DELIVERY, new LatencySummary(deployDelivery.snapshot()));
+        latencies.put(DEPLOY_COMPLETION, new LatencySummary(deployCompletion.snapshot()));
+
+        PapMetrics.lookup().getLatencies().forEach((name, summary) -> {
+            if (PAP_HISTOGRAMS.stream().anyMatch(name::startsWith)) {
+                latencies.put(name, summary);
+            }
+        });
+
+        return latencies;
+    }
+
+    /**
+     * Makes a report of the counts and latencies, one per line.
+     *
+     * @return a report of the counts and latencies
+     */
+    public String makeReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("fleet of ").append(pdps.size()).append(" PDPs\n");
+
+        getCounts().forEach((name, value) -> report.append(name).append(' ').append(value).append('\n'));
+
+        getLatencies().forEach((name, summary) -> report.append(String.format(
+                        "%s count=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms%n", name,
+                        summary.getCount(), summary.getMeanMs(), summary.getP50Ms(), summary.getP90Ms(),
+                        summary.getP99Ms(), summary.getMaxMs())));
+
+        return report.toString();
+    }
+
+    /**
+     * Passes messages from the {@link #toPap} queue to PAP's topic source, until
+     * {@link #DONE} is seen.
+     */
+    private void sendToPap() {
+        for (;;) {
+            String text;
+            try {
+                text = toPap.take();
+            } catch (InterruptedException e) {
+                logger.warn("fleet simulator interrupted", e);
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (DONE.equals(text)) {
+                break;
+            }
+
+            toPapTopic.offer(text);
+        }
+    }
+
+    /**
+     * Dispatches messages from the {@link #toPdps} queue to the PDPs, until {@link #DONE}
+     * is seen.
+     */
+    private void dispatchToPdps() {
+        for (;;) {
+            String text;
+            try {
+                text = toPdps.take();
+            } catch (InterruptedException e) {
+                logger.warn("fleet simulator interrupted", e);
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (DONE.equals(text)) {
+                break;
+            }
+
+            dispatcher.onTopicEvent(CommInfrastructure.NOOP, PapConstants.TOPIC_POLICY_PDP_PAP, text);
+        }
+    }
+
+    /**
+     * Gets the PDPs to which a message applies. Messages that are addressed to a PDP are
+     * looked up by name; broadcasts are checked against every PDP.
+     *
+     * @param message message received from PAP
+     * @return the PDPs to which the message applies
+     */
+    private List<VirtualPdp> getTargets(PdpMessage message) {
+        if (message.getName() != null) {
+            VirtualPdp pdp = name2pdp.get(message.getName());
+            return (pdp == null ? Collections.emptyList() : Collections.singletonList(pdp));
+        }
+
+        return pdps.stream().filter(pdp -> message.appliesTo(pdp.name, pdp.group, pdp.subgroup))
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * Enqueues a message to be sent to PAP.
+     *
+     * @param status message to be sent
+     */
+    private void send(PdpStatus status) {
+        try {
+            toPap.add(coder.encode(status));
+
+        } catch (CoderException e) {
+            logger.warn("cannot encode message from {}", status.getName(), e);
+        }
+    }
+
+    /**
+     * Listener for UPDATE messages received from PAP.
+     */
+    private class UpdateListener extends ScoListener<PdpUpdate> {
+        public UpdateListener() {
+            super(PdpUpdate.class);
+        }
+
+        @Override
+        public void onTopicEvent(CommInfrastructure infra, String topic, StandardCoderObject sco, PdpUpdate update) {
+            updateCount.increment();
+            getTargets(update).forEach(pdp -> pdp.handle(update));
+        }
+    }
+
+    /**
+     * Listener for STATE-CHANGE messages received from PAP.
+     */
+    private class ChangeListener extends ScoListener<PdpStateChange> {
+        public ChangeListener() {
+            super(PdpStateChange.class);
+        }
+
+        @Override
+        public void onTopicEvent(CommInfrastructure infra, String topic, StandardCoderObject sco,
+                        PdpStateChange change) {
+            stateChangeCount.increment();
+            getTargets(change).forEach(pdp -> pdp.handle(change));
+        }
+    }
+
+    /**
+     * Simulated PDP. Its state is only changed by the thread dispatching PAP's messages,
+     * but it is read by the threads sending heart beats and replies.
+     */
+    private class VirtualPdp {
+        private final String name;
+
+        private volatile String group = null;
+        private volatile String subgroup = null;
+        private volatile PdpState state = PdpState.PASSIVE;
+        private volatile List<ToscaPolicyIdentifier> policies = Collections.emptyList();
+
+        /**
+         * Time, as returned by {@link System#nanoTime()}, at which the PDP registered, or
+         * {@code 0} once it has received its first UPDATE.
+         */
+        private volatile long registeredNs = 0;
+
+        private VirtualPdp(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Registers with PAP and starts sending heart beats.
+         */
+        private void register() {
+            registeredNs = System.nanoTime();
+            send(makeStatus());
+
+            // stagger the heart beats so they are spread evenly across the interval
+            long delayMs = ThreadLocalRandom.current().nextLong(heartbeatMs) + 1;
+            scheduler.scheduleAtFixedRate(this::heartbeat, delayMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void heartbeat() {
+            heartbeatCount.increment();
+            send(makeStatus());
+        }
+
+        /**
+         * Handles an UPDATE, recording its latency, and schedules a reply.
+         *
+         * @param update message received from PAP
+         */
+        private void handle(PdpUpdate update) {
+            long startNs = registeredNs;
+            if (startNs != 0) {
+                registeredNs = 0;
+                registration.recordSince(startNs);
+                registered.countDown();
+            }
+
+            List<ToscaPolicyIdentifier> newPolicies = update.getPolicies() == null ? Collections.emptyList()
+                            : update.getPolicies().stream().map(ToscaPolicy::getIdentifier)
+                                            .collect(Collectors.toList());
+
+            ToscaPolicyIdentifier expected = expectedPolicy;
+            if (expected != null && newPolicies.contains(expected) && !policies.contains(expected)) {
+                deployDelivery.recordSince(deployStartNs);
+            }
+
+            if (isFailure()) {
+                scheduleReply(update, makeStatus(), PdpResponseStatus.FAIL);
+
+            } else {
+                group = update.getPdpGroup();
+                subgroup = update.getPdpSubgroup();
+                policies = newPolicies;
+                scheduleReply(update, makeStatus(), PdpResponseStatus.SUCCESS);
+            }
+        }
+
+        /**
+         * Handles a STATE-CHANGE, and schedules a reply.
+         *
+         * @param change message received from PAP
+         */
+        private void handle(PdpStateChange change) {
+            if (isFailure()) {
+                scheduleReply(change, makeStatus(), PdpResponseStatus.FAIL);
+
+            } else {
+                state = change.getState();
+                scheduleReply(change, makeStatus(), PdpResponseStatus.SUCCESS);
+            }
+        }
+
+        /**
+         * Determines if the current request should fail.
+         *
+         * @return {@code true} if the request should fail, {@code false} otherwise
+         */
+        private boolean isFailure() {
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failureCount.increment();
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Schedules a reply to a request, after a random delay.
+         *
+         * @param request request to which to reply
+         * @param reply reply, reflecting the PDP's state once the request was handled
+         * @param status response status
+         */
+        private void scheduleReply(PdpMessage request, PdpStatus reply, PdpResponseStatus status) {
+            PdpResponseDetails response = new PdpResponseDetails();
+            response.setResponseTo(request.getRequestId());
+            response.setResponseStatus(status);
+            reply.setResponse(response);
+
+            long delayMs = minResponseMs + ThreadLocalRandom.current().nextLong(maxResponseMs - minResponseMs + 1);
+
+            try {
+                scheduler.schedule(() -> send(reply), delayMs, TimeUnit.MILLISECONDS);
+
+            } catch (RejectedExecutionException e) {
+                logger.debug("simulator stopped - discarding reply from {}", name, e);
+            }
+        }
+
+        /**
+         * Makes a status message reflecting the PDP's current state.
+         *
+         * @return a new status message
+         */
+        private PdpStatus makeStatus() {
+            PdpStatus status = new PdpStatus();
+            status.setName(name);
+            status.setPdpType(pdpType);
+            status.setPdpGroup(group);
+            status.setPdpSubgroup(subgroup);
+            status.setState(state);
+            status.setHealthy(PdpHealthStatus.HEALTHY);
+            status.setSupportedPolicyTypes(supportedPolicyTypes);
+            status.setPolicies(policies);
+
+            return status;
+        }
+    }
+}
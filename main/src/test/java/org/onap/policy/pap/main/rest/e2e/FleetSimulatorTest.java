@@ -0,0 +1,197 @@
+/*
+ * ============LICENSE_START=======================================================
+ * ONAP PAP
+ * ================================================================================
+ * Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.policy.pap.main.rest.e2e;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.onap.policy.models.pap.concepts.PdpDeployPolicies;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifierOptVersion;
+import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyTypeIdentifier;
+import org.onap.policy.pap.main.comm.DeploymentStatus;
+import org.onap.policy.pap.main.comm.DeploymentStatus.State;
+import org.onap.policy.pap.main.metrics.PapMetrics.LatencySummary;
+import org.onap.policy.pap.main.rest.PapRestControllerV1;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a {@link FleetSimulator} against PAP. By default, the fleet is small, so that the
+ * test runs quickly; it may be scaled up via system properties, for instance:
+ *
+ * <pre>
+ * mvn test -Dtest=FleetSimulatorTest -Dfleet.pdps=10000 -Dfleet.registrationsPerSec=500
+ * </pre>
+ */
+public class FleetSimulatorTest extends End2EndBase {
+    private static final Logger logger = LoggerFactory.getLogger(FleetSimulatorTest.class);
+
+    private static final String DEPLOY_POLICIES_ENDPOINT = "pdps/policies";
+    private static final String DEPLOYMENTS_ENDPOINT = "deployments/";
+    private static final String PDP_TYPE = "fleetType";
+
+    private static final int NPDPS = Integer.getInteger("fleet.pdps", 20);
+    private static final int NDEPLOYMENTS = Integer.getInteger("fleet.deployments", 2);
+    private static final double REGISTRATIONS_PER_SEC =
+                    Double.parseDouble(System.getProperty("fleet.registrationsPerSec", "200"));
+    private static final long HEARTBEAT_MS = Long.getLong("fleet.heartbeatMs", 2000);
+    private static final long MIN_RESPONSE_MS = Long.getLong("fleet.minResponseMs", 0);
+    private static final long MAX_RESPONSE_MS = Long.getLong("fleet.maxResponseMs", 20);
+    private static final double FAILURE_RATE = Double.parseDouble(System.getProperty("fleet.failureRate", "0"));
+    private static final int NTHREADS = Integer.getInteger("fleet.threads", 4);
+    private static final long WAIT_MS = Long.getLong("fleet.waitMs", 30000);
+
+    private static final ToscaPolicyTypeIdentifier POLICY_TYPE =
+                    new ToscaPolicyTypeIdentifier("onap.policies.monitoring.cdap.tca.hi.lo.app", "1.0.0");
+    private static final ToscaPolicyIdentifier POLICY = new ToscaPolicyIdentifier("onap.restart.tca", "1.0.0");
+
+    private FleetSimulator simulator;
+
+    /**
+     * Starts Main and adds the policies and the fleet's group to the DB.
+     *
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        End2EndBase.setUpBeforeClass();
+
+        addToscaPolicyTypes("monitoring.policy-type.yaml");
+        addToscaPolicies("monitoring.policy.yaml");
+        addGroups("fleetGroup.json");
+    }
+
+    /**
+     * Stops the simulator.
+     */
+    @After
+    public void tearDown() {
+        if (simulator != null) {
+            simulator.close();
+        }
+
+        super.tearDown();
+    }
+
+    @Test
+    public void testFleet() throws Exception {
+        simulator = FleetSimulator.builder().npdps(NPDPS).pdpType(PDP_TYPE)
+                        .supportedPolicyTypes(Collections.singletonList(POLICY_TYPE))
+                        .registrationsPerSec(REGISTRATIONS_PER_SEC).heartbeatMs(HEARTBEAT_MS)
+                        .minResponseMs(MIN_RESPONSE_MS).maxResponseMs(MAX_RESPONSE_MS).failureRate(FAILURE_RATE)
+                        .nthreads(NTHREADS).build();
+
+        simulator.start();
+        assertTrue(simulator.awaitRegistration(WAIT_MS));
+
+        for (int count = 0; count < NDEPLOYMENTS; ++count) {
+            long startNs = simulator.startDeployment(POLICY);
+            State state = awaitDeployment(deploy());
+            simulator.deploymentComplete(startNs);
+
+            if (FAILURE_RATE == 0) {
+                assertEquals(State.SUCCESS, state);
+                assertEquals(NPDPS, simulator.countPdpsWith(POLICY));
+            }
+
+            state = awaitDeployment(undeploy());
+
+            if (FAILURE_RATE == 0) {
+                assertEquals(State.SUCCESS, state);
+                assertEquals(0, simulator.countPdpsWith(POLICY));
+            }
+        }
+
+        logger.info("fleet simulation results:\n{}", simulator.makeReport());
+
+        Map<String, LatencySummary> latencies = simulator.getLatencies();
+        assertEquals(NPDPS, latencies.get(FleetSimulator.REGISTRATION).getCount());
+        assertEquals(NDEPLOYMENTS, latencies.get(FleetSimulator.DEPLOY_COMPLETION).getCount());
+        assertTrue(latencies.get("pap_heartbeat_processing_seconds").getCount() >= NPDPS);
+
+        if (FAILURE_RATE == 0) {
+            assertEquals((long) NPDPS * NDEPLOYMENTS, latencies.get(FleetSimulator.DEPLOY_DELIVERY).getCount());
+        }
+    }
+
+    /**
+     * Deploys the policy.
+     *
+     * @return the deployment's tracking ID
+     * @throws Exception if an error occurs
+     */
+    private String deploy() throws Exception {
+        PdpDeployPolicies request = new PdpDeployPolicies();
+        request.setPolicies(Collections.singletonList(new ToscaPolicyIdentifierOptVersion(POLICY)));
+
+        Response rawresp = sendRequest(DEPLOY_POLICIES_ENDPOINT)
+                        .post(Entity.entity(request, MediaType.APPLICATION_JSON));
+        assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+
+        return rawresp.getHeaderString(PapRestControllerV1.TRACKING_ID_NAME);
+    }
+
+    /**
+     * Undeploys the policy.
+     *
+     * @return the undeployment's tracking ID
+     * @throws Exception if an error occurs
+     */
+    private String undeploy() throws Exception {
+        Response rawresp = sendRequest(DEPLOY_POLICIES_ENDPOINT + "/" + POLICY.getName()).delete();
+        assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+
+        return rawresp.getHeaderString(PapRestControllerV1.TRACKING_ID_NAME);
+    }
+
+    /**
+     * Waits for a deployment to complete.
+     *
+     * @param trackingId the deployment's tracking ID
+     * @return the deployment's final state
+     * @throws Exception if an error occurs
+     */
+    private State awaitDeployment(String trackingId) throws Exception {
+        assertNotNull(trackingId);
+
+        long endMs = System.currentTimeMillis() + WAIT_MS;
+        State state;
+
+        do {
+            Response rawresp = sendRequest(DEPLOYMENTS_ENDPOINT + trackingId + "?waitMs=" + WAIT_MS).get();
+            assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+            state = rawresp.readEntity(DeploymentStatus.class).getState();
+
+        } while (state == State.IN_PROGRESS && System.currentTimeMillis() < endMs);
+
+        return state;
+    }
+}
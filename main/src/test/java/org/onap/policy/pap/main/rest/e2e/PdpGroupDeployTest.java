@@ -21,6 +21,7 @@
 package org.onap.policy.pap.main.rest.e2e;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -40,6 +41,9 @@ import org.onap.policy.models.pdp.concepts.PdpGroups;
 import org.onap.policy.models.pdp.concepts.PdpStatus;
 import org.onap.policy.models.pdp.enums.PdpState;
 import org.onap.policy.models.tosca.authorative.concepts.ToscaPolicyIdentifier;
+import org.onap.policy.pap.main.comm.DeploymentStatus;
+import org.onap.policy.pap.main.comm.DeploymentStatus.State;
+import org.onap.policy.pap.main.rest.PapRestControllerV1;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +53,7 @@ public class PdpGroupDeployTest extends End2EndBase {
     private static final String DEPLOY_GROUP_ENDPOINT = "pdps";
     private static final String DEPLOY_POLICIES_ENDPOINT = "pdps/policies";
     private static final String DELETE_GROUP_ENDPOINT = "pdps/groups";
+    private static final String DEPLOYMENTS_ENDPOINT = "deployments/";
     private static final String CREATE_SUBGROUP = "pdpTypeA";
     private static final String DEPLOY_SUBGROUP = "pdpTypeA";
 
@@ -166,11 +171,19 @@ public class PdpGroupDeployTest extends End2EndBase {
         assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
         assertNull(resp.getErrorDetails());
 
+        String trackingId = rawresp.getHeaderString(PapRestControllerV1.TRACKING_ID_NAME);
+        assertNotNull(trackingId);
+
         context.await();
 
         // one of the PDPs should not have handled any requests
         assertEquals(1, context.getPdps().stream().filter(pdp -> pdp.getHandled().isEmpty()).count());
 
+        // the deployment should complete once both PDPs have replied
+        rawresp = sendRequest(DEPLOYMENTS_ENDPOINT + trackingId + "?waitMs=5000").get();
+        assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+        assertEquals(State.SUCCESS, rawresp.readEntity(DeploymentStatus.class).getState());
+
         // repeat - should be OK
         rawresp = invocationBuilder.post(entity);
         resp = rawresp.readEntity(PdpGroupDeployResponse.class);
@@ -73,6 +73,45 @@ public class PdpGroupQueryTest extends End2EndBase {
         checkGroup2(resp.getGroups().get(1));
     }
 
+    @Test
+    public void testFiltered() throws Exception {
+        PdpGroups resp = query("?group=queryGroup2");
+        assertEquals("[queryGroup2]", mapList(resp.getGroups(), PdpGroup::getName).toString());
+        checkGroup2(resp.getGroups().get(0));
+
+        resp = query("?state=PASSIVE");
+        assertEquals("[queryGroup1]", mapList(resp.getGroups(), PdpGroup::getName).toString());
+
+        // only the matching subgroups should be included
+        resp = query("?pdpType=pdpTypeA");
+        assertEquals("[queryGroup1, queryGroup2]", mapList(resp.getGroups(), PdpGroup::getName).toString());
+        assertEquals("[pdpTypeA]",
+                        mapList(resp.getGroups().get(0).getPdpSubgroups(), PdpSubGroup::getPdpType).toString());
+        checkSubGroup11(resp.getGroups().get(0).getPdpSubgroups().get(0));
+
+        resp = query("?group=unknown");
+        assertTrue(resp.getGroups().isEmpty());
+    }
+
+    @Test
+    public void testPaged() throws Exception {
+        PdpGroups resp = query("?limit=1");
+        assertEquals("[queryGroup1]", mapList(resp.getGroups(), PdpGroup::getName).toString());
+        checkGroup1(resp.getGroups().get(0));
+
+        resp = query("?offset=1&limit=1");
+        assertEquals("[queryGroup2]", mapList(resp.getGroups(), PdpGroup::getName).toString());
+
+        resp = query("?offset=2");
+        assertTrue(resp.getGroups().isEmpty());
+    }
+
+    private PdpGroups query(String queryString) throws Exception {
+        Response rawresp = sendRequest(GROUP_ENDPOINT + queryString).get();
+        assertEquals(Response.Status.OK.getStatusCode(), rawresp.getStatus());
+        return rawresp.readEntity(PdpGroups.class);
+    }
+
     private void checkGroup1(PdpGroup group) {
         assertEquals("[pdpTypeA, pdpTypeB]", mapList(group.getPdpSubgroups(), PdpSubGroup::getPdpType).toString());
 
@@ -37,11 +37,20 @@ import org.onap.policy.common.endpoints.utils.ParameterUtils;
 import org.onap.policy.common.utils.services.Registry;
 import org.onap.policy.pap.main.PapConstants;
 import org.onap.policy.pap.main.PolicyPapException;
+import org.onap.policy.pap.main.comm.DeploymentTracker;
+import org.onap.policy.pap.main.comm.PdpGroupCache;
+import org.onap.policy.pap.main.comm.PdpGroupLockManager;
+import org.onap.policy.pap.main.comm.PdpHealthWriter;
+import org.onap.policy.pap.main.comm.PdpMessageCompressor;
 import org.onap.policy.pap.main.comm.PdpModifyRequestMap;
+import org.onap.policy.pap.main.comm.RolloutScheduler;
+import org.onap.policy.pap.main.comm.ToscaPolicyCache;
+import org.onap.policy.pap.main.metrics.PapMetrics;
 import org.onap.policy.pap.main.parameters.CommonTestData;
 import org.onap.policy.pap.main.parameters.PapParameterGroup;
 import org.onap.policy.pap.main.parameters.PapParameterHandler;
 import org.onap.policy.pap.main.rest.PapStatisticsManager;
+import org.onap.policy.pap.main.rest.PdpQuerySnapshots;
 
 
 /**
@@ -96,6 +105,15 @@ public class TestPapActivator {
         assertNotNull(Registry.get(PapConstants.REG_PDP_MODIFY_LOCK, Object.class));
         assertNotNull(Registry.get(PapConstants.REG_STATISTICS_MANAGER, PapStatisticsManager.class));
         assertNotNull(Registry.get(PapConstants.REG_PDP_MODIFY_MAP, PdpModifyRequestMap.class));
+        assertNotNull(Registry.get(PapConstants.REG_PDP_GROUP_CACHE, PdpGroupCache.class));
+        assertNotNull(Registry.get(PapConstants.REG_PDP_HEALTH_WRITER, PdpHealthWriter.class));
+        assertNotNull(Registry.get(PapConstants.REG_POLICY_CACHE, ToscaPolicyCache.class));
+        assertNotNull(Registry.get(PapConstants.REG_PDP_GROUP_LOCKS, PdpGroupLockManager.class));
+        assertNotNull(Registry.get(PapConstants.REG_DEPLOYMENT_TRACKER, DeploymentTracker.class));
+        assertNotNull(Registry.get(PapConstants.REG_ROLLOUT_SCHEDULER, RolloutScheduler.class));
+        assertNotNull(Registry.get(PapConstants.REG_PDP_MESSAGE_COMPRESSOR, PdpMessageCompressor.class));
+        assertNotNull(Registry.get(PapConstants.REG_PDP_QUERY_SNAPSHOTS, PdpQuerySnapshots.class));
+        assertNotNull(Registry.get(PapConstants.REG_PAP_METRICS, PapMetrics.class));
 
         // repeat - should throw an exception
         assertThatIllegalStateException().isThrownBy(() -> activator.start());
@@ -113,6 +131,16 @@ public class TestPapActivator {
         assertNull(Registry.getOrDefault(PapConstants.REG_PDP_MODIFY_LOCK, Object.class, null));
         assertNull(Registry.getOrDefault(PapConstants.REG_STATISTICS_MANAGER, PapStatisticsManager.class, null));
         assertNull(Registry.getOrDefault(PapConstants.REG_PDP_MODIFY_MAP, PdpModifyRequestMap.class, null));
+        assertNull(Registry.getOrDefault(PapConstants.REG_PDP_GROUP_CACHE, PdpGroupCache.class, null));
+        assertNull(Registry.getOrDefault(PapConstants.REG_PDP_HEALTH_WRITER, PdpHealthWriter.class, null));
+        assertNull(Registry.getOrDefault(PapConstants.REG_POLICY_CACHE, ToscaPolicyCache.class, null));
+        assertNull(Registry.getOrDefault(PapConstants.REG_PDP_GROUP_LOCKS, PdpGroupLockManager.class, null));
+        assertNull(Registry.getOrDefault(PapConstants.REG_DEPLOYMENT_TRACKER, DeploymentTracker.class, null));
+        assertNull(Registry.getOrDefault(PapConstants.REG_ROLLOUT_SCHEDULER, RolloutScheduler.class, null));
+        assertNull(Registry.getOrDefault(PapConstants.REG_PDP_MESSAGE_COMPRESSOR, PdpMessageCompressor.class,
+                        null));
+        assertNull(Registry.getOrDefault(PapConstants.REG_PDP_QUERY_SNAPSHOTS, PdpQuerySnapshots.class, null));
+        assertNull(Registry.getOrDefault(PapConstants.REG_PAP_METRICS, PapMetrics.class, null));
 
         // repeat - should throw an exception
         assertThatIllegalStateException().isThrownBy(() -> activator.stop());
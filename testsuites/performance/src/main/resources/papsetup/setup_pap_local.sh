@@ -0,0 +1,57 @@
+#!/bin/bash
+# ============LICENSE_START=======================================================
+#  Copyright (C) 2019 AT&T Intellectual Property. All rights reserved.
+# ================================================================================
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+# SPDX-License-Identifier: Apache-2.0
+# ============LICENSE_END=========================================================
+
+#
+# Starts a PAP from an unpacked policy-pap tarball, backed by an H2 file DB
+# (/tmp/policyadmin) and a DMaaP simulator on localhost:3904 standing in for
+# the bus.  Because the DB is opened with AUTO_SERVER=TRUE, a policy-api that
+# is pointed at the same URL can share it to create the policies that perf.jmx
+# deploys.
+#
+# Usage: setup_pap_local.sh <pap-home> <h2-jar>
+#
+# Set START_SIMULATOR=false if a simulator is already running.  To run without
+# any bus, change the topics in papConfigH2.json to "noop" and run the test
+# plan with -JheartbeatUsers=0.
+#
+
+if [ "$#" -lt 2 ]; then
+    echo "Usage: $0 <pap-home> <h2-jar>"
+    exit 1
+fi
+
+PAP_HOME=$1
+H2_JAR=$2
+
+# the directory of the script
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+CONFIG_FILE=${DIR}/config/pap/etc/papConfigH2.json
+
+KEYSTORE="${PAP_HOME}/etc/ssl/policy-keystore"
+KEYSTORE_PASSWD="Pol1cy_0nap"
+TRUSTSTORE="${PAP_HOME}/etc/ssl/policy-truststore"
+TRUSTSTORE_PASSWD="Pol1cy_0nap"
+
+if [ "${START_SIMULATOR}" != "false" ]; then
+    docker run -p 3904:3904 -d --name dmaap-simulator --rm dmaap/simulator:latest
+fi
+
+echo "Policy pap config file: ${CONFIG_FILE}"
+
+java -cp "${PAP_HOME}/etc:${PAP_HOME}/lib/*:${H2_JAR}" -Djavax.net.ssl.keyStore="${KEYSTORE}" -Djavax.net.ssl.keyStorePassword="${KEYSTORE_PASSWD}" -Djavax.net.ssl.trustStore="${TRUSTSTORE}" -Djavax.net.ssl.trustStorePassword="${TRUSTSTORE_PASSWD}" org.onap.policy.pap.main.startstop.Main -c "${CONFIG_FILE}"
@@ -19,16 +19,96 @@
 #============LICENSE_END=========================================================
 
 LOGFILE=$1
+SLOFILE=$2
 if [[ ! -f $LOGFILE ]]; then
   echo "The file '$LOGFILE' in not provided."
   echo "Please provide log file to process."
   exit 1
 fi
 
+# default SLOs, one per line: label|max 95th percentile (ms)|min requests/sec|max error %
+DEFAULT_SLOS="Deploy Policy PAP|2000|5|1
+Undeploy Policy PAP|2000|5|1
+Create or Update PdpGroup PAP|2000|5|1
+Passivate PdpGroup PAP|1000|10|1
+Activate PdpGroup PAP|1000|10|1
+Query PdpGroups PAP|500|50|1"
+
+if [[ -n $SLOFILE && ! -f $SLOFILE ]]; then
+  echo "The SLO file '$SLOFILE' does not exist."
+  exit 1
+fi
+
 echo "File being processed: " $LOGFILE
-RES=$(awk -F "," 'NR>1 { total += $15 } END { print total/NR }' $LOGFILE)
+
+# locate the columns by name, as the set of saved columns is configurable
+COLS=$(head -1 $LOGFILE | awk -F "," '{
+  for (i = 1; i <= NF; i++) col[$i] = i
+  print col["timeStamp"], col["elapsed"], col["label"], col["success"], col["Latency"]
+}')
+read TS_COL ELAPSED_COL LABEL_COL SUCCESS_COL LATENCY_COL <<< "$COLS"
+
+RES=$(awk -F "," -v c=$LATENCY_COL 'NR>1 { total += $c } END { print (NR>1 ? total/(NR-1) : 0) }' $LOGFILE)
 echo "Average Latency: " $RES
-LC=$(awk 'END{print NR}' $LOGFILE)
+LC=$(awk 'END{print NR-1}' $LOGFILE)
 echo "Total Requests:" $LC
-echo "Requests/sec:" $((LC/5))
+DURATION_SEC=$(awk -F "," -v t=$TS_COL -v e=$ELAPSED_COL 'NR>1 {
+  if (first == "" || $t < first) first = $t
+  if ($t + $e > last) last = $t + $e
+} END { d = (last - first) / 1000; print (d < 1 ? 1 : d) }' $LOGFILE)
+echo "Requests/sec:" $(awk -v n=$LC -v d=$DURATION_SEC 'BEGIN { printf "%.2f", n/d }')
+
+# per-label statistics: label, count, req/sec, avg, p95, p99, max, error %
+STATS=$(awk -F "," -v OFS="\t" -v t=$TS_COL -v e=$ELAPSED_COL -v l=$LABEL_COL -v s=$SUCCESS_COL \
+    'NR>1 { print $l, $e, $t, $s }' $LOGFILE | sort -t $'\t' -k1,1 -k2,2n | awk -F "\t" -v OFS="\t" '
+  function flush() {
+    if (n == 0) return
+    d = (last - first) / 1000
+    if (d < 1) d = 1
+    p95 = vals[int(n * 0.95 + 0.999999)]
+    p99 = vals[int(n * 0.99 + 0.999999)]
+    printf "%s\t%d\t%.2f\t%.1f\t%d\t%d\t%d\t%.2f\n", label, n, n/d, total/n, p95, p99, vals[n], 100*errs/n
+  }
+  $1 != label { flush(); label = $1; n = 0; total = 0; errs = 0; first = ""; last = 0 }
+  {
+    vals[++n] = $2
+    total += $2
+    if ($4 != "true") errs++
+    if (first == "" || $3 < first) first = $3
+    if ($3 + $2 > last) last = $3 + $2
+  }
+  END { flush() }')
+
+echo
+printf "%-40s %8s %10s %9s %8s %8s %8s %8s\n" "Label" "Count" "Req/sec" "Avg(ms)" "P95(ms)" "P99(ms)" "Max(ms)" "Error%"
+echo "$STATS" | awk -F "\t" '{ printf "%-40s %8d %10.2f %9.1f %8d %8d %8d %8.2f\n", $1, $2, $3, $4, $5, $6, $7, $8 }'
+
+# check each SLO against the statistics for its label
+if [[ -n $SLOFILE ]]; then
+  SLOS=$(grep -v "^#" $SLOFILE)
+else
+  SLOS=$DEFAULT_SLOS
+fi
+
+echo
+VIOLATIONS=$(awk -F "\t" '
+  FNR == NR { split($0, f, "|"); if (f[1] != "") { slo95[f[1]] = f[2]; sloTps[f[1]] = f[3]; sloErr[f[1]] = f[4] }; next }
+  { count[$1] = $2; tps[$1] = $3; p95[$1] = $5; err[$1] = $8 }
+  END {
+    for (lbl in slo95) {
+      if (!(lbl in count)) { print "MISSING  " lbl ": no samples"; bad++; continue }
+      if (p95[lbl] > slo95[lbl]) { print "FAILED   " lbl ": p95 " p95[lbl] "ms > " slo95[lbl] "ms"; bad++ }
+      if (tps[lbl] < sloTps[lbl]) { print "FAILED   " lbl ": " tps[lbl] " req/sec < " sloTps[lbl]; bad++ }
+      if (err[lbl] > sloErr[lbl]) { print "FAILED   " lbl ": errors " err[lbl] "% > " sloErr[lbl] "%"; bad++ }
+    }
+    exit (bad > 0)
+  }' <(echo "$SLOS") <(echo "$STATS"))
+RC=$?
+
+if [[ $RC -ne 0 ]]; then
+  echo "$VIOLATIONS"
+  echo "SLO check: FAILED"
+  exit 2
+fi
 
+echo "SLO check: PASSED"